@@ -63,8 +63,6 @@ import com.jetbrains.lang.dart.sdk.DartSdk;
 import com.jetbrains.lang.dart.sdk.DartSdkUpdateChecker;
 import com.jetbrains.lang.dart.sdk.DartSdkUtil;
 import com.jetbrains.lang.dart.util.PubspecYamlUtil;
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import kotlinx.coroutines.CoroutineScope;
 import org.dartlang.analysis.server.protocol.*;
 import org.jetbrains.annotations.Contract;
@@ -127,6 +125,8 @@ public final class DartAnalysisServerService implements Disposable {
   private static final long ANALYSIS_IN_TESTS_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
   private static final long LSP_MESSAGE_TEXT_DOCUMENT_CONTENT_TIMEOUT = TimeUnit.SECONDS.toMillis(50);
   private static final long TESTS_TIMEOUT_COEFF = 10;
+  // no document has this modification stamp, so the overlays with it are sent whole
+  static final long RESENT_OVERLAY_TIMESTAMP = -1;
 
   private static final Logger LOG = Logger.getInstance(DartAnalysisServerService.class);
 
@@ -151,6 +151,8 @@ public final class DartAnalysisServerService implements Disposable {
   private final Map<String, Long> myFilePathWithOverlaidContentToTimestamp = Collections.synchronizedMap(new HashMap<>());
   private final List<String> myVisibleFileUris = new ArrayList<>();
   private final Set<Document> myChangedDocuments = new HashSet<>();
+  // edits made since the content overlay was last sent, to be sent as ChangeContentOverlay instead of the whole text
+  private final Map<Document, PendingEdits> myPendingEdits = new HashMap<>();
   private final Alarm myUpdateFilesAlarm;
 
   @NotNull private final Queue<CompletionInfo> myCompletionInfos = new LinkedList<>();
@@ -168,12 +170,8 @@ public final class DartAnalysisServerService implements Disposable {
   private boolean myHaveShownInitialProgress;
   private boolean mySentAnalysisBusy;
 
-  // files with red squiggles in Project View. This field is also used as a lock to access these 3 collections
-  @NotNull private final Set<String> myFilePathsWithErrors = new HashSet<>();
-  // how many files with errors are in this folder (recursively)
-  @NotNull private final Object2IntMap<String> myFolderPathsWithErrors = new Object2IntOpenHashMap<>();
-  // errors hash is tracked to optimize error notification listener: do not handle equal notifications more than once
-  @NotNull private final Object2IntMap<String> myFilePathToErrorsHash = new Object2IntOpenHashMap<>();
+  // files and folders with red squiggles in Project View, and problem counts by severity
+  @NotNull private final DartErrorIndex myErrorIndex = new DartErrorIndex();
 
   @NotNull private final EvictingQueue<String> myDebugLog = EvictingQueue.create(DEBUG_LOG_CAPACITY);
 
@@ -216,12 +214,8 @@ public final class DartAnalysisServerService implements Disposable {
       }
 
       final List<AnalysisError> errorsWithoutTodo = errors.isEmpty() ? Collections.emptyList() : new ArrayList<>(errors.size());
-      boolean hasSevereProblems = false;
 
       for (AnalysisError error : errors) {
-        if (AnalysisErrorSeverity.ERROR.equals(error.getSeverity())) {
-          hasSevereProblems = true;
-        }
         if (!AnalysisErrorType.TODO.equals(error.getType())) {
           errorsWithoutTodo.add(error);
         }
@@ -230,11 +224,8 @@ public final class DartAnalysisServerService implements Disposable {
       int newHash = errorsWithoutTodo.isEmpty() ? 0 : ensureNotZero(errorsWithoutTodo.hashCode());
 
       if (fileInfo instanceof DartLocalFileInfo localFileInfo) {
-        int oldHash;
-        synchronized (myFilePathsWithErrors) {
-          // TObjectIntHashMap returns 0 if there's no such entry, it's equivalent to empty error set for this file
-          oldHash = myFilePathToErrorsHash.getInt(localFileInfo.getFilePath());
-        }
+        // 0 if there's no such entry, it's equivalent to empty error set for this file
+        int oldHash = myErrorIndex.getErrorsHash(localFileInfo.getFilePath());
 
         // do nothing if errors are the same as were already handled previously
         if (oldHash == newHash && myServerData.isErrorInfoUpToDate(localFileInfo)) return;
@@ -247,7 +238,7 @@ public final class DartAnalysisServerService implements Disposable {
 
       if (myServerData.computedErrors(fileInfo, errorsWithoutTodo, restartHighlighting)) {
         if (fileInfo instanceof DartLocalFileInfo localFileInfo) {
-          onErrorsUpdated(localFileInfo, errorsWithoutTodo, hasSevereProblems, newHash);
+          onErrorsUpdated(localFileInfo, errorsWithoutTodo, newHash);
         }
       }
     }
@@ -298,7 +289,7 @@ public final class DartAnalysisServerService implements Disposable {
 
       for (DartFileInfo fileInfo : fileInfos) {
         if (fileInfo instanceof DartLocalFileInfo localFileInfo) {
-          onErrorsUpdated(localFileInfo, AnalysisError.EMPTY_LIST, false, 0);
+          onErrorsUpdated(localFileInfo, AnalysisError.EMPTY_LIST, 0);
         }
       }
     }
@@ -343,6 +334,10 @@ public final class DartAnalysisServerService implements Disposable {
       if (RequestErrorCode.SERVER_ERROR.equals(error.getCode())) {
         serverError(false, error.getMessage(), error.getStackTrace());
       }
+      else if (RequestErrorCode.INVALID_OVERLAY_CHANGE.equals(error.getCode())) {
+        LOG.info(getShortErrorMessage("analysis.updateContent", null, error));
+        resendContentOverlays();
+      }
       else {
         LOG.info(getShortErrorMessage("unknown", null, error));
       }
@@ -769,6 +764,12 @@ public final class DartAnalysisServerService implements Disposable {
 
         final VirtualFile file = FileDocumentManager.getInstance().getFile(e.getDocument());
         if (isLocalAnalyzableFile(file)) {
+          if (file.isInLocalFileSystem()) {
+            synchronized (myLock) {
+              myPendingEdits.computeIfAbsent(e.getDocument(), document -> new PendingEdits(document.getModificationStamp())).add(e);
+            }
+          }
+
           for (VirtualFile fileInEditor : FileEditorManager.getInstance(myProject).getOpenFiles()) {
             if (fileInEditor.equals(file)) {
               synchronized (myLock) {
@@ -837,7 +838,15 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   public List<DartServerData.DartError> getErrors(@NotNull final SearchScope scope) {
-    return myServerData.getErrors(scope);
+    return myServerData.getErrors(scope, null);
+  }
+
+  /**
+   * @param severity one of {@link AnalysisErrorSeverity} constants
+   */
+  @NotNull
+  public List<DartServerData.DartError> getErrors(@NotNull final SearchScope scope, @NotNull final String severity) {
+    return myServerData.getErrors(scope, severity);
   }
 
   @NotNull
@@ -948,8 +957,6 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   private void doUpdateFilesContent() {
-    // may be use DocumentListener to collect deltas instead of sending the whole Document.getText() each time?
-
     AnalysisServer server = myServer;
     if (server == null) {
       return;
@@ -980,11 +987,14 @@ public final class DartAnalysisServerService implements Disposable {
 
           final Long oldTimestamp = myFilePathWithOverlaidContentToTimestamp.get(file.getPath());
           if (oldTimestamp == null || document.getModificationStamp() != oldTimestamp) {
-            fileUriToContentOverlay.put(getLocalFileUri(file.getPath()), new AddContentOverlay(document.getText()));
+            final Object overlay = createContentOverlay(oldTimestamp, myPendingEdits.get(document), document);
+            fileUriToContentOverlay.put(getLocalFileUri(file.getPath()), overlay);
             myFilePathWithOverlaidContentToTimestamp.put(file.getPath(), document.getModificationStamp());
           }
         }
       }
+      // the overlays of the other documents are removed, so their edits won't be needed either
+      myPendingEdits.clear();
 
       // oldTrackedFilePaths at this point contains only those files that are not in FileDocumentManager.getUnsavedDocuments() anymore
       filePathsToRemoveContentOverlay = Collections.unmodifiableSet(oldTrackedFilePaths);
@@ -1019,6 +1029,17 @@ public final class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * The server's overlays may differ from the documents, e.g. if it rejected some edits, so the next update sends them whole.
+   */
+  private void resendContentOverlays() {
+    synchronized (myFilePathWithOverlaidContentToTimestamp) {
+      myFilePathWithOverlaidContentToTimestamp.replaceAll((path, timestamp) -> RESENT_OVERLAY_TIMESTAMP);
+    }
+    myUpdateFilesAlarm.cancelAllRequests();
+    myUpdateFilesAlarm.addRequest(this::updateFilesContent, UPDATE_FILES_TIMEOUT);
+  }
+
   public void ensureAnalysisRootsUpToDate() {
     myRootsHandler.scheduleDartRootsUpdate(null);
   }
@@ -1040,56 +1061,14 @@ public final class DartAnalysisServerService implements Disposable {
     return true;
   }
 
-  private void onErrorsUpdated(@NotNull DartLocalFileInfo localFileInfo,
-                               @NotNull List<? extends AnalysisError> errors,
-                               boolean hasSevereProblems,
-                               int errorsHash) {
+  private void onErrorsUpdated(@NotNull DartLocalFileInfo localFileInfo, @NotNull List<? extends AnalysisError> errors, int errorsHash) {
     String filePath = localFileInfo.getFilePath();
-    updateFilesWithErrorsSet(filePath, hasSevereProblems, errorsHash);
+    myErrorIndex.update(filePath, errorsHash, errors);
     DartProblemsView.getInstance(myProject).updateErrorsForFile(filePath, errors);
   }
 
-  private void updateFilesWithErrorsSet(@NotNull final String filePath, final boolean hasSevereProblems, final int errorsHash) {
-    synchronized (myFilePathsWithErrors) {
-      if (errorsHash == 0) {
-        // no errors
-        myFilePathToErrorsHash.removeInt(filePath);
-      }
-      else {
-        myFilePathToErrorsHash.put(filePath, errorsHash);
-      }
-
-      if (hasSevereProblems) {
-        if (myFilePathsWithErrors.add(filePath)) {
-          String parentPath = PathUtil.getParentPath(filePath);
-          while (!parentPath.isEmpty()) {
-            final int count = myFolderPathsWithErrors.getInt(parentPath); // returns zero if there were no path in the map
-            myFolderPathsWithErrors.put(parentPath, count + 1);
-            parentPath = PathUtil.getParentPath(parentPath);
-          }
-        }
-      }
-      else {
-        if (myFilePathsWithErrors.remove(filePath)) {
-          String parentPath = PathUtil.getParentPath(filePath);
-          while (!parentPath.isEmpty()) {
-            final int count = myFolderPathsWithErrors.removeInt(parentPath); // returns zero if there was no path in the map
-            if (count > 1) {
-              myFolderPathsWithErrors.put(parentPath, count - 1);
-            }
-            parentPath = PathUtil.getParentPath(parentPath);
-          }
-        }
-      }
-    }
-  }
-
   private void clearAllErrors() {
-    synchronized (myFilePathsWithErrors) {
-      myFilePathsWithErrors.clear();
-      myFilePathToErrorsHash.clear();
-      myFolderPathsWithErrors.clear();
-    }
+    myErrorIndex.clear();
 
     if (myInitializationOnServerStartupDone) {
       DartProblemsView.getInstance(myProject).clearAll();
@@ -2360,6 +2339,10 @@ public final class DartAnalysisServerService implements Disposable {
 
         myServer.server_shutdown();
 
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Analysis server response decode times:\n" + myServer.getDecodeStatistics());
+        }
+
         long startTime = System.currentTimeMillis();
         while (myServerSocket != null && myServerSocket.isOpen()) {
           if (System.currentTimeMillis() - startTime > SEND_REQUEST_TIMEOUT) {
@@ -2381,6 +2364,7 @@ public final class DartAnalysisServerService implements Disposable {
       myFilePathWithOverlaidContentToTimestamp.clear();
       myVisibleFileUris.clear();
       myChangedDocuments.clear();
+      myPendingEdits.clear();
       myServerData.clearData();
       myRootsHandler.onServerStopped();
 
@@ -2427,15 +2411,16 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   public boolean isFileWithErrors(@NotNull final VirtualFile file) {
-    synchronized (myFilePathsWithErrors) {
-      return file.isDirectory() ? myFolderPathsWithErrors.getInt(file.getPath()) > 0 : myFilePathsWithErrors.contains(file.getPath());
-    }
+    return myErrorIndex.hasErrors(file.getPath(), file.isDirectory());
   }
 
   public int getFilePathsWithErrorsHash() {
-    synchronized (myFilePathsWithErrors) {
-      return myFilePathsWithErrors.hashCode();
-    }
+    return myErrorIndex.getFilesWithErrorsHash();
+  }
+
+  @NotNull
+  DartErrorIndex getErrorIndex() {
+    return myErrorIndex;
   }
 
   private void logError(@NonNls @NotNull final String methodName, @Nullable final String filePath, @NotNull final RequestError error) {
@@ -2674,4 +2659,39 @@ public final class DartAnalysisServerService implements Disposable {
     URI uri = VfsUtil.toUri(url);
     return uri != null ? uri.toString() : url;
   }
+
+  /**
+   * Returns the edits made since the overlay with the given timestamp was sent, or the whole content if the server doesn't have
+   * that overlay or the edits don't all apply to it.
+   */
+  @NotNull
+  static Object createContentOverlay(@Nullable Long oldTimestamp, @Nullable PendingEdits edits, @NotNull Document document) {
+    return oldTimestamp != null && edits != null && edits.canBeAppliedTo(oldTimestamp, document)
+           ? new ChangeContentOverlay(edits.myEdits)
+           : new AddContentOverlay(document.getText());
+  }
+
+  static final class PendingEdits {
+    // more edits than this are sent as the whole content, which is then likely not much larger
+    static final int MAX_EDITS = 1000;
+
+    private final long myStartTimestamp;
+    private final List<SourceEdit> myEdits = new ArrayList<>();
+    private long myReplacementLength;
+
+    PendingEdits(long startTimestamp) {
+      myStartTimestamp = startTimestamp;
+    }
+
+    void add(@NotNull DocumentEvent e) {
+      if (myEdits.size() > MAX_EDITS) return;
+      final String replacement = e.getNewFragment().toString();
+      myEdits.add(new SourceEdit(e.getOffset(), e.getOldLength(), replacement, null, null));
+      myReplacementLength += replacement.length();
+    }
+
+    boolean canBeAppliedTo(long timestamp, @NotNull Document document) {
+      return myStartTimestamp == timestamp && myEdits.size() <= MAX_EDITS && myReplacementLength < document.getTextLength();
+    }
+  }
 }
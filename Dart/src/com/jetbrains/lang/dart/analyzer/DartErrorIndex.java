@@ -0,0 +1,150 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.util.PathUtil;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.dartlang.analysis.server.protocol.AnalysisError;
+import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Problems reported by the analysis server for local files, indexed by folder, with the problem counts by severity kept per file.
+ * For folders only the number of files with errors is kept, for every folder up to the file system root. It is updated incrementally,
+ * so that Project View decorations and scope queries don't have to go through all files known to the analysis server.
+ */
+final class DartErrorIndex {
+  private static final int ERROR = 0;
+  private static final int WARNING = 1;
+  private static final int INFO = 2;
+  private static final int[] NO_PROBLEMS = new int[3];
+
+  // errors hash is tracked to optimize error notification listener: do not handle equal notifications more than once
+  private final Object2IntMap<String> myFilePathToErrorsHash = new Object2IntOpenHashMap<>();
+  // folder path -> paths of the files right in this folder that have problems, with problem counts by severity
+  private final Map<String, Map<String, int[]>> myFolderToFiles = new HashMap<>();
+  // folder path -> how many files with errors are in this folder (recursively)
+  private final Object2IntMap<String> myFolderErrorFileCounts = new Object2IntOpenHashMap<>();
+  // the same as hashCode() of the set of paths of files with errors, i.e. the sum of their hash codes
+  private int myFilesWithErrorsHash;
+
+  /**
+   * @return hash of the errors of the file as last passed to {@link #update}, 0 if there are no errors
+   */
+  synchronized int getErrorsHash(@NotNull String filePath) {
+    return myFilePathToErrorsHash.getInt(filePath); // returns zero if there's no such entry
+  }
+
+  synchronized void update(@NotNull String filePath, int errorsHash, @NotNull List<? extends AnalysisError> errors) {
+    if (errorsHash == 0) {
+      myFilePathToErrorsHash.removeInt(filePath);
+    }
+    else {
+      myFilePathToErrorsHash.put(filePath, errorsHash);
+    }
+
+    final int[] newCounts = countBySeverity(errors);
+    final String folderPath = PathUtil.getParentPath(filePath);
+    Map<String, int[]> files = myFolderToFiles.get(folderPath);
+    final int[] oldCounts = files != null ? files.getOrDefault(filePath, NO_PROBLEMS) : NO_PROBLEMS;
+    if (Arrays.equals(oldCounts, newCounts)) return;
+
+    if (newCounts != NO_PROBLEMS) {
+      if (files == null) {
+        files = new HashMap<>();
+        myFolderToFiles.put(folderPath, files);
+      }
+      files.put(filePath, newCounts);
+    }
+    else {
+      files.remove(filePath);
+      if (files.isEmpty()) {
+        myFolderToFiles.remove(folderPath);
+      }
+    }
+
+    final int filesWithErrorsDelta = (newCounts[ERROR] > 0 ? 1 : 0) - (oldCounts[ERROR] > 0 ? 1 : 0);
+    if (filesWithErrorsDelta == 0) return;
+    myFilesWithErrorsHash += filesWithErrorsDelta * filePath.hashCode();
+
+    String parentPath = folderPath;
+    while (!parentPath.isEmpty()) {
+      if (myFolderErrorFileCounts.mergeInt(parentPath, filesWithErrorsDelta, Integer::sum) == 0) {
+        myFolderErrorFileCounts.removeInt(parentPath);
+      }
+      parentPath = PathUtil.getParentPath(parentPath);
+    }
+  }
+
+  synchronized void clear() {
+    myFilePathToErrorsHash.clear();
+    myFolderToFiles.clear();
+    myFolderErrorFileCounts.clear();
+    myFilesWithErrorsHash = 0;
+  }
+
+  /**
+   * @return whether the file has errors or, for a folder, whether any file in it has errors, recursively
+   */
+  synchronized boolean hasErrors(@NotNull String path, boolean isFolder) {
+    if (isFolder) {
+      return myFolderErrorFileCounts.getInt(path) > 0;
+    }
+    final Map<String, int[]> files = myFolderToFiles.get(PathUtil.getParentPath(path));
+    final int[] counts = files != null ? files.get(path) : null;
+    return counts != null && counts[ERROR] > 0;
+  }
+
+  synchronized int getFilesWithErrorsHash() {
+    return myFilesWithErrorsHash;
+  }
+
+  /**
+   * @param severity if not {@code null}, only files with problems of this severity are returned
+   * @return folder path -> paths of the files right in this folder that have problems
+   */
+  @NotNull
+  synchronized Map<String, List<String>> getFilesWithProblems(@Nullable String severity) {
+    final int index = severity == null ? -1 : severityIndex(severity);
+    final Map<String, List<String>> result = new HashMap<>();
+    for (Map.Entry<String, Map<String, int[]>> folderEntry : myFolderToFiles.entrySet()) {
+      List<String> filePaths = null;
+      for (Map.Entry<String, int[]> fileEntry : folderEntry.getValue().entrySet()) {
+        if (index < 0 || fileEntry.getValue()[index] > 0) {
+          if (filePaths == null) {
+            filePaths = new ArrayList<>();
+            result.put(folderEntry.getKey(), filePaths);
+          }
+          filePaths.add(fileEntry.getKey());
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int[] countBySeverity(@NotNull List<? extends AnalysisError> errors) {
+    int[] counts = NO_PROBLEMS;
+    for (AnalysisError error : errors) {
+      final int index = severityIndex(error.getSeverity());
+      if (index >= 0) {
+        if (counts == NO_PROBLEMS) {
+          counts = new int[NO_PROBLEMS.length];
+        }
+        counts[index]++;
+      }
+    }
+    return counts;
+  }
+
+  private static int severityIndex(@NotNull String severity) {
+    return switch (severity) {
+      case AnalysisErrorSeverity.ERROR -> ERROR;
+      case AnalysisErrorSeverity.WARNING -> WARNING;
+      case AnalysisErrorSeverity.INFO -> INFO;
+      default -> -1;
+    };
+  }
+}
@@ -0,0 +1,240 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.util.ArrayUtil;
+import com.jetbrains.lang.dart.analyzer.DartServerData.DartRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Regions of one kind in one file, sorted by offset and kept in sync with the document while it is being edited.
+ * <p>
+ * Regions are stored in a gap buffer. The regions after the gap keep their offsets relative to {@link #getTailShift()},
+ * so shifting all regions after an edit is a single addition. An edit costs a binary search, plus a visit of the regions
+ * between it and the previous edit and of the regions it may touch, instead of a pass over all regions of the file.
+ * Regions removed by edits are absorbed by the gap.
+ * <p>
+ * Edits are made in write actions only; the list is read-only for everybody else.
+ */
+final class DartRegionList<T extends DartRegion> extends AbstractList<T> implements RandomAccess {
+  private final Object[] myItems;
+  private int myGapStart;
+  private int myGapEnd;
+  private int myTailShift;
+  // the longest region length, regions touched by an edit start not earlier than that far before it
+  private int myMaxLength;
+  // the number of regions of myMaxLength, it's recomputed when the last of them is removed or shrinks
+  private int myMaxLengthCount;
+
+  // (offset, delta) pairs of the edits made so far, see DartNavigationTarget.getOffset()
+  private final boolean myKeepEdits;
+  private int[] myEdits = ArrayUtil.EMPTY_INT_ARRAY;
+  private int myEditCount;
+
+  DartRegionList(@NotNull List<? extends T> regions, boolean keepEdits) {
+    myItems = regions.toArray();
+    Arrays.sort(myItems, Comparator.comparingInt(region -> ((DartRegion)region).myOffset));
+    myGapStart = myGapEnd = myItems.length;
+    recomputeMaxLength();
+    myKeepEdits = keepEdits;
+  }
+
+  @Override
+  public T get(int index) {
+    Objects.checkIndex(index, size());
+    return item(index);
+  }
+
+  @Override
+  public int size() {
+    return myItems.length - (myGapEnd - myGapStart);
+  }
+
+  int getTailShift() {
+    return myTailShift;
+  }
+
+  int getMaxLength() {
+    return myMaxLength;
+  }
+
+  /**
+   * Applies a document change to the regions: regions after the change are shifted, regions touched by the change are either
+   * removed or, if {@code resizeTouched} is set and the change is inside the region, resized. A change that doesn't change
+   * the document length is ignored.
+   *
+   * @return {@code true} if at least one region has been shifted, resized or removed
+   */
+  boolean documentChanged(int eventOffset, int deltaLength, boolean resizeTouched) {
+    if (deltaLength == 0) return false;
+
+    if (myKeepEdits) {
+      recordEdit(eventOffset, deltaLength);
+    }
+
+    final int eventRightOffset = deltaLength > 0 ? eventOffset : eventOffset - deltaLength;
+    final int shiftedFrom = findFirstIndex(eventRightOffset);
+    final int touchedFrom = findFirstIndex(eventOffset - myMaxLength);
+
+    moveGap(shiftedFrom);
+
+    // regions in [touchedFrom, myGapStart) start before eventRightOffset and aren't shifted; survivors are packed towards
+    // the beginning so that the removed ones become a part of the gap
+    boolean updated = false;
+    int to = touchedFrom;
+    for (int from = touchedFrom; from < myGapStart; from++) {
+      final DartRegion region = (DartRegion)myItems[from];
+      final int regionRightOffset = region.myOffset + region.myLength;
+
+      boolean remove = false;
+      if (deltaLength > 0) {
+        // Something was typed. Delete or update touched.
+        if (eventOffset < regionRightOffset) {
+          if (resizeTouched) {
+            lengthRemoved(region.myLength);
+            region.myLength += deltaLength;
+            lengthAdded(region.myLength);
+          }
+          else {
+            remove = true;
+          }
+          updated = true;
+        }
+      }
+      else if (resizeTouched &&
+               region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
+        // Some text was deleted inside the region.
+        lengthRemoved(region.myLength);
+        region.myLength += deltaLength;
+        lengthAdded(region.myLength);
+        updated = true;
+      }
+      else if (eventOffset < regionRightOffset) {
+        remove = true;
+        updated = true;
+      }
+
+      if (remove) {
+        lengthRemoved(region.myLength);
+      }
+      else {
+        myItems[to++] = region;
+      }
+    }
+    Arrays.fill(myItems, to, myGapStart, null);
+    myGapStart = to;
+    if (myMaxLengthCount == 0) {
+      recomputeMaxLength();
+    }
+
+    if (myGapEnd < myItems.length) {
+      myTailShift += deltaLength;
+      updated = true;
+    }
+    return updated;
+  }
+
+  /**
+   * @return the number of edits applied to this list so far, only counted if the list has been created with {@code keepEdits}
+   */
+  synchronized int getEditCount() {
+    return myEditCount;
+  }
+
+  /**
+   * Shifts an offset like the edits number {@code fromEdit} (inclusive) to {@code toEdit} (exclusive) would shift a region
+   * starting at it.
+   */
+  synchronized int shiftOffset(int offset, int fromEdit, int toEdit) {
+    for (int i = fromEdit; i < toEdit; i++) {
+      if (offset >= myEdits[2 * i]) {
+        offset += myEdits[2 * i + 1];
+      }
+    }
+    return offset;
+  }
+
+  private synchronized void recordEdit(int offset, int delta) {
+    if (2 * myEditCount == myEdits.length) {
+      myEdits = Arrays.copyOf(myEdits, Math.max(16, 2 * myEdits.length));
+    }
+    myEdits[2 * myEditCount] = offset;
+    myEdits[2 * myEditCount + 1] = delta;
+    myEditCount++;
+  }
+
+  private void lengthAdded(int length) {
+    if (length > myMaxLength) {
+      myMaxLength = length;
+      myMaxLengthCount = 1;
+    }
+    else if (length == myMaxLength) {
+      myMaxLengthCount++;
+    }
+  }
+
+  private void lengthRemoved(int length) {
+    if (length == myMaxLength) {
+      myMaxLengthCount--;
+    }
+  }
+
+  private void recomputeMaxLength() {
+    myMaxLength = 0;
+    myMaxLengthCount = 0;
+    for (int i = 0; i < size(); i++) {
+      lengthAdded(item(i).myLength);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private T item(int index) {
+    return (T)myItems[index < myGapStart ? index : index + myGapEnd - myGapStart];
+  }
+
+  /**
+   * @return the index of the first region starting at or after the given offset, or {@link #size()} if there is none
+   */
+  private int findFirstIndex(int offset) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (item(mid).getOffset() < offset) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void moveGap(int index) {
+    if (index < myGapStart) {
+      final int count = myGapStart - index;
+      System.arraycopy(myItems, index, myItems, myGapEnd - count, count);
+      Arrays.fill(myItems, index, Math.min(myGapStart, myGapEnd - count), null);
+      myGapStart -= count;
+      myGapEnd -= count;
+      for (int i = myGapEnd; i < myGapEnd + count; i++) {
+        final DartRegion region = (DartRegion)myItems[i];
+        region.myOffset -= myTailShift;
+        region.myShiftingList = this;
+      }
+    }
+    else if (index > myGapStart) {
+      final int count = index - myGapStart;
+      System.arraycopy(myItems, myGapEnd, myItems, myGapStart, count);
+      Arrays.fill(myItems, Math.max(myGapEnd, myGapStart + count), myGapEnd + count, null);
+      for (int i = myGapStart; i < myGapStart + count; i++) {
+        final DartRegion region = (DartRegion)myItems[i];
+        region.myOffset += myTailShift;
+        region.myShiftingList = null;
+      }
+      myGapStart += count;
+      myGapEnd += count;
+    }
+  }
+}
@@ -10,6 +10,7 @@ import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.NlsSafe;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
 import com.intellij.psi.search.SearchScope;
@@ -31,12 +32,12 @@ public final class DartServerData {
 
   private final EventDispatcher<OutlineListener> myEventDispatcher = EventDispatcher.create(OutlineListener.class);
 
-  private final Map<DartFileInfo, List<DartError>> myErrorData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<DartFileInfo, List<DartHighlightRegion>> myHighlightData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<DartFileInfo, List<DartNavigationRegion>> myNavigationData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<DartFileInfo, List<DartOverrideMember>> myOverrideData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<DartFileInfo, List<DartRegion>> myImplementedClassData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<DartFileInfo, List<DartRegion>> myImplementedMemberData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartError>> myErrorData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartHighlightRegion>> myHighlightData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartNavigationRegion>> myNavigationData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartOverrideMember>> myOverrideData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartRegion>> myImplementedClassData = Collections.synchronizedMap(new HashMap<>());
+  private final Map<DartFileInfo, DartRegionList<DartRegion>> myImplementedMemberData = Collections.synchronizedMap(new HashMap<>());
   private final Map<DartFileInfo, Outline> myOutlineData = Collections.synchronizedMap(new HashMap<>());
 
   private final Map<Integer, AvailableSuggestionSet> myAvailableSuggestionSetMap = Collections.synchronizedMap(new HashMap<>());
@@ -76,7 +77,7 @@ public final class DartServerData {
     if (fileInfo instanceof DartLocalFileInfo) {
       myLocalFilesWithOutdatedErrorInfo.remove(fileInfo);
     }
-    myErrorData.put(fileInfo, newErrors);
+    myErrorData.put(fileInfo, new DartRegionList<>(newErrors, false));
 
     if (restartHighlighting) {
       forceFileAnnotation(file, false);
@@ -105,7 +106,7 @@ public final class DartServerData {
       }
     }
 
-    myHighlightData.put(fileInfo, newRegions);
+    myHighlightData.put(fileInfo, new DartRegionList<>(newRegions, false));
     forceFileAnnotation(file, false);
   }
 
@@ -122,7 +123,16 @@ public final class DartServerData {
       }
     }
 
-    myNavigationData.put(fileInfo, newRegions);
+    DartRegionList<DartNavigationRegion> regionList = new DartRegionList<>(newRegions, true);
+    for (DartNavigationRegion region : regionList) {
+      for (DartNavigationTarget target : region.getTargets()) {
+        if (target.myFileInfo.equals(fileInfo)) {
+          // targets in the same file are shifted by the edits of this file like the regions themselves
+          target.myEdits = regionList;
+        }
+      }
+    }
+    myNavigationData.put(fileInfo, regionList);
     forceFileAnnotation(file, true);
   }
 
@@ -182,7 +192,7 @@ public final class DartServerData {
       }
     }
 
-    myOverrideData.put(fileInfo, newOverrides);
+    myOverrideData.put(fileInfo, new DartRegionList<>(newOverrides, false));
     forceFileAnnotation(file, false);
   }
 
@@ -208,16 +218,18 @@ public final class DartServerData {
     }
 
     boolean hasChanges = false;
+    DartRegionList<DartRegion> newClassList = new DartRegionList<>(newImplementedClasses, false);
     List<DartRegion> oldClasses = myImplementedClassData.get(fileInfo);
-    if (oldClasses == null || !oldClasses.equals(newImplementedClasses)) {
+    if (oldClasses == null || !oldClasses.equals(newClassList)) {
       hasChanges = true;
-      myImplementedClassData.put(fileInfo, newImplementedClasses);
+      myImplementedClassData.put(fileInfo, newClassList);
     }
 
+    DartRegionList<DartRegion> newMemberList = new DartRegionList<>(newImplementedMembers, false);
     List<DartRegion> oldMembers = myImplementedMemberData.get(fileInfo);
-    if (oldMembers == null || !oldMembers.equals(newImplementedMembers)) {
+    if (oldMembers == null || !oldMembers.equals(newMemberList)) {
       hasChanges = true;
-      myImplementedMemberData.put(fileInfo, newImplementedMembers);
+      myImplementedMemberData.put(fileInfo, newMemberList);
     }
 
     if (hasChanges) {
@@ -269,16 +281,30 @@ public final class DartServerData {
     return myNotLocalFileUriToVirtualFileMap.get(fileUri);
   }
 
+  /**
+   * @param severity if not {@code null}, only errors of this severity are returned
+   */
   @NotNull
-  List<DartError> getErrors(@NotNull final SearchScope scope) {
+  List<DartError> getErrors(@NotNull final SearchScope scope, @Nullable final String severity) {
     final List<DartError> errors = new ArrayList<>();
 
-    synchronized (myErrorData) {
-      for (Map.Entry<DartFileInfo, List<DartError>> entry : myErrorData.entrySet()) {
-        DartFileInfo fileInfo = entry.getKey();
-        VirtualFile file = fileInfo instanceof DartLocalFileInfo localFileInfo ? localFileInfo.findFile() : null;
-        if (file != null && scope.contains(file)) {
-          errors.addAll(entry.getValue());
+    // only files with problems are looked at, and each folder is found once
+    Map<String, List<String>> folderToFilePaths = myService.getErrorIndex().getFilesWithProblems(severity);
+    for (Map.Entry<String, List<String>> entry : folderToFilePaths.entrySet()) {
+      VirtualFile folder = LocalFileSystem.getInstance().findFileByPath(entry.getKey());
+      if (folder == null) continue;
+
+      for (String filePath : entry.getValue()) {
+        VirtualFile file = folder.findChild(PathUtil.getFileName(filePath));
+        if (file == null || !scope.contains(file)) continue;
+
+        List<DartError> fileErrors = myErrorData.get(new DartLocalFileInfo(filePath));
+        if (fileErrors == null) continue;
+
+        for (DartError error : fileErrors) {
+          if (severity == null || severity.equals(error.getSeverity())) {
+            errors.add(error);
+          }
         }
       }
     }
@@ -440,115 +466,38 @@ public final class DartServerData {
 
     myLocalFilesWithUnsentChanges.add(localFileInfo);
 
-    boolean regionsUpdated = updateRegionsDeletingTouched(localFileInfo, myErrorData.get(localFileInfo), e);
+    final int eventOffset = e.getOffset();
+    final int deltaLength = e.getNewLength() - e.getOldLength();
+
+    boolean regionsUpdated = updateRegions(myErrorData.get(localFileInfo), eventOffset, deltaLength, false);
     if (regionsUpdated) {
       myLocalFilesWithOutdatedErrorInfo.add(localFileInfo);
     }
-    updateRegionsUpdatingTouched(myHighlightData.get(localFileInfo), e);
-    updateRegionsDeletingTouched(localFileInfo, myNavigationData.get(localFileInfo), e);
-    updateRegionsDeletingTouched(localFileInfo, myOverrideData.get(localFileInfo), e);
-    updateRegionsDeletingTouched(localFileInfo, myImplementedClassData.get(localFileInfo), e);
-    updateRegionsDeletingTouched(localFileInfo, myImplementedMemberData.get(localFileInfo), e);
+    updateRegions(myHighlightData.get(localFileInfo), eventOffset, deltaLength, true);
+    updateRegions(myNavigationData.get(localFileInfo), eventOffset, deltaLength, false);
+    updateRegions(myOverrideData.get(localFileInfo), eventOffset, deltaLength, false);
+    updateRegions(myImplementedClassData.get(localFileInfo), eventOffset, deltaLength, false);
+    updateRegions(myImplementedMemberData.get(localFileInfo), eventOffset, deltaLength, false);
     // A bit outdated outline data is not a big problem, updated data will come shortly
   }
 
   /**
+   * Shifts untouched regions, deletes touched regions or, if {@code resizeTouched} is set, updates them when possible.
+   *
    * @return {@code true} if at least one region has been updated or deleted, {@code false} if nothing done at all
    */
-  private static boolean updateRegionsDeletingTouched(@NotNull final DartFileInfo fileInfo,
-                                                      @Nullable final List<? extends DartRegion> regions,
-                                                      @NotNull final DocumentEvent e) {
-    if (regions == null) return false;
-
-    boolean regionUpdated = false;
-
-    // delete touched regions, shift untouched
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (region instanceof DartNavigationRegion) {
-        // may be we'd better delete target touched by editing?
-        for (DartNavigationTarget target : ((DartNavigationRegion)region).getTargets()) {
-          if (target.myFileInfo.equals(fileInfo) && target.myConvertedOffset >= eventOffset) {
-            target.myConvertedOffset += deltaLength;
-          }
-        }
-      }
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, delete touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-          regionUpdated = true;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          iterator.remove();
-          regionUpdated = true;
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-          regionUpdated = true;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          iterator.remove();
-          regionUpdated = true;
-        }
-      }
-    }
-
-    return regionUpdated;
-  }
-
-  private static void updateRegionsUpdatingTouched(@Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
-
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, update touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          region.myLength += deltaLength;
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete or update touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-        final int regionRightOffset = region.myOffset + region.myLength;
-
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
-          region.myLength += deltaLength;
-        }
-        else if (eventOffset < regionRightOffset) {
-          iterator.remove();
-        }
-      }
-    }
+  private static boolean updateRegions(@Nullable final DartRegionList<?> regions,
+                                       final int eventOffset,
+                                       final int deltaLength,
+                                       final boolean resizeTouched) {
+    return regions != null && regions.documentChanged(eventOffset, deltaLength, resizeTouched);
   }
 
   public static class DartRegion {
-    protected int myOffset;
-    protected int myLength;
+    // relative to the tail shift of myShiftingList if it's not null, see DartRegionList
+    int myOffset;
+    int myLength;
+    @Nullable DartRegionList<?> myShiftingList;
 
     DartRegion(final int offset, final int length) {
       myOffset = offset;
@@ -556,7 +505,8 @@ public final class DartServerData {
     }
 
     public final int getOffset() {
-      return myOffset;
+      final DartRegionList<?> shiftingList = myShiftingList;
+      return shiftingList == null ? myOffset : myOffset + shiftingList.getTailShift();
     }
 
     public final int getLength() {
@@ -565,12 +515,12 @@ public final class DartServerData {
 
     @Override
     public boolean equals(Object o) {
-      return o instanceof DartRegion && myOffset == ((DartRegion)o).myOffset && myLength == ((DartRegion)o).myLength;
+      return o instanceof DartRegion && getOffset() == ((DartRegion)o).getOffset() && myLength == ((DartRegion)o).myLength;
     }
 
     @Override
     public int hashCode() {
-      return myOffset * 31 + myLength;
+      return getOffset() * 31 + myLength;
     }
   }
 
@@ -668,7 +618,7 @@ public final class DartServerData {
 
     @Override
     public String toString() {
-      return "DartNavigationRegion(" + myOffset + ", " + myLength + ")";
+      return "DartNavigationRegion(" + getOffset() + ", " + myLength + ")";
     }
 
     public List<DartNavigationTarget> getTargets() {
@@ -682,6 +632,9 @@ public final class DartServerData {
     private final String myKind;
 
     private int myConvertedOffset = -1;
+    // navigation data of the file this target is in, its edits are applied to myConvertedOffset lazily
+    @Nullable private DartRegionList<?> myEdits;
+    private int myAppliedEditCount;
 
     private DartNavigationTarget(@NotNull DartFileInfo fileInfo, int offset, @NotNull String kind) {
       myFileInfo = fileInfo;
@@ -693,9 +646,16 @@ public final class DartServerData {
       return myFileInfo.findFile();
     }
 
-    public int getOffset(@NotNull final Project project, @Nullable final VirtualFile file) {
+    public synchronized int getOffset(@NotNull final Project project, @Nullable final VirtualFile file) {
       if (myConvertedOffset == -1) {
         myConvertedOffset = DartAnalysisServerService.getInstance(project).getConvertedOffset(file, myOriginalOffset);
+        // the original offset is as of the last analysis, edits made since then are not applied to it
+        myAppliedEditCount = myEdits != null ? myEdits.getEditCount() : 0;
+      }
+      else if (myEdits != null) {
+        final int editCount = myEdits.getEditCount();
+        myConvertedOffset = myEdits.shiftOffset(myConvertedOffset, myAppliedEditCount, editCount);
+        myAppliedEditCount = editCount;
       }
       return myConvertedOffset;
     }
@@ -1,74 +1,149 @@
 // Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.jetbrains.lang.dart.coverage;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Line hits read from the output of {@code collect_coverage}, merged by source URI. The JSON is read as a stream and the hits are
+ * added straight to an {@code int} array per source, so that neither the JSON tree nor boxed line numbers are kept in memory.
+ * Coverage from several files or runs is merged by calling {@link #addCoverage} for each of them.
+ */
 public class DartCoverageData {
-  @Nullable private List<DartFileCoverageData> coverage;
+  private final Map<String, LineHits> myLineHits = new HashMap<>();
 
-  @Nullable
-  public List<DartFileCoverageData> getCoverage() {
-    return coverage;
+  /**
+   * Adds the hits from a JSON document like {@code {"type": "CodeCoverage", "coverage": [{"source": "uri", "hits": [line, count, ...]}]}}.
+   * A line may also be given as a {@code "start-end"} range.
+   *
+   * @throws JsonSyntaxException if the document doesn't look like the output of {@code collect_coverage}
+   */
+  public void addCoverage(@NotNull Reader reader) throws IOException {
+    final JsonReader jsonReader = new JsonReader(reader);
+    try {
+      jsonReader.beginObject();
+      while (jsonReader.hasNext()) {
+        if ("coverage".equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+          readCoverage(jsonReader);
+        }
+        else {
+          jsonReader.skipValue();
+        }
+      }
+      jsonReader.endObject();
+    }
+    catch (IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
   }
 
-  public void setCoverage(@Nullable List<DartFileCoverageData> coverage) {
-    this.coverage = coverage;
-  }
+  private void readCoverage(@NotNull JsonReader jsonReader) throws IOException {
+    // (line, count) pairs of the current item, kept until its source is known
+    int[] hits = ArrayUtil.EMPTY_INT_ARRAY;
 
-  @NotNull
-  public Map<String, SortedMap<Integer, Integer>> getMergedDartFileCoverageData() {
-    Map<String, SortedMap<Integer, Integer>> mergedCoverageData = new HashMap<>();
-    List<DartFileCoverageData> coverageData = getCoverage();
-    if (coverageData != null) {
-      for (DartFileCoverageData item : coverageData) {
-        String source = item.getSource();
-        if (source == null) {
-          continue;
-        }
-        SortedMap<Integer, Integer> fileData = mergedCoverageData.computeIfAbsent(source, k -> new TreeMap<>());
-        List<Integer> hits = item.getHits();
-        if (hits == null) {
-          continue;
+    jsonReader.beginArray();
+    while (jsonReader.hasNext()) {
+      ProgressManager.checkCanceled();
+
+      String source = null;
+      int hitsSize = 0;
+
+      jsonReader.beginObject();
+      while (jsonReader.hasNext()) {
+        final String name = jsonReader.nextName();
+        if ("source".equals(name) && jsonReader.peek() == JsonToken.STRING) {
+          source = jsonReader.nextString();
         }
-        for (int i = 0; i < hits.size(); i += 2) {
-          Integer lineNumber = hits.get(i);
-          Integer hitCount = hits.get(i + 1);
-          if (!fileData.containsKey(lineNumber)) {
-            fileData.put(lineNumber, 0);
+        else if ("hits".equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+          jsonReader.beginArray();
+          while (jsonReader.hasNext()) {
+            int startLine;
+            int endLine;
+            if (jsonReader.peek() == JsonToken.STRING) {
+              final String range = jsonReader.nextString();
+              final int dash = range.indexOf('-');
+              startLine = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+              endLine = dash < 0 ? startLine : Integer.parseInt(range.substring(dash + 1));
+            }
+            else {
+              startLine = endLine = jsonReader.nextInt();
+            }
+            final int count = jsonReader.nextInt();
+
+            for (int line = startLine; line <= endLine; line++) {
+              if (hitsSize + 2 > hits.length) {
+                hits = Arrays.copyOf(hits, Math.max(64, hits.length * 2));
+              }
+              hits[hitsSize++] = line;
+              hits[hitsSize++] = count;
+            }
           }
+          jsonReader.endArray();
+        }
+        else {
+          jsonReader.skipValue();
+        }
+      }
+      jsonReader.endObject();
 
-          fileData.put(lineNumber, fileData.get(lineNumber) + hitCount);
+      if (source != null) {
+        final LineHits lineHits = myLineHits.computeIfAbsent(source, s -> new LineHits());
+        for (int i = 0; i < hitsSize; i += 2) {
+          lineHits.add(hits[i], hits[i + 1]);
         }
       }
     }
+    jsonReader.endArray();
+  }
 
-    return mergedCoverageData;
+  /**
+   * @return source URI -> hits by line number, see {@link LineHits}
+   */
+  @NotNull
+  public Map<String, LineHits> getLineHits() {
+    return myLineHits;
   }
-}
 
+  public static final class LineHits {
+    public static final int NO_DATA = -1;
 
-class DartFileCoverageData {
-  @Nullable private String source;
-  @Nullable private List<Integer> hits;
+    private int[] myHits = ArrayUtil.EMPTY_INT_ARRAY;
+    private int myLineCount;
 
-  @Nullable
-  public String getSource() {
-    return source;
-  }
+    private void add(int line, int count) {
+      if (line < 0) return;
 
-  public void setSource(@Nullable String source) {
-    this.source = source;
-  }
+      if (line >= myHits.length) {
+        final int oldLength = myHits.length;
+        myHits = Arrays.copyOf(myHits, Math.max(line + 1, oldLength * 2));
+        Arrays.fill(myHits, oldLength, myHits.length, NO_DATA);
+      }
+      myHits[line] = myHits[line] == NO_DATA ? count : myHits[line] + count;
+      myLineCount = Math.max(myLineCount, line + 1);
+    }
 
-  @Nullable
-  public List<Integer> getHits() {
-    return hits;
-  }
+    /**
+     * @return the last line number having data plus one, zero if there are no hits at all
+     */
+    public int getLineCount() {
+      return myLineCount;
+    }
 
-  public void setHits(@Nullable List<Integer> hits) {
-    this.hits = hits;
+    /**
+     * @return the number of hits of the line or {@link #NO_DATA} if it has none, for lines less than {@link #getLineCount()}
+     */
+    public int getHits(int line) {
+      return myHits[line];
+    }
   }
-}
\ No newline at end of file
+}
@@ -2,15 +2,18 @@
 package com.jetbrains.lang.dart.ide.index;
 
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.indexing.FileContent;
 import com.jetbrains.lang.dart.DartComponentType;
+import com.jetbrains.lang.dart.DartFileType;
 import com.jetbrains.lang.dart.psi.*;
 import com.jetbrains.lang.dart.util.DartControlFlowUtil;
 import com.jetbrains.lang.dart.util.DartResolveUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -30,13 +33,27 @@ public final class DartIndexUtil {
     synchronized (content) {
       indexData = content.getUserData(ourDartCachesData);
       if (indexData != null) return indexData;
-      indexData = indexFileRoots(content.getPsiFile());
+      indexData = indexFileWithoutPsi(content);
+      if (indexData == null) {
+        indexData = indexFileRoots(content.getPsiFile());
+      }
+      // the same content is indexed by several Dart indexes
+      content.putUserData(ourDartCachesData, indexData);
     }
 
     return indexData;
   }
 
-  private static DartFileIndexData indexFileRoots(PsiFile psiFile) {
+  /**
+   * Building PSI is the most expensive part of indexing, {@link DartLexerIndexer} gets the same data from the lexer alone for most files
+   */
+  @Nullable
+  private static DartFileIndexData indexFileWithoutPsi(@NotNull FileContent content) {
+    if (!Registry.is("dart.index.without.psi", false) || content.getFileType() != DartFileType.INSTANCE) return null;
+    return DartLexerIndexer.index(content.getContentAsText());
+  }
+
+  static DartFileIndexData indexFileRoots(PsiFile psiFile) {
     DartFileIndexData result = new DartFileIndexData();
 
     final DartLibraryStatement libraryStatement = PsiTreeUtil.getChildOfType(psiFile, DartLibraryStatement.class);
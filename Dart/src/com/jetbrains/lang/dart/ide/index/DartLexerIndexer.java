@@ -0,0 +1,866 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.ide.index;
+
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.tree.TokenSet;
+import com.jetbrains.lang.dart.DartComponentType;
+import com.jetbrains.lang.dart.lexer.DartLexer;
+import com.jetbrains.lang.dart.util.DartPsiImplUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static com.jetbrains.lang.dart.DartTokenTypes.*;
+import static com.jetbrains.lang.dart.DartTokenTypesSets.*;
+import static com.jetbrains.lang.dart.ide.index.DartImportOrExportInfo.Kind;
+
+/**
+ * Builds {@link DartFileIndexData} straight from the lexer tokens, without building PSI. Only directives, top-level declarations and
+ * class members are looked at, function bodies and initializers are skipped by matching brackets.
+ * <p>
+ * The result must be exactly what {@link DartIndexUtil} collects from PSI, so this indexer follows the grammar of the declarations
+ * it recognizes and gives up on anything else: syntax errors, constructs the parser would recover from differently, ambiguous
+ * initializers. In that case {@link #index} returns {@code null} and the caller falls back to PSI.
+ */
+public final class DartLexerIndexer {
+  private static final TokenSet SKIPPED = TokenSet.orSet(TokenSet.create(WHITE_SPACE), COMMENTS);
+  private static final TokenSet OPEN_BRACKETS = TokenSet.create(LPAREN, LBRACKET, LBRACE);
+  private static final TokenSet CLOSE_BRACKETS = TokenSet.create(RPAREN, RBRACKET, RBRACE);
+  private static final TokenSet ACCESSOR_TAIL_START = TokenSet.create(LPAREN, EXPRESSION_BODY_DEF, LBRACE, SEMICOLON, ASYNC, SYNC, NATIVE);
+  private static final TokenSet VAR_LIST_CONTINUATION = TokenSet.create(EQ, COMMA, SEMICOLON);
+  private static final TokenSet ACCESSOR_MODIFIERS = TokenSet.create(EXTERNAL, STATIC);
+  private static final TokenSet FUNCTION_MODIFIERS = TokenSet.create(EXTERNAL);
+  private static final TokenSet METHOD_MODIFIERS = TokenSet.create(EXTERNAL, STATIC, CONST);
+  private static final TokenSet CONSTRUCTOR_MODIFIERS = TokenSet.create(EXTERNAL, CONST);
+  // in the order required by varAccessDeclaration
+  private static final IElementType[] VAR_MODIFIERS = {EXTERNAL, ABSTRACT, STATIC, COVARIANT, LATE};
+  private static final TokenSet ALL_MODIFIERS = TokenSet.create(EXTERNAL, ABSTRACT, STATIC, COVARIANT, LATE, CONST, FINAL, VAR);
+  private static final TokenSet OPERATOR_TOKENS =
+    TokenSet.create(EQ_EQ, BIN_NOT, LBRACKET, RBRACKET, EQ, LT, LT_EQ, GT, LT_LT, PLUS, MINUS, MUL, DIV, INT_DIV, REM, AND, OR, XOR);
+  private static final Set<String> USER_DEFINABLE_OPERATORS =
+    Set.of("==", "~", "[]", "[]=", "<", "<=", ">", ">=", "<<", ">>", ">>>", "+", "-", "*", "/", "~/", "%", "&", "|", "^");
+  // tokens after which '{' in a constructor initializer list starts the constructor body rather than a set or map literal
+  private static final TokenSet EXPRESSION_END =
+    TokenSet.orSet(TokenSet.create(IDENTIFIER, RPAREN, RBRACKET, NUMBER, CLOSING_QUOTE, RAW_SINGLE_QUOTED_STRING, RAW_TRIPLE_QUOTED_STRING,
+                                   NULL, TRUE, FALSE, THIS), BUILT_IN_IDENTIFIERS);
+
+  private static final GiveUpException GIVE_UP = new GiveUpException();
+
+  private final CharSequence myText;
+  private IElementType[] myTypes = new IElementType[256];
+  private int[] myStarts = new int[256];
+  private int[] myEnds = new int[256];
+  private int myCount;
+  private IElementType[] myClosers = new IElementType[16];
+
+  private final DartFileIndexData myResult = new DartFileIndexData();
+  private boolean myLibraryStatementFound;
+  // top-level declarations, component infos are created when the library name is known
+  private final List<String> myComponentNames = new ArrayList<>();
+  private final List<DartComponentType> myComponentTypes = new ArrayList<>();
+  private final List<String> myImportPrefixes = new ArrayList<>();
+
+  private DartLexerIndexer(@NotNull CharSequence text) {
+    myText = text;
+  }
+
+  /**
+   * @return the same data as {@link DartIndexUtil} collects from the PSI of a Dart file with the given text, or {@code null} if the
+   * text contains something this indexer doesn't handle
+   */
+  @Nullable
+  public static DartFileIndexData index(@NotNull CharSequence text) {
+    final DartLexerIndexer indexer = new DartLexerIndexer(text);
+    if (!indexer.tokenize()) return null;
+    try {
+      return indexer.indexUnit();
+    }
+    catch (GiveUpException e) {
+      return null;
+    }
+  }
+
+  private boolean tokenize() {
+    final DartLexer lexer = new DartLexer();
+    lexer.start(myText);
+    IElementType type;
+    while ((type = lexer.getTokenType()) != null) {
+      if (type == BAD_CHARACTER) return false;
+      if (!SKIPPED.contains(type)) {
+        if (myCount == myTypes.length) {
+          myTypes = Arrays.copyOf(myTypes, myCount * 2);
+          myStarts = Arrays.copyOf(myStarts, myCount * 2);
+          myEnds = Arrays.copyOf(myEnds, myCount * 2);
+        }
+        myTypes[myCount] = type;
+        myStarts[myCount] = lexer.getTokenStart();
+        myEnds[myCount] = lexer.getTokenEnd();
+        myCount++;
+      }
+      lexer.advance();
+    }
+    return true;
+  }
+
+  private DartFileIndexData indexUnit() {
+    int i = 0;
+    while (i < myCount) {
+      i = topLevelDefinition(i);
+    }
+
+    for (int k = 0; k < myComponentNames.size(); k++) {
+      myResult.addComponentInfo(myComponentNames.get(k), new DartComponentInfo(myComponentTypes.get(k), myResult.getLibraryName()));
+    }
+    for (String prefix : myImportPrefixes) {
+      myResult.addComponentInfo(prefix, new DartComponentInfo(DartComponentType.LABEL, null));
+    }
+    return myResult;
+  }
+
+  private int topLevelDefinition(int i) {
+    i = skipMetadata(i);
+    final IElementType type = type(i);
+    if (type == LIBRARY) return libraryStatement(i + 1);
+    if (type == AUGMENT && type(i + 1) == LIBRARY) {
+      i = expect(uriEnd(i + 2), SEMICOLON);
+      myLibraryStatementFound = true;
+      return i;
+    }
+    if (type == PART) return type(i + 1) == OF ? partOfStatement(i + 2) : partStatement(i + 1);
+    if (type == IMPORT || type == EXPORT) return importOrExportStatement(i);
+
+    if (type == AUGMENT) i++;
+    if (type(i) == TYPEDEF) return functionTypeAlias(i + 1);
+    if (type(i) == ENUM) return enumDefinition(i + 1);
+    if (type(i) == EXTENSION && isExtensionDeclaration(i)) return extensionDeclaration(i + 1);
+    final int classKeyword = findClassKeyword(i);
+    if (classKeyword >= 0) return classDefinition(classKeyword + 1);
+    final int mixinKeyword = findMixinKeyword(i);
+    if (mixinKeyword >= 0) return mixinDeclaration(mixinKeyword + 1);
+    return memberDeclaration(i, true, true);
+  }
+
+  private int libraryStatement(int i) {
+    String name = null;
+    if (isId(i)) {
+      final StringBuilder builder = new StringBuilder(text(i));
+      i++;
+      while (type(i) == DOT && isId(i + 1)) {
+        builder.append('.').append(text(i + 1));
+        i += 2;
+      }
+      name = builder.toString();
+    }
+    i = expect(i, SEMICOLON);
+    if (!myLibraryStatementFound) {
+      myLibraryStatementFound = true;
+      myResult.setLibraryName(name);
+    }
+    return i;
+  }
+
+  private int partOfStatement(int i) {
+    if (isId(i)) {
+      i++;
+      while (type(i) == DOT && isId(i + 1)) {
+        i += 2;
+      }
+    }
+    else {
+      i = uriEnd(i);
+    }
+    myResult.setIsPart(true);
+    return expect(i, SEMICOLON);
+  }
+
+  private int partStatement(int i) {
+    final int uriEnd = uriEnd(i);
+    myResult.addPartUri(uri(i, uriEnd));
+    return expect(uriEnd, SEMICOLON);
+  }
+
+  private int importOrExportStatement(int i) {
+    final Kind kind = type(i) == IMPORT ? Kind.Import : Kind.Export;
+    i++;
+    if (kind == Kind.Import && type(i) == AUGMENT) i++;
+
+    final int uriEnd = uriEnd(i);
+    final String uri = uri(i, uriEnd);
+    i = uriEnd;
+
+    while (type(i) == IF) {
+      i = skipBalanced(expectAt(i + 1, LPAREN));
+      i = uriEnd(i);
+    }
+
+    String importPrefix = null;
+    if (kind == Kind.Import) {
+      if (type(i) == DEFERRED) {
+        i = expectAt(i + 1, AS);
+      }
+      if (type(i) == AS) {
+        i = expectId(i + 1);
+        importPrefix = text(i);
+        i++;
+      }
+    }
+
+    final Set<String> showComponentNames = new HashSet<>();
+    final Set<String> hideComponentNames = new HashSet<>();
+    while (type(i) == SHOW || type(i) == HIDE) {
+      final Set<String> names = type(i) == SHOW ? showComponentNames : hideComponentNames;
+      i = expectId(i + 1);
+      names.add(text(i));
+      i++;
+      while (type(i) == COMMA) {
+        i = expectId(i + 1);
+        names.add(text(i));
+        i++;
+      }
+    }
+    i = expect(i, SEMICOLON);
+
+    myResult.addImportInfo(new DartImportOrExportInfo(kind, uri, importPrefix, showComponentNames, hideComponentNames));
+    if (importPrefix != null) {
+      myImportPrefixes.add(importPrefix);
+    }
+    return i;
+  }
+
+  private int functionTypeAlias(int i) {
+    if (isId(i)) {
+      int afterName = i + 1;
+      if (type(afterName) == LT) {
+        afterName = skipTypeArguments(afterName);
+      }
+      if (type(afterName) == EQ) {
+        addTopLevelDeclaration(text(i), DartComponentType.TYPEDEF);
+        final int end = requireType(afterName + 1);
+        return type(end) == SEMICOLON ? end + 1 : end;
+      }
+    }
+
+    final int returnTypeEnd = skipType(i);
+    final int name;
+    if (returnTypeEnd > i && isId(returnTypeEnd) && (type(returnTypeEnd + 1) == LPAREN || type(returnTypeEnd + 1) == LT)) {
+      name = returnTypeEnd;
+    }
+    else if (isId(i) && (type(i + 1) == LPAREN || type(i + 1) == LT)) {
+      name = i;
+    }
+    else {
+      throw GIVE_UP;
+    }
+    addTopLevelDeclaration(text(name), DartComponentType.TYPEDEF);
+    i = name + 1;
+    if (type(i) == LT) {
+      i = skipTypeArguments(i);
+    }
+    i = skipBalanced(expectAt(i, LPAREN));
+    return type(i) == SEMICOLON ? i + 1 : i;
+  }
+
+  /**
+   * @return the index of the 'class' keyword if a class definition starts at the given index, -1 otherwise
+   */
+  private int findClassKeyword(int i) {
+    if (type(i) == SEALED || type(i) == MACRO) {
+      return type(i + 1) == CLASS ? i + 1 : -1;
+    }
+    if (type(i) == ABSTRACT) i++;
+    if (type(i) == BASE && type(i + 1) == MIXIN) i++;
+    if (type(i) == MIXIN) {
+      return type(i + 1) == CLASS ? i + 1 : -1;
+    }
+    if (type(i) == BASE || type(i) == INTERFACE || type(i) == FINAL) i++;
+    return type(i) == CLASS ? i : -1;
+  }
+
+  /**
+   * @return the index of the 'mixin' keyword if a mixin declaration starts at the given index, -1 otherwise
+   */
+  private int findMixinKeyword(int i) {
+    if (type(i) == SEALED || type(i) == BASE || type(i) == INTERFACE || type(i) == FINAL) i++;
+    return type(i) == MIXIN && isId(i + 1) ? i : -1;
+  }
+
+  private boolean isExtensionDeclaration(int i) {
+    final IElementType next = type(i + 1);
+    if (next == ON || next == LT) return true;
+    if (!isId(i + 1)) return false;
+    final IElementType afterNext = type(i + 2);
+    return afterNext == ON || afterNext == LT || textEquals(i + 1, "type") && (isId(i + 2) || afterNext == CONST);
+  }
+
+  private int classDefinition(int i) {
+    final int name = expectId(i);
+    addTopLevelDeclaration(text(name), DartComponentType.CLASS);
+    myResult.addClassName(text(name));
+
+    i = name + 1;
+    if (type(i) == LT) {
+      i = skipTypeArguments(i);
+    }
+    if (type(i) == EQ) {
+      // mixin application
+      i = requireType(i + 1);
+      if (type(i) == WITH) {
+        i = skipTypeList(i + 1);
+      }
+      if (type(i) == IMPLEMENTS) {
+        i = skipTypeList(i + 1);
+      }
+      return expect(i, SEMICOLON);
+    }
+
+    if (type(i) == EXTENDS) {
+      i = requireType(i + 1);
+    }
+    if (type(i) == WITH) {
+      i = skipTypeList(i + 1);
+    }
+    if (type(i) == IMPLEMENTS) {
+      i = skipTypeList(i + 1);
+    }
+    if (type(i) == NATIVE) {
+      i++;
+      if (isSimpleStringStart(i)) {
+        i = uriEnd(i);
+      }
+    }
+    return type(i) == LBRACE ? classBody(i, true) : i;
+  }
+
+  private int mixinDeclaration(int i) {
+    final int name = expectId(i);
+    addTopLevelDeclaration(text(name), DartComponentType.CLASS);
+    myResult.addClassName(text(name));
+
+    i = name + 1;
+    if (type(i) == LT) {
+      i = skipTypeArguments(i);
+    }
+    if (type(i) == ON) {
+      i = skipTypeList(i + 1);
+    }
+    if (type(i) == IMPLEMENTS) {
+      i = skipTypeList(i + 1);
+    }
+    return classBody(expectAt(i, LBRACE), true);
+  }
+
+  private int enumDefinition(int i) {
+    final int name = expectId(i);
+    addTopLevelDeclaration(text(name), DartComponentType.CLASS);
+    myResult.addClassName(text(name));
+
+    i = name + 1;
+    if (type(i) == LT) {
+      i = skipTypeArguments(i);
+    }
+    if (type(i) == WITH) {
+      i = skipTypeList(i + 1);
+    }
+    if (type(i) == IMPLEMENTS) {
+      i = skipTypeList(i + 1);
+    }
+    i = expect(i, LBRACE);
+
+    if (type(i) != RBRACE && type(i) != SEMICOLON) {
+      while (true) {
+        i = skipMetadata(i);
+        if (type(i) == AUGMENT) i++;
+        i = expectId(i);
+        myResult.addSymbol(text(i));
+        i++;
+        if (type(i) == LT) {
+          i = skipTypeArguments(i);
+        }
+        if (type(i) == DOT) {
+          i = expectAt(expectId(i + 1) + 1, LPAREN);
+        }
+        if (type(i) == LPAREN) {
+          i = skipBalanced(i);
+        }
+        if (type(i) != COMMA) break;
+        i++;
+        if (type(i) == SEMICOLON || type(i) == RBRACE) break;
+      }
+    }
+    if (type(i) == SEMICOLON) {
+      i++;
+    }
+    // enum members are not indexed
+    return classMembers(i, false);
+  }
+
+  private int extensionDeclaration(int i) {
+    while (type(i) != LBRACE) {
+      final IElementType type = type(i);
+      if (type == null || type == SEMICOLON || type == EQ || CLOSE_BRACKETS.contains(type)) throw GIVE_UP;
+      i = OPEN_BRACKETS.contains(type) ? skipBalanced(i) : i + 1;
+    }
+    // extension members are not indexed
+    return classBody(i, false);
+  }
+
+  private int classBody(int i, boolean indexMembers) {
+    return classMembers(expect(i, LBRACE), indexMembers);
+  }
+
+  private int classMembers(int i, boolean indexMembers) {
+    while (type(i) != RBRACE) {
+      if (type(i) == null) throw GIVE_UP;
+      i = memberDeclaration(i, false, indexMembers);
+    }
+    return i + 1;
+  }
+
+  /**
+   * Handles top-level functions, getters, setters and variables, and class members.
+   */
+  private int memberDeclaration(int i, boolean topLevel, boolean index) {
+    i = skipMetadata(i);
+    if (type(i) == AUGMENT) i++;
+    final int modifiersStart = i;
+    while (ALL_MODIFIERS.contains(type(i))) {
+      i++;
+    }
+    final int modifiersEnd = i;
+
+    if (!topLevel && type(i) == FACTORY) {
+      checkModifiers(modifiersStart, modifiersEnd, CONSTRUCTOR_MODIFIERS);
+      int name = expectId(i + 1);
+      i = name + 1;
+      if (type(i) == DOT) {
+        name = expectId(i + 1);
+        i = name + 1;
+      }
+      if (index) {
+        myResult.addSymbol(text(name));
+      }
+      return functionTail(skipBalanced(expectAt(i, LPAREN)), true);
+    }
+
+    if (isAccessor(i)) {
+      return accessorDeclaration(i, modifiersStart, modifiersEnd, topLevel, index);
+    }
+    if (!topLevel && type(i) == OPERATOR && OPERATOR_TOKENS.contains(type(i + 1))) {
+      return operatorDeclaration(i + 1, modifiersStart, modifiersEnd, index);
+    }
+    final int typeEnd = skipType(i);
+    if (typeEnd > i && isAccessor(typeEnd)) {
+      return accessorDeclaration(typeEnd, modifiersStart, modifiersEnd, topLevel, index);
+    }
+    if (!topLevel && typeEnd > i && type(typeEnd) == OPERATOR && OPERATOR_TOKENS.contains(type(typeEnd + 1))) {
+      return operatorDeclaration(typeEnd + 1, modifiersStart, modifiersEnd, index);
+    }
+
+    final boolean hasType = typeEnd > i && isId(typeEnd);
+    final int name = hasType ? typeEnd : expectId(i);
+    final IElementType next = type(name + 1);
+
+    if (next == DOT && !topLevel && !hasType) {
+      // named constructor
+      checkModifiers(modifiersStart, modifiersEnd, CONSTRUCTOR_MODIFIERS);
+      if (type(name + 2) != NEW) {
+        final int constructorName = expectId(name + 2);
+        if (index) {
+          myResult.addSymbol(text(constructorName));
+        }
+      }
+      return functionTail(skipBalanced(expectAt(name + 3, LPAREN)), false);
+    }
+
+    if (next == LPAREN || next == LT) {
+      checkModifiers(modifiersStart, modifiersEnd, topLevel ? FUNCTION_MODIFIERS : METHOD_MODIFIERS);
+      addMember(text(name), topLevel, index, DartComponentType.FUNCTION);
+      i = name + 1;
+      if (type(i) == LT) {
+        i = skipTypeArguments(i);
+      }
+      i = skipBalanced(expectAt(i, LPAREN));
+      return topLevel ? functionBody(i) : functionTail(i, false);
+    }
+
+    if (VAR_LIST_CONTINUATION.contains(next)) {
+      checkVarModifiers(modifiersStart, modifiersEnd, hasType);
+      addMember(text(name), topLevel, index, DartComponentType.GLOBAL_VARIABLE);
+      i = name + 1;
+      while (true) {
+        if (type(i) == EQ) {
+          i = skipExpression(i + 1, true);
+        }
+        if (type(i) == SEMICOLON) return i + 1;
+        if (type(i) != COMMA) throw GIVE_UP;
+        i = expectId(i + 1);
+        if (!VAR_LIST_CONTINUATION.contains(type(i + 1))) throw GIVE_UP;
+        addMember(text(i), topLevel, index, DartComponentType.GLOBAL_VARIABLE);
+        i++;
+      }
+    }
+
+    throw GIVE_UP;
+  }
+
+  private boolean isAccessor(int i) {
+    return (type(i) == GET || type(i) == SET) && isId(i + 1) && ACCESSOR_TAIL_START.contains(type(i + 2));
+  }
+
+  private int accessorDeclaration(int i, int modifiersStart, int modifiersEnd, boolean topLevel, boolean index) {
+    checkModifiers(modifiersStart, modifiersEnd, ACCESSOR_MODIFIERS);
+    final boolean getter = type(i) == GET;
+    addMember(text(i + 1), topLevel, index, DartComponentType.FUNCTION);
+    i += 2;
+    if (type(i) == LPAREN) {
+      i = skipBalanced(i);
+    }
+    else if (!getter) {
+      throw GIVE_UP;
+    }
+    return functionBody(i);
+  }
+
+  private int operatorDeclaration(int i, int modifiersStart, int modifiersEnd, boolean index) {
+    checkModifiers(modifiersStart, modifiersEnd, METHOD_MODIFIERS);
+    final int start = i;
+    while (OPERATOR_TOKENS.contains(type(i))) {
+      i++;
+    }
+    if (i == start || type(i) != LPAREN) throw GIVE_UP;
+    final String name = myText.subSequence(myStarts[start], myEnds[i - 1]).toString();
+    if (!USER_DEFINABLE_OPERATORS.contains(name)) throw GIVE_UP;
+    if (index) {
+      myResult.addSymbol(name);
+    }
+    return functionTail(skipBalanced(i), false);
+  }
+
+  private void addMember(@NotNull String name, boolean topLevel, boolean index, @NotNull DartComponentType topLevelType) {
+    if (topLevel) {
+      addTopLevelDeclaration(name, topLevelType);
+    }
+    else if (index) {
+      myResult.addSymbol(name);
+    }
+  }
+
+  private void addTopLevelDeclaration(@NotNull String name, @NotNull DartComponentType type) {
+    myResult.addSymbol(name);
+    myComponentNames.add(name);
+    myComponentTypes.add(type);
+  }
+
+  private void checkModifiers(int start, int end, @NotNull TokenSet allowed) {
+    for (int i = start; i < end; i++) {
+      if (!allowed.contains(myTypes[i])) throw GIVE_UP;
+    }
+    if (allowed == FUNCTION_MODIFIERS && end - start > 1) throw GIVE_UP;
+  }
+
+  private void checkVarModifiers(int start, int end, boolean hasType) {
+    int i = start;
+    for (IElementType modifier : VAR_MODIFIERS) {
+      if (i < end && myTypes[i] == modifier) i++;
+    }
+    final IElementType finalConstOrVar = i < end ? myTypes[i++] : null;
+    if (i != end || finalConstOrVar != null && finalConstOrVar != FINAL && finalConstOrVar != CONST && finalConstOrVar != VAR) {
+      throw GIVE_UP;
+    }
+    if (finalConstOrVar == VAR ? hasType : finalConstOrVar == null && !hasType) throw GIVE_UP;
+  }
+
+  /**
+   * Skips constructor initializers or a redirection and the body of a class member, starting right after the formal parameter list.
+   */
+  private int functionTail(int i, boolean factory) {
+    if (type(i) == COLON || type(i) == EQ && factory) {
+      i++;
+      while (true) {
+        final IElementType type = type(i);
+        if (type == null || type == EXPRESSION_BODY_DEF || CLOSE_BRACKETS.contains(type)) throw GIVE_UP;
+        if (type == SEMICOLON) return i + 1;
+        if (type == LBRACE) {
+          // a set or a map literal can't be told from the body here
+          if (!EXPRESSION_END.contains(myTypes[i - 1])) throw GIVE_UP;
+          return skipBalanced(i);
+        }
+        i = OPEN_BRACKETS.contains(type) ? skipBalanced(i) : i + 1;
+      }
+    }
+    return functionBody(i);
+  }
+
+  private int functionBody(int i) {
+    if (type(i) == SEMICOLON) return i + 1;
+    if (type(i) == NATIVE) {
+      i++;
+      if (isSimpleStringStart(i)) {
+        i = uriEnd(i);
+      }
+      if (type(i) == SEMICOLON) return i + 1;
+    }
+    if (type(i) == ASYNC || type(i) == SYNC) {
+      i++;
+      if (type(i) == MUL) i++;
+    }
+    if (type(i) == LBRACE) return skipBalanced(i);
+    if (type(i) == EXPRESSION_BODY_DEF) return skipExpression(i + 1, false) + 1;
+    throw GIVE_UP;
+  }
+
+  private int skipMetadata(int i) {
+    while (type(i) == AT) {
+      i = expectId(i + 1) + 1;
+      while (type(i) == DOT && isId(i + 1)) {
+        i += 2;
+      }
+      if (type(i) == LT) {
+        i = skipTypeArguments(i);
+      }
+      // arguments are a part of the annotation only if there's no space before them
+      if (type(i) == LPAREN && myStarts[i] == myEnds[i - 1]) {
+        i = skipBalanced(i);
+      }
+    }
+    return i;
+  }
+
+  private int requireType(int i) {
+    final int end = skipType(i);
+    if (end <= i) throw GIVE_UP;
+    return end;
+  }
+
+  private int skipTypeList(int i) {
+    i = requireType(i);
+    while (type(i) == COMMA) {
+      i = requireType(i + 1);
+    }
+    return i;
+  }
+
+  /**
+   * @return the index right after the type that starts at the given index, or the given index if there's no type there
+   */
+  private int skipType(int i) {
+    int end;
+    if (type(i) == LPAREN) {
+      // record type
+      end = skipBalanced(i);
+    }
+    else if (type(i) == VOID) {
+      end = i + 1;
+    }
+    else if (isFunctionTypeStart(i)) {
+      end = i;
+    }
+    else if (isId(i)) {
+      end = i + 1;
+      while (type(end) == DOT && isId(end + 1)) {
+        end += 2;
+      }
+      if (type(end) == LT) {
+        end = skipTypeArguments(end);
+      }
+    }
+    else {
+      return i;
+    }
+    if (end > i && type(end) == QUEST) end++;
+
+    while (isFunctionTypeStart(end)) {
+      end++;
+      if (type(end) == LT) {
+        end = skipTypeArguments(end);
+      }
+      end = skipBalanced(expectAt(end, LPAREN));
+      if (type(end) == QUEST) end++;
+    }
+    return end;
+  }
+
+  private boolean isFunctionTypeStart(int i) {
+    return type(i) == IDENTIFIER && (type(i + 1) == LPAREN || type(i + 1) == LT) && textEquals(i, "Function");
+  }
+
+  private int skipTypeArguments(int i) {
+    int depth = 0;
+    do {
+      final IElementType type = type(i);
+      if (type == LT) {
+        depth++;
+        i++;
+      }
+      else if (type == GT) {
+        depth--;
+        i++;
+      }
+      else if (type == LPAREN || type == LBRACKET) {
+        i = skipBalanced(i);
+      }
+      else if (type == null || type == SEMICOLON || type == EQ || type == LBRACE || CLOSE_BRACKETS.contains(type)) {
+        throw GIVE_UP;
+      }
+      else {
+        i++;
+      }
+    }
+    while (depth > 0);
+    return i;
+  }
+
+  /**
+   * Skips the tokens from an opening bracket to the matching closing one.
+   */
+  private int skipBalanced(int i) {
+    int depth = 0;
+    do {
+      final IElementType type = type(i);
+      if (type == LPAREN || type == LBRACKET || type == LBRACE) {
+        if (depth == myClosers.length) {
+          myClosers = Arrays.copyOf(myClosers, depth * 2);
+        }
+        myClosers[depth++] = type == LPAREN ? RPAREN : type == LBRACKET ? RBRACKET : RBRACE;
+      }
+      else if (type == RPAREN || type == RBRACKET || type == RBRACE) {
+        if (myClosers[--depth] != type) throw GIVE_UP;
+      }
+      else if (type == null) {
+        throw GIVE_UP;
+      }
+      i++;
+    }
+    while (depth > 0);
+    return i;
+  }
+
+  /**
+   * @return the index of the ';', or of the ',' if {@code stopAtComma}, that ends the expression starting at the given index
+   */
+  private int skipExpression(int i, boolean stopAtComma) {
+    boolean typeArgumentsPossible = false;
+    while (true) {
+      final IElementType type = type(i);
+      if (type == null || CLOSE_BRACKETS.contains(type)) throw GIVE_UP;
+      if (type == SEMICOLON) return i;
+      if (type == COMMA && stopAtComma) {
+        // in 'a = b<c, d>()' the comma doesn't separate variables
+        if (typeArgumentsPossible) throw GIVE_UP;
+        return i;
+      }
+      if (type == LT) {
+        // skip type arguments of a generic call or a collection literal, otherwise it may be a comparison
+        final int typeArgumentsEnd = typeArgumentsEnd(i);
+        if (typeArgumentsEnd > 0 && OPEN_BRACKETS.contains(type(typeArgumentsEnd))) {
+          i = typeArgumentsEnd;
+          continue;
+        }
+        typeArgumentsPossible = true;
+      }
+      i = OPEN_BRACKETS.contains(type) ? skipBalanced(i) : i + 1;
+    }
+  }
+
+  /**
+   * @return the index right after the type arguments starting at the given '<', or -1 if the tokens don't look like type arguments
+   */
+  private int typeArgumentsEnd(int i) {
+    int depth = 0;
+    do {
+      final IElementType type = type(i);
+      if (type == LT) {
+        depth++;
+      }
+      else if (type == GT) {
+        depth--;
+      }
+      else if (type == LPAREN) {
+        i = skipBalanced(i);
+        continue;
+      }
+      else if (type != DOT && type != COMMA && type != QUEST && type != VOID && !isId(i)) {
+        return -1;
+      }
+      i++;
+    }
+    while (depth > 0);
+    return i;
+  }
+
+  private boolean isSimpleStringStart(int i) {
+    final IElementType type = type(i);
+    return type == OPEN_QUOTE || type == RAW_SINGLE_QUOTED_STRING || type == RAW_TRIPLE_QUOTED_STRING;
+  }
+
+  /**
+   * @return the index right after the string literal without interpolations that starts at the given index
+   */
+  private int uriEnd(int i) {
+    final IElementType type = type(i);
+    int end;
+    if (type == RAW_SINGLE_QUOTED_STRING || type == RAW_TRIPLE_QUOTED_STRING) {
+      end = i + 1;
+    }
+    else if (type == OPEN_QUOTE) {
+      end = i + 1;
+      if (type(end) == REGULAR_STRING_PART) end++;
+      end = expect(end, CLOSING_QUOTE);
+    }
+    else {
+      throw GIVE_UP;
+    }
+    // adjacent strings
+    if (isSimpleStringStart(end)) throw GIVE_UP;
+    return end;
+  }
+
+  @NotNull
+  private String uri(int start, int end) {
+    return DartPsiImplUtil.getUnquotedDartStringAndItsRange(myText.subSequence(myStarts[start], myEnds[end - 1]).toString()).first;
+  }
+
+  @Nullable
+  private IElementType type(int i) {
+    return i < myCount ? myTypes[i] : null;
+  }
+
+  @NotNull
+  private String text(int i) {
+    return myText.subSequence(myStarts[i], myEnds[i]).toString();
+  }
+
+  private boolean textEquals(int i, @NotNull String text) {
+    if (myEnds[i] - myStarts[i] != text.length()) return false;
+    for (int k = 0; k < text.length(); k++) {
+      if (myText.charAt(myStarts[i] + k) != text.charAt(k)) return false;
+    }
+    return true;
+  }
+
+  private boolean isId(int i) {
+    final IElementType type = type(i);
+    return type == IDENTIFIER || BUILT_IN_IDENTIFIERS.contains(type);
+  }
+
+  private int expectId(int i) {
+    if (!isId(i)) throw GIVE_UP;
+    return i;
+  }
+
+  private int expectAt(int i, @NotNull IElementType type) {
+    if (type(i) != type) throw GIVE_UP;
+    return i;
+  }
+
+  private int expect(int i, @NotNull IElementType type) {
+    return expectAt(i, type) + 1;
+  }
+
+  private static final class GiveUpException extends RuntimeException {
+    private GiveUpException() {
+      super(null, null, false, false);
+    }
+  }
+}
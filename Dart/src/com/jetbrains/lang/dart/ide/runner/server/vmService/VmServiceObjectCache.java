@@ -0,0 +1,257 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.dartlang.vm.service.consumer.EvaluateConsumer;
+import org.dartlang.vm.service.consumer.EvaluateInFrameConsumer;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.element.ErrorRef;
+import org.dartlang.vm.service.element.InstanceRef;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.element.Sentinel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Results of {@code getObject} requests made while an isolate is paused. The Variables view asks for the same objects many times:
+ * when nodes are re-expanded, when a value is shown in several frames, when a collection page is requested again. The VM service
+ * protocol has no batch requests, so each of those is a round trip over the WebSocket.
+ * <p>
+ * A request for an object that is already being fetched joins the request in flight. Responses are kept until the isolate is
+ * resumed or exits, or until an expression evaluated by the user in it returns, since that may have changed any object. The
+ * {@code toString()} and {@code toList()} calls made to present values are assumed to change nothing, otherwise rendering each
+ * value would drop the cache. Errors are not kept. Request counts and latencies are written to the debug log when the cache of
+ * an isolate is invalidated.
+ */
+final class VmServiceObjectCache {
+  private static final Logger LOG = Logger.getInstance(VmServiceObjectCache.class);
+
+  private final Map<String, IsolateCache> myIsolateCaches = new HashMap<>();
+
+  /**
+   * @param key     identifies the request within the isolate, the object id for plain {@code getObject} requests
+   * @param request sends the request to the VM service with the given consumer, it is not called if the response is known
+   */
+  void getObject(@NotNull String isolateId,
+                 @NotNull String key,
+                 @NotNull GetObjectConsumer consumer,
+                 @NotNull Consumer<? super GetObjectConsumer> request) {
+    final IsolateCache isolateCache;
+    final Entry entry;
+    synchronized (this) {
+      isolateCache = myIsolateCaches.computeIfAbsent(isolateId, id -> new IsolateCache());
+      final Entry cached = isolateCache.myEntries.get(key);
+      if (cached != null) {
+        if (cached.myPendingConsumers != null) {
+          cached.myPendingConsumers.add(consumer);
+          isolateCache.myJoinedCount++;
+          return;
+        }
+        isolateCache.myHitCount++;
+        entry = cached;
+      }
+      else {
+        isolateCache.myEntries.put(key, new Entry(consumer));
+        isolateCache.myRequestCount++;
+        entry = null;
+      }
+    }
+
+    if (entry != null) {
+      entry.deliverTo(consumer);
+    }
+    else {
+      request.accept(new CachingConsumer(isolateId, isolateCache, key));
+    }
+  }
+
+  /**
+   * Forgets everything fetched for the isolate, to be called when it is resumed or exits. Requests in flight still get their
+   * responses, but these responses are not kept.
+   */
+  void invalidate(@NotNull String isolateId) {
+    final IsolateCache isolateCache;
+    synchronized (this) {
+      isolateCache = myIsolateCaches.remove(isolateId);
+    }
+
+    if (isolateCache != null && LOG.isDebugEnabled()) {
+      LOG.debug(isolateCache.getStatistics(isolateId));
+    }
+  }
+
+  synchronized void clear() {
+    myIsolateCaches.clear();
+  }
+
+  /**
+   * @return a consumer of an {@code evaluate} response that invalidates the cache of the isolate before passing the response on
+   */
+  @NotNull EvaluateConsumer invalidatingOnResponse(@NotNull String isolateId, @NotNull EvaluateConsumer consumer) {
+    return new EvaluateConsumer() {
+      @Override
+      public void received(ErrorRef response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(InstanceRef response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        invalidate(isolateId);
+        consumer.onError(error);
+      }
+    };
+  }
+
+  /**
+   * @return a consumer of an {@code evaluateInFrame} response that invalidates the cache of the isolate before passing the response on
+   */
+  @NotNull EvaluateInFrameConsumer invalidatingOnResponse(@NotNull String isolateId, @NotNull EvaluateInFrameConsumer consumer) {
+    return new EvaluateInFrameConsumer() {
+      @Override
+      public void received(ErrorRef response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(InstanceRef response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        invalidate(isolateId);
+        consumer.received(response);
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        invalidate(isolateId);
+        consumer.onError(error);
+      }
+    };
+  }
+
+  private final class CachingConsumer implements GetObjectConsumer {
+    private final @NotNull String myIsolateId;
+    private final @NotNull IsolateCache myIsolateCache;
+    private final @NotNull String myKey;
+    private final long myStartTime = System.nanoTime();
+
+    private CachingConsumer(@NotNull String isolateId, @NotNull IsolateCache isolateCache, @NotNull String key) {
+      myIsolateId = isolateId;
+      myIsolateCache = isolateCache;
+      myKey = key;
+    }
+
+    @Override
+    public void received(Obj response) {
+      done(response, null, null);
+    }
+
+    @Override
+    public void received(Sentinel response) {
+      done(null, response, null);
+    }
+
+    @Override
+    public void onError(RPCError error) {
+      done(null, null, error);
+    }
+
+    private void done(@Nullable Obj obj, @Nullable Sentinel sentinel, @Nullable RPCError error) {
+      final Entry entry;
+      final List<GetObjectConsumer> consumers;
+      synchronized (VmServiceObjectCache.this) {
+        myIsolateCache.addLatency(System.nanoTime() - myStartTime);
+
+        entry = myIsolateCache.myEntries.get(myKey);
+        consumers = entry.myPendingConsumers;
+        entry.myPendingConsumers = null;
+        entry.myObj = obj;
+        entry.mySentinel = sentinel;
+        entry.myError = error;
+
+        if (error != null) {
+          myIsolateCache.myEntries.remove(myKey);
+        }
+      }
+
+      if (error != null) {
+        LOG.debug("getObject failed for " + myIsolateId + " " + myKey + ": " + error.getMessage());
+      }
+
+      for (GetObjectConsumer consumer : consumers) {
+        entry.deliverTo(consumer);
+      }
+    }
+  }
+
+  private static final class IsolateCache {
+    private final Map<String, Entry> myEntries = new HashMap<>();
+    private int myRequestCount;
+    private int myHitCount;
+    private int myJoinedCount;
+    private int myResponseCount;
+    private long myTotalLatency;
+    private long myMaxLatency;
+
+    private void addLatency(long latency) {
+      myResponseCount++;
+      myTotalLatency += latency;
+      myMaxLatency = Math.max(myMaxLatency, latency);
+    }
+
+    private @NotNull String getStatistics(@NotNull String isolateId) {
+      final long averageLatency = myResponseCount == 0 ? 0 : myTotalLatency / myResponseCount;
+      return "getObject for " + isolateId + " while paused: " + myRequestCount + " requests, " +
+             myHitCount + " cache hits, " + myJoinedCount + " joined requests in flight, " +
+             "latency avg " + averageLatency / 1000 + " us, max " + myMaxLatency / 1000 + " us";
+    }
+  }
+
+  private static final class Entry {
+    private @Nullable List<GetObjectConsumer> myPendingConsumers;
+    private @Nullable Obj myObj;
+    private @Nullable Sentinel mySentinel;
+    private @Nullable RPCError myError;
+
+    private Entry(@NotNull GetObjectConsumer consumer) {
+      myPendingConsumers = new ArrayList<>();
+      myPendingConsumers.add(consumer);
+    }
+
+    private void deliverTo(@NotNull GetObjectConsumer consumer) {
+      if (myObj != null) {
+        consumer.received(myObj);
+      }
+      else if (mySentinel != null) {
+        consumer.received(mySentinel);
+      }
+      else {
+        consumer.onError(myError);
+      }
+    }
+  }
+}
@@ -49,6 +49,7 @@ public class VmServiceWrapper implements Disposable {
   private final IsolatesInfo myIsolatesInfo;
   private final DartVmServiceBreakpointHandler myBreakpointHandler;
   private final Alarm myRequestsScheduler;
+  private final VmServiceObjectCache myObjectCache = new VmServiceObjectCache();
 
   private long myVmServiceReceiverThreadId;
 
@@ -69,6 +70,7 @@ public class VmServiceWrapper implements Disposable {
 
   @Override
   public void dispose() {
+    myObjectCache.clear();
   }
 
   private void addRequest(@NotNull Runnable runnable) {
@@ -528,6 +530,7 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void resumeIsolate(@NotNull String isolateId, @Nullable StepOption stepOption) {
+    myObjectCache.invalidate(isolateId);
     addRequest(() -> {
       myLatestStep = stepOption;
       myVmService.resume(isolateId, stepOption, null, new VmServiceConsumers.EmptyResumeConsumer() {
@@ -572,6 +575,7 @@ public class VmServiceWrapper implements Disposable {
    * function, so frameIndex must be at least 1.
    */
   public void dropFrame(@NotNull String isolateId, int frameIndex) {
+    myObjectCache.invalidate(isolateId);
     addRequest(() -> {
       myLatestStep = StepOption.Rewind;
       myVmService.resume(isolateId, StepOption.Rewind, frameIndex, new VmServiceConsumers.EmptyResumeConsumer() {
@@ -685,23 +689,40 @@ public class VmServiceWrapper implements Disposable {
     return resultRef.get();
   }
 
+  /**
+   * Objects are cached until the isolate is resumed, see {@link VmServiceObjectCache}.
+   */
   public void getObject(@NotNull String isolateId, @NotNull String objectId, @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    myObjectCache.getObject(isolateId, objectId, consumer,
+                            cachingConsumer -> addRequest(() -> myVmService.getObject(isolateId, objectId, cachingConsumer)));
   }
 
+  /**
+   * Pages of collections are cached until the isolate is resumed, see {@link VmServiceObjectCache}.
+   */
   public void getCollectionObject(@NotNull String isolateId,
                                   @NotNull String objectId,
                                   int offset,
                                   int count,
                                   @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    final String key = objectId + "[" + offset + ":" + count + "]";
+    myObjectCache.getObject(isolateId, key, consumer,
+                            cachingConsumer -> addRequest(
+                              () -> myVmService.getObject(isolateId, objectId, offset, count, cachingConsumer)));
+  }
+
+  /**
+   * Called when the isolate is resumed or exits, not necessarily by this debugger.
+   */
+  public void invalidateObjectCache(@NotNull String isolateId) {
+    myObjectCache.invalidate(isolateId);
   }
 
   public void evaluateInFrame(@NotNull String isolateId,
                               @NotNull Frame vmFrame,
                               @NotNull String expression,
                               @NotNull XDebuggerEvaluator.XEvaluationCallback callback) {
-    addRequest(() -> myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression, new EvaluateInFrameConsumer() {
+    EvaluateInFrameConsumer consumer = new EvaluateInFrameConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
         callback.evaluated(new DartVmServiceValue(myDebugProcess, isolateId, "result", instanceRef, null, null, false));
@@ -723,7 +744,9 @@ public class VmServiceWrapper implements Disposable {
         @NlsSafe String message = error.getMessage();
         callback.errorOccurred(message);
       }
-    }));
+    };
+    addRequest(() -> myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression,
+                                                 myObjectCache.invalidatingOnResponse(isolateId, consumer)));
   }
 
   @SuppressWarnings("SameParameterValue")
@@ -738,7 +761,7 @@ public class VmServiceWrapper implements Disposable {
                                       @NotNull String targetId,
                                       @NotNull String expression,
                                       @NotNull XDebuggerEvaluator.XEvaluationCallback callback) {
-    evaluateInTargetContext(isolateId, targetId, expression, new EvaluateConsumer() {
+    EvaluateConsumer consumer = new EvaluateConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
         callback.evaluated(new DartVmServiceValue(myDebugProcess, isolateId, "result", instanceRef, null, null, false));
@@ -760,7 +783,9 @@ public class VmServiceWrapper implements Disposable {
         @NlsSafe String message = error.getMessage();
         callback.errorOccurred(message);
       }
-    });
+    };
+    // unlike the toString() and toList() calls made to present values, the user's expression may change any object
+    evaluateInTargetContext(isolateId, targetId, expression, myObjectCache.invalidatingOnResponse(isolateId, consumer));
   }
 
   public void callToString(@NotNull String isolateId, @NotNull String targetId, @NotNull InvokeConsumer callback) {
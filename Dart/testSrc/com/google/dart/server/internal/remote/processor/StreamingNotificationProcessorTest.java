@@ -0,0 +1,88 @@
+// Copyright 2000-2024 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package com.google.dart.server.internal.remote.processor;
+
+import com.google.dart.server.AnalysisServerListenerAdapter;
+import com.google.gson.JsonParser;
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.HighlightRegion;
+import org.dartlang.analysis.server.protocol.NavigationRegion;
+import org.dartlang.analysis.server.protocol.NavigationTarget;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamingNotificationProcessorTest extends TestCase {
+  private static final String HIGHLIGHTS =
+    "{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/project/lib/main.dart\",\"regions\":[" +
+    "{\"type\":\"KEYWORD\",\"offset\":0,\"length\":6}," +
+    "{\"type\":\"CLASS\",\"offset\":7,\"length\":3,\"unknown\":{\"skipped\":[1,2]}}," +
+    "{\"offset\":12,\"length\":4,\"type\":\"IDENTIFIER_DEFAULT\"}]}}";
+
+  private static final String NAVIGATION =
+    "{\"event\":\"analysis.navigation\",\"params\":{\"file\":\"/project/lib/main.dart\"," +
+    "\"regions\":[{\"offset\":7,\"length\":3,\"targets\":[0]},{\"offset\":20,\"length\":5,\"targets\":[1,0]}]," +
+    "\"targets\":[" +
+    "{\"kind\":\"CLASS\",\"fileIndex\":1,\"offset\":6,\"length\":3,\"startLine\":1,\"startColumn\":7,\"codeOffset\":0,\"codeLength\":12}," +
+    "{\"kind\":\"FUNCTION\",\"fileIndex\":0,\"offset\":30,\"length\":5,\"startLine\":4,\"startColumn\":1}]," +
+    "\"files\":[\"/project/lib/main.dart\",\"/project/lib/foo.dart\"]}}";
+
+  public void testHighlightsSameAsTreeProcessor() throws Exception {
+    RecordingListener streamed = new RecordingListener();
+    RecordingListener tree = new RecordingListener();
+    processStreaming(HIGHLIGHTS, streamed);
+    new NotificationAnalysisHighlightsProcessor(tree).process(JsonParser.parseString(HIGHLIGHTS).getAsJsonObject());
+
+    assertEquals(1, tree.calls.size());
+    assertEquals(tree.calls, streamed.calls);
+  }
+
+  public void testNavigationSameAsTreeProcessor() throws Exception {
+    RecordingListener streamed = new RecordingListener();
+    RecordingListener tree = new RecordingListener();
+    processStreaming(NAVIGATION, streamed);
+    new NotificationAnalysisNavigationProcessor(tree).process(JsonParser.parseString(NAVIGATION).getAsJsonObject());
+
+    assertEquals(1, tree.calls.size());
+    assertEquals(tree.calls, streamed.calls);
+  }
+
+  public void testOtherJsonLeftToTreeProcessors() {
+    StreamingNotificationProcessor processor = new StreamingNotificationProcessor(new RecordingListener());
+    assertNull(processor.decode("{\"event\":\"analysis.errors\",\"params\":{\"file\":\"/a.dart\",\"errors\":[]}}"));
+    assertNull(processor.decode("{\"id\":\"1\",\"result\":{}}"));
+    // the event must come first, the params aren't decoded speculatively
+    assertNull(processor.decode("{\"params\":{\"file\":\"/a.dart\",\"regions\":[]},\"event\":\"analysis.highlights\"}"));
+    assertNull(processor.decode("{\"event\":\"analysis.highlights\",\"params\":{\"file\":\"/a.dart\"}}"));
+    assertNull(processor.decode(NAVIGATION.replace("\"fileIndex\":1", "\"fileIndex\":2")));
+    assertNull(processor.decode(NAVIGATION.replace("\"targets\":[1,0]", "\"targets\":[2]")));
+    assertNull(processor.decode(HIGHLIGHTS.substring(0, HIGHLIGHTS.length() / 2)));
+  }
+
+  private static void processStreaming(String json, RecordingListener listener) {
+    StreamingNotificationProcessor processor = new StreamingNotificationProcessor(listener);
+    Object notification = processor.decode(json);
+    assertNotNull(notification);
+    processor.notifyListener(notification);
+  }
+
+  private static final class RecordingListener extends AnalysisServerListenerAdapter {
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void computedHighlights(String file, List<HighlightRegion> highlights) {
+      calls.add("highlights " + file + " " + highlights);
+    }
+
+    @Override
+    public void computedNavigation(String file, List<NavigationRegion> regions) {
+      StringBuilder call = new StringBuilder("navigation " + file);
+      for (NavigationRegion region : regions) {
+        call.append(' ').append(region).append(" ->");
+        for (NavigationTarget target : region.getTargetObjects()) {
+          call.append(' ').append(target.getFile()).append(target);
+        }
+      }
+      calls.add(call.toString());
+    }
+  }
+}
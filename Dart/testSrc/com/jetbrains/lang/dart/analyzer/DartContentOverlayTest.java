@@ -0,0 +1,114 @@
+// Copyright 2000-2024 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService.PendingEdits;
+import org.dartlang.analysis.server.protocol.AddContentOverlay;
+import org.dartlang.analysis.server.protocol.ChangeContentOverlay;
+import org.dartlang.analysis.server.protocol.SourceEdit;
+import org.jetbrains.annotations.NotNull;
+
+import static com.jetbrains.lang.dart.analyzer.DartAnalysisServerService.createContentOverlay;
+
+public class DartContentOverlayTest extends BasePlatformTestCase {
+  private static final String TEXT = "void main() {\n  print('hello');\n}\n";
+
+  private Document myDocument;
+  private long myStartTimestamp;
+  private PendingEdits myEdits;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDocument = EditorFactory.getInstance().createDocument(TEXT);
+    myStartTimestamp = myDocument.getModificationStamp();
+    myEdits = new PendingEdits(myStartTimestamp);
+    // the same way as the document listener of the service
+    myDocument.addDocumentListener(new DocumentListener() {
+      @Override
+      public void beforeDocumentChange(@NotNull DocumentEvent e) {
+        myEdits.add(e);
+      }
+    }, getTestRootDisposable());
+  }
+
+  public void testEditsSentAsChange() {
+    edit(() -> {
+      myDocument.replaceString(23, 28, "goodbye");
+      myDocument.insertString(0, "// comment\n");
+      myDocument.deleteString(0, 3);
+    });
+
+    Object overlay = createContentOverlay(myStartTimestamp, myEdits, myDocument);
+    assertInstanceOf(overlay, ChangeContentOverlay.class);
+    assertEquals(3, ((ChangeContentOverlay)overlay).getEdits().size());
+    // the server applies the edits one after another
+    assertEquals(myDocument.getText(), applyEdits(TEXT, (ChangeContentOverlay)overlay));
+  }
+
+  public void testEditsCoalescedUpToMaxEdits() {
+    edit(() -> {
+      for (int i = 0; i < PendingEdits.MAX_EDITS; i++) {
+        myDocument.insertString(i % TEXT.length(), " ");
+      }
+    });
+    Object overlay = createContentOverlay(myStartTimestamp, myEdits, myDocument);
+    assertInstanceOf(overlay, ChangeContentOverlay.class);
+    assertEquals(PendingEdits.MAX_EDITS, ((ChangeContentOverlay)overlay).getEdits().size());
+    assertEquals(myDocument.getText(), applyEdits(TEXT, (ChangeContentOverlay)overlay));
+
+    edit(() -> myDocument.insertString(0, " "));
+    assertWholeContent(createContentOverlay(myStartTimestamp, myEdits, myDocument));
+
+    // further edits aren't collected, the content is sent whole anyway
+    edit(() -> myDocument.insertString(0, " "));
+    assertWholeContent(createContentOverlay(myStartTimestamp, myEdits, myDocument));
+  }
+
+  public void testReplacementAsLongAsContentSentWhole() {
+    edit(() -> myDocument.replaceString(0, myDocument.getTextLength(), "void main() {}\n"));
+    assertWholeContent(createContentOverlay(myStartTimestamp, myEdits, myDocument));
+  }
+
+  public void testEditsOfOtherContentSentWhole() {
+    edit(() -> myDocument.insertString(0, " "));
+
+    // the server has an overlay sent before the edits were collected
+    assertWholeContent(createContentOverlay(myStartTimestamp - 1, myEdits, myDocument));
+    // the server has no overlay
+    assertWholeContent(createContentOverlay(null, myEdits, myDocument));
+    // the edits weren't collected
+    assertWholeContent(createContentOverlay(myStartTimestamp, null, myDocument));
+  }
+
+  public void testContentSentWholeAfterInvalidOverlayChange() {
+    edit(() -> myDocument.insertString(0, " "));
+    assertInstanceOf(createContentOverlay(myStartTimestamp, myEdits, myDocument), ChangeContentOverlay.class);
+
+    // INVALID_OVERLAY_CHANGE resets the timestamps of all overlays
+    assertWholeContent(createContentOverlay(DartAnalysisServerService.RESENT_OVERLAY_TIMESTAMP, myEdits, myDocument));
+  }
+
+  private void edit(@NotNull Runnable runnable) {
+    WriteCommandAction.runWriteCommandAction(getProject(), runnable);
+  }
+
+  private void assertWholeContent(@NotNull Object overlay) {
+    assertInstanceOf(overlay, AddContentOverlay.class);
+    assertEquals(myDocument.getText(), ((AddContentOverlay)overlay).getContent());
+  }
+
+  @NotNull
+  private static String applyEdits(@NotNull String text, @NotNull ChangeContentOverlay overlay) {
+    StringBuilder builder = new StringBuilder(text);
+    for (SourceEdit edit : overlay.getEdits()) {
+      builder.replace(edit.getOffset(), edit.getOffset() + edit.getLength(), edit.getReplacement());
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.AnalysisError;
+import org.dartlang.analysis.server.protocol.AnalysisErrorSeverity;
+import org.dartlang.analysis.server.protocol.AnalysisErrorType;
+import org.dartlang.analysis.server.protocol.Location;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DartErrorIndexTest extends TestCase {
+
+  public void testFolderCounters() {
+    DartErrorIndex index = new DartErrorIndex();
+    index.update("/p/lib/a.dart", 1, List.of(error(AnalysisErrorSeverity.ERROR), error(AnalysisErrorSeverity.WARNING)));
+    index.update("/p/lib/src/b.dart", 2, List.of(error(AnalysisErrorSeverity.ERROR), error(AnalysisErrorSeverity.ERROR)));
+    index.update("/p/test/c.dart", 3, List.of(error(AnalysisErrorSeverity.INFO)));
+
+    assertTrue(index.hasErrors("/p", true));
+    assertTrue(index.hasErrors("/p/lib/src", true));
+    assertFalse(index.hasErrors("/p/test", true));
+    assertTrue(index.hasErrors("/p/lib/a.dart", false));
+    assertFalse(index.hasErrors("/p/test/c.dart", false));
+
+    assertEquals(Map.of("/p/lib", List.of("/p/lib/a.dart"), "/p/lib/src", List.of("/p/lib/src/b.dart")),
+                 index.getFilesWithProblems(AnalysisErrorSeverity.ERROR));
+    assertEquals(3, index.getFilesWithProblems(null).size());
+    assertEquals(Map.of("/p/lib", List.of("/p/lib/a.dart")), index.getFilesWithProblems(AnalysisErrorSeverity.WARNING));
+    assertEquals(Map.of("/p/test", List.of("/p/test/c.dart")), index.getFilesWithProblems(AnalysisErrorSeverity.INFO));
+
+    index.update("/p/lib/src/b.dart", 0, Collections.emptyList());
+    assertFalse(index.hasErrors("/p/lib/src", true));
+    assertTrue(index.hasErrors("/p/lib", true));
+    assertTrue(index.hasErrors("/p", true));
+    assertEquals(0, index.getErrorsHash("/p/lib/src/b.dart"));
+    assertEquals(1, index.getErrorsHash("/p/lib/a.dart"));
+
+    index.clear();
+    assertFalse(index.hasErrors("/p", true));
+    assertTrue(index.getFilesWithProblems(null).isEmpty());
+  }
+
+  public void testFilesWithErrorsHash() {
+    DartErrorIndex index = new DartErrorIndex();
+    assertEquals(Collections.emptySet().hashCode(), index.getFilesWithErrorsHash());
+
+    index.update("/a.dart", 1, List.of(error(AnalysisErrorSeverity.ERROR)));
+    index.update("/b.dart", 2, List.of(error(AnalysisErrorSeverity.WARNING)));
+    index.update("/c.dart", 3, List.of(error(AnalysisErrorSeverity.ERROR)));
+    assertEquals(Set.of("/a.dart", "/c.dart").hashCode(), index.getFilesWithErrorsHash());
+
+    index.update("/a.dart", 4, List.of(error(AnalysisErrorSeverity.INFO)));
+    assertEquals(Set.of("/c.dart").hashCode(), index.getFilesWithErrorsHash());
+  }
+
+  private static AnalysisError error(String severity) {
+    Location location = new Location("/a.dart", 0, 1, 1, 1, null, null);
+    return new AnalysisError(severity, AnalysisErrorType.COMPILE_TIME_ERROR, location, "message", null, null, null, null, null);
+  }
+}
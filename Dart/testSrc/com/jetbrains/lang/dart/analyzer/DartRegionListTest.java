@@ -0,0 +1,158 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.jetbrains.lang.dart.analyzer.DartServerData.DartRegion;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class DartRegionListTest extends TestCase {
+
+  public void testShiftAndDelete() {
+    DartRegionList<DartRegion> regions = new DartRegionList<>(List.of(new DartRegion(10, 5), new DartRegion(0, 3), new DartRegion(20, 2)),
+                                                              false);
+    assertRegions(regions, 0, 3, 10, 5, 20, 2);
+
+    // typing inside the second region removes it and shifts the third one
+    assertTrue(regions.documentChanged(12, 4, false));
+    assertRegions(regions, 0, 3, 24, 2);
+
+    // deleting in front of everything shifts everything
+    assertTrue(regions.documentChanged(0, -3, false));
+    assertRegions(regions, 21, 2);
+
+    assertFalse(regions.documentChanged(5, 0, false));
+    assertFalse(regions.documentChanged(30, 10, false));
+    assertRegions(regions, 21, 2);
+  }
+
+  public void testResizeTouched() {
+    DartRegionList<DartRegion> regions = new DartRegionList<>(List.of(new DartRegion(0, 10), new DartRegion(2, 3), new DartRegion(20, 2)),
+                                                              false);
+    regions.documentChanged(3, 2, true);
+    assertRegions(regions, 0, 12, 2, 5, 22, 2);
+
+    regions.documentChanged(2, -5, true);
+    assertRegions(regions, 0, 7, 17, 2);
+  }
+
+  public void testMaxLengthShrinks() {
+    DartRegionList<DartRegion> regions = new DartRegionList<>(List.of(new DartRegion(0, 100), new DartRegion(200, 3), new DartRegion(300, 7),
+                                                                      new DartRegion(400, 7)), false);
+    assertEquals(100, regions.getMaxLength());
+
+    // typing inside the longest region removes it
+    regions.documentChanged(50, 1, false);
+    assertRegions(regions, 201, 3, 301, 7, 401, 7);
+    assertEquals(7, regions.getMaxLength());
+
+    // one of the two longest regions shrinks
+    regions.documentChanged(302, -2, true);
+    assertRegions(regions, 201, 3, 301, 5, 399, 7);
+    assertEquals(7, regions.getMaxLength());
+
+    regions.documentChanged(400, -2, true);
+    assertRegions(regions, 201, 3, 301, 5, 399, 5);
+    assertEquals(5, regions.getMaxLength());
+
+    regions.documentChanged(202, 10, true);
+    assertRegions(regions, 201, 13, 311, 5, 409, 5);
+    assertEquals(13, regions.getMaxLength());
+  }
+
+  public void testEditJournal() {
+    DartRegionList<DartRegion> regions = new DartRegionList<>(List.of(new DartRegion(10, 5)), true);
+    regions.documentChanged(0, 3, false);
+    regions.documentChanged(20, -2, false);
+    regions.documentChanged(100, 0, false);
+    assertEquals(2, regions.getEditCount());
+    assertEquals(21, regions.shiftOffset(20, 0, 2));
+    assertEquals(17, regions.shiftOffset(17, 1, 2));
+    assertEquals(3, regions.shiftOffset(0, 0, 2));
+  }
+
+  public void testSameAsLinearUpdate() {
+    Random random = new Random(42);
+    for (int iteration = 0; iteration < 200; iteration++) {
+      boolean resizeTouched = random.nextBoolean();
+      List<int[]> expected = new ArrayList<>();
+      List<DartRegion> initial = new ArrayList<>();
+      int offset = 0;
+      for (int i = 0; i < 100; i++) {
+        offset += random.nextInt(10);
+        int length = random.nextInt(4) == 0 ? random.nextInt(50) : random.nextInt(5);
+        expected.add(new int[]{offset, length});
+        initial.add(new DartRegion(offset, length));
+      }
+      DartRegionList<DartRegion> regions = new DartRegionList<>(initial, false);
+
+      for (int edit = 0; edit < 100; edit++) {
+        int eventOffset = random.nextInt(offset + 20);
+        int deltaLength = random.nextInt(20) - 10;
+        boolean expectedUpdated = linearUpdate(expected, eventOffset, deltaLength, resizeTouched);
+        boolean updated = regions.documentChanged(eventOffset, deltaLength, resizeTouched);
+        if (!resizeTouched) {
+          assertEquals(expectedUpdated, updated);
+        }
+        assertEquals(expected.size(), regions.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i)[0], regions.get(i).getOffset());
+          assertEquals(expected.get(i)[1], regions.get(i).getLength());
+        }
+      }
+    }
+  }
+
+  /**
+   * The original per-keystroke update of DartServerData, visiting every region.
+   */
+  private static boolean linearUpdate(List<int[]> regions, int eventOffset, int deltaLength, boolean resizeTouched) {
+    boolean updated = false;
+    int eventRightOffset = eventOffset - deltaLength;
+    Iterator<int[]> iterator = regions.iterator();
+    while (iterator.hasNext()) {
+      int[] region = iterator.next();
+      if (deltaLength > 0) {
+        if (eventOffset <= region[0]) {
+          region[0] += deltaLength;
+          updated = true;
+        }
+        else if (eventOffset < region[0] + region[1]) {
+          if (resizeTouched) {
+            region[1] += deltaLength;
+          }
+          else {
+            iterator.remove();
+          }
+          updated = true;
+        }
+      }
+      else if (deltaLength < 0) {
+        if (eventRightOffset <= region[0]) {
+          region[0] += deltaLength;
+          updated = true;
+        }
+        else if (resizeTouched &&
+                 region[0] <= eventOffset && eventRightOffset <= region[0] + region[1] && region[1] != -deltaLength) {
+          region[1] += deltaLength;
+        }
+        else if (eventOffset < region[0] + region[1]) {
+          iterator.remove();
+          updated = true;
+        }
+      }
+    }
+    return updated;
+  }
+
+  private static void assertRegions(List<DartRegion> regions, int... offsetsAndLengths) {
+    assertEquals(offsetsAndLengths.length / 2, regions.size());
+    for (int i = 0; i < regions.size(); i++) {
+      assertEquals(offsetsAndLengths[2 * i], regions.get(i).getOffset());
+      assertEquals(offsetsAndLengths[2 * i + 1], regions.get(i).getLength());
+    }
+  }
+}
@@ -0,0 +1,45 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.coverage;
+
+import com.google.gson.JsonSyntaxException;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class DartCoverageDataTest extends TestCase {
+
+  public void testMergeHits() throws IOException {
+    DartCoverageData data = new DartCoverageData();
+    data.addCoverage(new StringReader("""
+      {"type": "CodeCoverage", "coverage": [
+        {"source": "package:a/a.dart", "script": {"type": "@Script", "id": "1"}, "hits": [1, 2, 3, 0, 5, 1]},
+        {"hits": [3, 4, "7-8", 1], "funcHits": [1, 1], "source": "package:a/a.dart"},
+        {"source": "package:a/b.dart", "hits": []},
+        {"source": "package:a/c.dart"},
+        {"hits": [1, 1]}
+      ]}"""));
+    data.addCoverage(new StringReader("""
+      {"type": "CodeCoverage", "coverage": [{"source": "package:a/a.dart", "hits": [1, 10, 10, 0]}]}"""));
+
+    assertEquals(3, data.getLineHits().size());
+    assertEquals(0, data.getLineHits().get("package:a/b.dart").getLineCount());
+    assertEquals(0, data.getLineHits().get("package:a/c.dart").getLineCount());
+
+    DartCoverageData.LineHits hits = data.getLineHits().get("package:a/a.dart");
+    assertEquals(11, hits.getLineCount());
+    int[] expected = {-1, 12, -1, 4, -1, 1, -1, 1, 1, -1, 0};
+    for (int line = 0; line < expected.length; line++) {
+      assertEquals("line " + line, expected[line], hits.getHits(line));
+    }
+  }
+
+  public void testNotCoverage() {
+    try {
+      new DartCoverageData().addCoverage(new StringReader("[1, 2]"));
+      fail();
+    }
+    catch (JsonSyntaxException | IOException ignored) {
+    }
+  }
+}
@@ -0,0 +1,172 @@
+// Copyright 2000-2021 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.ide.index;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.ParsingTestCase;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.lang.dart.DartFileType;
+import com.jetbrains.lang.dart.DartParserDefinition;
+import com.jetbrains.lang.dart.util.DartTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Checks that {@link DartLexerIndexer} either gives up or produces exactly what {@link DartIndexUtil#indexFileRoots} gets from PSI.
+ */
+public class DartLexerIndexerTest extends ParsingTestCase {
+  public DartLexerIndexerTest() {
+    super("parsing", DartFileType.DEFAULT_EXTENSION, new DartParserDefinition());
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return DartTestUtils.BASE_TEST_DATA_PATH;
+  }
+
+  public void testSameAsPsiIndexer() throws IOException {
+    int indexed = 0;
+    for (File file : getDartFiles()) {
+      if (doTest(file.getName(), FileUtil.loadFile(file, true))) {
+        indexed++;
+      }
+    }
+    assertTrue("Most files are expected to be indexed without PSI, indexed: " + indexed, indexed > 30);
+  }
+
+  public void testDeclarations() {
+    assertTrue(doTest("declarations.dart", """
+      @Deprecated('x')
+      library foo.bar;
+      import 'dart:async' deferred as async show Future, Stream hide Timer;
+      import r'package:a/a.dart' if (dart.library.io) 'io.dart' as a;
+      export "b.dart" show B;
+      part 'c.dart';
+      typedef int F<T>(T t);
+      typedef G = void Function(int)?;
+      abstract class A<T extends Comparable<T>> extends B<T> with M implements I, J {
+        static const int x = 1, y = 2;
+        late final Map<String, List<int>> map = <String, List<int>>{};
+        final (int, {String s}) record;
+        A(this.record) : super(x);
+        A.named() : this(null);
+        const factory A.redirect() = _A;
+        factory A.f() => _A();
+        external int get getter;
+        set setter(int value) {}
+        operator ==(Object other) => true;
+        int operator [](int i) => i;
+        void operator []=(int i, int v) {}
+        T? method<S>(S s, [int? i]) async* {}
+        static Future<void> sm({required int i}) async {}
+      }
+      mixin M on Object implements I {
+        int m = 0;
+      }
+      class Mix = Object with M;
+      enum E<T> implements I {
+        a, b.named(), c<int>();
+        const E();
+        final int f = 0;
+      }
+      extension Ext on String {
+        int get ext => 0;
+      }
+      int get topGetter => 0;
+      set topSetter(value) {}
+      var v1, v2 = 0;
+      final List<int>? list = [];
+      void main(List<String> args) {
+        print(args);
+      }
+      """));
+  }
+
+  public void testPartOf() {
+    assertTrue(doTest("partOf.dart", "part of foo.bar;\nclass A {}\n"));
+    assertTrue(doTest("partOfUri.dart", "part of 'lib.dart';\nint i = 0;\n"));
+  }
+
+  public void testGivesUp() {
+    assertNull(DartLexerIndexer.index("class A { void foo( }"));
+    assertNull(DartLexerIndexer.index("class A {"));
+    assertNull(DartLexerIndexer.index("import 'a.dart' as ;"));
+    assertNull(DartLexerIndexer.index("int foo() { return 1; "));
+    assertNull(DartLexerIndexer.index("class { }"));
+    assertNull(DartLexerIndexer.index("class A extends {}"));
+    assertNull(DartLexerIndexer.index("var x = 1"));
+  }
+
+  // the two performance tests index the same files, so their results compare the lexer based indexer with the PSI based one
+
+  public void testLexerIndexerPerformance() throws IOException {
+    final List<String> texts = loadDartFiles();
+    PlatformTestUtil.newPerformanceTest("Index Dart files with the lexer", () -> {
+      for (String text : texts) {
+        DartLexerIndexer.index(text);
+      }
+    }).start();
+  }
+
+  public void testPsiIndexerPerformance() throws IOException {
+    final List<String> texts = loadDartFiles();
+    PlatformTestUtil.newPerformanceTest("Index Dart files with PSI", () -> {
+      for (int i = 0; i < texts.size(); i++) {
+        DartIndexUtil.indexFileRoots(createPsiFile("file" + i, texts.get(i)));
+      }
+    }).start();
+  }
+
+  /**
+   * @return {@code false} if {@link DartLexerIndexer} has given up on the text
+   */
+  private boolean doTest(String fileName, String text) {
+    final DartFileIndexData lexerData = DartLexerIndexer.index(text);
+    if (lexerData == null) return false;
+
+    final PsiFile psiFile = createPsiFile(FileUtil.getNameWithoutExtension(fileName), text);
+    final DartFileIndexData psiData = DartIndexUtil.indexFileRoots(psiFile);
+
+    assertEquals(fileName, psiData.getLibraryName(), lexerData.getLibraryName());
+    assertEquals(fileName, psiData.isPart(), lexerData.isPart());
+    assertEquals(fileName, sorted(psiData.getClassNames()), sorted(lexerData.getClassNames()));
+    assertEquals(fileName, sorted(psiData.getSymbols()), sorted(lexerData.getSymbols()));
+    assertEquals(fileName, psiData.getComponentInfoMap(), lexerData.getComponentInfoMap());
+    assertEquals(fileName, psiData.getImportAndExportInfos(), lexerData.getImportAndExportInfos());
+    assertEquals(fileName, psiData.getPartUris(), lexerData.getPartUris());
+    return true;
+  }
+
+  private static List<String> loadDartFiles() throws IOException {
+    final List<String> texts = new ArrayList<>();
+    for (File file : getDartFiles()) {
+      texts.add(FileUtil.loadFile(file, true));
+    }
+    return texts;
+  }
+
+  private static List<File> getDartFiles() {
+    final List<File> roots = List.of(new File(DartTestUtils.BASE_TEST_DATA_PATH, "parsing"),
+                                     new File(DartTestUtils.BASE_TEST_DATA_PATH, "sdk"));
+    final List<File> result = new ArrayList<>();
+    for (File root : roots) {
+      FileUtil.processFilesRecursively(root, file -> {
+        if (file.isFile() && file.getName().endsWith("." + DartFileType.DEFAULT_EXTENSION)) {
+          result.add(file);
+        }
+        return true;
+      });
+    }
+    result.sort(Comparator.comparing(File::getPath));
+    assertFalse(result.isEmpty());
+    return result;
+  }
+
+  private static List<String> sorted(Collection<String> strings) {
+    final List<String> result = new ArrayList<>(strings);
+    Collections.sort(result);
+    return result;
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.ide.runner.server.vmService;
+
+import com.google.gson.JsonObject;
+import junit.framework.TestCase;
+import org.dartlang.vm.service.consumer.EvaluateInFrameConsumer;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.element.ErrorRef;
+import org.dartlang.vm.service.element.InstanceRef;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.RPCError;
+import org.dartlang.vm.service.element.Sentinel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VmServiceObjectCacheTest extends TestCase {
+  private final VmServiceObjectCache myCache = new VmServiceObjectCache();
+  private final List<GetObjectConsumer> mySentRequests = new ArrayList<>();
+
+  public void testCachedUntilInvalidated() {
+    final List<String> received = new ArrayList<>();
+    get("i1", "o1", received);
+    get("i1", "o1", received);
+    assertEquals(1, mySentRequests.size());
+    assertTrue(received.isEmpty());
+
+    mySentRequests.get(0).received(obj("o1"));
+    assertEquals(List.of("o1", "o1"), received);
+
+    get("i1", "o1", received);
+    assertEquals(1, mySentRequests.size());
+    assertEquals(List.of("o1", "o1", "o1"), received);
+
+    // other isolates are not affected
+    myCache.invalidate("i2");
+    get("i1", "o1", received);
+    assertEquals(1, mySentRequests.size());
+
+    myCache.invalidate("i1");
+    get("i1", "o1", received);
+    assertEquals(2, mySentRequests.size());
+  }
+
+  public void testSentinelCachedErrorNot() {
+    final List<String> received = new ArrayList<>();
+    get("i1", "expired", received);
+    mySentRequests.get(0).received(new Sentinel(new JsonObject()));
+    get("i1", "expired", received);
+    assertEquals(1, mySentRequests.size());
+    assertEquals(List.of("sentinel", "sentinel"), received);
+
+    get("i1", "o1", received);
+    get("i1", "o1", received);
+    mySentRequests.get(1).onError(error("Connection closed"));
+    assertEquals(List.of("sentinel", "sentinel", "error", "error"), received);
+    get("i1", "o1", received);
+    assertEquals(3, mySentRequests.size());
+  }
+
+  public void testResponseAfterInvalidation() {
+    final List<String> received = new ArrayList<>();
+    get("i1", "o1", received);
+    myCache.invalidate("i1");
+    mySentRequests.get(0).received(obj("o1"));
+    assertEquals(List.of("o1"), received);
+
+    get("i1", "o1", received);
+    assertEquals(2, mySentRequests.size());
+  }
+
+  public void testInvalidatedByEvaluation() {
+    final List<String> received = new ArrayList<>();
+    get("i1", "o1", received);
+    get("i2", "o2", received);
+    mySentRequests.get(0).received(obj("o1"));
+    mySentRequests.get(1).received(obj("o2"));
+
+    final List<String> results = new ArrayList<>();
+    final EvaluateInFrameConsumer evaluateConsumer = myCache.invalidatingOnResponse("i1", new EvaluateInFrameConsumer() {
+      @Override
+      public void received(ErrorRef response) {
+        results.add("error ref");
+      }
+
+      @Override
+      public void received(InstanceRef response) {
+        results.add(response.getId());
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        results.add("sentinel");
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        results.add("error");
+      }
+    });
+
+    // an object fetched while the expression is evaluated may be outdated by it, so it isn't kept either
+    get("i1", "o3", received);
+    assertEquals(3, mySentRequests.size());
+    evaluateConsumer.received(new InstanceRef(obj("r1").getJson()));
+    assertEquals(List.of("r1"), results);
+    mySentRequests.get(2).received(obj("o3"));
+
+    get("i1", "o1", received);
+    get("i1", "o3", received);
+    assertEquals(5, mySentRequests.size());
+    // other isolates are not affected
+    get("i2", "o2", received);
+    assertEquals(5, mySentRequests.size());
+
+    mySentRequests.get(3).received(obj("o1"));
+    evaluateConsumer.onError(error("Isolate resumed"));
+    assertEquals(List.of("r1", "error"), results);
+    get("i1", "o1", received);
+    assertEquals(6, mySentRequests.size());
+  }
+
+  private void get(String isolateId, String objectId, List<String> received) {
+    myCache.getObject(isolateId, objectId, new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        received.add(response.getId());
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        received.add("sentinel");
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        received.add("error");
+      }
+    }, mySentRequests::add);
+  }
+
+  private static RPCError error(String message) {
+    final JsonObject json = new JsonObject();
+    json.addProperty("code", RPCError.SERVER_ERROR);
+    json.addProperty("message", message);
+    return new RPCError(json);
+  }
+
+  private static Obj obj(String id) {
+    final JsonObject json = new JsonObject();
+    json.addProperty("id", id);
+    return new Obj(json);
+  }
+}
@@ -105,9 +105,8 @@ public class ByteResponseStream implements ResponseStream {
 
   @Override
   public JsonObject take() throws Exception {
-    String line = lineQueue.take();
-    if (line == EOF_LINE) {
-      lineQueue.add(line);
+    String line = takeJson();
+    if (line == null) {
       return null;
     }
     try {
@@ -117,4 +116,14 @@ public class ByteResponseStream implements ResponseStream {
       throw new JsonSyntaxException("Parse server message failed: " + line, e);
     }
   }
+
+  @Override
+  public String takeJson() throws Exception {
+    String line = lineQueue.take();
+    if (line == EOF_LINE) {
+      lineQueue.add(line);
+      return null;
+    }
+    return line;
+  }
 }
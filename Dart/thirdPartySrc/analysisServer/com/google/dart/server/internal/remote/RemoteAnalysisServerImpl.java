@@ -29,7 +29,9 @@ import com.google.dart.server.utilities.logging.Logging;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import org.dartlang.analysis.server.protocol.*;
 import org.osgi.framework.Version;
 
@@ -106,6 +108,10 @@ public abstract class RemoteAnalysisServerImpl implements AnalysisServer {
 
   private final List<ResponseListener> responseListenerList = new ArrayList<>();
 
+  private final StreamingNotificationProcessor streamingNotificationProcessor = new StreamingNotificationProcessor(listener);
+
+  private final ResponseDecodeStatistics decodeStatistics = new ResponseDecodeStatistics();
+
   private final List<AnalysisServerStatusListener> statusListenerList = new ArrayList<AnalysisServerStatusListener>();
 
   /**
@@ -788,8 +794,53 @@ public abstract class RemoteAnalysisServerImpl implements AnalysisServer {
     return true;
   }
 
+  /**
+   * Returns the time spent decoding the responses received so far.
+   */
+  public ResponseDecodeStatistics getDecodeStatistics() {
+    return decodeStatistics;
+  }
+
+  private void processResponse(String json) throws Exception {
+    notifyResponseListeners(json);
+    long start = System.nanoTime();
+    Object notification = streamingNotificationProcessor.decode(json);
+    if (notification != null) {
+      decodeStatistics.record(StreamingNotificationProcessor.getEvent(notification), System.nanoTime() - start);
+      streamingNotificationProcessor.notifyListener(notification);
+      return;
+    }
+
+    JsonObject response;
+    try {
+      response = (JsonObject)JsonParser.parseString(json);
+    }
+    catch (JsonSyntaxException e) {
+      // Include the line in the message so that we can better diagnose the problem
+      throw new JsonSyntaxException("Parse server message failed: " + json, e);
+    }
+    decodeStatistics.record(getResponseKind(response), System.nanoTime() - start);
+    processResponseObject(response);
+  }
+
+  private static String getResponseKind(JsonObject response) {
+    JsonElement eventElement = response.get("event");
+    if (eventElement != null && eventElement.isJsonPrimitive()) {
+      return eventElement.getAsString();
+    }
+    JsonElement methodElement = response.get("method");
+    if (methodElement != null && methodElement.isJsonPrimitive()) {
+      return methodElement.getAsString();
+    }
+    return "response";
+  }
+
   private void processResponse(JsonObject response) throws Exception {
-    notifyResponseListeners(response);
+    notifyResponseListeners(response.toString());
+    processResponseObject(response);
+  }
+
+  private void processResponseObject(JsonObject response) throws Exception {
     // handle notification
     if (processNotification(response)) {
       return;
@@ -966,11 +1017,11 @@ public abstract class RemoteAnalysisServerImpl implements AnalysisServer {
     }
   }
 
-  private void notifyResponseListeners(JsonObject response) {
+  private void notifyResponseListeners(String json) {
     synchronized (responseListenerList) {
       List<ResponseListener> listeners = ImmutableList.copyOf(responseListenerList);
       for (ResponseListener listener : listeners) {
-        listener.onResponse(response.toString());
+        listener.onResponse(json);
       }
     }
   }
@@ -1229,13 +1280,13 @@ public abstract class RemoteAnalysisServerImpl implements AnalysisServer {
     public void run() {
       while (true) {
         try {
-          JsonObject response = stream.take();
-          if (response == null) {
+          String json = stream.takeJson();
+          if (json == null) {
             return;
           }
           lastResponseTime.set(System.currentTimeMillis());
           try {
-            processResponse(response);
+            processResponse(json);
           }
           finally {
             stream.lastRequestProcessed();
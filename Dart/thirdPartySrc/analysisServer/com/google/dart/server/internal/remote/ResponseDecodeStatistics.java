@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent decoding the JSON of the server responses, by notification event or response kind.
+ *
+ * @coverage dart.server.remote
+ */
+public class ResponseDecodeStatistics {
+  private final Map<String, long[]> methodToCountTotalMax = new HashMap<>();
+
+  public synchronized void record(String method, long nanos) {
+    long[] values = methodToCountTotalMax.computeIfAbsent(method, m -> new long[3]);
+    values[0]++;
+    values[1] += nanos;
+    values[2] = Math.max(values[2], nanos);
+  }
+
+  /**
+   * Returns one line per method, the most expensive in total first.
+   */
+  @Override
+  public synchronized String toString() {
+    List<Map.Entry<String, long[]>> entries = new ArrayList<>(methodToCountTotalMax.entrySet());
+    entries.sort((e1, e2) -> Long.compare(e2.getValue()[1], e1.getValue()[1]));
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, long[]> entry : entries) {
+      long[] values = entry.getValue();
+      sb.append(entry.getKey())
+        .append(": ").append(values[0]).append(" decoded in ").append(TimeUnit.NANOSECONDS.toMillis(values[1]))
+        .append(" ms, max ").append(TimeUnit.NANOSECONDS.toMillis(values[2])).append(" ms\n");
+    }
+    return sb.toString();
+  }
+}
@@ -30,4 +30,10 @@ public interface ResponseStream {
    * Takes the the next response from the stream. Blocks if no response available.
    */
   JsonObject take() throws Exception;
+
+  /**
+   * Takes the the next response from the stream as JSON text, or {@code null} at the end of the stream. Blocks if no response
+   * available. Unlike {@link #take()}, lets the caller decode only the parts of the response it needs.
+   */
+  String takeJson() throws Exception;
 }
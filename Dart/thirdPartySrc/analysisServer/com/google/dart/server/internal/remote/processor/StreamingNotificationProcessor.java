@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2024, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote.processor;
+
+import com.google.dart.server.AnalysisServerListener;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.dartlang.analysis.server.protocol.HighlightRegion;
+import org.dartlang.analysis.server.protocol.NavigationRegion;
+import org.dartlang.analysis.server.protocol.NavigationTarget;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the largest and most frequent notifications, "analysis.highlights" and "analysis.navigation", straight from
+ * the JSON text into protocol objects, without building a {@link com.google.gson.JsonObject} tree first. Anything else,
+ * or anything unexpected in these notifications, is left to the tree-based processors.
+ *
+ * @coverage dart.server.remote
+ */
+public class StreamingNotificationProcessor {
+  private static final String ANALYSIS_NOTIFICATION_HIGHLIGHTS = "analysis.highlights";
+  private static final String ANALYSIS_NOTIFICATION_NAVIGATION = "analysis.navigation";
+
+  private final AnalysisServerListener listener;
+
+  public StreamingNotificationProcessor(AnalysisServerListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the decoded notification, to be passed to {@link #notifyListener(Object)}, or {@code null} if the given JSON isn't
+   * a notification this processor decodes. The listener isn't called here, so that decoding can be measured separately.
+   */
+  public Object decode(String json) {
+    try {
+      JsonReader reader = new JsonReader(new StringReader(json));
+      reader.beginObject();
+      String event = null;
+      Object notification = null;
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (name.equals("event")) {
+          if (reader.peek() != JsonToken.STRING) return null;
+          event = reader.nextString();
+          if (!event.equals(ANALYSIS_NOTIFICATION_HIGHLIGHTS) && !event.equals(ANALYSIS_NOTIFICATION_NAVIGATION)) return null;
+        }
+        else if (name.equals("params") && event != null && notification == null) {
+          notification = event.equals(ANALYSIS_NOTIFICATION_HIGHLIGHTS) ? readHighlights(reader) : readNavigation(reader);
+        }
+        else if (name.equals("params")) {
+          // the event isn't known yet, don't guess
+          return null;
+        }
+        else if (event == null) {
+          // responses and requests come with an id first; skipping their results would only waste time
+          return null;
+        }
+        else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      return notification;
+    }
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      // malformed or unexpected, let the tree-based processors report it
+      return null;
+    }
+  }
+
+  public void notifyListener(Object notification) {
+    if (notification instanceof Highlights) {
+      Highlights highlights = (Highlights)notification;
+      listener.computedHighlights(highlights.file, highlights.regions);
+    }
+    else if (notification instanceof Navigation) {
+      Navigation navigation = (Navigation)notification;
+      listener.computedNavigation(navigation.file, navigation.regions);
+    }
+  }
+
+  /**
+   * Returns the notification event of the decoded notification.
+   */
+  public static String getEvent(Object notification) {
+    return notification instanceof Highlights ? ANALYSIS_NOTIFICATION_HIGHLIGHTS : ANALYSIS_NOTIFICATION_NAVIGATION;
+  }
+
+  private static Highlights readHighlights(JsonReader reader) throws IOException {
+    String file = null;
+    List<HighlightRegion> regions = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("file")) {
+        file = reader.nextString();
+      }
+      else if (name.equals("regions")) {
+        regions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readHighlightRegion(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (file == null || regions == null) {
+      throw new IllegalStateException("Incomplete analysis.highlights notification");
+    }
+    return new Highlights(file, regions);
+  }
+
+  private static HighlightRegion readHighlightRegion(JsonReader reader) throws IOException {
+    String type = null;
+    int offset = -1;
+    int length = -1;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("type")) {
+        type = reader.nextString();
+      }
+      else if (name.equals("offset")) {
+        offset = reader.nextInt();
+      }
+      else if (name.equals("length")) {
+        length = reader.nextInt();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (type == null || offset < 0 || length < 0) {
+      throw new IllegalStateException("Incomplete highlight region");
+    }
+    return new HighlightRegion(type, offset, length);
+  }
+
+  private static Navigation readNavigation(JsonReader reader) throws IOException {
+    String file = null;
+    List<String> files = null;
+    List<NavigationTarget> targets = null;
+    List<NavigationRegion> regions = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("file")) {
+        file = reader.nextString();
+      }
+      else if (name.equals("files")) {
+        files = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          files.add(reader.nextString());
+        }
+        reader.endArray();
+      }
+      else if (name.equals("targets")) {
+        targets = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          targets.add(readNavigationTarget(reader));
+        }
+        reader.endArray();
+      }
+      else if (name.equals("regions")) {
+        regions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          regions.add(readNavigationRegion(reader));
+        }
+        reader.endArray();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (file == null || files == null || targets == null || regions == null) {
+      throw new IllegalStateException("Incomplete analysis.navigation notification");
+    }
+
+    String[] targetFiles = files.toArray(new String[0]);
+    for (NavigationTarget target : targets) {
+      if (target.getFileIndex() >= targetFiles.length) {
+        throw new IllegalStateException("Navigation target file index out of range");
+      }
+      target.lookupFile(targetFiles);
+    }
+    for (NavigationRegion region : regions) {
+      for (int index : region.getTargets()) {
+        if (index >= targets.size()) {
+          throw new IllegalStateException("Navigation region target index out of range");
+        }
+      }
+      region.lookupTargets(targets);
+    }
+    return new Navigation(file, regions);
+  }
+
+  private static NavigationTarget readNavigationTarget(JsonReader reader) throws IOException {
+    String kind = null;
+    int fileIndex = -1;
+    int offset = -1;
+    int length = -1;
+    int startLine = -1;
+    int startColumn = -1;
+    Integer codeOffset = null;
+    Integer codeLength = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      switch (name) {
+        case "kind":
+          kind = reader.nextString();
+          break;
+        case "fileIndex":
+          fileIndex = reader.nextInt();
+          break;
+        case "offset":
+          offset = reader.nextInt();
+          break;
+        case "length":
+          length = reader.nextInt();
+          break;
+        case "startLine":
+          startLine = reader.nextInt();
+          break;
+        case "startColumn":
+          startColumn = reader.nextInt();
+          break;
+        case "codeOffset":
+          codeOffset = reader.nextInt();
+          break;
+        case "codeLength":
+          codeLength = reader.nextInt();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (kind == null || fileIndex < 0 || offset < 0 || length < 0 || startLine < 0 || startColumn < 0) {
+      throw new IllegalStateException("Incomplete navigation target");
+    }
+    return new NavigationTarget(kind, fileIndex, offset, length, startLine, startColumn, codeOffset, codeLength);
+  }
+
+  private static NavigationRegion readNavigationRegion(JsonReader reader) throws IOException {
+    int offset = -1;
+    int length = -1;
+    int[] targets = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("offset")) {
+        offset = reader.nextInt();
+      }
+      else if (name.equals("length")) {
+        length = reader.nextInt();
+      }
+      else if (name.equals("targets")) {
+        List<Integer> indices = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          int index = reader.nextInt();
+          if (index < 0) {
+            throw new IllegalStateException("Negative navigation target index");
+          }
+          indices.add(index);
+        }
+        reader.endArray();
+        targets = new int[indices.size()];
+        for (int i = 0; i < targets.length; i++) {
+          targets[i] = indices.get(i);
+        }
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (offset < 0 || length < 0 || targets == null) {
+      throw new IllegalStateException("Incomplete navigation region");
+    }
+    return new NavigationRegion(offset, length, targets);
+  }
+
+  private static final class Highlights {
+    private final String file;
+    private final List<HighlightRegion> regions;
+
+    private Highlights(String file, List<HighlightRegion> regions) {
+      this.file = file;
+      this.regions = regions;
+    }
+  }
+
+  private static final class Navigation {
+    private final String file;
+    private final List<NavigationRegion> regions;
+
+    private Navigation(String file, List<NavigationRegion> regions) {
+      this.file = file;
+      this.regions = regions;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.jetbrains.idea.perforce.actions;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.idea.perforce.PerforceBundle;
+import org.jetbrains.idea.perforce.application.PerforceManager;
+import org.jetbrains.idea.perforce.application.PerforceVcs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Saves the command latency histograms of the project to the log directory as JSON and opens the file.
+ */
+public class DumpCommandStatisticsAction extends DumbAwareAction {
+  private static final Logger LOG = Logger.getInstance(DumpCommandStatisticsAction.class);
+
+  @Override
+  public void update(@NotNull AnActionEvent e) {
+    final Project project = e.getProject();
+    e.getPresentation().setEnabledAndVisible(project != null &&
+                                             ProjectLevelVcsManager.getInstance(project).checkVcsIsActive(PerforceVcs.NAME));
+  }
+
+  @Override
+  public @NotNull ActionUpdateThread getActionUpdateThread() {
+    return ActionUpdateThread.BGT;
+  }
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    final Project project = e.getProject();
+    if (project == null) return;
+
+    String json = PerforceManager.getInstance(project).getCommandStatistics().toJson();
+    Path file = Paths.get(PathManager.getLogPath(), "perforce-commands-" + System.currentTimeMillis() + ".json");
+    try {
+      Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+    catch (IOException ex) {
+      LOG.info(ex);
+      Messages.showErrorDialog(project, ex.getMessage(), PerforceBundle.message("dialog.title.dump.command.statistics"));
+      return;
+    }
+    VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByNioFile(file);
+    if (virtualFile != null) {
+      FileEditorManager.getInstance(project).openFile(virtualFile, true);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package org.jetbrains.idea.perforce.application;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.idea.perforce.perforce.PerforceRunner;
 import org.jetbrains.idea.perforce.perforce.View;
 
@@ -38,6 +39,11 @@ class ClientData {
     return myOptions;
   }
 
+  @Nullable
+  String getLineEnd() {
+    return ContainerUtil.getFirstItem(myData.getOrDefault(PerforceRunner.CLIENTSPEC_LINE_END, Collections.emptyList()));
+  }
+
   @NotNull
   List<View> getViews() {
     if (myViews == null) {
@@ -0,0 +1,376 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.io.DigestUtil;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.idea.perforce.ChangeListData;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Append-only on-disk store of the submitted changelists of one server.
+ * <p>
+ * Changelist headers are appended to {@code changes.dat} and read back by offset, so descriptions are only decoded for the changelists
+ * actually returned. When the store is opened, the headers are indexed in memory by number, user, client and date.
+ * For every synced file spec, {@code spec-<hash>.dat} keeps the numbers of the changelists affecting it and the range of numbers
+ * they cover: the newest changelists are synced first, older ones are added below the lowest synced number when a query needs them.
+ */
+final class CommittedChangesStorage implements Closeable {
+  private static final Logger LOG = Logger.getInstance(CommittedChangesStorage.class);
+  @NonNls private static final String CHANGES_FILE = "changes.dat";
+  @NonNls private static final String SPEC_FILE_PREFIX = "spec-";
+  private static final int NO_TIME = -1;
+
+  private final Path myDirectory;
+  private final Path myChangesFile;
+
+  // indexes of the headers, by position in the parallel lists
+  private final Long2IntOpenHashMap myIndexByNumber = new Long2IntOpenHashMap();
+  private final LongArrayList myNumbers = new LongArrayList();
+  private final LongArrayList myOffsets = new LongArrayList();
+  private final LongArrayList myTimes = new LongArrayList();
+  private final IntArrayList myUsers = new IntArrayList();
+  private final IntArrayList myClients = new IntArrayList();
+  private final List<String> myNames = new ArrayList<>();
+  private final Object2IntOpenHashMap<String> myNameIds = new Object2IntOpenHashMap<>();
+
+  private final Map<String, SpecIndex> mySpecs = new HashMap<>();
+  private FileChannel myReadChannel;
+  private long myChangesSize;
+  private boolean myLoaded;
+
+  CommittedChangesStorage(@NotNull Path directory) {
+    myDirectory = directory;
+    myChangesFile = directory.resolve(CHANGES_FILE);
+    myIndexByNumber.defaultReturnValue(-1);
+    myNameIds.defaultReturnValue(-1);
+  }
+
+  /**
+   * @return the highest changelist number synced for the spec, or -1 if it has never been synced
+   */
+  synchronized long getHighestSynced(@NotNull String spec) throws IOException {
+    SpecIndex index = getSpecIndex(spec);
+    return index == null ? -1 : index.highest;
+  }
+
+  /**
+   * @return the changelist number down to which the spec is synced: 0 if all its changelists are stored, -1 if it has never been synced
+   */
+  synchronized long getLowestSynced(@NotNull String spec) throws IOException {
+    SpecIndex index = getSpecIndex(spec);
+    return index == null ? -1 : index.lowest;
+  }
+
+  /**
+   * Records the changelists of the spec (in any order) fetched above its highest synced number, and that nothing above {@code highest}
+   * exists yet.
+   *
+   * @param complete whether these are all the changelists above the highest synced number. If not, there may be a gap below them,
+   *                 so the changelists stored for the spec before are dropped and its older changelists are synced again on demand.
+   */
+  synchronized void appendNewer(@NotNull String spec, @NotNull List<ChangeListData> changes, long highest, boolean complete)
+    throws IOException {
+    appendHeaders(changes);
+
+    SpecIndex index = getSpecIndex(spec);
+    boolean reset = index == null || !complete;
+    if (reset) {
+      index = new SpecIndex();
+      index.lowest = complete ? 0 : getLowestNumber(changes);
+      mySpecs.put(spec, index);
+    }
+    index.highest = Math.max(index.highest, highest);
+    writeSpecBatch(spec, index, changes, reset);
+  }
+
+  /**
+   * Records the changelists of the spec (in any order) fetched below its lowest synced number.
+   *
+   * @param complete whether there are no older changelists affecting the spec
+   */
+  synchronized void appendOlder(@NotNull String spec, @NotNull List<ChangeListData> changes, boolean complete) throws IOException {
+    SpecIndex index = getSpecIndex(spec);
+    if (index == null) throw new IllegalStateException("The spec has never been synced");
+    appendHeaders(changes);
+    index.lowest = complete ? 0 : Math.min(index.lowest, getLowestNumber(changes));
+    writeSpecBatch(spec, index, changes, false);
+  }
+
+  private void appendHeaders(List<ChangeListData> changes) throws IOException {
+    ensureLoaded();
+    Files.createDirectories(myDirectory);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      Files.newOutputStream(myChangesFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+      for (ChangeListData data : changes) {
+        if (myIndexByNumber.get(data.NUMBER) >= 0) continue;
+        byte[] record = encode(data);
+        out.writeInt(record.length);
+        out.write(record);
+        addToIndex(data.NUMBER, myChangesSize, parseTime(data.DATE), data.USER, data.CLIENT);
+        myChangesSize += Integer.BYTES + record.length;
+      }
+    }
+  }
+
+  private void writeSpecBatch(String spec, SpecIndex index, List<ChangeListData> changes, boolean truncate) throws IOException {
+    for (ChangeListData data : changes) {
+      index.numbers.add(data.NUMBER);
+      index.highest = Math.max(index.highest, data.NUMBER);
+    }
+    index.sorted = false;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      Files.newOutputStream(getSpecFile(spec), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            truncate ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)))) {
+      out.writeLong(index.highest);
+      out.writeLong(index.lowest);
+      out.writeInt(changes.size());
+      for (ChangeListData data : changes) {
+        out.writeLong(data.NUMBER);
+      }
+    }
+  }
+
+  private static long getLowestNumber(List<ChangeListData> changes) {
+    long lowest = Long.MAX_VALUE;
+    for (ChangeListData data : changes) {
+      lowest = Math.min(lowest, data.NUMBER);
+    }
+    return changes.isEmpty() ? 0 : lowest;
+  }
+
+  /**
+   * @return the stored changelists of the spec matching the filters, newest first
+   */
+  synchronized List<ChangeListData> query(@NotNull String spec, @NotNull Filter filter, int maxCount) throws IOException {
+    SpecIndex index = getSpecIndex(spec);
+    if (index == null) return Collections.emptyList();
+    index.sort();
+
+    int user = filter.user == null ? -1 : myNameIds.getInt(filter.user);
+    int client = filter.client == null ? -1 : myNameIds.getInt(filter.client);
+    if (filter.user != null && user < 0 || filter.client != null && client < 0) return Collections.emptyList();
+
+    List<ChangeListData> result = new ArrayList<>();
+    for (int i = index.numbers.size() - 1; i >= 0 && (maxCount <= 0 || result.size() < maxCount); i--) {
+      long number = index.numbers.getLong(i);
+      if (number < filter.afterChange) break;
+      if (number > filter.beforeChange) continue;
+      int position = myIndexByNumber.get(number);
+      if (position < 0) continue;
+      if (user >= 0 && myUsers.getInt(position) != user) continue;
+      if (client >= 0 && myClients.getInt(position) != client) continue;
+      long time = myTimes.getLong(position);
+      if (time != NO_TIME && (time < filter.afterTime || time > filter.beforeTime)) continue;
+      result.add(readRecord(myOffsets.getLong(position)));
+    }
+    return result;
+  }
+
+  private void addToIndex(long number, long offset, long time, String user, String client) {
+    myIndexByNumber.put(number, myNumbers.size());
+    myNumbers.add(number);
+    myOffsets.add(offset);
+    myTimes.add(time);
+    myUsers.add(nameId(user));
+    myClients.add(nameId(client));
+  }
+
+  private int nameId(String name) {
+    int id = myNameIds.getInt(name);
+    if (id < 0) {
+      id = myNames.size();
+      myNames.add(name);
+      myNameIds.put(name, id);
+    }
+    return id;
+  }
+
+  private ChangeListData readRecord(long offset) throws IOException {
+    if (myReadChannel == null) {
+      myReadChannel = FileChannel.open(myChangesFile, StandardOpenOption.READ);
+    }
+    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+    readFully(myReadChannel, length, offset);
+    ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+    readFully(myReadChannel, record, offset + Integer.BYTES);
+    return decode(record.array());
+  }
+
+  private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Truncated changelist store " + myChangesFile);
+      }
+    }
+  }
+
+  /**
+   * Releases the file kept open for reading; the storage can still be used afterwards.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (myReadChannel != null) {
+      myReadChannel.close();
+      myReadChannel = null;
+    }
+  }
+
+  @Nullable
+  private SpecIndex getSpecIndex(String spec) throws IOException {
+    ensureLoaded();
+    SpecIndex index = mySpecs.get(spec);
+    if (index != null) return index;
+
+    Path file = getSpecFile(spec);
+    if (!Files.isRegularFile(file)) return null;
+    index = new SpecIndex();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      while (true) {
+        long highest;
+        try {
+          highest = in.readLong();
+        }
+        catch (EOFException e) {
+          break;
+        }
+        long lowest = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          index.numbers.add(in.readLong());
+        }
+        // every batch records the range after it was added
+        index.highest = highest;
+        index.lowest = lowest;
+      }
+    }
+    catch (EOFException e) {
+      // a batch was cut short, e.g. by a crash; it'll be fetched again
+      LOG.info("Discarding truncated changelist index " + file);
+      Files.delete(file);
+      return null;
+    }
+    mySpecs.put(spec, index);
+    return index;
+  }
+
+  private Path getSpecFile(String spec) {
+    return myDirectory.resolve(SPEC_FILE_PREFIX + DigestUtil.sha256Hex(spec.getBytes(StandardCharsets.UTF_8)) + ".dat");
+  }
+
+  private void ensureLoaded() throws IOException {
+    if (myLoaded) return;
+    myLoaded = true;
+    if (!Files.isRegularFile(myChangesFile)) return;
+
+    long size = Files.size(myChangesFile);
+    long offset = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(myChangesFile)))) {
+      while (offset + Integer.BYTES <= size) {
+        int length = in.readInt();
+        if (length < 0 || offset + Integer.BYTES + length > size) break;
+        byte[] record = new byte[length];
+        in.readFully(record);
+        ChangeListData data = decode(record);
+        addToIndex(data.NUMBER, offset, parseTime(data.DATE), data.USER, data.CLIENT);
+        offset += Integer.BYTES + length;
+      }
+    }
+    if (offset < size) {
+      LOG.info("Dropping the truncated tail of " + myChangesFile);
+      try (FileChannel channel = FileChannel.open(myChangesFile, StandardOpenOption.WRITE)) {
+        channel.truncate(offset);
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+    myChangesSize = offset;
+  }
+
+  private static byte[] encode(ChangeListData data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeLong(data.NUMBER);
+      writeString(out, data.DATE);
+      writeString(out, data.USER);
+      writeString(out, data.CLIENT);
+      writeString(out, data.DESCRIPTION);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ChangeListData decode(byte[] record) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+      ChangeListData data = new ChangeListData();
+      data.NUMBER = in.readLong();
+      data.DATE = readString(in);
+      data.USER = readString(in);
+      data.CLIENT = readString(in);
+      data.DESCRIPTION = readString(in);
+      return data;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, @Nullable String s) throws IOException {
+    byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long parseTime(@Nullable String date) {
+    if (date == null) return NO_TIME;
+    try {
+      // Perforce before 2003.1 did not include time in 'p4 changes' output
+      return Instant.from((date.indexOf(':') >= 0 ? ChangeListData.DATE_FORMAT : ChangeListData.DATE_ONLY_FORMAT).parse(date)).toEpochMilli();
+    }
+    catch (DateTimeParseException e) {
+      return NO_TIME;
+    }
+  }
+
+  static final class Filter {
+    @Nullable String user;
+    @Nullable String client;
+    long afterChange = Long.MIN_VALUE;
+    long beforeChange = Long.MAX_VALUE;
+    long afterTime = Long.MIN_VALUE;
+    long beforeTime = Long.MAX_VALUE;
+  }
+
+  private static final class SpecIndex {
+    private final LongArrayList numbers = new LongArrayList();
+    private long highest = -1;
+    private long lowest;
+    private boolean sorted;
+
+    void sort() {
+      if (!sorted) {
+        LongArrays.quickSort(numbers.elements(), 0, numbers.size());
+        sorted = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.vcsUtil.VcsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A set of local paths stored as a tree of path segments: paths in the same directory share its node,
+ * so a large set costs one small node per segment instead of a {@link FilePath} and a full path string per entry.
+ * Paths are compared like {@link FilePath}s, i.e. case-insensitively on case-insensitive file systems.
+ * Lookups share a read lock, so they don't block each other.
+ */
+final class FilePathTrie {
+  private static final byte MEMBER = 1;
+  private static final byte DIRECTORY = 2;
+
+  private final boolean myCaseSensitive;
+  private final ReadWriteLock myLock = new ReentrantReadWriteLock();
+  private Node myRoot = new Node(null, "");
+  private int mySize;
+
+  FilePathTrie() {
+    this(SystemInfo.isFileSystemCaseSensitive);
+  }
+
+  FilePathTrie(boolean caseSensitive) {
+    myCaseSensitive = caseSensitive;
+  }
+
+  boolean add(@NotNull FilePath path) {
+    myLock.writeLock().lock();
+    try {
+      Node node = myRoot;
+      for (String segment : split(path)) {
+        node = node.getOrCreateChild(segment, myCaseSensitive);
+      }
+      boolean added = (node.flags & MEMBER) == 0;
+      node.flags = (byte)(MEMBER | (path.isDirectory() ? DIRECTORY : 0));
+      if (added) {
+        mySize++;
+      }
+      return added;
+    }
+    finally {
+      myLock.writeLock().unlock();
+    }
+  }
+
+  boolean remove(@NotNull FilePath path) {
+    myLock.writeLock().lock();
+    try {
+      Node node = find(path);
+      if (node == null || (node.flags & MEMBER) == 0) return false;
+      node.flags = 0;
+      mySize--;
+      while (node.parent != null && node.flags == 0 && node.children == null) {
+        node.parent.removeChild(node, myCaseSensitive);
+        node = node.parent;
+      }
+      return true;
+    }
+    finally {
+      myLock.writeLock().unlock();
+    }
+  }
+
+  boolean contains(@NotNull FilePath path) {
+    myLock.readLock().lock();
+    try {
+      Node node = find(path);
+      return node != null && (node.flags & MEMBER) != 0;
+    }
+    finally {
+      myLock.readLock().unlock();
+    }
+  }
+
+  int size() {
+    myLock.readLock().lock();
+    try {
+      return mySize;
+    }
+    finally {
+      myLock.readLock().unlock();
+    }
+  }
+
+  void clear() {
+    myLock.writeLock().lock();
+    try {
+      myRoot = new Node(null, "");
+      mySize = 0;
+    }
+    finally {
+      myLock.writeLock().unlock();
+    }
+  }
+
+  @NotNull
+  List<FilePath> toList() {
+    myLock.readLock().lock();
+    try {
+      List<FilePath> result = new ArrayList<>(mySize);
+      collect(myRoot, new StringBuilder(), result);
+      return result;
+    }
+    finally {
+      myLock.readLock().unlock();
+    }
+  }
+
+  private static void collect(Node node, StringBuilder path, List<FilePath> result) {
+    int length = path.length();
+    for (Node child : node.getChildren()) {
+      if (node.parent != null) {
+        path.append('/');
+      }
+      path.append(child.name);
+      if ((child.flags & MEMBER) != 0) {
+        result.add(VcsUtil.getFilePath(path.toString(), (child.flags & DIRECTORY) != 0));
+      }
+      collect(child, path, result);
+      path.setLength(length);
+    }
+  }
+
+  @Nullable
+  private Node find(FilePath path) {
+    Node node = myRoot;
+    for (String segment : split(path)) {
+      node = node.getChild(segment, myCaseSensitive);
+      if (node == null) return null;
+    }
+    return node;
+  }
+
+  /**
+   * {@code /home/user/a} is split into {@code "", "home", "user", "a"}, and {@code C:/a} into {@code "C:", "a"},
+   * so that joining the segments with slashes gives the path back.
+   */
+  private static List<String> split(FilePath path) {
+    return StringUtil.split(path.getPath(), "/", true, false);
+  }
+
+  private static final class Node {
+    private final Node parent;
+    private final String name;
+    // null, a single Node, or a map from the (case-normalized) name to the Node
+    private Object children;
+    private byte flags;
+
+    private Node(Node parent, String name) {
+      this.parent = parent;
+      this.name = name;
+    }
+
+    @Nullable
+    Node getChild(String name, boolean caseSensitive) {
+      if (children instanceof Node) {
+        Node single = (Node)children;
+        boolean matches = caseSensitive ? single.name.equals(name) : single.name.equalsIgnoreCase(name);
+        return matches ? single : null;
+      }
+      if (children instanceof Map) {
+        return (Node)((Map<?, ?>)children).get(key(name, caseSensitive));
+      }
+      return null;
+    }
+
+    Node getOrCreateChild(String name, boolean caseSensitive) {
+      Node child = getChild(name, caseSensitive);
+      if (child != null) return child;
+
+      child = new Node(this, name);
+      if (children == null) {
+        children = child;
+      }
+      else {
+        Map<String, Node> map = asMap(caseSensitive);
+        map.put(key(name, caseSensitive), child);
+      }
+      return child;
+    }
+
+    void removeChild(Node child, boolean caseSensitive) {
+      if (children == child) {
+        children = null;
+      }
+      else if (children instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>)children;
+        map.remove(key(child.name, caseSensitive));
+        if (map.isEmpty()) {
+          children = null;
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Node> asMap(boolean caseSensitive) {
+      if (children instanceof Node) {
+        Node single = (Node)children;
+        Map<String, Node> map = new HashMap<>(4);
+        map.put(key(single.name, caseSensitive), single);
+        children = map;
+      }
+      return (Map<String, Node>)children;
+    }
+
+    @SuppressWarnings("unchecked")
+    Iterable<Node> getChildren() {
+      if (children instanceof Node) return List.of((Node)children);
+      if (children instanceof Map) return ((Map<String, Node>)children).values();
+      return List.of();
+    }
+
+    private static String key(String name, boolean caseSensitive) {
+      return caseSensitive ? name : StringUtil.toLowerCase(name);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.SystemProperties;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.idea.perforce.perforce.PerforceChange;
+import org.jetbrains.idea.perforce.perforce.PerforceChangeCache;
+import org.jetbrains.idea.perforce.perforce.PerforceChangeList;
+import org.jetbrains.idea.perforce.perforce.PerforceRunner;
+import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the described contents of pending changelists between refreshes, per client.
+ * <p>
+ * A snapshot is reused only while the client has the same pending changelists, no modifying p4 command was run from the IDE
+ * and the snapshot isn't older than {@link #MAX_AGE}. The changelist numbers come from {@code p4 changes -s pending}, which
+ * runs on each refresh anyway, so checking them costs no extra p4 process.
+ * <p>
+ * Files opened, reopened, reverted or shelved outside the IDE within the existing changelists are only picked up once
+ * the snapshot expires, so the mode is opt-in (the {@code p4.incremental.changes.refresh} registry key).
+ */
+final class PendingChangesSnapshots {
+  private static final Logger LOG = Logger.getInstance(PendingChangesSnapshots.class);
+  private static final long MAX_AGE = SystemProperties.getLongProperty("perforce.pending.changes.snapshot.max.age", 60 * 1000);
+
+  private final PerforceRunner myRunner;
+  private final Map<ConnectionKey, Snapshot> mySnapshots = new ConcurrentHashMap<>();
+
+  PendingChangesSnapshots(@NotNull PerforceRunner runner) {
+    myRunner = runner;
+  }
+
+  void fillChangeCache(@NotNull P4Connection connection,
+                       @NotNull PerforceChangeCache changeCache,
+                       @NotNull PerforceShelf shelf,
+                       @NotNull List<PerforceChangeList> lists) throws VcsException {
+    if (!Registry.is("p4.incremental.changes.refresh")) {
+      myRunner.fillChangeCache(connection, changeCache, shelf, lists);
+      return;
+    }
+
+    ConnectionKey key = connection.getConnectionKey();
+    long modificationCount = myRunner.getModificationCount();
+    Set<Long> numbers = new HashSet<>();
+    for (PerforceChangeList list : lists) {
+      numbers.add(list.getNumber());
+    }
+    Snapshot previous = mySnapshots.get(key);
+    boolean reusable = previous != null && previous.isValid(numbers, modificationCount);
+
+    List<PerforceChangeList> toDescribe = new ArrayList<>();
+    for (PerforceChangeList list : lists) {
+      long number = list.getNumber();
+      if (reusable && previous.changes.containsKey(number)) {
+        changeCache.setChanges(connection, number, previous.changes.get(number));
+        for (ShelvedChange change : previous.shelved.getOrDefault(number, Collections.emptyList())) {
+          shelf.addShelvedChange(connection, number, change);
+        }
+      }
+      else {
+        toDescribe.add(list);
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(key + ": reusing " + (lists.size() - toDescribe.size()) + " of " + lists.size() + " changelists");
+    }
+
+    if (!toDescribe.isEmpty()) {
+      myRunner.fillChangeCache(connection, changeCache, shelf, toDescribe);
+    }
+
+    Snapshot snapshot = reusable ? previous : new Snapshot(numbers, modificationCount);
+    for (PerforceChangeList list : toDescribe) {
+      long number = list.getNumber();
+      List<PerforceChange> changes = changeCache.getCachedChanges(connection, number);
+      if (changes != null) {
+        snapshot.changes.put(number, changes);
+        snapshot.shelved.put(number, shelf.getShelvedChanges(key, number));
+      }
+    }
+    mySnapshots.put(key, snapshot);
+  }
+
+  void clear() {
+    mySnapshots.clear();
+  }
+
+  private static final class Snapshot {
+    private final Set<Long> myNumbers;
+    private final long myModificationCount;
+    private final long myTimestamp = System.currentTimeMillis();
+    private final Map<Long, List<PerforceChange>> changes = new ConcurrentHashMap<>();
+    private final Map<Long, List<ShelvedChange>> shelved = new ConcurrentHashMap<>();
+
+    private Snapshot(Set<Long> numbers, long modificationCount) {
+      myNumbers = numbers;
+      myModificationCount = modificationCount;
+    }
+
+    /**
+     * A changelist created or removed outside the IDE may take files from the others (e.g. {@code p4 change -i} with files,
+     * {@code p4 reopen -c}), so any difference in the changelist numbers invalidates the whole snapshot.
+     */
+    boolean isValid(Set<Long> numbers, long modificationCount) {
+      return myNumbers.equals(numbers) && myModificationCount == modificationCount &&
+             System.currentTimeMillis() - myTimestamp < MAX_AGE;
+    }
+  }
+}
@@ -15,8 +15,11 @@
  */
 package org.jetbrains.idea.perforce.application;
 
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.VcsConfiguration;
 import com.intellij.openapi.vcs.VcsException;
 import com.intellij.openapi.vcs.actions.VcsContextFactory;
 import com.intellij.openapi.vcs.annotate.FileAnnotation;
@@ -26,12 +29,15 @@ import com.intellij.openapi.vcs.history.VcsRevisionNumber;
 import com.intellij.openapi.vcs.vfs.VcsFileSystem;
 import com.intellij.openapi.vcs.vfs.VcsVirtualFile;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.diff.FilesTooBigForDiffException;
 import com.intellij.vcs.AnnotationProviderEx;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.idea.perforce.PerforceBundle;
 import org.jetbrains.idea.perforce.application.annotation.AnnotationInfo;
+import org.jetbrains.idea.perforce.application.annotation.PerforceAnnotationCache;
 import org.jetbrains.idea.perforce.application.annotation.PerforceFileAnnotation;
 import org.jetbrains.idea.perforce.perforce.P4File;
 import org.jetbrains.idea.perforce.perforce.P4Revision;
@@ -39,7 +45,17 @@ import org.jetbrains.idea.perforce.perforce.PerforceRunner;
 import org.jetbrains.idea.perforce.perforce.PerforceSettings;
 import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
 
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class PerforceAnnotationProvider implements AnnotationProviderEx {
+  private static final Logger LOG = Logger.getInstance(PerforceAnnotationProvider.class);
+  private static final int MAX_INCREMENTAL_REVISIONS = SystemProperties.getIntProperty("perforce.annotation.incremental.max.revisions", 50);
+  // //depot/path#3 - edit change 123 (text)
+  private static final Pattern FILES_LINE = Pattern.compile("(.+)#(\\d+) - (\\S+) .*");
+
   private final Project myProject;
   private final PerforceRunner myRunner;
 
@@ -67,6 +83,13 @@ public class PerforceAnnotationProvider implements AnnotationProviderEx {
 
   @NotNull
   private AnnotationPrecursor doAnnotate(final long changeNumber, P4Connection connection, @NotNull final String path) throws VcsException {
+    if (changeNumber == -1 && Registry.is("p4.annotation.cache")) {
+      AnnotationPrecursor cached = annotateHeadWithCache(connection, path);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
     final P4Revision[] fileLog = myRunner.filelog(connection, path, true);
     P4Revision p4Revision = ContainerUtil.find(fileLog, p4Revision1 -> p4Revision1.getChangeNumber() == changeNumber);
     String pathAtRevision = p4Revision == null ? path : p4Revision.getDepotPath();
@@ -76,6 +99,95 @@ public class PerforceAnnotationProvider implements AnnotationProviderEx {
     return new AnnotationPrecursor(annotationInfo, fileLog, revision, p4Revision, connection);
   }
 
+  /**
+   * Annotates the head revision using {@link PerforceAnnotationCache}: a cached annotation of the same head is returned as is,
+   * and one of an older head is extended by the diffs of the newer revisions if they are few plain edits.
+   * @return null if the head revision can't be determined or the connection can't be cached
+   */
+  @Nullable
+  private AnnotationPrecursor annotateHeadWithCache(P4Connection connection, @NotNull String path) throws VcsException {
+    Matcher head = getHeadRevision(connection, path);
+    if (head == null) return null;
+    String depotPath = head.group(1);
+    long headRevision = Long.parseLong(head.group(2));
+
+    VcsConfiguration configuration = VcsConfiguration.getInstance(myProject);
+    String options = "branches=" + PerforceSettings.getSettings(myProject).SHOW_BRANCHES_HISTORY +
+                     ",limit=" + (configuration.LIMIT_HISTORY ? configuration.MAXIMUM_HISTORY_ROWS : -1);
+    String key = PerforceAnnotationCache.getCacheKey(connection, depotPath, options);
+    if (key == null) return null;
+
+    PerforceAnnotationCache cache = PerforceAnnotationCache.getInstance(myProject);
+    PerforceAnnotationCache.Entry entry = cache.get(key);
+    if (entry != null && entry.headRevision == headRevision) {
+      LOG.debug("Annotation of " + depotPath + "#" + headRevision + " is cached");
+      return new AnnotationPrecursor(entry.info, entry.fileLog, -1, null, connection);
+    }
+
+    P4Revision[] fileLog = myRunner.filelog(connection, path, true);
+    AnnotationInfo info = entry == null ? null : extendAnnotation(connection, depotPath, entry, headRevision, fileLog);
+    if (info == null) {
+      info = myRunner.annotate(connection, depotPath, headRevision);
+    }
+    cache.put(key, new PerforceAnnotationCache.Entry(headRevision, info, fileLog));
+    return new AnnotationPrecursor(info, fileLog, -1, null, connection);
+  }
+
+  @Nullable
+  private Matcher getHeadRevision(P4Connection connection, @NotNull String path) throws VcsException {
+    List<String> files = myRunner.files(Collections.singletonList(path), connection);
+    if (files.size() != 1) return null;
+    Matcher matcher = FILES_LINE.matcher(files.get(0));
+    return matcher.matches() && !matcher.group(3).contains("delete") ? matcher : null;
+  }
+
+  @Nullable
+  private AnnotationInfo extendAnnotation(P4Connection connection,
+                                          String depotPath,
+                                          PerforceAnnotationCache.Entry entry,
+                                          long headRevision,
+                                          P4Revision[] fileLog) throws VcsException {
+    if (headRevision <= entry.headRevision || headRevision - entry.headRevision > MAX_INCREMENTAL_REVISIONS) return null;
+
+    List<P4Revision> newRevisions = new ArrayList<>();
+    for (long number = entry.headRevision + 1; number <= headRevision; number++) {
+      long revisionNumber = number;
+      P4Revision revision = ContainerUtil.find(fileLog, r -> depotPath.equals(r.getDepotPath()) && r.getRevisionNumber() == revisionNumber);
+      // integrations are annotated with the history of their sources, and expanded keywords differ from what annotate shows
+      if (revision == null || !"edit".equals(revision.getAction()) || hasKeywordExpansion(revision.getType())) {
+        return null;
+      }
+      newRevisions.add(revision);
+    }
+
+    List<String> specs = ContainerUtil.map(newRevisions, revision -> depotPath + "#" + revision.getRevisionNumber());
+    Map<String, byte[]> contents = myRunner.getByteContents(specs, connection);
+    Charset charset = PerforceSettings.getSettings(myProject).getPhysicalSettings(false).getConsoleCharset();
+    boolean ignoreWhitespace = myRunner.isAnnotateIgnoringWhitespaceSupported(connection);
+    AnnotationInfo info = entry.info;
+    try {
+      for (int i = 0; i < newRevisions.size(); i++) {
+        byte[] content = contents.get(specs.get(i));
+        if (content == null) return null;
+        P4Revision revision = newRevisions.get(i);
+        info = info.extend(new String(content, charset), info.isUseChangelistNumbers() ? revision.getChangeNumber() : revision.getRevisionNumber(),
+                           ignoreWhitespace);
+        if (info == null) return null;
+      }
+    }
+    catch (FilesTooBigForDiffException e) {
+      return null;
+    }
+    LOG.debug("Extended annotation of " + depotPath + " from #" + entry.headRevision + " to #" + headRevision);
+    return info;
+  }
+
+  private static boolean hasKeywordExpansion(@Nullable String type) {
+    if (type == null) return true;
+    int modifiers = type.indexOf('+');
+    return type.startsWith("k") || modifiers >= 0 && type.indexOf('k', modifiers) >= 0;
+  }
+
   private class AnnotationPrecursor {
     final AnnotationInfo info;
     final P4Revision[] fileLog;
@@ -1,12 +1,16 @@
 package org.jetbrains.idea.perforce.application;
 
 import com.google.common.base.Stopwatch;
+import com.intellij.concurrency.SensitiveProgressWrapper;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.AccessToken;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.FilePath;
@@ -15,6 +19,8 @@ import com.intellij.openapi.vcs.actions.VcsContextFactory;
 import com.intellij.openapi.vcs.changes.*;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.SystemProperties;
+import com.intellij.util.ThrowableConvertor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
 import com.intellij.vcsUtil.VcsUtil;
@@ -27,12 +33,14 @@ import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManage
 
 import java.io.File;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public class PerforceChangeProvider implements ChangeProvider {
   private static final Logger LOG = Logger.getInstance(PerforceChangeProvider.class);
   private static final Logger REFRESH_LOG = Logger.getInstance("#PerforceRefresh");
+  private static final ExecutorService ourRefreshExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+    "Perforce Connection Refresh", SystemProperties.getIntProperty("perforce.refresh.parallel.connections", 4));
 
   public PerforceUnversionedTracker getUnversionedTracker() {
     return myUnversionedTracker;
@@ -52,6 +60,7 @@ public class PerforceChangeProvider implements ChangeProvider {
   private final Map<VirtualFile, Boolean> myAlwaysWritable = new ConcurrentHashMap<>();
   private final PerforceShelf myShelf;
   private final PerforceVcs myVcs;
+  private final PendingChangesSnapshots myPendingChangesSnapshots;
 
   public PerforceChangeProvider(final PerforceVcs vcs) {
     myVcs = vcs;
@@ -63,6 +72,7 @@ public class PerforceChangeProvider implements ChangeProvider {
     myDirtyFilesHandler = new PerforceDirtyFilesHandler(myProject, myUnversionedTracker);
     myReadOnlyFileStateManager = new PerforceReadOnlyFileStateManager(myProject, myDirtyFilesHandler);
     myShelf = PerforceManager.getInstance(myProject).getShelf();
+    myPendingChangesSnapshots = new PendingChangesSnapshots(myRunner);
   }
 
   public void activate(@NotNull Disposable parentDisposable) {
@@ -93,7 +103,7 @@ public class PerforceChangeProvider implements ChangeProvider {
     PerforceManager.getInstance(myProject).clearInfoClientCache();
 
     PerforceChangeCache changeCache = new PerforceChangeCache(myProject);
-    MultiMap<ConnectionKey, PerforceChangeList> allLists = calcChangeListMap(changeCache);
+    MultiMap<ConnectionKey, PerforceChangeList> allLists = calcChangeListMap(changeCache, progress);
     PerforceSettings settings = PerforceSettings.getSettings(myProject);
     HashSet<String> ideaLists = new HashSet<>();
     refreshSynchronizer(addGate, allLists, ideaLists);
@@ -105,11 +115,18 @@ public class PerforceChangeProvider implements ChangeProvider {
 
     final Map<ConnectionKey, P4Connection> key2connection = settings.getConnectionsByKeys();
     MultiMap<ConnectionKey, VirtualFile> roots = getAffectedRoots(dirtyScope);
+    List<P4Connection> connections = new ArrayList<>();
     for (ConnectionKey key : roots.keySet()) {
-      P4Connection connection = key2connection.get(key);
-      if (connection != null) {
-        processConnection(connection, builder, roots.get(key), progress, addGate, allLists.get(key), dirtyScope, changeCache, creator);
-      }
+      ContainerUtil.addIfNotNull(connections, key2connection.get(key));
+    }
+    // server queries run in parallel, but the results are always reported in the same order
+    connections.sort(Comparator.comparing(connection -> connection.getConnectionKey().toString()));
+    List<ConnectionChanges> connectionChanges = computeForEachConnection(connections, progress, connection -> {
+      ConnectionKey key = connection.getConnectionKey();
+      return queryConnection(connection, roots.get(key), dirtyScope, allLists.get(key), changeCache);
+    });
+    for (ConnectionChanges changes : connectionChanges) {
+      processConnection(changes, builder, addGate, creator);
     }
 
     Stopwatch sw = Stopwatch.createStarted();
@@ -238,21 +255,96 @@ public class PerforceChangeProvider implements ChangeProvider {
     return ContainerUtil.or(allRoots, root -> !pcl.getChangesUnder(root).isEmpty());
   }
 
-  private MultiMap<ConnectionKey, PerforceChangeList> calcChangeListMap(PerforceChangeCache changeCache) throws VcsException {
+  private MultiMap<ConnectionKey, PerforceChangeList> calcChangeListMap(PerforceChangeCache changeCache, ProgressIndicator progress)
+    throws VcsException {
+    final List<Pair<P4Connection, Collection<VirtualFile>>> rootsByConnections =
+      new ArrayList<>(PerforceVcs.getInstance(myProject).getRootsByConnections());
+    for (Pair<P4Connection, Collection<VirtualFile>> pair : rootsByConnections) {
+      PerforceManager.ensureValidClient(myProject, pair.first);
+    }
+    List<List<PerforceChangeList>> lists = computeForEachConnection(
+      rootsByConnections, progress, pair -> getPendingChangeListsUnderRoots(changeCache, pair.first, pair.second));
+
     final MultiMap<ConnectionKey, PerforceChangeList> allLists = MultiMap.create();
-    for (Pair<P4Connection, Collection<VirtualFile>> pair : PerforceVcs.getInstance(myProject).getRootsByConnections()) {
-      final P4Connection connection = pair.first;
-      PerforceManager.ensureValidClient(myProject, connection);
-      allLists.putValues(connection.getConnectionKey(), getPendingChangeListsUnderRoots(changeCache, connection, pair.second));
+    for (int i = 0; i < rootsByConnections.size(); i++) {
+      allLists.putValues(rootsByConnections.get(i).first.getConnectionKey(), lists.get(i));
     }
     return allLists;
   }
 
+  /**
+   * Runs the (server-bound) task for each connection on a bounded pool and returns the results in the order of {@code items}.
+   */
+  private static <T, R> List<R> computeForEachConnection(List<? extends T> items,
+                                                         ProgressIndicator progress,
+                                                         ThrowableConvertor<? super T, ? extends R, VcsException> task) throws VcsException {
+    if (items.size() <= 1) {
+      List<R> result = new ArrayList<>(items.size());
+      for (T item : items) {
+        result.add(task.convert(item));
+      }
+      return result;
+    }
+
+    List<Future<R>> futures = new ArrayList<>(items.size());
+    for (T item : items) {
+      futures.add(ourRefreshExecutor.submit(() -> {
+        Ref<R> result = new Ref<>();
+        Ref<VcsException> exception = new Ref<>();
+        ProgressManager.getInstance().executeProcessUnderProgress(() -> {
+          try {
+            result.set(task.convert(item));
+          }
+          catch (VcsException e) {
+            exception.set(e);
+          }
+        }, new SensitiveProgressWrapper(progress));
+        if (!exception.isNull()) {
+          throw exception.get();
+        }
+        return result.get();
+      }));
+    }
+
+    try {
+      List<R> result = new ArrayList<>(items.size());
+      for (Future<R> future : futures) {
+        result.add(awaitResult(future, progress));
+      }
+      return result;
+    }
+    finally {
+      for (Future<R> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static <R> R awaitResult(Future<R> future, ProgressIndicator progress) throws VcsException {
+    while (true) {
+      progress.checkCanceled();
+      try {
+        return future.get(50, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException ignored) {
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof VcsException) throw (VcsException)cause;
+        if (cause instanceof ProcessCanceledException) throw (ProcessCanceledException)cause;
+        throw new VcsException(cause);
+      }
+    }
+  }
+
   private List<PerforceChangeList> getPendingChangeListsUnderRoots(PerforceChangeCache changeCache, P4Connection connection, Collection<VirtualFile> allRoots) throws VcsException {
     List<PerforceChangeList> perforceLists = myRunner.getPendingChangeLists(connection, changeCache);
     if (perforceLists.isEmpty()) return perforceLists;
 
-    myRunner.fillChangeCache(connection, changeCache, myShelf, perforceLists);
+    myPendingChangesSnapshots.fillChangeCache(connection, changeCache, myShelf, perforceLists);
 
     List<PerforceChangeList> filtered = new ArrayList<>();
     for (final PerforceChangeList pcl : perforceLists) {
@@ -312,15 +404,12 @@ public class PerforceChangeProvider implements ChangeProvider {
     }
   }
 
-  private void processConnection(@NotNull final P4Connection connection,
-                                 final ChangelistBuilder builder,
-                                 final Collection<VirtualFile> roots,
-                                 final ProgressIndicator progress,
-                                 final ChangeListManagerGate addGate,
-                                 final Collection<PerforceChangeList> allLists,
-                                 final VcsDirtyScope dirtyScope,
-                                 PerforceChangeCache changeCache, ChangeCreator changeCreator) throws VcsException {
-    progress.checkCanceled();
+  private ConnectionChanges queryConnection(@NotNull final P4Connection connection,
+                                            final Collection<VirtualFile> roots,
+                                            final VcsDirtyScope dirtyScope,
+                                            final Collection<PerforceChangeList> allLists,
+                                            PerforceChangeCache changeCache) throws VcsException {
+    ProgressManager.checkCanceled();
     Stopwatch sw = Stopwatch.createStarted();
 
     final LocalPathsSet resolvedWithConflictsMap = myRunner.getResolvedWithConflictsMap(connection, roots);
@@ -331,17 +420,48 @@ public class PerforceChangeProvider implements ChangeProvider {
       changes.addAll(getChangesUnder(connection, root, dirtyScope, allLists, changeCache));
     }
 
+    sw.stop();
+    long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
+    PerforceManager.getInstance(myProject).traceConnectionRefresh(connection.getConnectionKey(), elapsed);
+    logRefreshDebug("queryConnection %s took %d ms".formatted(connection.getConnectionKey(), elapsed));
+    return new ConnectionChanges(connection, changes, resolvedWithConflictsMap, resolvedFilesWrapper);
+  }
+
+  private void processConnection(final ConnectionChanges connectionChanges,
+                                 final ChangelistBuilder builder,
+                                 final ChangeListManagerGate addGate,
+                                 ChangeCreator changeCreator) throws VcsException {
+    Stopwatch sw = Stopwatch.createStarted();
+    final P4Connection connection = connectionChanges.connection;
+
     final PerforceChangeListCalculator changeListCalculator = new PerforceChangeListCalculator(myProject, connection, addGate);
 
     final OpenedResultProcessor processor =
-      new OpenedResultProcessor(connection, changeCreator, builder, resolvedWithConflictsMap, resolvedFilesWrapper,
-                                changeListCalculator);
-    processor.process(changes);
+      new OpenedResultProcessor(connection, changeCreator, builder, connectionChanges.resolvedWithConflicts,
+                                connectionChanges.resolvedFiles, changeListCalculator);
+    processor.process(connectionChanges.changes);
 
     sw.stop();
     logRefreshDebug("processConnection %s took %d s".formatted(connection.getConnectionKey(), sw.elapsed().toSeconds()));
   }
 
+  private static final class ConnectionChanges {
+    final P4Connection connection;
+    final List<PerforceChange> changes;
+    final LocalPathsSet resolvedWithConflicts;
+    final ResolvedFilesWrapper resolvedFiles;
+
+    private ConnectionChanges(P4Connection connection,
+                              List<PerforceChange> changes,
+                              LocalPathsSet resolvedWithConflicts,
+                              ResolvedFilesWrapper resolvedFiles) {
+      this.connection = connection;
+      this.changes = changes;
+      this.resolvedWithConflicts = resolvedWithConflicts;
+      this.resolvedFiles = resolvedFiles;
+    }
+  }
+
   @Override
   public boolean isModifiedDocumentTrackingRequired() {
     return false;
@@ -350,6 +470,7 @@ public class PerforceChangeProvider implements ChangeProvider {
   public void discardCache() {
     myReadOnlyFileStateManager.discardUnversioned();
     myAlwaysWritable.clear();
+    myPendingChangesSnapshots.clear();
   }
 
   @TestOnly
@@ -27,6 +27,11 @@ public interface PerforceClient {
   @Nullable
   List<String> getCachedOptions();
 
+  /**
+   * @return the LineEnd option of the client spec, e.g. {@code local} or {@code win}
+   */
+  @Nullable @NlsSafe String getLineEnd() throws VcsException;
+
   @NlsSafe String getUserName() throws VcsException;
 
   /**
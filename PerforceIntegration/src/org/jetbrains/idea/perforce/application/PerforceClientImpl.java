@@ -76,6 +76,12 @@ class PerforceClientImpl implements PerforceClient {
     }
   }
 
+  @Nullable
+  @Override
+  public String getLineEnd() throws VcsException {
+    return PerforceManager.getInstance(myProject).getCachedClients(myConnection).getLineEnd();
+  }
+
   private String getFieldValue(final String fieldName) throws VcsException {
     List<String> names = getInfo().get(fieldName);
     return names == null || names.isEmpty() ? null : names.get(0);
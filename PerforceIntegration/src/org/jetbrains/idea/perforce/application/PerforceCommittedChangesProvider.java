@@ -136,16 +136,20 @@ public class PerforceCommittedChangesProvider implements CachingCommittedChanges
     try {
       List<PerforceChangeList> changeLists = new ArrayList<>();
       PerforceSettings p4Settings = PerforceSettings.getSettings(myProject);
-      if (!p4Settings.ENABLED) {
-        return;
-      }
       String url = ((DefaultRepositoryLocation)location).getURL();
 
       final String client = settings.getClientFilter();
       final String user = settings.getUserFilter();
-      // todo make asynchronous later; Perforce is fast, maybe it's not worth doing
-      final List<PerforceChangeList> changeListList = myRunner
-        .getSubmittedChangeLists(client, user, P4File.create(new File(url)), settings, maxCount, p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES);
+      final P4File root = P4File.create(new File(url));
+      List<PerforceChangeList> changeListList = getStoredChangeLists(client, user, root, settings, maxCount);
+      if (changeListList == null) {
+        if (!p4Settings.ENABLED) {
+          return;
+        }
+        // todo make asynchronous later; Perforce is fast, maybe it's not worth doing
+        changeListList = myRunner
+          .getSubmittedChangeLists(client, user, root, settings, maxCount, p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES);
+      }
       settings.filterChanges(changeLists);
       for (PerforceChangeList changeList : changeListList) {
         consumer.consume(changeList);
@@ -161,22 +165,33 @@ public class PerforceCommittedChangesProvider implements CachingCommittedChanges
   public List<PerforceChangeList> getCommittedChanges(PerforceChangeBrowserSettings settings, RepositoryLocation location, int maxCount)
     throws VcsException {
     PerforceSettings p4Settings = PerforceSettings.getSettings(myProject);
-    if (!p4Settings.ENABLED) {
-      throw new VcsException(PerforceBundle.message("perforce.is.offline"));
-    }
     String url = ((DefaultRepositoryLocation)location).getURL();
 
     final String client = settings.getClientFilter();
     final String user = settings.getUserFilter();
+    final P4File root = P4File.create(new File(url));
+    List<PerforceChangeList> stored = getStoredChangeLists(client, user, root, settings, maxCount);
+    if (stored == null && !p4Settings.ENABLED) {
+      throw new VcsException(PerforceBundle.message("perforce.is.offline"));
+    }
     List<PerforceChangeList> changeLists =
-      new ArrayList<>(myRunner.getSubmittedChangeLists(client, user, P4File.create(new File(url)), settings, maxCount,
-                                                       p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES));
+      new ArrayList<>(stored != null ? stored : myRunner.getSubmittedChangeLists(client, user, root, settings, maxCount,
+                                                                                 p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES));
     LOG.debug("Changelists from Perforce: " + changeLists.size());
     settings.filterChanges(changeLists);
     LOG.debug("Changelists after filtering: " + changeLists.size());
     return changeLists;
   }
 
+  @Nullable
+  private List<PerforceChangeList> getStoredChangeLists(@Nullable String client, @Nullable String user, @NotNull P4File root,
+                                                        @NotNull ChangeBrowserSettings settings, int maxCount) throws VcsException {
+    if (PerforceSettings.getSettings(myProject).SHOW_INTEGRATED_IN_COMMITTED_CHANGES) return null;
+    P4Connection connection = PerforceConnectionManager.getInstance(myProject).getConnectionForFile(root);
+    if (connection == null) return null;
+    return PerforceCommittedChangesStore.getInstance(myProject).getSubmittedChangeLists(connection, client, user, root, settings, maxCount);
+  }
+
   @Override
   public ChangeListColumn @NotNull [] getColumns() {
     return myColumns;
@@ -224,7 +239,10 @@ public class PerforceCommittedChangesProvider implements CachingCommittedChanges
     settings.CHANGE_BEFORE = String.valueOf(changelistNumber);
     settings.USE_CHANGE_AFTER_FILTER = true;
     settings.CHANGE_AFTER = String.valueOf(changelistNumber);
-    final List<PerforceChangeList> changeListList = myRunner.getSubmittedChangeLists(null, null, rootP4File, settings, 1, p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES);
+    List<PerforceChangeList> changeListList = getStoredChangeLists(null, null, rootP4File, settings, 1);
+    if (changeListList == null) {
+      changeListList = myRunner.getSubmittedChangeLists(null, null, rootP4File, settings, 1, p4Settings.SHOW_INTEGRATED_IN_COMMITTED_CHANGES);
+    }
     //final FilePathImpl filePath = new FilePathImpl(file);
     if (changeListList.isEmpty()) {
       final List<PerforceChangeList> longerList = myRunner.getSubmittedChangeLists(null, null, rootP4File, settings, 0, true);
@@ -0,0 +1,165 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.versionBrowser.ChangeBrowserSettings;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.idea.perforce.ChangeListData;
+import org.jetbrains.idea.perforce.perforce.*;
+import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers submitted changelist queries for the committed changes views from a local {@link CommittedChangesStorage} per server.
+ * The first query of a root fetches only the changelists it asks for, later ones fetch the changelists above the highest stored one,
+ * and older changelists are fetched page by page when a query reaches below the stored ones.
+ * While Perforce is offline, the stored changelists are returned as is.
+ * <p>
+ * Queries that include integrated changes ({@code p4 changes -i}) aren't served, since a new integration may bring in old changelists.
+ */
+@Service(Service.Level.PROJECT)
+public final class PerforceCommittedChangesStore implements Disposable {
+  private static final Logger LOG = Logger.getInstance(PerforceCommittedChangesStore.class);
+  @NonNls private static final String DIRECTORY_NAME = "p4-changes";
+  private static final int MIN_FETCH_COUNT = 100;
+  private static final int MAX_BACKFILL_PAGES = 10;
+
+  private final Project myProject;
+  private final Path myDirectory;
+  private final Map<String, CommittedChangesStorage> myStorages = new ConcurrentHashMap<>();
+
+  public static PerforceCommittedChangesStore getInstance(@NotNull Project project) {
+    return project.getService(PerforceCommittedChangesStore.class);
+  }
+
+  public PerforceCommittedChangesStore(@NotNull Project project) {
+    myProject = project;
+    myDirectory = Paths.get(PathManager.getSystemPath(), DIRECTORY_NAME, project.getLocationHash());
+  }
+
+  /**
+   * @return the submitted changelists affecting the root, newest first,
+   * or null if they should be queried from the server directly
+   */
+  @Nullable
+  public List<PerforceChangeList> getSubmittedChangeLists(@NotNull P4Connection connection,
+                                                          @Nullable String client,
+                                                          @Nullable String user,
+                                                          @NotNull P4File root,
+                                                          @NotNull ChangeBrowserSettings settings,
+                                                          int maxCount) throws VcsException {
+    if (!Registry.is("p4.committed.changes.store")) return null;
+
+    ConnectionKey key;
+    try {
+      key = connection.getConnectionKey();
+    }
+    catch (UnsupportedOperationException e) {
+      return null;
+    }
+    CommittedChangesStorage storage = myStorages.computeIfAbsent(key.getServer(), server -> new CommittedChangesStorage(
+      myDirectory.resolve(DigestUtil.sha256Hex(server.getBytes(StandardCharsets.UTF_8)))));
+    // what a local path spec covers depends on the client view
+    String spec = root.getRecursivePath();
+    String specKey = key.getClient() + "\n" + spec;
+
+    PerforceRunner runner = PerforceRunner.getInstance(myProject);
+    CommittedChangesStorage.Filter filter = createFilter(client, user, settings);
+    int fetchCount = maxCount <= 0 ? 0 : Math.max(maxCount, MIN_FETCH_COUNT);
+    List<ChangeListData> data;
+    try {
+      synchronized (storage) {
+        long highest = storage.getHighestSynced(specKey);
+        boolean online = PerforceSettings.getSettings(myProject).ENABLED;
+        if (online) {
+          String range = highest < 0 ? "" : "@" + (highest + 1) + ",@now";
+          List<ChangeListData> fresh = runner.getSubmittedChangeListHeaders(connection, spec + range, fetchCount);
+          LOG.debug("Fetched " + fresh.size() + " changelists above " + highest + " for " + spec);
+          storage.appendNewer(specKey, fresh, Math.max(highest, 0), fetchCount <= 0 || fresh.size() < fetchCount);
+        }
+        else if (highest < 0) {
+          return null;
+        }
+        data = storage.query(specKey, filter, maxCount);
+
+        int pages = 0;
+        while (online && (maxCount <= 0 || data.size() < maxCount)) {
+          long lowest = storage.getLowestSynced(specKey);
+          // everything the query can match is stored
+          if (lowest <= 0 || lowest <= filter.afterChange) break;
+          // the query is about older history, which would take too many pages to reach
+          if (filter.beforeChange < lowest - 1 || pages++ >= MAX_BACKFILL_PAGES) return null;
+
+          List<ChangeListData> older = runner.getSubmittedChangeListHeaders(connection, spec + "@" + (lowest - 1), fetchCount);
+          LOG.debug("Fetched " + older.size() + " changelists below " + lowest + " for " + spec);
+          storage.appendOlder(specKey, older, fetchCount <= 0 || older.size() < fetchCount);
+          data = storage.query(specKey, filter, maxCount);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Can't use the stored changelists for " + spec, e);
+      return null;
+    }
+
+    PerforceChangeCache changeCache = new PerforceChangeCache(myProject);
+    List<PerforceChangeList> result = new ArrayList<>(data.size());
+    for (ChangeListData changeListData : data) {
+      result.add(new PerforceChangeList(changeListData, myProject, connection, changeCache));
+    }
+    return result;
+  }
+
+  @Override
+  public void dispose() {
+    for (CommittedChangesStorage storage : myStorages.values()) {
+      try {
+        storage.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+    }
+  }
+
+  private static CommittedChangesStorage.Filter createFilter(@Nullable String client, @Nullable String user,
+                                                             @NotNull ChangeBrowserSettings settings) {
+    CommittedChangesStorage.Filter filter = new CommittedChangesStorage.Filter();
+    filter.client = client == null || client.isEmpty() ? null : client;
+    filter.user = user == null || user.isEmpty() ? null : user;
+    Long afterChange = settings.getChangeAfterFilter();
+    if (afterChange != null) {
+      filter.afterChange = afterChange + (settings.STRICTLY_AFTER ? 1 : 0);
+    }
+    Long beforeChange = settings.getChangeBeforeFilter();
+    if (beforeChange != null) {
+      filter.beforeChange = beforeChange;
+    }
+    Date after = settings.getDateAfterFilter();
+    if (after != null) {
+      filter.afterTime = after.getTime();
+    }
+    Date before = settings.getDateBeforeFilter();
+    if (before != null) {
+      filter.beforeTime = before.getTime();
+    }
+    return filter;
+  }
+}
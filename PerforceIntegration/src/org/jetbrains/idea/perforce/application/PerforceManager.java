@@ -40,6 +40,8 @@ import org.jetbrains.idea.perforce.perforce.*;
 import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
 import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManager;
 import org.jetbrains.idea.perforce.perforce.login.PerforceLoginManager;
+import org.jetbrains.idea.perforce.util.tracer.CommandLatencyStatistics;
+import org.jetbrains.idea.perforce.util.tracer.ConnectionRefreshParameters;
 import org.jetbrains.idea.perforce.util.tracer.LongCallsParameters;
 import org.jetbrains.idea.perforce.util.tracer.TracerManager;
 import org.jetbrains.idea.perforce.util.tracer.TracerParameters;
@@ -63,6 +65,7 @@ public final class PerforceManager  {
   private final static boolean ourTraceCalls = Boolean.TRUE.equals(Boolean.getBoolean("perforce.trace.calls"));
   private final static String ourTracerProperties = System.getProperty("perforce.trace.calls.properties");
   private TracerManager<P4Command> myTracer;
+  private final CommandLatencyStatistics<P4Command> myCommandStatistics = new CommandLatencyStatistics<>();
 
   private final ClientRootsCache myClientRootsCache;
   private final PerforceBaseInfoWorker myPerforceBaseInfoWorker;
@@ -143,8 +146,17 @@ public final class PerforceManager  {
         } else {
           longCallsParameters = null;
         }
-        return new TracerManager<>(averageParameters, concurrentThreadsParameters, longCallsParameters, TRACER_LOG,
-                                   TracerProperties.outputInterval.getValue(properties));
+        final boolean logConnectionRefresh = Boolean.TRUE.equals(Boolean.parseBoolean(properties.getProperty(TracerProperties.GATHER_CONNECTION_REFRESH)));
+        final ConnectionRefreshParameters connectionRefreshParameters;
+        if (logConnectionRefresh) {
+          connectionRefreshParameters = new ConnectionRefreshParameters(TracerProperties.connectionRefreshInterval.getValue(properties),
+                                                                        (int) TracerProperties.connectionRefreshQueueSize.getValue(properties),
+                                                                        TracerProperties.connectionRefreshBudget.getValue(properties));
+        } else {
+          connectionRefreshParameters = null;
+        }
+        return new TracerManager<>(averageParameters, concurrentThreadsParameters, longCallsParameters, connectionRefreshParameters,
+                                   TRACER_LOG, TracerProperties.outputInterval.getValue(properties));
       }
       catch (IOException e) {
         //
@@ -158,6 +170,9 @@ public final class PerforceManager  {
                                                        (int)TracerProperties.longCallsQueueSize.getDefault(),
                                                        (int)TracerProperties.longCallsMaxKept.getDefault(),
                                                        TracerProperties.longCallsLowerBound.getDefault()),
+                               new ConnectionRefreshParameters(TracerProperties.connectionRefreshInterval.getDefault(),
+                                                               (int)TracerProperties.connectionRefreshQueueSize.getDefault(),
+                                                               TracerProperties.connectionRefreshBudget.getDefault()),
                                TRACER_LOG, TracerProperties.outputInterval.getDefault());
   }
 
@@ -367,6 +382,17 @@ public final class PerforceManager  {
     }
   }
 
+  public void traceConnectionRefresh(@NotNull ConnectionKey key, long millis) {
+    if (myTracer != null) {
+      myTracer.connectionRefreshed(key.toString(), millis);
+    }
+  }
+
+  @NotNull
+  public CommandLatencyStatistics<P4Command> getCommandStatistics() {
+    return myCommandStatistics;
+  }
+
   public boolean isTraceEnabled() {
     return ourTraceCalls;
   }
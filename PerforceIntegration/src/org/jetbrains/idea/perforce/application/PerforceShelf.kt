@@ -27,6 +27,9 @@ class PerforceShelf(private val myProject: Project) {
     }
   }
 
+  fun getShelvedChanges(key: ConnectionKey, number: Long): List<ShelvedChange> =
+    synchronized (myCache) { myCache[key to number].toList() }
+
   fun hasLocalChanges(key: ConnectionKey, number: Long): Boolean {
     val changes = synchronized (myCache) { myCache[key to number] }
     return changes.any { it.file != null }
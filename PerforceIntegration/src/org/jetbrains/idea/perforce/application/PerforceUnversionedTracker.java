@@ -19,7 +19,6 @@ import com.intellij.openapi.vcs.changes.VcsManagedFilesHolder;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.containers.ContainerUtil;
-import com.intellij.util.containers.JBIterable;
 import com.intellij.util.containers.MultiMap;
 import com.intellij.util.ui.update.ComparableObject;
 import com.intellij.util.ui.update.DisposableUpdate;
@@ -37,14 +36,18 @@ import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
 
 import java.io.File;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class PerforceUnversionedTracker {
   private static final Logger LOG = Logger.getInstance(PerforceUnversionedTracker.class);
+  // well below the 32K command line limit of Windows
+  private static final int MAX_IGNORES_ARGUMENTS_LENGTH = 24_000;
 
   private final Object LOCK = new Object();
 
-  private final Set<FilePath> myUnversionedFiles = new HashSet<>();
-  private final Set<FilePath> myIgnoredFiles = new HashSet<>();
+  // can hold every file under the roots, so the paths are stored as trees, which also lets lookups run without LOCK
+  private final FilePathTrie myUnversionedFiles = new FilePathTrie();
+  private final FilePathTrie myIgnoredFiles = new FilePathTrie();
   private final Set<VirtualFile> myDirtyLocalFiles = new HashSet<>();
 
   private final Project myProject;
@@ -82,29 +85,21 @@ public class PerforceUnversionedTracker {
   }
 
   public boolean isUnversioned(@NotNull FilePath file) {
-    synchronized (LOCK) {
-      return myUnversionedFiles.contains(file);
-    }
+    return myUnversionedFiles.contains(file);
   }
 
   public boolean isIgnored(@NotNull FilePath file) {
     if (isPotentiallyIgnoredFile(file))
       return true;
-    synchronized (LOCK) {
-      return myIgnoredFiles.contains(file);
-    }
+    return myIgnoredFiles.contains(file);
   }
 
   public Collection<FilePath> getIgnoredFiles() {
-    synchronized (LOCK) {
-      return new ArrayList<>(myIgnoredFiles);
-    }
+    return myIgnoredFiles.toList();
   }
 
   public Collection<FilePath> getUnversionedFiles() {
-    synchronized (LOCK) {
-      return new ArrayList<>(myUnversionedFiles);
-    }
+    return myUnversionedFiles.toList();
   }
 
 
@@ -243,12 +238,7 @@ public class PerforceUnversionedTracker {
   private static Set<VirtualFile> getIgnoredByPatterns(Project project, P4Connection connection, List<VirtualFile> toCheckIgnored) {
     Stopwatch sw = Stopwatch.createStarted();
     P4IgnoresMappingsHelper mappingsHelper = P4IgnoresMappingsHelper.create(project, connection);
-    Set<VirtualFile> ignoredFiles = new HashSet<>();
-    for (VirtualFile file : toCheckIgnored) {
-      if (mappingsHelper.isIgnored(file)) {
-        ignoredFiles.add(file);
-      }
-    }
+    Set<VirtualFile> ignoredFiles = toCheckIgnored.parallelStream().filter(mappingsHelper::isIgnored).collect(Collectors.toSet());
 
     sw.stop();
     LOG.debug("checking %d ignored files by pattern matching took %d s".formatted(toCheckIgnored.size(), sw.elapsed().toSeconds()));
@@ -292,7 +282,7 @@ public class PerforceUnversionedTracker {
     Stopwatch sw = Stopwatch.createStarted();
     Set<VirtualFile> ignored = new LinkedHashSet<>();
     // 'p4 ignores' doesn't support '-x argfile', so we split manually
-    for (List<VirtualFile> group : JBIterable.from(toCheckIgnored).split(100).map(JBIterable::toList)) {
+    for (List<VirtualFile> group : splitByPathLength(toCheckIgnored, MAX_IGNORES_ARGUMENTS_LENGTH)) {
       ExecResult execResult = PerforceRunner.getInstance(project).ignores(connection, group);
 
       if (execResult.getExitCode() == -1) {
@@ -314,6 +304,30 @@ public class PerforceUnversionedTracker {
     return ignored;
   }
 
+  /**
+   * Splits the files into groups whose paths add up to at most {@code maxLength} characters,
+   * so that each group fits into one command line however long the paths are.
+   */
+  static List<List<VirtualFile>> splitByPathLength(List<VirtualFile> files, int maxLength) {
+    List<List<VirtualFile>> groups = new ArrayList<>();
+    List<VirtualFile> group = new ArrayList<>();
+    int length = 0;
+    for (VirtualFile file : files) {
+      int pathLength = file.getPath().length() + 1;
+      if (!group.isEmpty() && length + pathLength > maxLength) {
+        groups.add(group);
+        group = new ArrayList<>();
+        length = 0;
+      }
+      group.add(file);
+      length += pathLength;
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
   public static Set<VirtualFile> getFilesOutsideClientSpec(Project project, P4Connection connection, Collection<VirtualFile> files)
     throws VcsException {
     files = ContainerUtil.filter(files, file -> !file.getPath().contains("..."));
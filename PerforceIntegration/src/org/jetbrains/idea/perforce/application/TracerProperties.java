@@ -14,11 +14,16 @@ public enum TracerProperties {
   longCallsMaxKept("perforce.tracer.long.max.kept", 10),
   longCallsLowerBound("perforce.tracer.long.calls.lower.bound", 5000),
 
+  connectionRefreshInterval("perforce.tracer.connection.refresh.interval", 600 * 1000),
+  connectionRefreshQueueSize("perforce.tracer.connection.refresh.queue.size", 10),
+  connectionRefreshBudget("perforce.tracer.connection.refresh.budget", 5000),
+
   outputInterval("perforce.tracer.log.interval", 3 * 600 * 1000);
 
   public static final String GATHER_AVERAGE_TIMES = "perforce.tracer.average.gather";
   public static final String GATHER_CONCURRENT_THREADS = "perforce.tracer.number.concurrent.threads.gather";
   public static final String GATHER_LONG_CALLS = "perforce.tracer.long.calls.gather";
+  public static final String GATHER_CONNECTION_REFRESH = "perforce.tracer.connection.refresh.gather";
 
   private final String myName;
   private final long myDefault;
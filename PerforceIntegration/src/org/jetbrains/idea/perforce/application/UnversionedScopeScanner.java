@@ -1,11 +1,14 @@
 package org.jetbrains.idea.perforce.application;
 
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
 import com.intellij.openapi.vcs.VcsException;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vcs.changes.VcsDirtyScopeImpl;
@@ -22,6 +25,7 @@ import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class UnversionedScopeScanner {
   private static final Logger LOG = Logger.getInstance(UnversionedScopeScanner.class);
@@ -132,12 +136,48 @@ public abstract class UnversionedScopeScanner {
   }
 
   private Set<VirtualFile> enumerateLocalFiles(Collection<FilePath> roots) {
+    if (!Registry.is("p4.parallel.unversioned.scan")) {
+      return enumerateLocalFiles(roots, new HashSet<>());
+    }
+
+    // walk the subdirectories of the scope roots in parallel; each walk is an ordinary VcsRootIterator pass,
+    // so the subdirectories skipped here are the ones it would skip itself: excluded, ignored or under another VCS root
+    Set<VirtualFile> localFiles = ConcurrentHashMap.newKeySet();
+    List<FilePath> subtrees = ReadAction.compute(() -> {
+      ProjectLevelVcsManager vcsManager = ProjectLevelVcsManager.getInstance(myProject);
+      List<FilePath> result = new ArrayList<>();
+      for (FilePath root : roots) {
+        VirtualFile dir = root.isDirectory() ? root.getVirtualFile() : null;
+        if (dir == null || !dir.isValid() || !dir.isDirectory() || vcsManager.isIgnored(dir)) {
+          result.add(root);
+          continue;
+        }
+        VirtualFile vcsRoot = vcsManager.getVcsRootFor(dir);
+        for (VirtualFile child : dir.getChildren()) {
+          if (vcsManager.isIgnored(child)) continue;
+          if (!child.isDirectory()) {
+            if (!skipPotentiallyIgnored(child)) {
+              localFiles.add(child);
+            }
+          }
+          else if (Comparing.equal(vcsManager.getVcsRootFor(child), vcsRoot)) {
+            result.add(VcsUtil.getFilePath(child));
+          }
+        }
+      }
+      return result;
+    });
+    checkCanceled();
+    subtrees.parallelStream().forEach(subtree -> enumerateLocalFiles(Collections.singletonList(subtree), localFiles));
+    return localFiles;
+  }
+
+  private Set<VirtualFile> enumerateLocalFiles(Collection<FilePath> roots, Set<VirtualFile> localFiles) {
     final VcsDirtyScopeImpl scope = new VcsDirtyScopeImpl(PerforceVcs.getInstance(myProject));
     for (final FilePath root : roots) {
       scope.addDirtyDirRecursively(root);
     }
 
-    final Set<VirtualFile> localFiles = new HashSet<>();
     VcsRootIterator.iterateExistingInsideScope(scope, file -> {
       if (!file.isDirectory() && !skipPotentiallyIgnored(file)) {
         localFiles.add(file);
@@ -16,19 +16,26 @@
 package org.jetbrains.idea.perforce.application.annotation;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.diff.Diff;
+import com.intellij.util.diff.FilesTooBigForDiffException;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.idea.perforce.PerforceBundle;
 
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.StringReader;
+import java.util.regex.Pattern;
 
 public final class AnnotationInfo {
   private final String myContent;
   private final long[] myRevisions;
   private final boolean myUseChangelistNumbers;
   private static final Logger LOG = Logger.getInstance(AnnotationInfo.class);
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
   public AnnotationInfo(String output, boolean useChangelistNumbers) throws IOException, VcsException {
     myUseChangelistNumbers = useChangelistNumbers;
@@ -57,6 +64,75 @@ public final class AnnotationInfo {
     myRevisions = revisions.toLongArray();
   }
 
+  AnnotationInfo(String content, long[] revisions, boolean useChangelistNumbers) {
+    myContent = content;
+    myRevisions = revisions;
+    myUseChangelistNumbers = useChangelistNumbers;
+  }
+
+  /**
+   * Annotates the next revision of the file from this annotation and the diff between them:
+   * lines that the diff leaves unchanged keep their revisions, inserted and changed lines get {@code revision}.
+   *
+   * @param newContent       the content of the next revision
+   * @param revision         the revision (or changelist, see {@link #isUseChangelistNumbers()}) to attribute the changed lines to
+   * @param ignoreWhitespace whether whitespace-only changes keep the previous revision, as {@code p4 annotate -dw} does
+   * @return the extended annotation, or {@code null} if this annotation's lines can't be matched to its content
+   * (e.g. a line contains a lone CR), and the file has to be annotated from scratch
+   */
+  @Nullable
+  public AnnotationInfo extend(String newContent, long revision, boolean ignoreWhitespace) throws FilesTooBigForDiffException {
+    String[] oldLines = splitLines(myContent);
+    if (oldLines.length != myRevisions.length) {
+      LOG.debug("Annotation has " + myRevisions.length + " revisions for " + oldLines.length + " lines, can't extend it");
+      return null;
+    }
+    String[] newLines = splitLines(newContent);
+    Diff.Change change = Diff.buildChanges(toDiffKeys(oldLines, ignoreWhitespace), toDiffKeys(newLines, ignoreWhitespace));
+
+    final StringBuilder content = new StringBuilder();
+    long[] revisions = new long[newLines.length];
+    int oldIndex = 0;
+    int newIndex = 0;
+    for (; change != null; change = change.link) {
+      while (newIndex < change.line1) {
+        if (oldIndex >= myRevisions.length) return null;
+        content.append(newLines[newIndex]).append("\n");
+        revisions[newIndex++] = myRevisions[oldIndex++];
+      }
+      for (int i = 0; i < change.inserted; i++) {
+        content.append(newLines[newIndex]).append("\n");
+        revisions[newIndex++] = revision;
+      }
+      oldIndex += change.deleted;
+    }
+    while (newIndex < newLines.length) {
+      if (oldIndex >= myRevisions.length) return null;
+      content.append(newLines[newIndex]).append("\n");
+      revisions[newIndex++] = myRevisions[oldIndex++];
+    }
+    return new AnnotationInfo(content.toString(), revisions, myUseChangelistNumbers);
+  }
+
+  private static String[] splitLines(String content) {
+    if (content.isEmpty()) return ArrayUtilRt.EMPTY_STRING_ARRAY;
+    String normalized = StringUtil.trimEnd(StringUtil.convertLineSeparators(content), "\n");
+    return normalized.split("\n", -1);
+  }
+
+  private static String[] toDiffKeys(String[] lines, boolean ignoreWhitespace) {
+    if (!ignoreWhitespace) return lines;
+    String[] keys = new String[lines.length];
+    for (int i = 0; i < lines.length; i++) {
+      keys[i] = WHITESPACE.matcher(lines[i]).replaceAll("");
+    }
+    return keys;
+  }
+
+  long[] getRevisions() {
+    return myRevisions;
+  }
+
   public String getContent() {
     return myContent;
   }
@@ -0,0 +1,230 @@
+package org.jetbrains.idea.perforce.application.annotation;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.idea.perforce.perforce.P4Revision;
+import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persists the annotations of file head revisions together with their history, so that annotating the file again
+ * needs no {@code p4 annotate} and {@code p4 filelog} while the head doesn't move, and only the diffs of the new revisions when it does.
+ * Only the most recently used {@link #MAX_ENTRIES} files are kept.
+ */
+@Service(Service.Level.PROJECT)
+public final class PerforceAnnotationCache {
+  private static final Logger LOG = Logger.getInstance(PerforceAnnotationCache.class);
+  private static final int MAX_ENTRIES = SystemProperties.getIntProperty("perforce.annotation.cache.entries", 100);
+  private static final int VERSION = 1;
+  @NonNls private static final String DIRECTORY_NAME = "p4-annotations";
+
+  private final Path myDirectory;
+  private final Object myLock = new Object();
+
+  public static PerforceAnnotationCache getInstance(@NotNull Project project) {
+    return project.getService(PerforceAnnotationCache.class);
+  }
+
+  public PerforceAnnotationCache(@NotNull Project project) {
+    this(Paths.get(PathManager.getSystemPath(), DIRECTORY_NAME, project.getLocationHash()));
+  }
+
+  PerforceAnnotationCache(@NotNull Path directory) {
+    myDirectory = directory;
+  }
+
+  /**
+   * @param options everything else the annotation depends on, e.g. the annotate flags and the history limit
+   * @return the cache key, or null if the connection has no stable server address to key by
+   */
+  @Nullable
+  public static String getCacheKey(@NotNull P4Connection connection, @NotNull String depotPath, @NotNull String options) {
+    String server;
+    try {
+      server = connection.getConnectionKey().getServer();
+    }
+    catch (UnsupportedOperationException e) {
+      return null;
+    }
+    return DigestUtil.sha256Hex((server + "\n" + depotPath + "\n" + options).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Nullable
+  public Entry get(@NotNull String key) {
+    Path file = myDirectory.resolve(key);
+    synchronized (myLock) {
+      if (!Files.isRegularFile(file)) return null;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        Entry entry = readEntry(in);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        return entry;
+      }
+      catch (IOException e) {
+        LOG.info("Dropping unreadable annotation cache entry " + file, e);
+        deleteFile(file);
+        return null;
+      }
+    }
+  }
+
+  public void put(@NotNull String key, @NotNull Entry entry) {
+    Path file = myDirectory.resolve(key);
+    synchronized (myLock) {
+      try {
+        Files.createDirectories(myDirectory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+          writeEntry(out, entry);
+        }
+        evictIfNeeded();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        deleteFile(file);
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized (myLock) {
+      for (Path file : listEntries()) {
+        deleteFile(file);
+      }
+    }
+  }
+
+  private void evictIfNeeded() {
+    List<Path> files = listEntries();
+    if (files.size() <= MAX_ENTRIES) return;
+    files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+    for (Path file : files.subList(0, files.size() - MAX_ENTRIES)) {
+      deleteFile(file);
+    }
+  }
+
+  private List<Path> listEntries() {
+    if (!Files.isDirectory(myDirectory)) return new ArrayList<>();
+    try (Stream<Path> stream = Files.list(myDirectory)) {
+      return new ArrayList<>(stream.filter(Files::isRegularFile).toList());
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return new ArrayList<>();
+    }
+  }
+
+  private static void deleteFile(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
+
+  private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+    out.writeInt(VERSION);
+    out.writeLong(entry.headRevision);
+    out.writeBoolean(entry.info.isUseChangelistNumbers());
+    writeString(out, entry.info.getContent());
+    long[] revisions = entry.info.getRevisions();
+    out.writeInt(revisions.length);
+    for (long revision : revisions) {
+      out.writeLong(revision);
+    }
+    out.writeInt(entry.fileLog.length);
+    for (P4Revision revision : entry.fileLog) {
+      writeString(out, revision.getDepotPath());
+      out.writeLong(revision.getRevisionNumber());
+      out.writeLong(revision.getChangeNumber());
+      writeString(out, revision.getAction());
+      out.writeLong(revision.getDate() == null ? -1 : revision.getDate().getTime());
+      writeString(out, revision.getUser());
+      writeString(out, revision.getClient());
+      writeString(out, revision.getType());
+      writeString(out, revision.getSubmitMessage());
+      out.writeBoolean(revision.isBranched());
+    }
+  }
+
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    if (in.readInt() != VERSION) {
+      throw new IOException("Unsupported annotation cache version");
+    }
+    long headRevision = in.readLong();
+    boolean useChangelistNumbers = in.readBoolean();
+    String content = readString(in);
+    long[] revisions = new long[in.readInt()];
+    for (int i = 0; i < revisions.length; i++) {
+      revisions[i] = in.readLong();
+    }
+    P4Revision[] fileLog = new P4Revision[in.readInt()];
+    for (int i = 0; i < fileLog.length; i++) {
+      String depotPath = readString(in);
+      long revisionNumber = in.readLong();
+      long changeNumber = in.readLong();
+      String action = readString(in);
+      long time = in.readLong();
+      String user = readString(in);
+      String client = readString(in);
+      String type = readString(in);
+      String submitMessage = readString(in);
+      boolean branched = in.readBoolean();
+      if (depotPath == null) {
+        throw new IOException("Corrupted annotation cache entry");
+      }
+      fileLog[i] = new P4Revision(depotPath, revisionNumber, changeNumber, action, time == -1 ? null : new Date(time), user, client, type,
+                                  branched);
+      fileLog[i].setDescription(submitMessage);
+    }
+    return new Entry(headRevision, new AnnotationInfo(content, revisions, useChangelistNumbers), fileLog);
+  }
+
+  private static void writeString(DataOutputStream out, @Nullable String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Nullable
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) return null;
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static final class Entry {
+    public final long headRevision;
+    public final AnnotationInfo info;
+    public final P4Revision[] fileLog;
+
+    public Entry(long headRevision, @NotNull AnnotationInfo info, P4Revision @NotNull [] fileLog) {
+      this.headRevision = headRevision;
+      this.info = info;
+      this.fileLog = fileLog;
+    }
+  }
+}
@@ -222,6 +222,34 @@ public final class FStat {
     return result;
   }
 
+  /**
+   * Builds an FStat from a tagged record (see {@link P4MarshalReader}) where each field is already separated from its value.
+   */
+  static FStat fromTaggedRecord(Map<String, String> record) throws VcsException {
+    FStat result = new FStat();
+    for (Map.Entry<String, String> entry : record.entrySet()) {
+      String value = entry.getValue();
+      if (value == null) continue;
+      switch (entry.getKey()) {
+        case "clientFile": result.clientFile = value; break;
+        case "depotFile": result.depotFile = value; break;
+        case "headAction": result.headAction = value; break;
+        case "headChange": result.headChange = value; break;
+        case "headRev": result.headRev = value; break;
+        case "headType": result.headType = value; break;
+        case "headTime": result.headTime = value; break;
+        case "haveRev": result.haveRev = value; break;
+        case "action": result.action = value; break;
+        case "actionOwner": result.actionOwner = value; break;
+        case "change": result.change = value; break;
+        case "unresolved": result.unresolved = value; break;
+        case MOVED_FILE_STATUS_FIELD: result.movedFile = value; break;
+      }
+    }
+    result.resolveStatus();
+    return result;
+  }
+
   public static Map<File, String> splitOutputForEachFile(final String stdOut) throws IOException {
     final BufferedReader reader = new BufferedReader(new StringReader(stdOut));
     String line;
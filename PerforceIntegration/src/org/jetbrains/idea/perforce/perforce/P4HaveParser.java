@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public abstract class P4HaveParser {
   private static final String HAVE_DELIMITER = " - ";
@@ -36,6 +37,23 @@ public abstract class P4HaveParser {
     consumeRevision(FileUtil.toSystemDependentName(localPath), revision);
   }
 
+  void consumeTaggedRecord(Map<String, String> record) throws VcsException {
+    String localPath = record.get("path");
+    String haveRev = record.get("haveRev");
+    if (localPath == null || haveRev == null) {
+      throw new VcsException(PerforceBundle.message("error.unexpected.p4.have.output.format", record.toString()));
+    }
+    localPath = myPerforceManager.convertP4ParsedPath(null, localPath);
+    final long revision;
+    try {
+      revision = Long.parseLong(haveRev);
+    }
+    catch (NumberFormatException e) {
+      throw new VcsException(PerforceBundle.message("error.unexpected.p4.have.output.format", record.toString()));
+    }
+    consumeRevision(FileUtil.toSystemDependentName(localPath), revision);
+  }
+
   public abstract void consumeRevision(String path, long revision);
 
   void readHaveOutput(InputStream inputStream) throws IOException, VcsException {
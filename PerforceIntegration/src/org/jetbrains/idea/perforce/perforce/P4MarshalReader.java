@@ -0,0 +1,188 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Incrementally decodes the output of {@code p4 -G}: a sequence of Python marshal dictionaries, one per record.
+ * Records are read one by one from the captured output, so the whole output is never turned into lines or one big string.
+ * <p>
+ * String values are raw bytes in the connection charset ({@code P4CHARSET}, UTF-8 for unicode servers), so they are decoded with it.
+ */
+public final class P4MarshalReader {
+  @NonNls public static final String CODE_KEY = "code";
+  @NonNls public static final String DATA_KEY = "data";
+  @NonNls public static final String SEVERITY_KEY = "severity";
+  @NonNls public static final String CODE_STAT = "stat";
+  @NonNls public static final String CODE_ERROR = "error";
+  @NonNls public static final String CODE_INFO = "info";
+
+  // marshal type codes used by p4
+  private static final int TYPE_DICT = '{';
+  private static final int TYPE_NULL = '0';
+  private static final int TYPE_STRING = 's';
+  private static final int TYPE_UNICODE = 'u';
+  private static final int TYPE_INTERNED = 't';
+  private static final int TYPE_INT = 'i';
+  private static final int TYPE_NONE = 'N';
+  private static final int TYPE_TRUE = 'T';
+  private static final int TYPE_FALSE = 'F';
+
+  private final InputStream myStream;
+  private final Charset myCharset;
+  private byte[] myBuffer = new byte[256];
+
+  public P4MarshalReader(@NotNull InputStream stream) {
+    this(stream, StandardCharsets.UTF_8);
+  }
+
+  public P4MarshalReader(@NotNull InputStream stream, @NotNull Charset charset) {
+    myStream = stream instanceof BufferedInputStream ? stream : new BufferedInputStream(stream);
+    myCharset = charset;
+  }
+
+  /**
+   * @return the next record, or null when the stream is exhausted
+   */
+  @Nullable
+  public Map<String, String> readRecord() throws IOException {
+    int type = myStream.read();
+    if (type == -1) return null;
+    if (type != TYPE_DICT) {
+      throw new IOException("Unexpected marshal type '" + (char)type + "', dictionary expected");
+    }
+
+    Map<String, String> record = new LinkedHashMap<>();
+    while (true) {
+      int keyType = myStream.read();
+      if (keyType == TYPE_NULL) {
+        return record;
+      }
+      String key = readValue(keyType);
+      String value = readValue(myStream.read());
+      record.put(key, value);
+    }
+  }
+
+  /**
+   * Like {@link #readRecord()}, but leaves the values undecoded, for records carrying file content ({@code p4 -G print}).
+   * Integer values are returned as their decimal representation.
+   */
+  @Nullable
+  public Map<String, byte[]> readRawRecord() throws IOException {
+    int type = myStream.read();
+    if (type == -1) return null;
+    if (type != TYPE_DICT) {
+      throw new IOException("Unexpected marshal type '" + (char)type + "', dictionary expected");
+    }
+
+    Map<String, byte[]> record = new LinkedHashMap<>();
+    while (true) {
+      int keyType = myStream.read();
+      if (keyType == TYPE_NULL) {
+        return record;
+      }
+      String key = readValue(keyType);
+      int valueType = myStream.read();
+      if (valueType == TYPE_STRING || valueType == TYPE_UNICODE || valueType == TYPE_INTERNED) {
+        int length = readBytes();
+        record.put(key, Arrays.copyOf(myBuffer, length));
+      }
+      else {
+        String value = readValue(valueType);
+        record.put(key, value == null ? null : value.getBytes(myCharset));
+      }
+    }
+  }
+
+  @Nullable
+  private String readValue(int type) throws IOException {
+    switch (type) {
+      case TYPE_STRING:
+      case TYPE_UNICODE:
+      case TYPE_INTERNED:
+        return readString();
+      case TYPE_INT:
+        return String.valueOf(readInt());
+      case TYPE_NONE:
+        return null;
+      case TYPE_TRUE:
+        return "true";
+      case TYPE_FALSE:
+        return "false";
+      case -1:
+        throw new EOFException("Truncated marshal record");
+      default:
+        throw new IOException("Unsupported marshal type '" + (char)type + "'");
+    }
+  }
+
+  private String readString() throws IOException {
+    int length = readBytes();
+    return new String(myBuffer, 0, length, myCharset);
+  }
+
+  /**
+   * Reads a length-prefixed string into {@link #myBuffer}.
+   * @return the number of bytes read
+   */
+  private int readBytes() throws IOException {
+    int length = readInt();
+    if (length < 0) {
+      throw new IOException("Negative marshal string length: " + length);
+    }
+    if (myBuffer.length < length) {
+      myBuffer = new byte[Math.max(length, myBuffer.length * 2)];
+    }
+    int offset = 0;
+    while (offset < length) {
+      int read = myStream.read(myBuffer, offset, length - offset);
+      if (read == -1) {
+        throw new EOFException("Truncated marshal string");
+      }
+      offset += read;
+    }
+    return length;
+  }
+
+  private int readInt() throws IOException {
+    int b0 = myStream.read();
+    int b1 = myStream.read();
+    int b2 = myStream.read();
+    int b3 = myStream.read();
+    if ((b0 | b1 | b2 | b3) < 0) {
+      throw new EOFException("Truncated marshal integer");
+    }
+    return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+  }
+
+  public static boolean isError(@NotNull Map<String, String> record) {
+    return CODE_ERROR.equals(record.get(CODE_KEY));
+  }
+
+  /**
+   * Decodes a value of a record read by {@link #readRawRecord()}.
+   */
+  @Nullable
+  public String getString(@NotNull Map<String, byte[]> rawRecord, @NotNull String key) {
+    byte[] value = rawRecord.get(key);
+    return value == null ? null : new String(value, myCharset);
+  }
+
+  @NotNull
+  public static String getMessage(@NotNull Map<String, String> record) {
+    String data = record.get(DATA_KEY);
+    return data == null ? "" : data.trim();
+  }
+}
@@ -0,0 +1,162 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.impl.ContentRevisionCache;
+import com.intellij.util.io.BufferExposingByteArrayOutputStream;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Splits the records of a multi-file {@code p4 -G print} into per-file contents, and passes each file on as soon as its records end,
+ * so that only one file is held in memory at a time.
+ * <p>
+ * Each file spec produces either a {@code stat} record followed by its {@code text}/{@code binary} chunks, or an {@code error} record,
+ * in the order the specs were passed, so the output is matched to the specs by position. A {@code stat} record that doesn't match its spec
+ * stops the splitting, the remaining specs are then left to be loaded one by one.
+ * <p>
+ * {@code p4 -G} passes text with the LF line ends it's stored with on the server, while {@code p4 print -o} writes it the way {@code p4 sync}
+ * would, so the client's LineEnd option is applied to text files here to get the same bytes.
+ */
+final class P4PrintOutputSplitter {
+  private static final Logger LOG = Logger.getInstance(P4PrintOutputSplitter.class);
+  @NonNls private static final String CODE_TEXT = "text";
+  @NonNls private static final String CODE_BINARY = "binary";
+  @NonNls private static final String DEPOT_FILE_KEY = "depotFile";
+  @NonNls private static final String REV_KEY = "rev";
+  @NonNls private static final String TYPE_KEY = "type";
+  @NonNls private static final String FILE_SIZE_KEY = "fileSize";
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final byte[] CR = {'\r'};
+
+  private final List<String> mySpecs;
+  private final byte @Nullable [] myLineSeparator;
+  private final BiConsumer<? super String, ? super byte[]> myConsumer;
+  private int myIndex = -1;
+  private boolean myMismatch;
+  private String myDepotFile;
+  private boolean myTranslateLineEnds;
+  private BufferExposingByteArrayOutputStream myCurrent;
+
+  /**
+   * @param lineEnd the LineEnd option of the client spec, {@code null} meaning the default {@code local}
+   * @param consumer receives the contents by file spec; specs that couldn't be printed or are too large to be loaded are skipped
+   */
+  P4PrintOutputSplitter(@NotNull List<String> specs, @Nullable String lineEnd, @NotNull BiConsumer<? super String, ? super byte[]> consumer) {
+    mySpecs = specs;
+    myLineSeparator = getLineSeparator(lineEnd);
+    myConsumer = consumer;
+  }
+
+  void consume(@NotNull P4MarshalReader reader, @NotNull Map<String, byte[]> record) {
+    if (myMismatch) return;
+
+    String code = reader.getString(record, P4MarshalReader.CODE_KEY);
+    if (P4MarshalReader.CODE_STAT.equals(code) || P4MarshalReader.CODE_ERROR.equals(code)) {
+      finishCurrent();
+      myIndex++;
+      if (myIndex >= mySpecs.size()) {
+        stop("p4 print returned more files than the " + mySpecs.size() + " specs");
+        return;
+      }
+      if (P4MarshalReader.CODE_STAT.equals(code)) {
+        myDepotFile = StringUtil.notNullize(reader.getString(record, DEPOT_FILE_KEY));
+        if (!matchesSpec(mySpecs.get(myIndex), myDepotFile, reader.getString(record, REV_KEY))) {
+          stop("p4 print returned " + myDepotFile + " for " + mySpecs.get(myIndex));
+          return;
+        }
+        long size = StringUtil.parseLong(reader.getString(record, FILE_SIZE_KEY), 0);
+        myCurrent = isAcceptableSize(size) ? new BufferExposingByteArrayOutputStream((int)size) : null;
+        myTranslateLineEnds = myLineSeparator != null && !StringUtil.notNullize(reader.getString(record, TYPE_KEY)).startsWith("utf16");
+      }
+    }
+    else if ((CODE_TEXT.equals(code) || CODE_BINARY.equals(code)) && myCurrent != null) {
+      byte[] data = record.get(P4MarshalReader.DATA_KEY);
+      if (data == null) return;
+      if (CODE_TEXT.equals(code) && myTranslateLineEnds) {
+        writeTranslated(data);
+      }
+      else {
+        myCurrent.write(data, 0, data.length);
+      }
+    }
+  }
+
+  /**
+   * Passes on the last file.
+   * @return whether the output matched all the specs
+   */
+  boolean finish() {
+    if (myMismatch) return false;
+    finishCurrent();
+    if (myIndex + 1 != mySpecs.size()) {
+      LOG.info("p4 print returned " + (myIndex + 1) + " files for " + mySpecs.size() + " specs");
+      return false;
+    }
+    return true;
+  }
+
+  private void writeTranslated(byte[] data) {
+    assert myLineSeparator != null;
+    int start = 0;
+    for (int i = 0; i < data.length; i++) {
+      if (data[i] == '\n') {
+        myCurrent.write(data, start, i - start);
+        myCurrent.write(myLineSeparator, 0, myLineSeparator.length);
+        start = i + 1;
+      }
+    }
+    myCurrent.write(data, start, data.length - start);
+  }
+
+  private void finishCurrent() {
+    if (myCurrent == null) return;
+    int size = myCurrent.size();
+    if (isAcceptableSize(size)) {
+      byte[] buffer = myCurrent.getInternalBuffer();
+      myConsumer.accept(mySpecs.get(myIndex), buffer.length == size ? buffer : myCurrent.toByteArray());
+    }
+    myCurrent = null;
+  }
+
+  private void stop(@NonNls String reason) {
+    LOG.info(reason + ", the rest of the output is ignored");
+    myMismatch = true;
+    myCurrent = null;
+  }
+
+  private boolean isAcceptableSize(long size) {
+    try {
+      ContentRevisionCache.checkContentsSize(myDepotFile, size);
+      return true;
+    }
+    catch (VcsException e) {
+      return false;
+    }
+  }
+
+  private static boolean matchesSpec(@NotNull String spec, @NotNull String depotFile, @Nullable String rev) {
+    int hash = spec.lastIndexOf('#');
+    if (hash < 0) return true;
+    if (spec.startsWith("//") && !spec.substring(0, hash).equals(depotFile)) return false;
+    String specRevision = spec.substring(hash + 1);
+    return !StringUtil.isNotNegativeNumber(specRevision) || specRevision.equals(rev);
+  }
+
+  private static byte @Nullable [] getLineSeparator(@Nullable String lineEnd) {
+    if (lineEnd == null || "local".equalsIgnoreCase(lineEnd)) {
+      return SystemInfo.isWindows ? CRLF : null;
+    }
+    if ("win".equalsIgnoreCase(lineEnd)) return CRLF;
+    if ("mac".equalsIgnoreCase(lineEnd)) return CR;
+    // unix and share write LF
+    return null;
+  }
+}
@@ -1,24 +1,39 @@
 package org.jetbrains.idea.perforce.perforce;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.util.BackgroundTaskUtil;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.vcs.FilePath;
 import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vcs.changes.ContentRevision;
 import com.intellij.openapi.vcs.changes.LastUnchangedContentTracker;
+import com.intellij.openapi.vcs.changes.LocalChangeList;
 import com.intellij.openapi.vfs.InvalidVirtualFileAccessException;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.newvfs.FileAttribute;
 import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.idea.perforce.PerforceBundle;
 import org.jetbrains.idea.perforce.application.PerforceBinaryContentRevision;
+import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
+import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManager;
+import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManagerI;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public final class PerforceCachingContentRevision extends PerforceContentRevision {
@@ -27,6 +42,8 @@ public final class PerforceCachingContentRevision extends PerforceContentRevisio
   private static final Logger LOG = Logger.getInstance(PerforceCachingContentRevision.class);
 
   private static final FileAttribute PERFORCE_CONTENT_ATTRIBUTE = new FileAttribute("p4.content", 3, false);
+  private static final Key<AtomicBoolean> PREFETCH_RUNNING = Key.create("p4.prefetch.running");
+  private static final int MAX_PREFETCHED_REVISIONS = 500;
 
   private PerforceCachingContentRevision(final Project project, final FilePath path, final FilePath currentPath, final long revision, boolean offline) {
     super(project, path, revision);
@@ -65,6 +82,9 @@ public final class PerforceCachingContentRevision extends PerforceContentRevisio
       catch (IOException e) {
         LOG.error(e);
       }
+      if (!myOffline) {
+        prefetchChangeList(myProject, vFile);
+      }
     }
     return content;
   }
@@ -98,6 +118,91 @@ public final class PerforceCachingContentRevision extends PerforceContentRevisio
     }
   }
 
+  private static boolean hasCachedContent(VirtualFile vFile, long revision) {
+    try (DataInputStream stream = PERFORCE_CONTENT_ATTRIBUTE.readFileAttribute(vFile)) {
+      return stream != null && stream.readLong() == revision;
+    }
+    catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Called when a base revision had to be loaded from the server, i.e. it's being shown: the diff viewer is likely to go through
+   * the other files of its changelist next, so their base revisions are loaded in the background with one {@code p4 print} per connection,
+   * instead of a p4 process for each of them. At most one prefetch runs per project, and it's cancelled when the project is closed.
+   */
+  private static void prefetchChangeList(@NotNull Project project, @NotNull VirtualFile vFile) {
+    if (!Registry.is("p4.prefetch.revision.contents")) return;
+
+    LocalChangeList list = ChangeListManager.getInstance(project).getChangeList(vFile);
+    if (list == null) return;
+
+    AtomicBoolean running = ((UserDataHolderEx)project).putUserDataIfAbsent(PREFETCH_RUNNING, new AtomicBoolean());
+    if (!running.compareAndSet(false, true)) return;
+
+    List<ContentRevision> revisions = ContainerUtil.mapNotNull(list.getChanges(), Change::getBeforeRevision);
+    BackgroundTaskUtil.executeOnPooledThread(project, () -> {
+      try {
+        prefetch(project, revisions);
+      }
+      finally {
+        running.set(false);
+      }
+    });
+  }
+
+  private static void prefetch(@NotNull Project project, @NotNull Collection<? extends ContentRevision> revisions) {
+    if (!PerforceSettings.getSettings(project).ENABLED) return;
+
+    PerforceConnectionManagerI connectionManager = PerforceConnectionManager.getInstance(project);
+    MultiMap<P4Connection, PerforceCachingContentRevision> byConnection = MultiMap.createLinked();
+    int count = 0;
+    for (ContentRevision revision : revisions) {
+      if (count >= MAX_PREFETCHED_REVISIONS) break;
+      ProgressManager.checkCanceled();
+      if (!(revision instanceof PerforceCachingContentRevision cachingRevision) ||
+          cachingRevision.myOffline || cachingRevision.myRevision <= 0 ||
+          !cachingRevision.myFilePath.equals(cachingRevision.myCurrentPath)) {
+        continue;
+      }
+      VirtualFile vFile = cachingRevision.myCurrentPath.getVirtualFile();
+      if (vFile == null || hasCachedContent(vFile, cachingRevision.myRevision)) continue;
+
+      P4Connection connection = connectionManager.getConnectionForFile(vFile);
+      if (connection != null) {
+        byConnection.putValue(connection, cachingRevision);
+        count++;
+      }
+    }
+
+    PerforceRunner runner = PerforceRunner.getInstance(project);
+    for (Map.Entry<P4Connection, Collection<PerforceCachingContentRevision>> entry : byConnection.entrySet()) {
+      Map<String, PerforceCachingContentRevision> bySpec = new LinkedHashMap<>();
+      for (PerforceCachingContentRevision revision : entry.getValue()) {
+        bySpec.put(P4File.create(revision.myCurrentPath).getEscapedPath() + "#" + revision.myRevision, revision);
+      }
+      try {
+        runner.getByteContents(new ArrayList<>(bySpec.keySet()), entry.getKey(), (spec, content) -> {
+          PerforceCachingContentRevision revision = bySpec.get(spec);
+          VirtualFile vFile = revision.myCurrentPath.getVirtualFile();
+          if (vFile == null) return;
+          try {
+            saveCachedContent(vFile, revision.myRevision, content);
+          }
+          catch (InvalidVirtualFileAccessException ignore) {
+          }
+          catch (IOException e) {
+            LOG.info(e);
+          }
+        });
+      }
+      catch (VcsException e) {
+        LOG.info(e);
+      }
+    }
+  }
+
   public static void removeCachedContent(@NotNull VirtualFile vFile) {
     try {
       saveCachedContent(vFile, -1, ArrayUtilRt.EMPTY_BYTE_ARRAY);
@@ -50,6 +50,14 @@ public class PerforceChangeCache {
     });
   }
 
+  /**
+   * @return the changes already known for the changelist, without querying the server
+   */
+  @Nullable
+  public List<PerforceChange> getCachedChanges(P4Connection connection, final long changeListNumber) {
+    return myCache.get(createKey(connection, changeListNumber));
+  }
+
   public void setChanges(P4Connection connection, final long changeListNumber, @NotNull List<PerforceChange> changes) {
     myCache.put(createKey(connection, changeListNumber), changes);
   }
@@ -0,0 +1,196 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of {@code p4 print} results for immutable revisions ({@code //depot/path#N} or {@code //depot/path@N}),
+ * so that diff and history views don't fetch the same revision again.
+ * Entries are named by a hash of the server, depot path and revision, and the least recently used ones are evicted
+ * once the total size exceeds the limit.
+ */
+@Service(Service.Level.PROJECT)
+public final class PerforceContentCache {
+  private static final Logger LOG = Logger.getInstance(PerforceContentCache.class);
+  private static final long DEFAULT_MAX_SIZE = SystemProperties.getLongProperty("perforce.content.cache.size.mb", 256) * 1024 * 1024;
+  private static final Pattern IMMUTABLE_REVISION = Pattern.compile("[#@]\\d+");
+  @NonNls private static final String DIRECTORY_NAME = "p4-content";
+
+  private final Path myDirectory;
+  private final long myMaxSize;
+  private final Object myLock = new Object();
+  // access-ordered: the first entry is the least recently used one
+  private final LinkedHashMap<String, Long> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+  private long myTotalSize;
+  private boolean myLoaded;
+
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+  private final AtomicLong myEvictions = new AtomicLong();
+
+  public static PerforceContentCache getInstance(@NotNull Project project) {
+    return project.getService(PerforceContentCache.class);
+  }
+
+  public PerforceContentCache(@NotNull Project project) {
+    this(Paths.get(PathManager.getSystemPath(), DIRECTORY_NAME, project.getLocationHash()), DEFAULT_MAX_SIZE);
+  }
+
+  PerforceContentCache(@NotNull Path directory, long maxSize) {
+    myDirectory = directory;
+    myMaxSize = maxSize;
+  }
+
+  /**
+   * @return the cache key for the revision, or null if its content may change over time (head, have, shelved revisions) and mustn't be cached
+   */
+  @Nullable
+  public static String getCacheKey(@NotNull P4Connection connection, @NotNull String depotPath, @Nullable String revision) {
+    if (revision == null || !depotPath.startsWith("//") || !IMMUTABLE_REVISION.matcher(revision).matches()) {
+      return null;
+    }
+    String server;
+    try {
+      server = connection.getConnectionKey().getServer();
+    }
+    catch (UnsupportedOperationException e) {
+      return null;
+    }
+    return DigestUtil.sha256Hex((server + "\n" + depotPath + revision).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public byte @Nullable [] get(@NotNull String key) {
+    // entry files are only read, moved in and deleted under the lock, so a read never sees a file being evicted or replaced
+    synchronized (myLock) {
+      ensureLoaded();
+      if (!myEntries.containsKey(key)) {
+        myMisses.incrementAndGet();
+        return null;
+      }
+
+      Path file = myDirectory.resolve(key);
+      try {
+        byte[] content = Files.readAllBytes(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        myHits.incrementAndGet();
+        return content;
+      }
+      catch (IOException e) {
+        LOG.debug(e);
+        deleteEntry(key);
+        myMisses.incrementAndGet();
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Moves the file with the revision content into the cache.
+   */
+  public void put(@NotNull String key, @NotNull Path content) {
+    try {
+      long size = Files.size(content);
+      if (size > myMaxSize / 4) return;
+
+      synchronized (myLock) {
+        ensureLoaded();
+        Files.createDirectories(myDirectory);
+        Files.move(content, myDirectory.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+        Long previous = myEntries.put(key, size);
+        myTotalSize += size - (previous == null ? 0 : previous);
+        evictIfNeeded();
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  public void clear() {
+    synchronized (myLock) {
+      ensureLoaded();
+      for (String key : new ArrayList<>(myEntries.keySet())) {
+        deleteEntry(key);
+      }
+    }
+  }
+
+  @NotNull
+  public String getStatistics() {
+    synchronized (myLock) {
+      return "entries: " + myEntries.size() + ", size: " + myTotalSize + " bytes, hits: " + myHits.get() + ", misses: " + myMisses.get() +
+             ", evictions: " + myEvictions.get();
+    }
+  }
+
+  private void evictIfNeeded() {
+    Iterator<String> iterator = myEntries.keySet().iterator();
+    while (myTotalSize > myMaxSize && iterator.hasNext()) {
+      String eldest = iterator.next();
+      myTotalSize -= myEntries.get(eldest);
+      iterator.remove();
+      deleteFile(eldest);
+      myEvictions.incrementAndGet();
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Content cache " + getStatistics());
+    }
+  }
+
+  private void deleteEntry(String key) {
+    Long size = myEntries.remove(key);
+    if (size != null) {
+      myTotalSize -= size;
+    }
+    deleteFile(key);
+  }
+
+  private void deleteFile(String key) {
+    try {
+      Files.deleteIfExists(myDirectory.resolve(key));
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
+
+  private void ensureLoaded() {
+    if (myLoaded) return;
+    myLoaded = true;
+    if (!Files.isDirectory(myDirectory)) return;
+
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(myDirectory)) {
+      files = new ArrayList<>(stream.filter(Files::isRegularFile).toList());
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return;
+    }
+    // restore the LRU order from the previous session
+    files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+    for (Path file : files) {
+      long size = file.toFile().length();
+      myEntries.put(file.getFileName().toString(), size);
+      myTotalSize += size;
+    }
+    evictIfNeeded();
+  }
+}
@@ -27,6 +27,7 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.SystemInfoRt;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.text.LineTokenizer;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.FilePath;
@@ -45,9 +46,11 @@ import com.intellij.serviceContainer.NonInjectable;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.ArrayUtilRt;
 import com.intellij.util.SystemProperties;
+import com.intellij.util.ThrowableConsumer;
 import com.intellij.util.containers.*;
 import com.intellij.vcsUtil.VcsUtil;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import org.jetbrains.annotations.Nls;
@@ -62,6 +65,7 @@ import org.jetbrains.idea.perforce.application.*;
 import org.jetbrains.idea.perforce.application.annotation.AnnotationInfo;
 import org.jetbrains.idea.perforce.changesBrowser.FileChange;
 import org.jetbrains.idea.perforce.merge.BaseRevision;
+import org.jetbrains.idea.perforce.perforce.connections.AbstractP4Connection;
 import org.jetbrains.idea.perforce.perforce.connections.P4Connection;
 import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManager;
 import org.jetbrains.idea.perforce.perforce.connections.PerforceConnectionManagerI;
@@ -83,6 +87,8 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -95,6 +101,7 @@ public final class PerforceRunner implements PerforceRunnerI {
 
   private static final int MAX_LOG_LENGTH = 10*1000*1000;
   private static final int OPENED_SIZE = 50;
+  private static final int PRINT_BATCH_SIZE = 100;
 
   @NonNls static final String PASSWORD_INVALID_MESSAGE = "Perforce password (P4PASSWD) invalid or unset";
   @NlsSafe public static final String PASSWORD_INVALID_MESSAGE2 = "Password invalid.";
@@ -131,6 +138,7 @@ public final class PerforceRunner implements PerforceRunnerI {
 
   @NonNls public static final String CLIENTSPEC_ROOT = "Root:";
   @NonNls public static final String CLIENTSPEC_ALTROOTS = "AltRoots:";
+  @NonNls public static final String CLIENTSPEC_LINE_END = "LineEnd:";
 
   @NonNls public static final String USER_NAME = "User name:";
   @NonNls public static final String CLIENT_NAME = "Client name:";
@@ -155,6 +163,10 @@ public final class PerforceRunner implements PerforceRunnerI {
 
   private static final int CHUNK_SIZE = SystemProperties.getIntProperty("p4.chunk.size", 2000);
 
+  @NonNls private static final Set<String> MODIFYING_COMMANDS = Set.of(
+    "add", "edit", "delete", "revert", "reopen", "move", "integrate", "copy", "merge", "resolve", "submit", "change", "shelve",
+    "unshelve", "sync", "lock", "unlock", "fix");
+
   public static final String[] CHANGE_FORM_FIELDS = new String[]{CHANGE,
     DATE,
     CLIENT,
@@ -188,6 +200,7 @@ public final class PerforceRunner implements PerforceRunnerI {
 
   private final PerforceManager myPerforceManager;
   private final LoginSupport myLoginManager;
+  private final AtomicLong myModificationCount = new AtomicLong();
 
   public static PerforceRunner getInstance(Project project) {
     return project.getService(PerforceRunner.class);
@@ -283,16 +296,24 @@ public final class PerforceRunner implements PerforceRunnerI {
     for (P4File file : files) {
       p4Args.add(file.getEscapedPath());
     }
-    ExecResult execResult = executeP4Command(new String[]{"fstat"}, p4Args, null, new PerforceContext(connection));
-
-    final Map<P4File, FStat> result = new LinkedHashMap<>();
-    String stderr = execResult.getStderr();
 
     final Map<String, P4File> path2File = CollectionFactory.createFilePathMap();
     for (P4File file : files) {
       path2File.put(FileUtil.toSystemIndependentName(file.getLocalPath()), file);
     }
 
+    if (isTaggedOutputEnabled()) {
+      Map<P4File, FStat> tagged = fstatTagged(p4Args, path2File, connection);
+      if (tagged != null) {
+        return tagged;
+      }
+    }
+
+    ExecResult execResult = executeP4Command(new String[]{"fstat"}, p4Args, null, new PerforceContext(connection));
+
+    final Map<P4File, FStat> result = new LinkedHashMap<>();
+    String stderr = execResult.getStderr();
+
     for (String line : StringUtil.splitByLines(stderr)) {
       int index = line.indexOf(NO_SUCH_FILE_MESSAGE);
       if (index < 0) index = line.indexOf(NOT_IN_CLIENT_VIEW_MESSAGE);
@@ -332,6 +353,84 @@ public final class PerforceRunner implements PerforceRunnerI {
     return result;
   }
 
+  /**
+   * @return null if the server reported an authentication problem: the plain-text path handles silent re-login
+   */
+  @Nullable
+  private Map<P4File, FStat> fstatTagged(Collection<String> p4Args, Map<String, P4File> path2File, @NotNull P4Connection connection)
+    throws VcsException {
+    ExecResult execResult = executeP4Command(new String[]{"-G", "fstat"}, p4Args, null, new PerforceContext(connection));
+    checkError(execResult, connection);
+
+    final Map<P4File, FStat> result = new LinkedHashMap<>();
+    boolean completed = forEachTaggedRecord(execResult, connection, record -> {
+      if (P4MarshalReader.isError(record)) {
+        String message = P4MarshalReader.getMessage(record);
+        int index = message.indexOf(NO_SUCH_FILE_MESSAGE);
+        if (index < 0) index = message.indexOf(NOT_IN_CLIENT_VIEW_MESSAGE);
+        if (index < 0) {
+          throw createCorrectException(message, mySettings, connection);
+        }
+        FStat fStat = new FStat();
+        fStat.status = message.contains(NO_SUCH_FILE_MESSAGE) ? FStat.Status.NOT_ADDED : FStat.Status.NOT_IN_CLIENTSPEC;
+        result.put(getP4FileByPath(message.substring(0, index), path2File), fStat);
+      }
+      else {
+        FStat fStat = FStat.fromTaggedRecord(record);
+        result.put(getP4FileByPath(fStat.clientFile, path2File), fStat);
+      }
+    });
+    return completed ? result : null;
+  }
+
+  private static boolean isTaggedOutputEnabled() {
+    return Registry.is("p4.use.tagged.output");
+  }
+
+  /**
+   * Streams the records of a {@code p4 -G} command to the consumer.
+   * @return false if the records contain an authentication error, in which case the command should be rerun in plain-text mode
+   */
+  private boolean forEachTaggedRecord(ExecResult execResult,
+                                      @NotNull P4Connection connection,
+                                      ThrowableConsumer<Map<String, String>, VcsException> consumer) throws VcsException {
+    Ref<Boolean> authProblem = Ref.create(false);
+    try {
+      execResult.allowSafeStdoutUsage(stream -> {
+        P4MarshalReader reader = new P4MarshalReader(stream, execResult.getCharset());
+        Map<String, String> record;
+        while ((record = reader.readRecord()) != null) {
+          if (P4MarshalReader.isError(record) && isAuthenticationProblem(P4MarshalReader.getMessage(record))) {
+            authProblem.set(true);
+            return;
+          }
+          try {
+            consumer.consume(record);
+          }
+          catch (VcsException e) {
+            throw new IOException(e);
+          }
+        }
+      });
+    }
+    catch (IOException e) {
+      if (e.getCause() instanceof VcsException) {
+        throw (VcsException)e.getCause();
+      }
+      throw new VcsException(e);
+    }
+    if (authProblem.get()) {
+      myLoginManager.notLogged(connection);
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isAuthenticationProblem(String message) {
+    return message.contains(SESSION_EXPIRED_MESSAGE) || message.contains(PASSWORD_INVALID_MESSAGE) ||
+           message.contains(PASSWORD_NOT_ALLOWED_MESSAGE) || message.contains(PASSWORD_EXPIRED);
+  }
+
   private static P4File getP4FileByPath(String path, Map<String, P4File> path2File) throws VcsException {
     String clientFile = P4File.unescapeWildcards(FileUtil.toSystemIndependentName(path));
     P4File p4File = path2File.get(clientFile);
@@ -707,6 +806,20 @@ public final class PerforceRunner implements PerforceRunnerI {
     return parsePerforceChangeLists(execResult.getStdout(), connection, new PerforceChangeCache(myProject));
   }
 
+  /**
+   * Incremented each time a command which can modify files or changelists is run from the IDE.
+   */
+  public long getModificationCount() {
+    return myModificationCount.get();
+  }
+
+  private static boolean isModifyingCommand(String[] p4cmd) {
+    String name = AbstractP4Connection.getCommandName(p4cmd);
+    if (name == null || !MODIFYING_COMMANDS.contains(name)) return false;
+    // previews and form output don't modify anything
+    return !ArrayUtil.contains("-n", p4cmd) && !ArrayUtil.contains("-o", p4cmd);
+  }
+
   public void setChangeRevisionsFromHave(P4Connection connection, List<PerforceChange> result) throws VcsException {
     final List<FilePath> files = new ArrayList<>();
     for (PerforceChange perforceChange : result) {
@@ -1006,6 +1119,26 @@ public final class PerforceRunner implements PerforceRunnerI {
     return parsePerforceChangeLists(execResult.getStdout(), connection, new PerforceChangeCache(myProject));
   }
 
+  /**
+   * @param maxCount the number of the newest changelists to return, or 0 for all of them
+   * @return the headers of the submitted changelists affecting the file spec, newest first
+   */
+  public List<ChangeListData> getSubmittedChangeListHeaders(@NotNull P4Connection connection, @NotNull String fileSpec, int maxCount)
+    throws VcsException {
+    final CommandArguments arguments = CommandArguments.createOn(P4Command.changes);
+    arguments.append("-s").append("submitted");
+    appendTArg(arguments, connection);
+    arguments.append("-l");
+    if (maxCount > 0) {
+      arguments.append("-m").append(maxCount);
+    }
+    arguments.append(fileSpec);
+
+    final ExecResult execResult = executeP4Command(arguments.getArguments(), connection);
+    checkError(execResult, connection);
+    return OutputMessageParser.processChangesOutput(execResult.getStdout());
+  }
+
   private static String dateSpec(final Date after, final Date before, final Long afterChange, final Long beforeChange, boolean strictlyAfter) {
 
     if (after == null && before == null && afterChange == null && beforeChange == null) {
@@ -1056,7 +1189,7 @@ public final class PerforceRunner implements PerforceRunnerI {
   }
 
   public List<PerforceChange> opened(final P4Connection connection, final Collection<FilePath> paths, boolean throwIfNotUnderClient) throws VcsException {
-    if (paths.size() > OPENED_SIZE) {
+    if (paths.size() > OPENED_SIZE && !isStdinBatchingEnabled()) {
       List<PerforceChange> result = new ArrayList<>();
       for (List<FilePath> filePaths : JBIterable.from(paths).split(OPENED_SIZE, false)) {
         result.addAll(openedImpl(connection, filePaths, throwIfNotUnderClient));
@@ -1067,11 +1200,11 @@ public final class PerforceRunner implements PerforceRunnerI {
   }
 
   private List<PerforceChange> openedImpl(final P4Connection connection, final Collection<FilePath> paths, final boolean throwIfNotUnderClient) throws VcsException {
-    final CommandArguments args = CommandArguments.createOn(P4Command.opened);
+    final List<String> args = new ArrayList<>(paths.size());
     for (FilePath path : paths) {
-      args.append(P4File.create(path).getEscapedPath());
+      args.add(P4File.create(path).getEscapedPath());
     }
-    final ExecResult execResult = executeP4Command(args.getArguments(), connection);
+    final ExecResult execResult = executeP4Command(new String[]{P4Command.opened.getName()}, args, null, new PerforceContext(connection));
     final String err = StringUtil.toLowerCase(execResult.getStderr());
     if ((! throwIfNotUnderClient) && (err.contains(STANDARD_REVERT_UNCHANGED_ERROR_MESSAGE) ||
         err.contains(NOT_UNDER_CLIENT_ROOT_MESSAGE) || err.contains(NOT_IN_CLIENT_VIEW_MESSAGE))) {
@@ -1198,7 +1331,7 @@ public final class PerforceRunner implements PerforceRunnerI {
       CLIENTSPEC_ROOT,
       CLIENTSPEC_ALTROOTS,
       CLIENT_OPTIONS,
-      "LineEnd:",
+      CLIENTSPEC_LINE_END,
       VIEW});
   }
 
@@ -1210,6 +1343,15 @@ public final class PerforceRunner implements PerforceRunnerI {
     return getByteContent(baseRevision.getDepotPath(), baseRevision.getRevisionNum(), connection);
   }
   public byte @NotNull [] getByteContent(final String depotPath, @Nullable final String revisionNumber, @NotNull P4Connection connection) throws VcsException {
+    PerforceContentCache contentCache = PerforceContentCache.getInstance(myProject);
+    String cacheKey = PerforceContentCache.getCacheKey(connection, depotPath, revisionNumber);
+    if (cacheKey != null) {
+      byte[] cached = contentCache.get(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
     File tempFile = null;
     try {
       tempFile = FileUtil.createTempFile("ijP4Print", "");
@@ -1217,7 +1359,11 @@ public final class PerforceRunner implements PerforceRunnerI {
       final ExecResult execResult = executeP4Command(p4args, connection);
       checkError(execResult, connection);
       ContentRevisionCache.checkContentsSize(depotPath, tempFile.length());
-      return FileUtil.loadFileBytes(tempFile);
+      byte[] content = FileUtil.loadFileBytes(tempFile);
+      if (cacheKey != null) {
+        contentCache.put(cacheKey, tempFile.toPath());
+      }
+      return content;
     }
     catch (IOException e) {
       throw new VcsException(e);
@@ -1234,6 +1380,73 @@ public final class PerforceRunner implements PerforceRunnerI {
     return getByteContent(getDepotPath(p4File), revisionNumber, getNotNullConnection(p4File));
   }
 
+  /**
+   * Prints many file revisions with one {@code p4 -G print} per {@link #PRINT_BATCH_SIZE} files, instead of one process per file.
+   * Each file is passed to {@code consumer} as soon as it's read, so only one of them is held in memory at a time.
+   * @param fileSpecs single file revisions, e.g. {@code path#rev}
+   * @param consumer receives the contents by file spec; specs that couldn't be printed or are too large to be loaded are skipped
+   */
+  public void getByteContents(@NotNull List<String> fileSpecs,
+                              @NotNull P4Connection connection,
+                              @NotNull BiConsumer<? super String, ? super byte[]> consumer) throws VcsException {
+    if (fileSpecs.isEmpty()) return;
+
+    String lineEnd = myPerforceManager.getClient(connection).getLineEnd();
+    for (List<String> batch : Lists.partition(fileSpecs, PRINT_BATCH_SIZE)) {
+      ProgressManager.checkCanceled();
+      if (!printBatch(batch, connection, lineEnd, consumer)) return;
+    }
+  }
+
+  /**
+   * Same as {@link #getByteContents(List, P4Connection, BiConsumer)}, for a few revisions whose contents are all needed at once.
+   * @return contents by file spec
+   */
+  @NotNull
+  public Map<String, byte[]> getByteContents(@NotNull List<String> fileSpecs, @NotNull P4Connection connection) throws VcsException {
+    Map<String, byte[]> contents = new HashMap<>();
+    getByteContents(fileSpecs, connection, contents::put);
+    return contents;
+  }
+
+  /**
+   * @return false if the user isn't logged in
+   */
+  private boolean printBatch(@NotNull List<String> fileSpecs,
+                             @NotNull P4Connection connection,
+                             @Nullable String lineEnd,
+                             @NotNull BiConsumer<? super String, ? super byte[]> consumer) throws VcsException {
+    ExecResult execResult = executeP4Command(new String[]{"-G", "print"}, fileSpecs, null, new PerforceContext(connection));
+    checkError(execResult, connection);
+
+    P4PrintOutputSplitter splitter = new P4PrintOutputSplitter(fileSpecs, lineEnd, consumer);
+    Ref<Boolean> authProblem = Ref.create(false);
+    try {
+      execResult.allowSafeStdoutUsage(stream -> {
+        P4MarshalReader reader = new P4MarshalReader(stream, execResult.getCharset());
+        Map<String, byte[]> record;
+        while ((record = reader.readRawRecord()) != null) {
+          ProgressManager.checkCanceled();
+          if (P4MarshalReader.CODE_ERROR.equals(reader.getString(record, P4MarshalReader.CODE_KEY)) &&
+              isAuthenticationProblem(StringUtil.notNullize(reader.getString(record, P4MarshalReader.DATA_KEY)))) {
+            authProblem.set(true);
+            return;
+          }
+          splitter.consume(reader, record);
+        }
+        splitter.finish();
+      });
+    }
+    catch (IOException e) {
+      throw new VcsException(e);
+    }
+    if (authProblem.get()) {
+      myLoginManager.notLogged(connection);
+      return false;
+    }
+    return true;
+  }
+
   private String getDepotPath(P4File p4File) throws VcsException {
     return p4File.getFstat(myProject, true).depotFile;
   }
@@ -1450,7 +1663,13 @@ public final class PerforceRunner implements PerforceRunnerI {
 
     PerforceContext context = new PerforceContext(connection, longTimeout, false);
 
-    for (List<String> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(filesSpec)), CHUNK_SIZE)) {
+    List<String> uniqueSpecs = new ArrayList<>(new LinkedHashSet<>(filesSpec));
+    // arguments piped via stdin are processed by one p4 process, so there's no need to spawn one per chunk
+    int chunkSize = isStdinBatchingEnabled() ? Math.max(uniqueSpecs.size(), 1) : CHUNK_SIZE;
+    for (List<String> chunk : Lists.partition(uniqueSpecs, chunkSize)) {
+      if (isTaggedOutputEnabled() && haveTagged(chunk, context, consumer)) {
+        continue;
+      }
       final ExecResult execResult = executeP4Command(new String[]{"have"}, chunk, null, context);
       final String stderr = execResult.getStderr();
       final boolean notUnderRoot = stderr.contains(NOT_ON_CLIENT_MESSAGE) || stderr.contains(NOT_UNDER_CLIENT_ROOT_MESSAGE);
@@ -1484,6 +1703,37 @@ public final class PerforceRunner implements PerforceRunnerI {
     }
   }
 
+  /**
+   * @return false if the command should be rerun in plain-text mode; nothing is passed to the consumer in that case
+   */
+  private boolean haveTagged(List<String> filesSpec, PerforceContext context, P4HaveParser consumer) throws VcsException {
+    final ExecResult execResult = executeP4Command(new String[]{"-G", "have"}, filesSpec, null, context);
+    checkError(execResult, context.connection);
+    // an authentication error may come after some records, and the rerun reports them again
+    Object2LongMap<String> revisions = new Object2LongLinkedOpenHashMap<>();
+    P4HaveParser collector = new P4HaveParser.RevisionCollector(myPerforceManager, revisions);
+    boolean completed = forEachTaggedRecord(execResult, context.connection, record -> {
+      if (P4MarshalReader.isError(record)) {
+        String message = P4MarshalReader.getMessage(record);
+        // see doHave for the "Invalid revision number" case
+        if (message.contains(NOT_ON_CLIENT_MESSAGE) || message.contains(NOT_UNDER_CLIENT_ROOT_MESSAGE) ||
+            message.contains(INVALID_REVISION_NUMBER)) {
+          LOG.debug("Problem while doing 'have': " + message);
+          return;
+        }
+        throw createCorrectException(message, mySettings, context.connection);
+      }
+      collector.consumeTaggedRecord(record);
+    });
+    if (!completed) {
+      return false;
+    }
+    for (Object2LongMap.Entry<String> entry : revisions.object2LongEntrySet()) {
+      consumer.consumeRevision(entry.getKey(), entry.getLongValue());
+    }
+    return true;
+  }
+
   public P4Revision[] filelog(final P4File file, boolean showBranches) throws VcsException {
     return filelog(getNotNullConnection(file), file.getRecursivePath(), showBranches);
   }
@@ -1573,7 +1823,7 @@ public final class PerforceRunner implements PerforceRunnerI {
     return version.getVersionYear() > 2005 || version.getVersionYear() == 2005 && version.getVersionNum() >= 2;
   }
 
-  private boolean isAnnotateIgnoringWhitespaceSupported(@Nullable final P4Connection connection) throws VcsException {
+  public boolean isAnnotateIgnoringWhitespaceSupported(@Nullable final P4Connection connection) throws VcsException {
     return isAnnotateBranchSupported(connection);
   }
 
@@ -1665,14 +1915,22 @@ public final class PerforceRunner implements PerforceRunnerI {
       }
 
       final String[] p4args;
-      if (shouldPassArgumentsViaFile(args)) {
+      StringBuffer input = inputStream;
+      if (shouldPassArgumentsViaStdin(args, inputStream)) {
+        // a single p4 process (and a single server connection) handles the whole argument list
+        input = new StringBuffer(StringUtil.join(args, "\n"));
+        p4args = ArrayUtil.mergeArrays(new String[]{"-x", "-"}, p4cmd);
+      } else if (shouldPassArgumentsViaFile(args)) {
         tempFile = createArgumentFile(args);
         p4args = ArrayUtil.mergeArrays(new String[]{"-x", tempFile.getPath()}, p4cmd);
       } else {
         p4args = ArrayUtil.mergeArrays(p4cmd, ArrayUtilRt.toStringArray(args));
       }
 
-      ctx.runP4Command(mySettings, p4args, retVal, inputStream);
+      if (isModifyingCommand(p4cmd)) {
+        myModificationCount.incrementAndGet();
+      }
+      ctx.runP4Command(mySettings, p4args, retVal, input);
     }
     catch (PerforceTimeoutException | VcsException | InterruptedException | IOException e) {
       retVal.setException(e);
@@ -1722,6 +1980,15 @@ public final class PerforceRunner implements PerforceRunnerI {
     }
   }
 
+  private static boolean shouldPassArgumentsViaStdin(Collection<String> args, @Nullable StringBuffer inputStream) {
+    // stdin is already taken by commands reading a form (change -i, etc.), those use an argument file instead
+    return inputStream == null && isStdinBatchingEnabled() && shouldPassArgumentsViaFile(args);
+  }
+
+  private static boolean isStdinBatchingEnabled() {
+    return Registry.is("p4.pass.arguments.via.stdin");
+  }
+
   private static boolean shouldPassArgumentsViaFile(Collection<String> args) {
     int totalLength = 0;
     for (String arg : args) {
@@ -38,8 +38,10 @@ import com.intellij.util.EmptyConsumer;
 import com.intellij.util.MemoryDumpHelper;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 import org.jetbrains.idea.perforce.PerforceBundle;
+import org.jetbrains.idea.perforce.StreamGobbler;
 import org.jetbrains.idea.perforce.application.PerforceManager;
 import org.jetbrains.idea.perforce.application.PerforceVcs;
 import org.jetbrains.idea.perforce.perforce.*;
@@ -58,6 +60,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -146,7 +149,7 @@ public abstract class AbstractP4Connection implements P4Connection {
     setEnvironment(cwd, cmd.getEnvironment());
 
     final CommandDebugInfoWrapper debugInfoWrapper = new CommandDebugInfoWrapper(cmd);
-    final Tracer tracer = new Tracer(project, p4args.length > 0 ? p4args[0] : "", debugInfoWrapper);
+    final Tracer tracer = new Tracer(project, getServerForStatistics(), StringUtil.notNullize(getCommandName(p4args)), debugInfoWrapper);
 
     debugCmd(cwd, debugInfoWrapper, cmd.getEnvironment());
 
@@ -154,12 +157,14 @@ public abstract class AbstractP4Connection implements P4Connection {
     Process proc = null;
     MyInterruptibleProcess worker = null;
     PerforceProcessWaiter processWaiter = null;
+    Future<?> inputWriter = null;
     String processList = null;
     try {
       tracer.start();
       proc = cmd.createProcess();
+      tracer.processStarted();
       if (inputData != null) {
-        passInputToProcess(inputData.toString(), proc, perforceSettings);
+        inputWriter = passInputToProcess(inputData.toString(), proc, perforceSettings);
       }
 
       worker = new MyInterruptibleProcess(project, proc, perforceSettings.getServerTimeout());
@@ -167,6 +172,10 @@ public abstract class AbstractP4Connection implements P4Connection {
       processWaiter = new PerforceProcessWaiter();
       worker.setOnBeforeInterrupt(processWaiter::cancelListeners);
       rc = processWaiter.execute(worker, perforceSettings.getServerTimeout());
+      if (rc == 0 && inputWriter != null) {
+        // p4 has exited, so the writer is either finished or failed on a closed pipe
+        inputWriter.get();
+      }
     }
     catch (ExecutionException e) {
       throw new RuntimeException(e.getCause());
@@ -179,7 +188,10 @@ public abstract class AbstractP4Connection implements P4Connection {
         processList = ProcessHandle.allProcesses().map(h -> h.pid() + ": " + h.info()).collect(Collectors.joining("\n"));
       }
 
-      tracer.stop();
+      tracer.stop(processWaiter, rc);
+      if (inputWriter != null) {
+        inputWriter.cancel(true);
+      }
       if (worker != null) {
         worker.closeProcess();
       } else if (proc != null) {
@@ -275,7 +287,7 @@ public abstract class AbstractP4Connection implements P4Connection {
 
   private static GeneralCommandLine fillCmdLine(PerforcePhysicalConnectionParametersI perforceSettings, String[] connArgs, String[] p4args) {
     GeneralCommandLine cmd = new GeneralCommandLine(perforceSettings.getPathToExec());
-    String cmdName = p4args.length == 0 ? null : p4args[0];
+    String cmdName = getCommandName(p4args);
     if (ourCommandCallback != EmptyConsumer.getInstance()) {
       ourCommandCallback.consume(StringUtil.join(p4args, " "));
     }
@@ -291,6 +303,23 @@ public abstract class AbstractP4Connection implements P4Connection {
     return cmd;
   }
 
+  /**
+   * @return the p4 command name, skipping the global options (like {@code -x file} or {@code -G}) which may precede it
+   */
+  @Nullable
+  public static String getCommandName(String[] p4args) {
+    for (int i = 0; i < p4args.length; i++) {
+      String arg = p4args[i];
+      if (!arg.startsWith("-")) {
+        return arg;
+      }
+      if (arg.equals("-x") || arg.equals("-b")) {
+        i++; // skip the option value
+      }
+    }
+    return null;
+  }
+
   private static void setEnvironment(File cwd, Map<String, String> env) {
     // On Unix, Perforce relies on the "PWD" variable to determine its current working directory
     // for finding .p4config.  We need to make sure it matches the directory we want to use.
@@ -299,9 +328,11 @@ public abstract class AbstractP4Connection implements P4Connection {
     env.putAll(ourTestEnvironment);
   }
 
-  private static void passInputToProcess(String inputData, Process proc, final PerforcePhysicalConnectionParametersI perforceSettings) throws IOException {
-    final OutputStream outputStream = proc.getOutputStream();
-
+  /**
+   * Input is written on a pooled thread: p4 may start producing output before it has read all of its input
+   * (e.g. a long argument list passed via {@code -x -}), and writing everything up front would block on a full stdout pipe.
+   */
+  private static Future<?> passInputToProcess(String inputData, Process proc, final PerforcePhysicalConnectionParametersI perforceSettings) {
     String charsetName = perforceSettings.getCharsetName();
     byte[] bytes;
     try {
@@ -314,9 +345,19 @@ public abstract class AbstractP4Connection implements P4Connection {
       //noinspection SSBasedInspection
       bytes = inputData.getBytes(StandardCharsets.UTF_8);
     }
-    outputStream.write(bytes);
-    // must close or p4 won't read input
-    outputStream.close();
+    return ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      // must close or p4 won't read input
+      try (OutputStream outputStream = proc.getOutputStream()) {
+        outputStream.write(bytes);
+      }
+      catch (IOException e) {
+        if (proc.isAlive()) {
+          throw new RuntimeException(e);
+        }
+        // the process has already exited (or was killed on cancel/timeout); its own result is reported by the waiter
+        LOG.debug(e);
+      }
+    });
   }
 
   private static final class CommandDebugInfoWrapper {
@@ -411,26 +452,52 @@ public abstract class AbstractP4Connection implements P4Connection {
     }
   }
 
+  private String getServerForStatistics() {
+    try {
+      return StringUtil.notNullize(getConnectionKey().getServer());
+    }
+    catch (UnsupportedOperationException e) {
+      return "";
+    }
+  }
+
   private static class Tracer {
     private final PerforceManager myPm;
+    private final String myServer;
     @NotNull
     private final P4Command myCommand;
     private final CommandDebugInfoWrapper myWrapper;
     private Object myContext;
+    private long myStartTime;
+    private long mySpawnTime;
 
-    Tracer(final Project project, final String commandName, final CommandDebugInfoWrapper wrapper) {
+    Tracer(final Project project, final String server, final String commandName, final CommandDebugInfoWrapper wrapper) {
       myPm = PerforceManager.getInstance(project);
+      myServer = server;
       myCommand = P4Command.getInstance(commandName);
       myWrapper = wrapper;
     }
 
     void start() {
+      myStartTime = System.nanoTime();
       if (myPm.isTraceEnabled()) {
         myContext = myPm.traceEnter(myCommand, myWrapper.getPresentation());
       }
     }
 
-    void stop() {
+    void processStarted() {
+      mySpawnTime = System.nanoTime() - myStartTime;
+    }
+
+    void stop(@Nullable PerforceProcessWaiter processWaiter, int rc) {
+      long bytesReceived = 0;
+      if (processWaiter != null) {
+        StreamGobbler out = processWaiter.getInStreamListener();
+        StreamGobbler err = processWaiter.getErrStreamListener();
+        bytesReceived = (out == null ? 0 : out.getResultLength()) + (err == null ? 0 : err.getResultLength());
+      }
+      myPm.getCommandStatistics().record(myServer, myCommand, mySpawnTime, System.nanoTime() - myStartTime, bytesReceived, rc != 0);
+
       if (myPm.isTraceEnabled()) {
         if (myContext == null) {
           LOG.info("Tracing problem: no enter was registered for " + myWrapper.getPresentation());
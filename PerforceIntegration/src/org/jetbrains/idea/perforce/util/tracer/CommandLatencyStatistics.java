@@ -0,0 +1,112 @@
+package org.jetbrains.idea.perforce.util.tracer;
+
+import com.intellij.openapi.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on latency histograms of the executed commands, by server and command kind: the wall time of every call,
+ * the part of it spent starting the process, and the bytes it printed. Unlike the other statistics of this package,
+ * nothing is logged; the current state is exported with {@link #toJson()}.
+ */
+public final class CommandLatencyStatistics<Kind extends Enum<Kind>> {
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99_9"};
+
+  private final Map<Pair<String, Kind>, Entry> myEntries = new ConcurrentHashMap<>();
+  private volatile long myStartTime = System.currentTimeMillis();
+
+  /**
+   * @param failed whether the process couldn't be started or didn't finish in time; exit codes aren't failures here
+   */
+  public void record(@NotNull String server, @NotNull Kind kind, long spawnNanos, long totalNanos, long bytesReceived, boolean failed) {
+    Entry entry = myEntries.computeIfAbsent(new Pair<>(server, kind), k -> new Entry());
+    entry.spawn.record(TimeUnit.NANOSECONDS.toMicros(spawnNanos));
+    entry.total.record(TimeUnit.NANOSECONDS.toMicros(totalNanos));
+    entry.bytesReceived.add(bytesReceived);
+    if (failed) {
+      entry.failures.increment();
+    }
+  }
+
+  public void reset() {
+    myEntries.clear();
+    myStartTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Times are in milliseconds, entries are sorted by the total time spent, largest first.
+   */
+  @NotNull
+  public String toJson() {
+    List<Map.Entry<Pair<String, Kind>, Entry>> entries = new ArrayList<>(myEntries.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<Pair<String, Kind>, Entry> e) -> e.getValue().total.getTotal()).reversed());
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\n  \"since\": ").append(quote(Instant.ofEpochMilli(myStartTime).toString()));
+    sb.append(",\n  \"commands\": [");
+    for (int i = 0; i < entries.size(); i++) {
+      Pair<String, Kind> key = entries.get(i).getKey();
+      Entry entry = entries.get(i).getValue();
+      sb.append(i == 0 ? "\n" : ",\n");
+      sb.append("    {\"server\": ").append(quote(key.getFirst()));
+      sb.append(", \"command\": ").append(quote(key.getSecond().name()));
+      sb.append(", \"count\": ").append(entry.total.getCount());
+      sb.append(", \"failures\": ").append(entry.failures.sum());
+      sb.append(", \"bytesReceived\": ").append(entry.bytesReceived.sum());
+      sb.append(",\n     \"time\": ");
+      putHistogram(sb, entry.total);
+      sb.append(",\n     \"spawnTime\": ");
+      putHistogram(sb, entry.spawn);
+      sb.append('}');
+    }
+    sb.append(entries.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    return sb.toString();
+  }
+
+  private static void putHistogram(StringBuilder sb, LatencyHistogram histogram) {
+    sb.append("{\"total\": ").append(millis(histogram.getTotal()));
+    sb.append(", \"mean\": ").append(millis(histogram.getMean()));
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      sb.append(", \"").append(PERCENTILE_NAMES[i]).append("\": ").append(millis(histogram.getValueAtPercentile(PERCENTILES[i])));
+    }
+    sb.append(", \"max\": ").append(millis(histogram.getMax())).append('}');
+  }
+
+  private static String millis(double micros) {
+    return String.format(Locale.ROOT, "%.3f", micros / 1000);
+  }
+
+  private static String quote(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      }
+      else if (c < ' ') {
+        sb.append(String.format(Locale.ROOT, "\\u%04x", (int)c));
+      }
+      else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  private static final class Entry {
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram spawn = new LatencyHistogram();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+  }
+}
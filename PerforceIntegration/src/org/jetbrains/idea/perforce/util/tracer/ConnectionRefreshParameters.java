@@ -0,0 +1,14 @@
+package org.jetbrains.idea.perforce.util.tracer;
+
+public class ConnectionRefreshParameters extends TracerParameters {
+  private final long myBudget;
+
+  public ConnectionRefreshParameters(long intervalInMillis, int historyQueueSize, long budget) {
+    super(intervalInMillis, historyQueueSize);
+    myBudget = budget;
+  }
+
+  public long getBudget() {
+    return myBudget;
+  }
+}
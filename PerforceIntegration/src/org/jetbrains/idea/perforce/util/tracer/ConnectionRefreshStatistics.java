@@ -0,0 +1,104 @@
+package org.jetbrains.idea.perforce.util.tracer;
+
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Time;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Time spent refreshing each connection, compared against a per-connection time budget.
+ */
+class ConnectionRefreshStatistics
+  extends IntervalStatistics<ConnectionRefreshStatistics.Sample, ConnectionRefreshStatistics.Data, ConnectionRefreshStatistics.Total> {
+  private final long myBudget;
+
+  ConnectionRefreshStatistics(long intervalInMillis, int historyQueueSize, long budget, @Nullable Runnable switchListener) {
+    super(intervalInMillis, historyQueueSize, () -> new Data(), () -> new Total(), switchListener);
+    myBudget = budget;
+  }
+
+  void refreshed(@NotNull String connection, long millis) {
+    step(new Sample(connection, millis, millis > myBudget));
+  }
+
+  void putSelf(StringBuilder sb) {
+    sb.append("Refresh time by connection (budget ").append(myBudget).append(" ms)\nTotal:\n");
+    putData(sb, getAverage());
+
+    final List<Timed<Data>> list = receiveRecentComplete();
+    sb.append("\nRecently:\n");
+    for (Timed<Data> timed : list) {
+      sb.append("Statistics at ").append(new Time(timed.getTime())).append('\n');
+      putData(sb, timed.getT());
+    }
+  }
+
+  private static void putData(StringBuilder sb, Totals data) {
+    for (Map.Entry<String, Entry> entry : data.getMap().entrySet()) {
+      Entry value = entry.getValue();
+      sb.append(entry.getKey()).append(": ")
+        .append(value.myTotal / value.myCount).append(" ms average, ")
+        .append(value.myMax).append(" ms max, ")
+        .append(value.myOverBudget).append(" of ").append(value.myCount).append(" over budget\n");
+    }
+  }
+
+  static final class Sample {
+    private final String myConnection;
+    private final long myMillis;
+    private final boolean myOverBudget;
+
+    Sample(String connection, long millis, boolean overBudget) {
+      myConnection = connection;
+      myMillis = millis;
+      myOverBudget = overBudget;
+    }
+  }
+
+  private static final class Entry {
+    private long myTotal;
+    private long myMax;
+    private int myCount;
+    private int myOverBudget;
+
+    void add(long total, long max, int count, int overBudget) {
+      myTotal += total;
+      myMax = Math.max(myMax, max);
+      myCount += count;
+      myOverBudget += overBudget;
+    }
+  }
+
+  private abstract static class Totals {
+    private final Map<String, Entry> myMap = new TreeMap<>();
+
+    protected Entry entry(String connection) {
+      return myMap.computeIfAbsent(connection, k -> new Entry());
+    }
+
+    Map<String, Entry> getMap() {
+      return myMap;
+    }
+  }
+
+  static final class Data extends Totals implements Consumer<Sample> {
+    @Override
+    public void consume(Sample sample) {
+      entry(sample.myConnection).add(sample.myMillis, sample.myMillis, 1, sample.myOverBudget ? 1 : 0);
+    }
+  }
+
+  static final class Total extends Totals implements Consumer<Data> {
+    @Override
+    public void consume(Data data) {
+      for (Map.Entry<String, Entry> e : data.getMap().entrySet()) {
+        Entry coming = e.getValue();
+        entry(e.getKey()).add(coming.myTotal, coming.myMax, coming.myCount, coming.myOverBudget);
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package org.jetbrains.idea.perforce.util.tracer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values with a bounded relative error, in the manner of HdrHistogram:
+ * every power-of-two range is split into {@link #SUB_BUCKETS} linear buckets, so a value is reported within 1/16 of itself
+ * and the whole {@code long} range fits into a thousand counters. Recording is a couple of atomic increments.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray myCounts = new AtomicLongArray(BUCKETS);
+  private final LongAdder myCount = new LongAdder();
+  private final LongAdder myTotal = new LongAdder();
+  private final LongAccumulator myMax = new LongAccumulator(Math::max, 0);
+
+  void record(long value) {
+    if (value < 0) value = 0;
+    myCounts.incrementAndGet(bucketIndex(value));
+    myCount.increment();
+    myTotal.add(value);
+    myMax.accumulate(value);
+  }
+
+  long getCount() {
+    return myCount.sum();
+  }
+
+  long getTotal() {
+    return myTotal.sum();
+  }
+
+  long getMax() {
+    return myMax.get();
+  }
+
+  double getMean() {
+    long count = getCount();
+    return count == 0 ? 0 : (double)getTotal() / count;
+  }
+
+  /**
+   * @param percentile from 0 to 100
+   * @return the highest value equivalent to the one at the percentile, i.e. an upper estimate of it
+   */
+  long getValueAtPercentile(double percentile) {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += myCounts.get(i);
+    }
+    if (count == 0) return 0;
+
+    long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += myCounts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) return (int)value;
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long lowestEquivalentValue(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int shift = index / SUB_BUCKETS - 1;
+    return (long)(SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+  }
+
+  static long highestEquivalentValue(int index) {
+    return index + 1 < BUCKETS ? lowestEquivalentValue(index + 1) - 1 : Long.MAX_VALUE;
+  }
+}
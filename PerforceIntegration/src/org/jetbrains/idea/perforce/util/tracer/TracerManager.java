@@ -16,10 +16,18 @@ public class TracerManager<Kind extends Enum> implements Tracer<Kind, Object> {
 
   private long myPreviousOutputTime;
   private final Runnable myInnerLogger;
+  @Nullable private final ConnectionRefreshStatistics myConnectionRefreshStatistics;
 
   public TracerManager(@Nullable final TracerParameters traceAverageTimes,
                        @Nullable final TracerParameters traceNumberConcurrentThreads,
                        @Nullable final LongCallsParameters traceLongCalls, final Logger logger, final long interval) {
+    this(traceAverageTimes, traceNumberConcurrentThreads, traceLongCalls, null, logger, interval);
+  }
+
+  public TracerManager(@Nullable final TracerParameters traceAverageTimes,
+                       @Nullable final TracerParameters traceNumberConcurrentThreads,
+                       @Nullable final LongCallsParameters traceLongCalls,
+                       @Nullable final ConnectionRefreshParameters traceConnectionRefresh, final Logger logger, final long interval) {
     myLogger = logger;
     myInterval = interval;
     myPresentations = new LinkedList<>();
@@ -34,6 +42,9 @@ public class TracerManager<Kind extends Enum> implements Tracer<Kind, Object> {
         presentation.getSecond().putSelf(sb, presentation.getFirst());
         sb.append('\n');
       }
+      if (myConnectionRefreshStatistics != null) {
+        myConnectionRefreshStatistics.putSelf(sb);
+      }
       myLogger.info(sb.toString());
       myPreviousOutputTime = currentTime;
     };
@@ -56,6 +67,15 @@ public class TracerManager<Kind extends Enum> implements Tracer<Kind, Object> {
                                       traceLongCalls.getMaxKept(), traceLongCalls.getLowerBound()),
         new LongCallsPresentation<Kind>()));
     }
+    myConnectionRefreshStatistics = traceConnectionRefresh == null ? null :
+      new ConnectionRefreshStatistics(traceConnectionRefresh.getIntervalInMillis(), traceConnectionRefresh.getHistoryQueueSize(),
+                                      traceConnectionRefresh.getBudget(), myInnerLogger);
+  }
+
+  public void connectionRefreshed(final String connection, final long millis) {
+    if (myConnectionRefreshStatistics != null) {
+      myConnectionRefreshStatistics.refreshed(connection, millis);
+    }
   }
 
   @Override
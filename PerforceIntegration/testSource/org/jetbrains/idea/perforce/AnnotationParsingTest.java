@@ -42,4 +42,28 @@ public class AnnotationParsingTest extends TestCase{
     assertEquals(2, annotationInfo.getRevision(1));
     assertEquals(300300300300300L, annotationInfo.getRevision(2));
   }
+
+  public void testExtend() throws Exception {
+    AnnotationInfo annotationInfo = new AnnotationInfo("1: a\n2: b\n1: c\n3: d\n", false);
+    AnnotationInfo extended = annotationInfo.extend("a\r\nB\r\nc\r\nnew\r\nd", 4, false);
+    assertEquals("a\nB\nc\nnew\nd\n", extended.getContent());
+    assertEquals(1, extended.getRevision(0));
+    assertEquals(4, extended.getRevision(1));
+    assertEquals(1, extended.getRevision(2));
+    assertEquals(4, extended.getRevision(3));
+    assertEquals(3, extended.getRevision(4));
+
+    AnnotationInfo shrunk = extended.extend("c\nd\n", 5, false);
+    assertEquals("c\nd\n", shrunk.getContent());
+    assertEquals(1, shrunk.getRevision(0));
+    assertEquals(3, shrunk.getRevision(1));
+  }
+
+  public void testExtendIgnoringWhitespace() throws Exception {
+    AnnotationInfo annotationInfo = new AnnotationInfo("1: int a;\n2: int b;\n", false);
+    AnnotationInfo extended = annotationInfo.extend("  int a;\nint  c;\n", 3, true);
+    assertEquals("  int a;\nint  c;\n", extended.getContent());
+    assertEquals(1, extended.getRevision(0));
+    assertEquals(3, extended.getRevision(1));
+  }
 }
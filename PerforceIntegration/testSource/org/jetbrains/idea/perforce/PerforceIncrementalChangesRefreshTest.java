@@ -0,0 +1,109 @@
+package org.jetbrains.idea.perforce;
+
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.vcs.VcsConfiguration;
+import com.intellij.openapi.vcs.VcsShowConfirmationOption;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeListManagerImpl;
+import com.intellij.openapi.vcs.changes.LocalChangeList;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.vcs.DuringChangeListManagerUpdateTestScheme;
+import org.jetbrains.idea.perforce.perforce.connections.AbstractP4Connection;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.intellij.testFramework.UsefulTestCase.assertEmpty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Pending changes refresh with {@code p4.incremental.changes.refresh} on, which reuses the described changelists between refreshes.
+ */
+public class PerforceIncrementalChangesRefreshTest extends PerforceTestCase {
+  private static final String FIRST_LIST = "first";
+  private static final String SECOND_LIST = "second";
+
+  private VirtualFile myFileA;
+  private VirtualFile myFileB;
+
+  @Override
+  public void before() throws Exception {
+    super.before();
+    Registry.get("p4.incremental.changes.refresh").setValue(true, myTestRootDisposable);
+    setStandardConfirmation("Perforce", VcsConfiguration.StandardConfirmation.ADD, VcsShowConfirmationOption.Value.DO_NOTHING_SILENTLY);
+
+    myFileA = createFileInCommand("a.txt", "");
+    myFileB = createFileInCommand("b.txt", "");
+    addFile("a.txt");
+    addFile("b.txt");
+  }
+
+  @Test
+  public void testUnchangedListsAreNotDescribedAgain() {
+    createChangeList(FIRST_LIST, Arrays.asList("//depot/a.txt", "//depot/b.txt"));
+    refreshChanges();
+    checkFilesInList(FIRST_LIST, myFileA, myFileB);
+
+    List<String> commands = new ArrayList<>();
+    AbstractP4Connection.setCommandCallback(commands::add, myTestRootDisposable);
+    refreshChanges();
+
+    assertEmpty(commands.stream().filter(s -> s.contains("describe")).toList());
+    checkFilesInList(FIRST_LIST, myFileA, myFileB);
+  }
+
+  @Test
+  public void testListCreatedExternallyTakesFilesFromKnownList() {
+    createChangeList(FIRST_LIST, Arrays.asList("//depot/a.txt", "//depot/b.txt"));
+    refreshChanges();
+    checkFilesInList(FIRST_LIST, myFileA, myFileB);
+
+    createChangeList(SECOND_LIST, Collections.singletonList("//depot/b.txt"));
+    refreshChanges();
+
+    checkFilesInList(FIRST_LIST, myFileA);
+    checkFilesInList(SECOND_LIST, myFileB);
+  }
+
+  @Test
+  public void testFileMovedExternallyToExistingList() {
+    long first = createChangeList(FIRST_LIST, Collections.singletonList("//depot/a.txt"));
+    createChangeList(SECOND_LIST, Collections.singletonList("//depot/b.txt"));
+    refreshChanges();
+    checkFilesInList(SECOND_LIST, myFileB);
+
+    // the set of changelists stays the same, only a forced refresh is guaranteed to notice it
+    moveToChangelist(first, new File(myFileB.getPath()).getAbsolutePath());
+    discardUnversionedCache();
+    refreshChanges();
+
+    checkFilesInList(FIRST_LIST, myFileA, myFileB);
+  }
+
+  @Test
+  public void testCommandFromIdeInvalidatesSnapshot() {
+    createChangeList(FIRST_LIST, Arrays.asList("//depot/a.txt", "//depot/b.txt"));
+    refreshChanges();
+    checkFilesInList(FIRST_LIST, myFileA, myFileB);
+
+    Change change = getChangeListManager().getChange(myFileB);
+    assertNotNull(change);
+    rollbackChange(change);
+    refreshChanges();
+
+    checkFilesInList(FIRST_LIST, myFileA);
+  }
+
+  private void checkFilesInList(String listName, VirtualFile... files) {
+    ChangeListManagerImpl clManager = getChangeListManager();
+    LocalChangeList list = clManager.findChangeList(listName);
+    assertNotNull(listName, list);
+    assertEquals(files.length, list.getChanges().size());
+    DuringChangeListManagerUpdateTestScheme.checkFilesAreInList(listName, clManager, files);
+  }
+}
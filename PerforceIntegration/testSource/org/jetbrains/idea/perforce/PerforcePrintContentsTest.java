@@ -0,0 +1,71 @@
+package org.jetbrains.idea.perforce;
+
+import com.intellij.openapi.vcs.VcsConfiguration;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.idea.perforce.perforce.PerforceRunner;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that printing many revisions with one {@code p4 -G print} gives the same bytes as {@code p4 print -o} for each of them.
+ */
+public class PerforcePrintContentsTest extends PerforceTestCase {
+  private static final String TEXT = "first\nsecond line\n\nпоследняя строка\n";
+
+  @Override
+  public void before() throws Exception {
+    super.before();
+    enableSilentOperation(VcsConfiguration.StandardConfirmation.ADD);
+  }
+
+  @Test
+  public void testSameContentAsPrintToFile() throws VcsException {
+    checkSameContent("default");
+  }
+
+  @Test
+  public void testSameContentWithWindowsLineEnds() throws VcsException {
+    setupClient(buildTestClientSpec() + "LineEnd:\twin");
+    checkSameContent("win");
+  }
+
+  @Test
+  public void testSameContentWithUnixLineEnds() throws VcsException {
+    setupClient(buildTestClientSpec() + "LineEnd:\tunix");
+    checkSameContent("unix");
+  }
+
+  // the depot paths differ between tests, so that PerforceContentCache doesn't answer for p4 print -o
+  private void checkSameContent(String prefix) throws VcsException {
+    VirtualFile text = createFileInCommand(prefix + ".txt", TEXT);
+    VirtualFile binary = createFileInCommand(prefix + ".bin", TEXT);
+    VirtualFile empty = createFileInCommand(prefix + "_empty.txt", "");
+    addFile(text.getName());
+    verify(runP4WithClient("add", "-t", "binary", new File(myClientRoot, binary.getName()).toString()));
+    addFile(empty.getName());
+    submitFile("//depot/" + text.getName(), "//depot/" + binary.getName(), "//depot/" + empty.getName());
+
+    PerforceRunner runner = PerforceRunner.getInstance(myProject);
+    List<String> specs = new ArrayList<>();
+    for (VirtualFile file : Arrays.asList(text, binary, empty)) {
+      specs.add("//depot/" + file.getName() + "#1");
+    }
+    Map<String, byte[]> contents = runner.getByteContents(specs, getConnection());
+
+    assertEquals(specs.size(), contents.size());
+    for (String spec : specs) {
+      int hash = spec.indexOf('#');
+      byte[] expected = runner.getByteContent(spec.substring(0, hash), spec.substring(hash), getConnection());
+      assertArrayEquals(spec, expected, contents.get(spec));
+    }
+  }
+}
@@ -8,6 +8,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.*;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.io.StreamUtil;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.*;
 import com.intellij.openapi.vcs.changes.*;
@@ -80,6 +81,11 @@ public abstract class PerforceTestCase extends AbstractJunitVcsTestCase {
     myTempDirFixture = IdeaTestFixtureFactory.getFixtureFactory().createTempDirTestFixture();
     myTempDirFixture.setUp();
     TestApplicationManager.getInstance();
+    // keep the p4 commands run by a test deterministic
+    Registry.get("p4.prefetch.revision.contents").setValue(false, myTestRootDisposable);
+    // test servers reuse depot paths and revision numbers, so annotations persisted by another test may look valid
+    Registry.get("p4.annotation.cache").setValue(false, myTestRootDisposable);
+    Registry.get("p4.committed.changes.store").setValue(false, myTestRootDisposable);
 
     String tempDir = myTempDirFixture.findOrCreateDir(FileUtil.sanitizeFileName(getTestName())).getPath();
 
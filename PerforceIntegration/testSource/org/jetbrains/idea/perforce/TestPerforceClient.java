@@ -65,6 +65,12 @@ public class TestPerforceClient implements PerforceClient {
     return Collections.emptyList();
   }
 
+  @Nullable
+  @Override
+  public String getLineEnd() {
+    return null;
+  }
+
   @Override
   public String getUserName() {
     return myUserName;
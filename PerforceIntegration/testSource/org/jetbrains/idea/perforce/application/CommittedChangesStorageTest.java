@@ -0,0 +1,156 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.idea.perforce.ChangeListData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+public class CommittedChangesStorageTest extends TestCase {
+  private Path myDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("p4changes", "").toPath();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir.toFile());
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testIncrementalSync() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    assertEquals(-1, storage.getHighestSynced("root"));
+
+    storage.appendNewer("root", List.of(change(12, "bob", "2020/01/02 10:00:00"), change(10, "alice", "2020/01/01 10:00:00")), 0, true);
+    assertEquals(12, storage.getHighestSynced("root"));
+    storage.appendNewer("root", List.of(change(15, "alice", "2020/01/03 10:00:00")), 12, true);
+
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 0), 15, 12, 10);
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 2), 15, 12);
+    assertEquals("description 12", storage.query("root", new CommittedChangesStorage.Filter(), 0).get(1).DESCRIPTION);
+  }
+
+  public void testFilters() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("root", List.of(change(3, "bob", "2020/01/03 10:00:00"), change(2, "alice", "2020/01/02 10:00:00"),
+                                        change(1, "alice", "2020/01/01 10:00:00")), 0, true);
+
+    CommittedChangesStorage.Filter byUser = new CommittedChangesStorage.Filter();
+    byUser.user = "alice";
+    assertNumbers(storage.query("root", byUser, 0), 2, 1);
+
+    CommittedChangesStorage.Filter unknownUser = new CommittedChangesStorage.Filter();
+    unknownUser.user = "carol";
+    assertTrue(storage.query("root", unknownUser, 0).isEmpty());
+
+    CommittedChangesStorage.Filter byNumber = new CommittedChangesStorage.Filter();
+    byNumber.afterChange = 2;
+    byNumber.beforeChange = 2;
+    assertNumbers(storage.query("root", byNumber, 0), 2);
+
+    CommittedChangesStorage.Filter byDate = new CommittedChangesStorage.Filter();
+    byDate.afterTime = parse("2020/01/02 00:00:00");
+    assertNumbers(storage.query("root", byDate, 0), 3, 2);
+  }
+
+  public void testSpecsShareHeaders() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("a", List.of(change(2, "bob", "2020/01/02 10:00:00"), change(1, "bob", "2020/01/01 10:00:00")), 0, true);
+    storage.appendNewer("b", List.of(change(2, "bob", "2020/01/02 10:00:00")), 0, true);
+
+    assertNumbers(storage.query("a", new CommittedChangesStorage.Filter(), 0), 2, 1);
+    assertNumbers(storage.query("b", new CommittedChangesStorage.Filter(), 0), 2);
+    assertTrue(storage.query("c", new CommittedChangesStorage.Filter(), 0).isEmpty());
+  }
+
+  public void testReopen() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("root", List.of(change(7, "bob", "2020/01/02 10:00:00")), 0, true);
+    storage.appendNewer("root", List.of(), 9, true);
+
+    CommittedChangesStorage reopened = new CommittedChangesStorage(myDir);
+    assertEquals(9, reopened.getHighestSynced("root"));
+    List<ChangeListData> changes = reopened.query("root", new CommittedChangesStorage.Filter(), 0);
+    assertNumbers(changes, 7);
+    assertEquals("bob", changes.get(0).USER);
+    assertEquals("ws-bob", changes.get(0).CLIENT);
+    assertEquals("2020/01/02 10:00:00", changes.get(0).DATE);
+  }
+
+  public void testOlderChangesAddedBelowWindow() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("root", List.of(change(9, "bob", "2020/01/09 10:00:00"), change(8, "bob", "2020/01/08 10:00:00")), 0, false);
+    assertEquals(9, storage.getHighestSynced("root"));
+    assertEquals(8, storage.getLowestSynced("root"));
+
+    storage.appendOlder("root", List.of(change(5, "bob", "2020/01/05 10:00:00"), change(4, "bob", "2020/01/04 10:00:00")), false);
+    assertEquals(4, storage.getLowestSynced("root"));
+    storage.appendOlder("root", List.of(change(2, "bob", "2020/01/02 10:00:00")), true);
+    assertEquals(0, storage.getLowestSynced("root"));
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 0), 9, 8, 5, 4, 2);
+
+    CommittedChangesStorage reopened = new CommittedChangesStorage(myDir);
+    assertEquals(9, reopened.getHighestSynced("root"));
+    assertEquals(0, reopened.getLowestSynced("root"));
+    assertNumbers(reopened.query("root", new CommittedChangesStorage.Filter(), 0), 9, 8, 5, 4, 2);
+  }
+
+  public void testIncompleteNewerChangesReplaceWindow() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("root", List.of(change(3, "bob", "2020/01/03 10:00:00"), change(2, "bob", "2020/01/02 10:00:00")), 0, true);
+    assertEquals(0, storage.getLowestSynced("root"));
+
+    // more changelists were submitted than fetched, so there may be a gap above 3
+    storage.appendNewer("root", List.of(change(20, "bob", "2020/01/20 10:00:00"), change(19, "bob", "2020/01/19 10:00:00")), 3, false);
+    assertEquals(20, storage.getHighestSynced("root"));
+    assertEquals(19, storage.getLowestSynced("root"));
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 0), 20, 19);
+
+    CommittedChangesStorage reopened = new CommittedChangesStorage(myDir);
+    assertEquals(19, reopened.getLowestSynced("root"));
+    assertNumbers(reopened.query("root", new CommittedChangesStorage.Filter(), 0), 20, 19);
+  }
+
+  public void testReadAfterClose() throws IOException {
+    CommittedChangesStorage storage = new CommittedChangesStorage(myDir);
+    storage.appendNewer("root", List.of(change(1, "bob", "2020/01/01 10:00:00")), 0, true);
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 0), 1);
+    storage.close();
+
+    storage.appendNewer("root", List.of(change(2, "bob", "2020/01/02 10:00:00")), 1, true);
+    assertNumbers(storage.query("root", new CommittedChangesStorage.Filter(), 0), 2, 1);
+    storage.close();
+  }
+
+  private static ChangeListData change(long number, String user, String date) {
+    ChangeListData data = new ChangeListData();
+    data.NUMBER = number;
+    data.USER = user;
+    data.CLIENT = "ws-" + user;
+    data.DATE = date;
+    data.DESCRIPTION = "description " + number;
+    return data;
+  }
+
+  private static long parse(String date) {
+    return Instant.from(ChangeListData.DATE_FORMAT.parse(date)).toEpochMilli();
+  }
+
+  private static void assertNumbers(List<ChangeListData> changes, long... numbers) {
+    assertEquals(numbers.length, changes.size());
+    for (int i = 0; i < numbers.length; i++) {
+      assertEquals(numbers[i], changes.get(i).NUMBER);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package org.jetbrains.idea.perforce.application;
+
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.vcsUtil.VcsUtil;
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class FilePathTrieTest extends TestCase {
+  public void testAddContainsRemove() {
+    FilePathTrie trie = new FilePathTrie(true);
+    assertTrue(trie.add(path("/root/a/b.txt")));
+    assertTrue(trie.add(path("/root/a/c.txt")));
+    assertFalse(trie.add(path("/root/a/b.txt")));
+    assertEquals(2, trie.size());
+
+    assertTrue(trie.contains(path("/root/a/b.txt")));
+    assertFalse(trie.contains(path("/root/a")));
+    assertFalse(trie.contains(path("/root/a/B.txt")));
+
+    assertTrue(trie.remove(path("/root/a/b.txt")));
+    assertFalse(trie.remove(path("/root/a/b.txt")));
+    assertFalse(trie.contains(path("/root/a/b.txt")));
+    assertTrue(trie.contains(path("/root/a/c.txt")));
+    assertEquals(1, trie.size());
+  }
+
+  public void testNestedMembers() {
+    FilePathTrie trie = new FilePathTrie(true);
+    trie.add(VcsUtil.getFilePath("/root/dir", true));
+    trie.add(path("/root/dir/file"));
+
+    assertTrue(trie.remove(path("/root/dir/file")));
+    assertTrue(trie.contains(VcsUtil.getFilePath("/root/dir", true)));
+    List<FilePath> paths = trie.toList();
+    assertEquals(1, paths.size());
+    assertTrue(paths.get(0).isDirectory());
+  }
+
+  public void testCaseInsensitive() {
+    FilePathTrie trie = new FilePathTrie(false);
+    trie.add(path("/Root/File.txt"));
+    assertTrue(trie.contains(path("/root/file.TXT")));
+    assertFalse(trie.add(path("/ROOT/FILE.TXT")));
+    assertTrue(trie.remove(path("/root/file.txt")));
+    assertEquals(0, trie.size());
+  }
+
+  public void testToList() {
+    FilePathTrie trie = new FilePathTrie(true);
+    trie.add(path("/root/a/b.txt"));
+    trie.add(path("/root/c.txt"));
+    trie.add(path("C:/d/e.txt"));
+
+    Set<String> paths = trie.toList().stream().map(FilePath::getPath).collect(Collectors.toSet());
+    assertEquals(Set.of("/root/a/b.txt", "/root/c.txt", "C:/d/e.txt"), paths);
+
+    trie.clear();
+    assertTrue(trie.toList().isEmpty());
+  }
+
+  private static FilePath path(String path) {
+    return VcsUtil.getFilePath(path, false);
+  }
+}
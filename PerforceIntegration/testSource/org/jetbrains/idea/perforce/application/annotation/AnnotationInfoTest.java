@@ -0,0 +1,28 @@
+package org.jetbrains.idea.perforce.application.annotation;
+
+import junit.framework.TestCase;
+
+public class AnnotationInfoTest extends TestCase {
+  public void testExtendWithFewerRevisionsThanLines() throws Exception {
+    AnnotationInfo info = new AnnotationInfo("a\nb\n", new long[]{1}, false);
+    assertNull(info.extend("a\nb\nc\n", 2, false));
+  }
+
+  public void testExtendWithMoreRevisionsThanLines() throws Exception {
+    AnnotationInfo info = new AnnotationInfo("a\n", new long[]{1, 2, 3}, false);
+    assertNull(info.extend("x\na\n", 4, false));
+  }
+
+  public void testExtendKeepsLineCount() throws Exception {
+    AnnotationInfo info = new AnnotationInfo("a\n\nb\n", new long[]{1, 2, 3}, false);
+    AnnotationInfo extended = info.extend("a\n\nb\n\n", 4, false);
+    assertNotNull(extended);
+    assertEquals(4, extended.getLineCount());
+    assertEquals(3, extended.getRevision(2));
+    assertEquals(4, extended.getRevision(3));
+
+    AnnotationInfo again = extended.extend("a\n\nb\n\nc", 5, false);
+    assertNotNull(again);
+    assertEquals(5, again.getRevision(4));
+  }
+}
@@ -0,0 +1,116 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+public class P4MarshalReaderTest extends TestCase {
+  public void testFStatRecords() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeDict(out, "code", "stat", "depotFile", "//depot/a.txt", "clientFile", "/ws/a.txt", "headAction", "edit",
+              "headRev", "3", "haveRev", "3", "action", "edit", "change", "default");
+    writeDict(out, "code", "error", "data", "/ws/b.txt - no such file(s).\n", "severity", 2, "generic", 17);
+
+    P4MarshalReader reader = new P4MarshalReader(new ByteArrayInputStream(out.toByteArray()));
+
+    Map<String, String> stat = reader.readRecord();
+    assertNotNull(stat);
+    assertFalse(P4MarshalReader.isError(stat));
+    FStat fStat = FStat.fromTaggedRecord(stat);
+    assertEquals("//depot/a.txt", fStat.depotFile);
+    assertEquals("/ws/a.txt", fStat.clientFile);
+    assertEquals(FStat.STATUS_ON_SERVER_AND_LOCAL, fStat.status);
+    assertEquals(FStat.LOCAL_CHECKED_OUT, fStat.local);
+
+    Map<String, String> error = reader.readRecord();
+    assertNotNull(error);
+    assertTrue(P4MarshalReader.isError(error));
+    assertEquals("/ws/b.txt - no such file(s).", P4MarshalReader.getMessage(error));
+    assertEquals("2", error.get(P4MarshalReader.SEVERITY_KEY));
+
+    assertNull(reader.readRecord());
+  }
+
+  public void testNonAsciiValue() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeDict(out, "code", "stat", "clientFile", "/ws/файл.txt");
+    Map<String, String> record = new P4MarshalReader(new ByteArrayInputStream(out.toByteArray())).readRecord();
+    assertNotNull(record);
+    assertEquals("/ws/файл.txt", record.get("clientFile"));
+  }
+
+  public void testRawRecord() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeDict(out, "code", "binary", "data", "\u00ff\u0000", "fileSize", 2);
+    P4MarshalReader reader = new P4MarshalReader(new ByteArrayInputStream(out.toByteArray()));
+    Map<String, byte[]> record = reader.readRawRecord();
+    assertNotNull(record);
+    assertEquals("binary", reader.getString(record, P4MarshalReader.CODE_KEY));
+    assertTrue(Arrays.equals("\u00ff\u0000".getBytes(StandardCharsets.UTF_8), record.get(P4MarshalReader.DATA_KEY)));
+    assertEquals("2", reader.getString(record, "fileSize"));
+  }
+
+  public void testConnectionCharset() throws Exception {
+    Charset charset = Charset.forName("windows-1251");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeDict(out, charset, "code", "stat", "clientFile", "/ws/файл.txt");
+    P4MarshalReader reader = new P4MarshalReader(new ByteArrayInputStream(out.toByteArray()), charset);
+    Map<String, String> record = reader.readRecord();
+    assertNotNull(record);
+    assertEquals("/ws/файл.txt", record.get("clientFile"));
+
+    reader = new P4MarshalReader(new ByteArrayInputStream(out.toByteArray()), charset);
+    Map<String, byte[]> rawRecord = reader.readRawRecord();
+    assertNotNull(rawRecord);
+    assertEquals("/ws/файл.txt", reader.getString(rawRecord, "clientFile"));
+  }
+
+  public void testTruncatedRecord() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeDict(out, "code", "stat");
+    byte[] bytes = out.toByteArray();
+    ByteArrayInputStream truncated = new ByteArrayInputStream(bytes, 0, bytes.length - 3);
+    try {
+      new P4MarshalReader(truncated).readRecord();
+      fail();
+    }
+    catch (IOException e) {
+      assertTrue(e instanceof EOFException);
+    }
+  }
+
+  private static void writeDict(ByteArrayOutputStream out, Object... keyValues) {
+    writeDict(out, StandardCharsets.UTF_8, keyValues);
+  }
+
+  private static void writeDict(ByteArrayOutputStream out, Charset charset, Object... keyValues) {
+    out.write('{');
+    for (Object o : keyValues) {
+      if (o instanceof Integer) {
+        out.write('i');
+        writeInt(out, (Integer)o);
+      }
+      else {
+        byte[] bytes = ((String)o).getBytes(charset);
+        out.write('s');
+        writeInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+      }
+    }
+    out.write('0');
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value & 0xFF);
+    out.write((value >> 8) & 0xFF);
+    out.write((value >> 16) & 0xFF);
+    out.write((value >> 24) & 0xFF);
+  }
+}
@@ -0,0 +1,109 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class P4PrintOutputSplitterTest extends TestCase {
+  private final P4MarshalReader myReader = new P4MarshalReader(new ByteArrayInputStream(new byte[0]));
+  private final Map<String, byte[]> myContents = new LinkedHashMap<>();
+
+  public void testSplitByFile() {
+    List<String> specs = Arrays.asList("/ws/a.txt#1", "/ws/missing.txt#1", "/ws/b.bin#2");
+    P4PrintOutputSplitter splitter = createSplitter(specs, "unix");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1", "fileSize", "11"));
+    consume(splitter, record("code", "text", "data", "hello "));
+    consume(splitter, record("code", "text", "data", "world"));
+    consume(splitter, record("code", "text", "data", ""));
+    consume(splitter, record("code", "error", "data", "/ws/missing.txt#1 - no such file(s).\n"));
+    consume(splitter, record("code", "stat", "depotFile", "//depot/b.bin", "rev", "2"));
+    consume(splitter, record("code", "binary", "data", "\u0001\u0002"));
+    assertTrue(splitter.finish());
+
+    assertEquals(Arrays.asList("/ws/a.txt#1", "/ws/b.bin#2"), new ArrayList<>(myContents.keySet()));
+    assertEquals("hello world", new String(myContents.get("/ws/a.txt#1"), StandardCharsets.UTF_8));
+    assertEquals("\u0001\u0002", new String(myContents.get("/ws/b.bin#2"), StandardCharsets.UTF_8));
+  }
+
+  public void testFilePassedOnWhenNextOneStarts() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("/ws/a.txt#1", "/ws/b.txt#1"), "unix");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1"));
+    consume(splitter, record("code", "text", "data", "a"));
+    assertTrue(myContents.isEmpty());
+
+    consume(splitter, record("code", "stat", "depotFile", "//depot/b.txt", "rev", "1"));
+    assertEquals("a", new String(myContents.get("/ws/a.txt#1"), StandardCharsets.UTF_8));
+  }
+
+  public void testEmptyFile() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("/ws/empty.txt#1"), "unix");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/empty.txt", "rev", "1", "fileSize", "0"));
+    assertTrue(splitter.finish());
+    assertEquals(0, myContents.get("/ws/empty.txt#1").length);
+  }
+
+  public void testMissingOutputIsReported() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("/ws/a.txt#1", "/ws/b.txt#1"), "unix");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1"));
+    consume(splitter, record("code", "text", "data", "a"));
+    assertFalse(splitter.finish());
+    assertEquals("a", new String(myContents.get("/ws/a.txt#1"), StandardCharsets.UTF_8));
+  }
+
+  public void testUnmatchedRevisionStopsSplitting() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("//depot/a.txt#1", "//depot/b.txt#3", "//depot/c.txt#1"), "unix");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1"));
+    consume(splitter, record("code", "text", "data", "a"));
+    consume(splitter, record("code", "stat", "depotFile", "//depot/c.txt", "rev", "1"));
+    consume(splitter, record("code", "text", "data", "c"));
+    assertFalse(splitter.finish());
+
+    assertEquals(Arrays.asList("//depot/a.txt#1"), new ArrayList<>(myContents.keySet()));
+  }
+
+  public void testLineEndsOfTextFiles() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("/ws/a.txt#1", "/ws/b.bin#1", "/ws/c.txt#1"), "win");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1", "type", "text"));
+    consume(splitter, record("code", "text", "data", "one\ntw"));
+    consume(splitter, record("code", "text", "data", "o\n\nthree"));
+    consume(splitter, record("code", "stat", "depotFile", "//depot/b.bin", "rev", "1", "type", "binary"));
+    consume(splitter, record("code", "binary", "data", "\n\n"));
+    consume(splitter, record("code", "stat", "depotFile", "//depot/c.txt", "rev", "1", "type", "utf16"));
+    consume(splitter, record("code", "text", "data", "\n"));
+    assertTrue(splitter.finish());
+
+    assertEquals("one\r\ntwo\r\n\r\nthree", new String(myContents.get("/ws/a.txt#1"), StandardCharsets.UTF_8));
+    assertEquals("\n\n", new String(myContents.get("/ws/b.bin#1"), StandardCharsets.UTF_8));
+    assertEquals("\n", new String(myContents.get("/ws/c.txt#1"), StandardCharsets.UTF_8));
+  }
+
+  public void testUnixLineEndsAreKept() {
+    P4PrintOutputSplitter splitter = createSplitter(Arrays.asList("/ws/a.txt#1"), "share");
+    consume(splitter, record("code", "stat", "depotFile", "//depot/a.txt", "rev", "1", "type", "text"));
+    consume(splitter, record("code", "text", "data", "one\ntwo\n"));
+    assertTrue(splitter.finish());
+    assertEquals("one\ntwo\n", new String(myContents.get("/ws/a.txt#1"), StandardCharsets.UTF_8));
+  }
+
+  private P4PrintOutputSplitter createSplitter(List<String> specs, String lineEnd) {
+    return new P4PrintOutputSplitter(specs, lineEnd, myContents::put);
+  }
+
+  private void consume(P4PrintOutputSplitter splitter, Map<String, byte[]> record) {
+    splitter.consume(myReader, record);
+  }
+
+  private static Map<String, byte[]> record(String... keyValues) {
+    Map<String, byte[]> record = new LinkedHashMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      record.put(keyValues[i], keyValues[i + 1].getBytes(StandardCharsets.UTF_8));
+    }
+    return record;
+  }
+}
@@ -0,0 +1,103 @@
+package org.jetbrains.idea.perforce.perforce;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PerforceContentCacheTest extends TestCase {
+  private Path myDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("p4content", "").toPath();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir.toFile());
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testPutAndGet() throws IOException {
+    PerforceContentCache cache = new PerforceContentCache(myDir.resolve("cache"), 1000);
+    assertNull(cache.get("a"));
+
+    Path content = createContent("hello");
+    cache.put("a", content);
+    assertFalse(Files.exists(content));
+    assertEquals("hello", new String(cache.get("a")));
+  }
+
+  public void testLeastRecentlyUsedIsEvicted() throws IOException {
+    PerforceContentCache cache = new PerforceContentCache(myDir.resolve("cache"), 100);
+    cache.put("a", createContent("a".repeat(25)));
+    cache.put("b", createContent("b".repeat(25)));
+    assertNotNull(cache.get("a"));
+
+    cache.put("c", createContent("c".repeat(25)));
+    cache.put("d", createContent("d".repeat(25)));
+    cache.put("e", createContent("e".repeat(25)));
+    assertNotNull(cache.get("a"));
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("e"));
+  }
+
+  public void testEntriesSurviveRestart() throws IOException {
+    Path dir = myDir.resolve("cache");
+    new PerforceContentCache(dir, 1000).put("a", createContent("persisted"));
+    assertEquals("persisted", new String(new PerforceContentCache(dir, 1000).get("a")));
+  }
+
+  public void testConcurrentReadsDuringEviction() throws Exception {
+    PerforceContentCache cache = new PerforceContentCache(myDir.resolve("cache"), 200);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        boolean writer = thread % 2 == 0;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            String key = String.valueOf(i % 10);
+            if (writer) {
+              cache.put(key, createContent(key.repeat(50)));
+            }
+            else {
+              byte[] content = cache.get(key);
+              if (content != null) {
+                assertEquals(key.repeat(50), new String(content));
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Path createContent(String text) throws IOException {
+    File file = FileUtil.createTempFile(myDir.toFile(), "content", "", true);
+    FileUtil.writeToFile(file, text);
+    return file.toPath();
+  }
+}
@@ -0,0 +1,38 @@
+package org.jetbrains.idea.perforce.util.tracer;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+  public void testBucketBounds() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123_456_789L, Long.MAX_VALUE}) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(String.valueOf(value), LatencyHistogram.lowestEquivalentValue(index) <= value);
+      assertTrue(String.valueOf(value), LatencyHistogram.highestEquivalentValue(index) >= value);
+      assertTrue(String.valueOf(value), LatencyHistogram.highestEquivalentValue(index) - value <= value / 16);
+    }
+    assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.bucketIndex(Long.MAX_VALUE - 1));
+  }
+
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500.5, histogram.getMean(), 0.001);
+    assertInRange(histogram.getValueAtPercentile(50), 500);
+    assertInRange(histogram.getValueAtPercentile(99), 990);
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+  }
+
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    assertEquals(0.0, histogram.getMean());
+  }
+
+  private static void assertInRange(long actual, long expected) {
+    assertTrue(actual + " for " + expected, actual >= expected && actual <= expected + expected / 16);
+  }
+}
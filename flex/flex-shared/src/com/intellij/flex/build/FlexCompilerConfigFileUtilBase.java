@@ -25,6 +25,19 @@ public final class FlexCompilerConfigFileUtilBase {
   public static final String LIBRARY_PATH = "library-path";
   public static final String PATH_ELEMENT = "path-element";
   public static final String APPEND = "append";
+  /**
+   * Elements of compiler config files that contain paths of files the compilation depends on, the output path is checked separately.
+   */
+  public static final List<String> ELEMENTS_WITH_FILE_PATHS =
+    List.of("flex-config/compiler/external-library-path/path-element", "flex-config/compiler/local-font-paths/path-element",
+            "flex-config/compiler/library-path/path-element", "flex-config/compiler/namespaces/namespace/manifest",
+            /*"flex-config/compiler/source-path/path-element", "flex-config/include-sources/path-element",*/
+            "flex-config/compiler/theme/filename", "flex-config/include-file/path",
+            "flex-config/include-stylesheet/path", "flex-config/file-specs/path-element",
+            "flex-config/compiler/include-libraries/library", "flex-config/compiler/local-fonts-snapshot",
+            "flex-config/compiler/defaults-css-url", "flex-config/compiler/defaults-css-files/filename",
+            "flex-config/load-config", "flex-config/load-externs", "flex-config/link-report",
+            "flex-config/services", "flex-config/metadata/raw-metadata");
   private static final String[] ELEMENTS_TO_REMOVE =
     {
       // these 8 options are for SWC compilation only, not applicable for SWF compilation
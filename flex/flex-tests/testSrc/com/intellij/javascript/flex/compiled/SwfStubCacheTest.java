@@ -0,0 +1,117 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class SwfStubCacheTest extends TestCase {
+  private static final int STUB_VERSION = 1;
+
+  private Path myRoot;
+  private final AtomicInteger myBuildCount = new AtomicInteger();
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRoot = Files.createTempDirectory("flex-swf");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myRoot);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testHit() {
+    SwfStubCache cache = new SwfStubCache(myRoot, STUB_VERSION, Long.MAX_VALUE);
+    assertEquals("text", cache.getText("a", () -> build("text")).toString());
+    assertEquals("text", cache.getText("a", () -> build("other")).toString());
+    assertEquals(1, myBuildCount.get());
+
+    // the entries outlive the IDE session
+    SwfStubCache reopened = new SwfStubCache(myRoot, STUB_VERSION, Long.MAX_VALUE);
+    assertEquals("text", reopened.getText("a", () -> build("other")).toString());
+    assertEquals(1, myBuildCount.get());
+  }
+
+  public void testMiss() {
+    SwfStubCache cache = new SwfStubCache(myRoot, STUB_VERSION, Long.MAX_VALUE);
+    assertEquals("first", cache.getText("a", () -> build("first")).toString());
+    assertEquals("second", cache.getText("b", () -> build("second")).toString());
+    assertEquals(2, myBuildCount.get());
+
+    // entries of other stub versions are not used and are deleted
+    SwfStubCache newVersion = new SwfStubCache(myRoot, STUB_VERSION + 1, Long.MAX_VALUE);
+    assertEquals("third", newVersion.getText("a", () -> build("third")).toString());
+    assertEquals(3, myBuildCount.get());
+    assertEquals(1, countDirectories());
+  }
+
+  public void testFailedBuildIsNotCached() {
+    SwfStubCache cache = new SwfStubCache(myRoot, STUB_VERSION, Long.MAX_VALUE);
+    try {
+      cache.getText("a", () -> {
+        throw new UncheckedIOException(new IOException("Invalid format"));
+      });
+      fail();
+    }
+    catch (UncheckedIOException ignored) {
+    }
+    assertEquals("text", cache.getText("a", () -> build("text")).toString());
+    assertEquals(1, myBuildCount.get());
+
+    try {
+      cache.getStubTree("b", () -> {
+        throw new ProcessCanceledException();
+      });
+      fail();
+    }
+    catch (ProcessCanceledException ignored) {
+    }
+    assertFalse(Files.exists(myRoot.resolve("1-" + STUB_VERSION).resolve("b.stub")));
+  }
+
+  public void testLeastRecentlyUsedDeletedWhenFull() throws IOException {
+    SwfStubCache cache = new SwfStubCache(myRoot, STUB_VERSION, 11);
+    cache.getText("a", () -> build("aaaa"));
+    cache.getText("b", () -> build("bbbb"));
+    Path directory = myRoot.resolve("1-" + STUB_VERSION);
+    Files.setLastModifiedTime(directory.resolve("a.as"), FileTime.fromMillis(1000));
+    Files.setLastModifiedTime(directory.resolve("b.as"), FileTime.fromMillis(2000));
+    // using an entry makes it the most recent one
+    cache.getText("a", () -> build("other"));
+
+    cache.getText("c", () -> build("cccc"));
+    assertTrue(Files.exists(directory.resolve("a.as")));
+    assertFalse(Files.exists(directory.resolve("b.as")));
+    assertTrue(Files.exists(directory.resolve("c.as")));
+    assertEquals(3, myBuildCount.get());
+  }
+
+  private CharSequence build(String text) {
+    myBuildCount.incrementAndGet();
+    return text;
+  }
+
+  private long countDirectories() {
+    try (Stream<Path> directories = Files.list(myRoot)) {
+      return directories.count();
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.concurrency.Semaphore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
@@ -36,6 +37,7 @@ import org.jetbrains.jps.incremental.messages.ProgressMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
 import org.jetbrains.jps.model.module.JpsModule;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,11 +45,23 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTarget> {
 
   private static final Logger LOG = Logger.getInstance(FlexBuilder.class.getName());
+
+  /**
+   * Limits both the BCs compiled in parallel within a build target and the compilations run in parallel by the built-in compiler
+   * process, which is shared by all Flex build targets.
+   */
+  static final int MAX_PARALLEL_COMPILATIONS =
+    Math.max(1, Integer.getInteger("flex.max.parallel.compilations", Math.min(4, Runtime.getRuntime().availableProcessors())));
+
   private JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
+  private ExecutorService myExecutor;
 
   private enum Status {Ok, Failed, Cancelled}
 
@@ -65,6 +79,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   public void buildStarted(final CompileContext context) {
     super.buildStarted(context);
     myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(context.getProjectDescriptor().getProject());
+    myExecutor = SharedThreadPool.getInstance().createBoundedExecutor("Flex Compiler Pool", MAX_PARALLEL_COMPILATIONS);
   }
 
   @Override
@@ -73,6 +88,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
                    myBuiltInCompilerHandler.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
     myBuiltInCompilerHandler.stopCompilerProcess();
     myBuiltInCompilerHandler = null;
+    myExecutor = null;
 
     FlexCommonUtils.deleteTempFlexConfigFiles(context.getProjectDescriptor().getProject().getName());
 
@@ -112,31 +128,48 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
     final List<JpsFlexBuildConfiguration> bcsToCompile = getAllBCsToCompile(mainBC);
 
-    if (!FlexCommonUtils.isFlexUnitBC(mainBC) && !isFlexmojosBCWithUpdatedConfigFile(mainBC)) {
-      if (dirtyFilePaths.isEmpty()) {
-        boolean outputFilesExist = true;
+    final FlexConfigFileDependencies configFileDependencies = new FlexConfigFileDependencies(context, buildTarget);
+    final String reason;
 
-        for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-          if (!new File(bc.getActualOutputFilePath()).isFile()) {
-            outputFilesExist = false;
-            LOG.debug("recompile because output file doesn't exist: " + bc.getActualOutputFilePath());
-            break;
-          }
-        }
+    if (FlexCommonUtils.isFlexUnitBC(mainBC)) {
+      reason = FlexCommonBundle.message("compilation.reason.flex.unit");
+    }
+    else if (isFlexmojosBCWithUpdatedConfigFile(mainBC)) {
+      reason = FlexCommonBundle.message("compilation.reason.file.changed", mainBC.getCompilerOptions().getAdditionalConfigFilePath());
+    }
+    else if (dirtyFilePaths.isEmpty()) {
+      final String missingOutputFilePath = findMissingOutputFile(bcsToCompile);
+      final String changedFilePath = missingOutputFilePath == null ? configFileDependencies.findChangedFile() : null;
 
-        if (outputFilesExist) {
-          return;
-        }
+      if (missingOutputFilePath != null) {
+        reason = FlexCommonBundle.message("compilation.reason.output.file.missing", missingOutputFilePath);
       }
-      else if (mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, dirtyFilePaths)) {
-        LOG.debug("only wrapper files dirty");
-        FlexBuilderUtils.performPostCompileActions(context, mainBC, dirtyFilePaths, outputConsumer);
+      else if (changedFilePath != null) {
+        reason = FlexCommonBundle.message("compilation.reason.file.changed", changedFilePath);
+      }
+      else {
         return;
       }
     }
+    else if (mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, dirtyFilePaths)) {
+      LOG.debug("only wrapper files dirty");
+      FlexBuilderUtils.performPostCompileActions(context, mainBC, dirtyFilePaths, outputConsumer);
+      return;
+    }
+    else {
+      reason = FlexCommonBundle.message("compilation.reason.files.changed", dirtyFilePaths.size(), dirtyFilePaths.iterator().next());
+    }
+
+    LOG.debug(buildTarget.getId() + ": " + reason);
+    context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(mainBC), BuildMessage.Kind.INFO, reason));
+
+    configFileDependencies.clear();
+    final Collection<File> configFiles = Collections.synchronizedList(new ArrayList<>());
+    final List<Status> statuses = compileBuildConfigurations(context, bcsToCompile, configFiles, myBuiltInCompilerHandler, myExecutor);
 
-    for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+    for (int i = 0; i < statuses.size(); i++) {
+      final JpsFlexBuildConfiguration bc = bcsToCompile.get(i);
+      final Status status = statuses.get(i);
 
       switch (status) {
         case Ok:
@@ -162,6 +195,18 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
           return;
       }
     }
+
+    configFileDependencies.save(FlexCommonUtils.getFlexCompilerWorkDirPath(mainBC.getModule().getProject()), configFiles);
+  }
+
+  @Nullable
+  private static String findMissingOutputFile(final List<JpsFlexBuildConfiguration> bcs) {
+    for (JpsFlexBuildConfiguration bc : bcs) {
+      if (!new File(bc.getActualOutputFilePath()).isFile()) {
+        return bc.getActualOutputFilePath();
+      }
+    }
+    return null;
   }
 
   /**
@@ -281,15 +326,67 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     return cssBC;
   }
 
+  /**
+   * Compiles the main BC first, because runtime-loaded modules may be optimized for it, then its runtime-loaded modules and runtime
+   * stylesheets in parallel.
+   *
+   * @param configFiles receives the config files used for compilation
+   * @return statuses in the order of {@code bcs}, only the status of the main BC if it hasn't compiled successfully
+   */
+  private static List<Status> compileBuildConfigurations(final CompileContext context,
+                                                         final List<JpsFlexBuildConfiguration> bcs,
+                                                         final Collection<File> configFiles,
+                                                         final JpsBuiltInFlexCompilerHandler builtInCompilerHandler,
+                                                         final ExecutorService executor) throws ProjectBuildException {
+    final List<Status> result = new ArrayList<>(bcs.size());
+    result.add(compileBuildConfiguration(context, bcs.get(0), configFiles, builtInCompilerHandler));
+    if (result.get(0) != Status.Ok) {
+      return result;
+    }
+
+    final List<Future<Status>> futures = new ArrayList<>(bcs.size() - 1);
+    for (JpsFlexBuildConfiguration bc : bcs.subList(1, bcs.size())) {
+      futures.add(executor.submit(() -> compileBuildConfiguration(context, bc, configFiles, builtInCompilerHandler)));
+    }
+
+    try {
+      for (Future<Status> future : futures) {
+        result.add(future.get());
+      }
+    }
+    catch (InterruptedException e) {
+      throw new ProjectBuildException(e);
+    }
+    catch (ExecutionException e) {
+      throw new ProjectBuildException(e.getCause());
+    }
+
+    return result;
+  }
+
   private static Status compileBuildConfiguration(final CompileContext context,
                                                   final JpsFlexBuildConfiguration bc,
+                                                  final Collection<File> configFiles,
                                                   final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+    final long start = System.currentTimeMillis();
+    final Status status = doCompileBuildConfiguration(context, bc, configFiles, builtInCompilerHandler);
+    context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                                               FlexCommonBundle.message("compilation.time",
+                                                                        StringUtil.formatDuration(System.currentTimeMillis() - start))));
+    return status;
+  }
+
+  private static Status doCompileBuildConfiguration(final CompileContext context,
+                                                    final JpsFlexBuildConfiguration bc,
+                                                    final Collection<File> usedConfigFiles,
+                                                    final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
     setProgressMessage(context, bc);
 
     final String compilerName = FlexBuilderUtils.getCompilerName(bc);
 
     try {
       final List<File> configFiles = createConfigFiles(bc, context.getProjectDescriptor());
+      usedConfigFiles.addAll(configFiles);
       final String outputFilePath = bc.getActualOutputFilePath();
 
       if (!ensureCanCreateFile(new File(outputFilePath))) {
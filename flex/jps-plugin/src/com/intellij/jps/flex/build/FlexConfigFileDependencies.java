@@ -0,0 +1,151 @@
+// Copyright 2000-2022 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.build.FlexBuildTarget;
+import com.intellij.flex.build.FlexCompilerConfigFileUtilBase;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.CompileContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Timestamps of the files referenced from the compiler config files of a build target: SDK and library SWCs, themes, manifests,
+ * fonts, files referenced from the additional config file, etc. Source roots, BC dependencies and libraries of the target are
+ * already tracked by JPS as its root descriptors, but the rest of these files are not, so their timestamps are stored in the
+ * target data directory after a successful compilation and compared on the next build, also after IDE restart.
+ */
+final class FlexConfigFileDependencies {
+  private static final Logger LOG = Logger.getInstance(FlexConfigFileDependencies.class.getName());
+
+  private static final String FILE_NAME = "flex-config-dependencies.txt";
+  private static final String VERSION = "1";
+
+  private final File myStorageFile;
+
+  FlexConfigFileDependencies(final @NotNull CompileContext context, final @NotNull FlexBuildTarget target) {
+    this(new File(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target), FILE_NAME));
+  }
+
+  FlexConfigFileDependencies(final @NotNull File storageFile) {
+    myStorageFile = storageFile;
+  }
+
+  /**
+   * @return path of a file that has changed or has been deleted since the last successful compilation, {@code null} if all files are
+   * the same or if nothing is known about the previous compilation
+   */
+  @Nullable
+  String findChangedFile() {
+    if (!myStorageFile.isFile()) return null;
+
+    final List<String> lines;
+    try {
+      lines = FileUtil.loadLines(myStorageFile);
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      return null;
+    }
+
+    if (lines.isEmpty() || !VERSION.equals(lines.get(0))) return null;
+
+    for (String line : lines.subList(1, lines.size())) {
+      final int spaceIndex = line.indexOf(' ');
+      if (spaceIndex <= 0) continue;
+
+      final File file = new File(line.substring(spaceIndex + 1));
+      if (!line.substring(0, spaceIndex).equals(String.valueOf(file.lastModified()))) {
+        return file.getPath();
+      }
+    }
+
+    return null;
+  }
+
+  void clear() {
+    FileUtil.delete(myStorageFile);
+  }
+
+  void save(final @NotNull String workDirPath, final @NotNull Collection<File> configFiles) {
+    final Set<File> files = new LinkedHashSet<>();
+    for (File configFile : configFiles) {
+      collectFiles(configFile, workDirPath, files);
+    }
+
+    final StringBuilder text = new StringBuilder(VERSION).append('\n');
+    for (File file : files) {
+      text.append(file.lastModified()).append(' ').append(file.getPath()).append('\n');
+    }
+
+    try {
+      FileUtil.writeToFile(myStorageFile, text.toString());
+    }
+    catch (IOException e) {
+      LOG.warn(e);
+      clear();
+    }
+  }
+
+  private static void collectFiles(final File configFile, final String workDirPath, final Set<File> result) {
+    final Element rootElement;
+    try {
+      rootElement = JDOMUtil.load(configFile);
+    }
+    catch (JDOMException | IOException e) {
+      return;
+    }
+
+    final Set<String> elementPaths = new HashSet<>(FlexCompilerConfigFileUtilBase.ELEMENTS_WITH_FILE_PATHS);
+    final List<String> filePaths = new ArrayList<>();
+    collectElementTexts(rootElement, rootElement.getName(), elementPaths, filePaths);
+
+    for (String filePath : filePaths) {
+      final File file = findFile(filePath, configFile.getParent(), workDirPath);
+      if (file != null) {
+        result.add(file);
+      }
+    }
+  }
+
+  private static void collectElementTexts(final Element element,
+                                          final String elementPath,
+                                          final Set<String> elementPaths,
+                                          final List<String> result) {
+    if (elementPaths.contains(elementPath)) {
+      final String text = element.getTextTrim();
+      if (!text.isEmpty()) {
+        result.add(text);
+      }
+      return;
+    }
+
+    for (Element child : element.getChildren()) {
+      collectElementTexts(child, elementPath + "/" + child.getName(), elementPaths, result);
+    }
+  }
+
+  @Nullable
+  private static File findFile(final String filePath, final String... potentialBaseDirs) {
+    final File file = new File(FileUtil.toSystemDependentName(filePath));
+    if (file.exists()) {
+      return file;
+    }
+
+    for (String baseDir : potentialBaseDirs) {
+      final File file1 = new File(FileUtil.toSystemDependentName(baseDir + '/' + filePath));
+      if (file1.exists()) {
+        return file1;
+      }
+    }
+
+    return null;
+  }
+}
@@ -97,6 +97,7 @@ public final class JpsBuiltInFlexCompilerHandler {
     final List<String> commandLine =
       FlexCommonUtils.getCommandLineForSdkTool(myProject, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
     commandLine.add(String.valueOf(port));
+    commandLine.add(String.valueOf(FlexBuilder.MAX_PARALLEL_COMPILATIONS));
 
     final ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
     processBuilder.redirectErrorStream(true);
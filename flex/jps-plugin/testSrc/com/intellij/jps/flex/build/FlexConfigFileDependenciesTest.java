@@ -0,0 +1,86 @@
+// Copyright 2000-2022 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package com.intellij.jps.flex.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public class FlexConfigFileDependenciesTest extends TestCase {
+  private File myDir;
+  private File myLibrary;
+  private File myTheme;
+  private File myConfigFile;
+  private FlexConfigFileDependencies myDependencies;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("flex-config-dependencies", null);
+    myLibrary = createFile("lib/library.swc");
+    myTheme = createFile("config/theme.css");
+    myConfigFile = new File(myDir, "config/config.xml");
+    // the theme path is relative to the config file
+    FileUtil.writeToFile(myConfigFile, "<flex-config><compiler>" +
+                                       "<library-path><path-element>" + myLibrary.getPath() + "</path-element></library-path>" +
+                                       "<theme><filename>theme.css</filename></theme>" +
+                                       "<source-path><path-element>" + myDir.getPath() + "</path-element></source-path>" +
+                                       "</compiler></flex-config>");
+    myDependencies = new FlexConfigFileDependencies(new File(myDir, "data/dependencies.txt"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testNothingKnownBeforeFirstCompilation() {
+    assertNull(myDependencies.findChangedFile());
+  }
+
+  public void testUnchangedFiles() {
+    save();
+    assertNull(myDependencies.findChangedFile());
+  }
+
+  public void testChangedTimestampMarksTargetDirty() {
+    save();
+    assertTrue(myLibrary.setLastModified(myLibrary.lastModified() + 10_000));
+    assertEquals(myLibrary.getPath(), myDependencies.findChangedFile());
+
+    save();
+    assertNull(myDependencies.findChangedFile());
+    assertTrue(myTheme.setLastModified(myTheme.lastModified() - 10_000));
+    assertEquals(myTheme.getPath(), myDependencies.findChangedFile());
+  }
+
+  public void testDeletedFileMarksTargetDirty() {
+    save();
+    assertTrue(myLibrary.delete());
+    assertEquals(myLibrary.getPath(), myDependencies.findChangedFile());
+  }
+
+  public void testSourcePathIsNotTracked() {
+    save();
+    // source roots are tracked by JPS itself
+    assertTrue(myDir.setLastModified(myDir.lastModified() + 10_000));
+    assertNull(myDependencies.findChangedFile());
+  }
+
+  private void save() {
+    myDependencies.save(myDir.getPath(), Collections.singletonList(myConfigFile));
+  }
+
+  private File createFile(String relativePath) throws IOException {
+    File file = new File(myDir, relativePath);
+    FileUtil.writeToFile(file, relativePath);
+    return file;
+  }
+}
@@ -10,7 +10,9 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * @author Maxim.Mossienko
@@ -20,11 +22,28 @@ public final class SwfFileDecompiler implements BinaryFileDecompiler {
   @NotNull
   public CharSequence decompile(@NotNull final VirtualFile file) {
     Project project = ArrayUtil.getFirstElement(ProjectManager.getInstance().getOpenProjects());
+    if (project == null) return "";
+    final byte[] content;
     try {
-      return project != null ? FlexImporter.buildInterfaceFromStream(file.getInputStream()) : "";
+      content = file.contentsToByteArray();
     }
     catch (IOException ex) {
       return Strings.EMPTY_CHAR_SEQUENCE;
     }
+
+    try {
+      return SwfStubCache.getInstance().getText(SwfStubCache.getKey(content), () -> {
+        try {
+          return FlexImporter.buildInterface(content);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (UncheckedIOException | ArrayIndexOutOfBoundsException ex) {
+      // failed builds are not cached, the text with the error is built without the cache
+      return FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(content));
+    }
   }
 }
\ No newline at end of file
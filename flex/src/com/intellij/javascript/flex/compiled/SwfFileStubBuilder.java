@@ -8,6 +8,7 @@ import com.intellij.lang.javascript.psi.stubs.impl.JSFileStubImpl;
 import com.intellij.lang.javascript.types.JSFileElementType;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.stubs.BinaryFileStubBuilder;
@@ -17,7 +18,8 @@ import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 
 /**
@@ -40,17 +42,25 @@ public final class SwfFileStubBuilder implements BinaryFileStubBuilder {
   static PsiFileStub<?> buildFileStub(VirtualFile file, byte[] content) {
     PsiFileStubImpl<?> stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData(), Collections.emptySet());
     try {
-
-      FlexImporter.buildStubsInterfaceFromStream(
-        new ByteArrayInputStream(content),
-        stub
-      );
-
-    } catch (Exception ex) {
+      // library.swf of the same SDK or SWC is indexed again by every project using it
+      return (PsiFileStub<?>)SwfStubCache.getInstance().getStubTree(SwfStubCache.getKey(content), () -> {
+        try {
+          FlexImporter.buildStubsInterface(content, stub);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return stub;
+      });
+    }
+    catch (ProcessCanceledException e) {
+      throw e;
+    }
+    catch (Exception ex) {
+      // the stubs built before the failure are used, but not cached
       Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
+      return stub;
     }
-
-    return stub;
   }
 
   @Override
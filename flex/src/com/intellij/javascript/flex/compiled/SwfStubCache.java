@@ -0,0 +1,274 @@
+// Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of stub trees and decompiled text of library SWFs, shared by all projects. Projects using the same Flex SDK or
+ * playerglobal.swc index identical library.swf files, so entries are named by a hash of the SWF content.
+ * <p>
+ * Stub trees are stored in the format of {@link SerializationManagerEx}, which refers to stub serializers by ids persisted in the index
+ * root. So the cache is kept in the index root too and is dropped together with the indexes. Entries of other stub versions are
+ * deleted on first use. When the entries outgrow the size limit, the least recently used ones are deleted.
+ * <p>
+ * Failed builds are not cached: an exception thrown by a builder is passed on to the caller.
+ */
+@Service(Service.Level.APP)
+public final class SwfStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfStubCache.class);
+  private static final boolean ENABLED = SystemProperties.getBooleanProperty("flex.swf.stub.cache", true);
+  private static final long MAX_SIZE = SystemProperties.getIntProperty("flex.swf.stub.cache.size.mb", 512) * 1024L * 1024L;
+  // increment when the format of the cache files changes or when the decompiled text changes
+  private static final int FORMAT_VERSION = 1;
+  @NonNls private static final String DIRECTORY_NAME = "flex-swf";
+  @NonNls private static final String STUB_EXTENSION = ".stub";
+  @NonNls private static final String TEXT_EXTENSION = ".as";
+
+  private final Path myRoot;
+  private final Path myDirectory;
+  private final long myMaxSize;
+  private boolean myInitialized;
+  // total size of the entries, known after the first write
+  private final AtomicLong mySize = new AtomicLong();
+
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+
+  public static SwfStubCache getInstance() {
+    return ApplicationManager.getApplication().getService(SwfStubCache.class);
+  }
+
+  public SwfStubCache() {
+    this(PathManager.getIndexRoot().resolve(DIRECTORY_NAME), new SwfFileStubBuilder().getStubVersion(), MAX_SIZE);
+  }
+
+  SwfStubCache(@NotNull Path root, int stubVersion, long maxSize) {
+    myRoot = root;
+    myDirectory = root.resolve(FORMAT_VERSION + "-" + stubVersion);
+    myMaxSize = maxSize;
+  }
+
+  @NotNull
+  public static String getKey(byte @NotNull [] content) {
+    return DigestUtil.sha256Hex(content);
+  }
+
+  /**
+   * @return the cached stub tree for the SWF content with the given key, or the one built by {@code builder}, which is then cached
+   * @throws RuntimeException thrown by {@code builder}, nothing is cached then
+   */
+  @NotNull
+  public StubElement<?> getStubTree(@NotNull String key, @NotNull Supplier<? extends StubElement<?>> builder) {
+    if (!ENABLED) return builder.get();
+
+    final Path file = myDirectory.resolve(key + STUB_EXTENSION);
+    final byte[] cached = read(file);
+    if (cached != null) {
+      try {
+        final Stub stub = SerializationManagerEx.getInstanceEx().deserialize(new ByteArrayInputStream(cached));
+        if (stub instanceof StubElement<?> stubElement) {
+          hit(file);
+          return stubElement;
+        }
+      }
+      catch (ProcessCanceledException e) {
+        throw e;
+      }
+      catch (Exception e) {
+        LOG.info("Cannot read cached stubs from " + file, e);
+        delete(file);
+      }
+    }
+
+    miss();
+    final StubElement<?> stub = builder.get();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SerializationManagerEx.getInstanceEx().serialize(stub, out);
+    write(file, out.toByteArray());
+    return stub;
+  }
+
+  /**
+   * @return the cached decompiled text for the SWF content with the given key, or the one built by {@code builder}, which is then cached
+   * @throws RuntimeException thrown by {@code builder}, nothing is cached then
+   */
+  @NotNull
+  public CharSequence getText(@NotNull String key, @NotNull Supplier<? extends CharSequence> builder) {
+    if (!ENABLED) return builder.get();
+
+    final Path file = myDirectory.resolve(key + TEXT_EXTENSION);
+    final byte[] cached = read(file);
+    if (cached != null) {
+      hit(file);
+      return new String(cached, StandardCharsets.UTF_8);
+    }
+
+    miss();
+    final CharSequence text = builder.get();
+    write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    return text;
+  }
+
+  @NotNull
+  public String getStatistics() {
+    final long hits = myHits.get();
+    final long total = hits + myMisses.get();
+    return "hits: " + hits + ", misses: " + (total - hits) + ", hit ratio: " + (total == 0 ? 0 : hits * 100 / total) + "%";
+  }
+
+  private void hit(@NotNull Path file) {
+    myHits.incrementAndGet();
+    // the modification time orders the entries for deletion when the cache is full
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SWF stub cache " + getStatistics());
+    }
+  }
+
+  private void miss() {
+    myMisses.incrementAndGet();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SWF stub cache " + getStatistics());
+    }
+  }
+
+  private static byte @Nullable [] read(@NotNull Path file) {
+    try {
+      return Files.readAllBytes(file);
+    }
+    catch (NoSuchFileException e) {
+      return null;
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+      return null;
+    }
+  }
+
+  private void write(@NotNull Path file, byte @NotNull [] content) {
+    try {
+      initialize();
+      Files.createDirectories(myDirectory);
+      // several threads may index the same content, the one that moves its file last wins
+      final Path temp = Files.createTempFile(myDirectory, null, ".tmp");
+      try {
+        Files.write(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot write " + file, e);
+      return;
+    }
+
+    if (mySize.addAndGet(content.length) > myMaxSize) {
+      deleteLeastRecentlyUsed();
+    }
+  }
+
+  private synchronized void initialize() {
+    if (myInitialized) return;
+    myInitialized = true;
+
+    if (!Files.isDirectory(myRoot)) return;
+    try (Stream<Path> directories = Files.list(myRoot)) {
+      directories.filter(directory -> !directory.equals(myDirectory)).forEach(SwfStubCache::deleteRecursively);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+    mySize.set(listEntries().stream().mapToLong(Entry::size).sum());
+  }
+
+  /**
+   * Deletes the entries used longest ago until a quarter of the space is free, so that it isn't done again on the next write.
+   */
+  private synchronized void deleteLeastRecentlyUsed() {
+    final List<Entry> entries = listEntries();
+    entries.sort(Comparator.comparing(Entry::lastUsed));
+    long size = entries.stream().mapToLong(Entry::size).sum();
+    final long targetSize = myMaxSize * 3 / 4;
+    for (Entry entry : entries) {
+      if (size <= targetSize) break;
+      delete(entry.file());
+      size -= entry.size();
+    }
+    mySize.set(size);
+  }
+
+  @NotNull
+  private List<Entry> listEntries() {
+    final List<Entry> entries = new ArrayList<>();
+    if (!Files.isDirectory(myDirectory)) return entries;
+    try (Stream<Path> files = Files.list(myDirectory)) {
+      files.forEach(file -> {
+        final String name = file.getFileName().toString();
+        if (!name.endsWith(STUB_EXTENSION) && !name.endsWith(TEXT_EXTENSION)) return;
+        try {
+          final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+          entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+        }
+        catch (IOException e) {
+          LOG.debug(e);
+        }
+      });
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+    return entries;
+  }
+
+  private static void deleteRecursively(@NotNull Path directory) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(SwfStubCache::delete);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
+
+  private record Entry(@NotNull Path file, long size, @NotNull FileTime lastUsed) {
+  }
+
+  private static void delete(@NotNull Path file) {
+    try {
+      Files.deleteIfExists(file);
+    }
+    catch (IOException e) {
+      LOG.debug(e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 // Copyright 2000-2021 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.intellij.lang.javascript.flex.build;
 
+import com.intellij.flex.build.FlexCompilerConfigFileUtilBase;
 import com.intellij.flex.model.bc.BuildConfigurationNature;
 import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
@@ -26,18 +27,8 @@ public class FlexCompilerDependenciesCache {
   private final Project myProject;
   private final Map<Module, Collection<BCInfo>> myCache = new HashMap<>();
 
-  private static final String[] TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
-    {"<flex-config><compiler><external-library-path><path-element>", "<flex-config><compiler><local-font-paths><path-element>",
-      "<flex-config><compiler><library-path><path-element>", "<flex-config><compiler><namespaces><namespace><manifest>",
-      /*"<flex-config><compiler><source-path><path-element>", "<flex-config><include-sources><path-element>",*/
-      "<flex-config><compiler><theme><filename>", "<flex-config><include-file><path>",
-      "<flex-config><include-stylesheet><path>", "<flex-config><file-specs><path-element>",
-      "<flex-config><compiler><include-libraries><library>", "<flex-config><compiler><local-fonts-snapshot>",
-      "<flex-config><compiler><defaults-css-url>", "<flex-config><compiler><defaults-css-files><filename>",
-      "<flex-config><load-config>", "<flex-config><load-externs>", "<flex-config><link-report>",
-      "<flex-config><services>", "<flex-config><metadata><raw-metadata>",
-      // "<flex-config><output>"   intentionally excluded, because already handled
-    };
+  private static final List<String> TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE =
+    ContainerUtil.map(FlexCompilerConfigFileUtilBase.ELEMENTS_WITH_FILE_PATHS, path -> "<" + path.replace("/", "><") + ">");
 
   public FlexCompilerDependenciesCache(final Project project) {
     myProject = project;
@@ -156,7 +147,7 @@ public class FlexCompilerDependenciesCache {
 
     try {
       final Map<String, List<String>> elementsMap =
-        FlexUtils.findXMLElements(configFile.getInputStream(), Arrays.asList(TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE));
+        FlexUtils.findXMLElements(configFile.getInputStream(), TAGS_FOR_FILE_PATHS_IN_CONFIG_FILE);
       for (List<String> filePathList : elementsMap.values()) {
         for (String filePath : filePathList) {
           bcInfo.addFileDependency(filePath, configFile.getParent().getPath(), workDirPath);
@@ -10,6 +10,7 @@ class DebuggerCommand {
   private final CommandOutputProcessingType myOutputProcessingType; // program will consume immediate server response (no infinite blocking allowed)
   private final VMState myEndVMState;
   private final VMState myStartVMState;
+  private long myPostTime;
 
   DebuggerCommand(@NotNull @NonNls String _text) { this(_text, CommandOutputProcessingType.NO_PROCESSING); }
   DebuggerCommand(@NotNull @NonNls String _text, CommandOutputProcessingType outputProcessingType) {
@@ -54,4 +55,21 @@ class DebuggerCommand {
   public String read(FlexDebugProcess flexDebugProcess) throws IOException {
     return flexDebugProcess.defaultReadCommand(this);
   }
+
+  /**
+   * @return {@code true} if the command may be sent to fdb right after another such command, without waiting for the output of the
+   * previous one. The output of the command must be read completely by {@link #onTextAvailable} and the command must not change
+   * the VM state.
+   */
+  boolean canBePipelined() {
+    return false;
+  }
+
+  void setPostTime(long postTime) {
+    myPostTime = postTime;
+  }
+
+  long getPostTime() {
+    return myPostTime;
+  }
 }
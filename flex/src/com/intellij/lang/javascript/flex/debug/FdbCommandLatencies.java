@@ -0,0 +1,60 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Time from sending a command to fdb till its output is processed, by command type. Pipelined commands are counted from the moment
+ * they are sent, so the numbers show both fdb response time and the time the commands wait for the output of the previous ones.
+ */
+final class FdbCommandLatencies {
+  private final Map<String, Latency> myLatencies = new TreeMap<>();
+
+  void commandProcessed(@NotNull DebuggerCommand command) {
+    final long latency = System.nanoTime() - command.getPostTime();
+    final String type = getType(command);
+    synchronized (myLatencies) {
+      myLatencies.computeIfAbsent(type, t -> new Latency()).add(latency);
+    }
+  }
+
+  /**
+   * @return command class and the fdb command, like {@code FlexStackFrame$EvaluateCommand print}
+   */
+  @NonNls
+  private static String getType(@NotNull DebuggerCommand command) {
+    final String className = StringUtil.getShortName(command.getClass().getName());
+    final String lastLine = command.getText().substring(command.getText().lastIndexOf('\n') + 1);
+    final int spaceIndex = lastLine.indexOf(' ');
+    return className + " " + (spaceIndex == -1 ? lastLine : lastLine.substring(0, spaceIndex));
+  }
+
+  @NonNls
+  String getStatistics() {
+    final StringBuilder result = new StringBuilder("fdb command latencies:");
+    synchronized (myLatencies) {
+      for (Map.Entry<String, Latency> entry : myLatencies.entrySet()) {
+        final Latency latency = entry.getValue();
+        result.append("\n  ").append(entry.getKey()).append(": ").append(latency.myCount).append(" commands, avg ")
+          .append(latency.myTotal / latency.myCount / 1000).append(" us, max ").append(latency.myMax / 1000).append(" us");
+      }
+    }
+    return result.toString();
+  }
+
+  private static final class Latency {
+    private int myCount;
+    private long myTotal;
+    private long myMax;
+
+    private void add(long latency) {
+      myCount++;
+      myTotal += latency;
+      myMax = Math.max(myMax, latency);
+    }
+  }
+}
@@ -168,6 +168,11 @@ public class FlexDebugProcess extends XDebugProcess {
     }
   };
 
+  // commands already sent to fdb whose output hasn't been read yet, their output comes before the output of any other command
+  private final LinkedList<DebuggerCommand> myPipelinedCommands = new LinkedList<>();
+  private static final int MAX_PIPELINED_COMMANDS = 16;
+  private final FdbCommandLatencies myCommandLatencies = new FdbCommandLatencies();
+
   private boolean suspended;
   private boolean fdbWaitingForPlayerStateReached;
   private boolean startupDone;
@@ -489,6 +494,19 @@ public class FlexDebugProcess extends XDebugProcess {
     assert Thread.currentThread() == myDebuggerManagerThread;
     final DebuggerCommand command = postCommand();
     if (command == null) return;
+
+    final boolean hasOutput = command.getOutputProcessingMode() != CommandOutputProcessingType.NO_PROCESSING;
+    try {
+      processCommandOutput(command);
+    }
+    finally {
+      if (hasOutput) {
+        myCommandLatencies.commandProcessed(command);
+      }
+    }
+  }
+
+  private void processCommandOutput(final DebuggerCommand command) throws IOException, InterruptedException {
     boolean explicitlyContinueRead = false;
 
     do {
@@ -944,6 +962,10 @@ public class FlexDebugProcess extends XDebugProcess {
   }
 
   private DebuggerCommand postCommand() throws IOException {
+    if (!myPipelinedCommands.isEmpty()) {
+      return myPipelinedCommands.removeFirst();
+    }
+
     DebuggerCommand command = commandsToWrite.removeFirst();
     final boolean currentlyExecuting = !suspended && startupDone;
 
@@ -952,7 +974,7 @@ public class FlexDebugProcess extends XDebugProcess {
         if (command instanceof SuspendDebuggerCommand) ((SuspendDebuggerCommand)command).doCommandAfterSuspend();
         if (command.getOutputProcessingMode() != CommandOutputProcessingType.DEFAULT_PROCESSING) return null;
       }
-      command.post(this);
+      post(command);
       return command;
     }
     else if (!currentlyExecuting) {
@@ -971,10 +993,35 @@ public class FlexDebugProcess extends XDebugProcess {
       command = new SuspendResumeDebuggerCommand(command);
     }
 
-    command.post(this);
+    post(command);
+    if (!currentlyExecuting && command.canBePipelined()) {
+      pipelineNextCommands();
+    }
     return command;
   }
 
+  /**
+   * Sends the commands that follow in the queue and can be pipelined, so that fdb doesn't wait for a round trip between them,
+   * e.g. when watches are evaluated or objects are expanded.
+   */
+  private void pipelineNextCommands() throws IOException {
+    while (myPipelinedCommands.size() < MAX_PIPELINED_COMMANDS) {
+      final DebuggerCommand command;
+      synchronized (commandsToWrite) {
+        command = commandsToWrite.peek();
+        if (command == null || !command.canBePipelined()) return;
+        commandsToWrite.removeFirst();
+      }
+      post(command);
+      myPipelinedCommands.addLast(command);
+    }
+  }
+
+  private void post(final DebuggerCommand command) throws IOException {
+    command.setPostTime(System.nanoTime());
+    command.post(this);
+  }
+
   boolean isDebuggerFromSdk3() {
     return myDebuggerVersion != null && myDebuggerVersion.startsWith("3.");
   }
@@ -1118,6 +1165,7 @@ public class FlexDebugProcess extends XDebugProcess {
 
 
     sendCommand(new QuitCommand());
+    log(myCommandLatencies.getStatistics());
 
     if (adlProcess != null) {
       adlProcess.destroy();
@@ -1153,8 +1201,12 @@ public class FlexDebugProcess extends XDebugProcess {
   }
 
   public void sendAndProcessOneCommand(final DebuggerCommand command, final @Nullable Function<Exception, Void> onException) {
-    insertCommand(command);
     try {
+      // output of the pipelined commands comes before the output of this one
+      while (!myPipelinedCommands.isEmpty()) {
+        processOneCommandLoop();
+      }
+      insertCommand(command);
       processOneCommandLoop();
     }
     catch (Exception e) {
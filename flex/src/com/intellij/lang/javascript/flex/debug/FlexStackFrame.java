@@ -15,6 +15,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.NullableComputable;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.source.tree.injected.InjectedLanguageUtil;
@@ -276,6 +277,12 @@ public class FlexStackFrame extends XStackFrame {
       return proceedWithEvaluationResponse(line);
     }
 
+    @Override
+    boolean canBePipelined() {
+      // only 'frame' and 'print': 'set' may print an error instead of nothing, then its output would be taken for the 'print' output
+      return StringUtil.countNewLines(getText()) == 1;
+    }
+
     private CommandOutputProcessingMode proceedWithEvaluationResponse(String line) {
       ++responseCount;
       if (responseCount == 1) { // skip frame
@@ -1,25 +1,32 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.util.ArrayUtilRt;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.InflaterInputStream;
 
 /**
+ * A little- or big-endian reader of a part of a byte array. Parts of the buffer are read by {@link #readBytes} as views of the
+ * same array, so ABC blocks and method bodies are not copied.
+ *
  * @author Maxim.Mossienko
 */
 class ByteBuffer {
-  private byte[] bytes;
+  private byte[] bytes = ArrayUtilRt.EMPTY_BYTE_ARRAY;
+  // the part of bytes this buffer reads, position is relative to start
+  private int start;
+  private int end;
   private int position;
   private boolean littleEndian;
 
-  void read(@NotNull InputStream inputStream) throws IOException {
-    try (inputStream) {
-      bytes = readStream(inputStream);
+  void wrap(byte @NotNull [] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) {
+      throw new ArrayIndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + bytes.length);
     }
+    this.bytes = bytes;
+    start = offset;
+    end = offset + length;
+    position = 0;
   }
 
   void setLittleEndian() {
@@ -27,12 +34,13 @@ class ByteBuffer {
   }
 
   int readInt() {
+    final int i = index(4);
     int result;
     if (littleEndian) {
-      result = (((bytes[position + 3] & 0xFF) << 8 | (bytes[position + 2] & 0xFF)) << 16) + ((bytes[position + 1] & 0xFF) << 8) | (bytes[position] & 0xFF);
+      result = (((bytes[i + 3] & 0xFF) << 8 | (bytes[i + 2] & 0xFF)) << 16) + ((bytes[i + 1] & 0xFF) << 8) | (bytes[i] & 0xFF);
     }
     else {
-      result = (((bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF)) << 16) + ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
+      result = (((bytes[i] & 0xFF) << 8 | (bytes[i + 1] & 0xFF)) << 16) + ((bytes[i + 2] & 0xFF) << 8) | (bytes[i + 3] & 0xFF);
     }
     position += 4;
     return result;
@@ -47,77 +55,45 @@ class ByteBuffer {
   }
 
   public int bytesSize() {
-    return bytes.length;
-  }
-
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
-
-    bytes = readStream(zipInputStream);
-
-    zipInputStream.close();
-  }
-
-  private static byte[] readStream(final InputStream zipInputStream) throws IOException {
-    final byte[] buf = new byte[8192];
-    byte[] result = new byte[8192];
-    int total = 0;
-
-    while (true) {
-      int read = zipInputStream.read(buf);
-      if (read == -1) break;
-      if (total + read >= result.length) {
-        byte[] newresult = new byte[result.length * 2];
-        System.arraycopy(result, 0, newresult, 0, total);
-        result = newresult;
-      }
-
-      System.arraycopy(buf, 0, result, total, read);
-      total += read;
-    }
-
-    final byte[] realResult = new byte[total];
-    System.arraycopy(result, 0, realResult, 0, total);
-    return realResult;
+    return end - start;
   }
 
   public int readUnsignedByte() {
-    return bytes[position++] & 0xFF;
+    return readByte() & 0xFF;
   }
 
   public int readByte() {
-    return bytes[position++];
+    final byte result = bytes[index(1)];
+    position++;
+    return result;
   }
 
   public int readUnsignedShort() {
+    final int i = index(2);
     int result;
     if (littleEndian) {
-      result = (bytes[position + 1] & 0xFF) << 8 | (bytes[position] & 0xFF);
+      result = (bytes[i + 1] & 0xFF) << 8 | (bytes[i] & 0xFF);
     }
     else {
-      result = (bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF);
+      result = (bytes[i] & 0xFF) << 8 | (bytes[i + 1] & 0xFF);
     }
     position += 2;
     return result;
   }
 
   public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+    data2.wrap(bytes, index(length), length);
     position += length;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= bytesSize();
   }
 
   public String readUTFBytes(int i) {
-    final byte[] buf = new byte[i];
-    while (i > 0) {
-      buf[buf.length - i] = (byte)readByte();
-      --i;
-    }
-    return new String(buf, StandardCharsets.UTF_8);
+    final String result = new String(bytes, index(i), i, StandardCharsets.UTF_8);
+    position += i;
+    return result;
   }
 
   public double readDouble() {
@@ -139,7 +115,8 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    if (i < 0 || i >= bytesSize()) throw new ArrayIndexOutOfBoundsException(i);
+    return bytes[start + i];
   }
 
   public int getPosition() {
@@ -149,4 +126,14 @@ class ByteBuffer {
   public void incPosition(final int length) {
     position += length;
   }
+
+  /**
+   * @return the index in {@link #bytes} of the current position, checking that {@code length} bytes can be read from it
+   */
+  private int index(int length) {
+    if (position < 0 || length < 0 || position + length > bytesSize()) {
+      throw new ArrayIndexOutOfBoundsException("position " + position + ", length " + length + ", size " + bytesSize());
+    }
+    return start + position;
+  }
 }
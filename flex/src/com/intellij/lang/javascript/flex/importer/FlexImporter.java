@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Produced from abcdump.as
@@ -66,14 +67,37 @@ public final class FlexImporter {
     }
   }
 
+  /**
+   * Unlike {@link #buildInterfaceFromStream(InputStream)}, fails on malformed content instead of returning a comment with the error.
+   */
+  @NonNls
+  public static String buildInterface(final byte @NotNull [] content) throws IOException {
+    final AbstractDumpProcessor abcDumper = new AS3InterfaceDumper();
+    processFlexByteCode(content, abcDumper);
+    return abcDumper.getResult();
+  }
+
   @NonNls
   public static void buildStubsInterfaceFromStream(final InputStream in, final StubElement parent) throws Exception {
     processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
   }
 
+  public static void buildStubsInterface(final byte @NotNull [] content, final StubElement parent) throws IOException {
+    processFlexByteCode(content, new AS3InterfaceStubDumper(parent));
+  }
+
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
+    final byte[] content;
+    try (in) {
+      content = in.readAllBytes();
+    }
+    processFlexByteCode(content, processor);
+  }
+
+  private static void processFlexByteCode(final byte @NotNull [] content, @NotNull FlexByteCodeInformationProcessor processor)
+    throws IOException {
     ByteBuffer data = new ByteBuffer();
-    data.read(in);
+    data.wrap(content, 0, content.length);
     data.setLittleEndian();
     if (data.bytesSize() == 0) return;
     int version = data.readUnsignedInt();
@@ -83,20 +107,17 @@ public final class FlexImporter {
       abc.dump("");
     }
     else if ((version & SWF_MAGIC) == SWF_MAGIC) {
+      // the header is followed by the zlib compressed rest of the file, which is inflated while tags are read
       final int delta = 8;
-      data.setPosition(delta);
-      ByteBuffer udata = new ByteBuffer();
-      udata.setLittleEndian();
-      data.readBytes(udata, data.bytesSize() - delta);
-      int csize = udata.bytesSize();
-      udata.uncompress();
-      processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
-      udata.setPosition(0);
-      new Swf(udata, processor);
+      final int size = data.readUnsignedInt() - delta;
+      processor.dumpStat("decompressed swf " + (content.length - delta) + " -> " + size + "\n");
+      try (InputStream in = new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(content, delta, content.length - delta)))) {
+        new Swf(in, 0, size, processor);
+      }
     }
     else if ((version & SWF_MAGIC2) == SWF_MAGIC2) {
-      data.setPosition(8); // skip header and length
-      new Swf(data, processor);
+      // skip header and length
+      new Swf(new ByteArrayInputStream(content, 8, content.length - 8), 8, content.length, processor);
     }
     else {
       processor.hasError("unknown format " + version + ", swf version: " + (version >> 24) + "\n");
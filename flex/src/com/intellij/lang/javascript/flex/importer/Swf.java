@@ -1,8 +1,16 @@
 package com.intellij.lang.javascript.flex.importer;
 
 import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
+ * Reads tags of a SWF file from a stream, so that a compressed SWF is inflated while it is read. Only DoABC tags are kept in memory,
+ * one at a time, all other tags are skipped.
+ *
  * @author Maxim.Mossienko
  */
 class Swf {
@@ -20,7 +28,10 @@ class Swf {
   private int bitPos;
   private int bitBuf;
 
-  private final ByteBuffer data;
+  private final InputStream in;
+  // position in the file, the file size
+  private int position;
+  private final int size;
 
   private static final int stagDoABC = 72;   // embedded .abc (AVM+) bytecode
   private static final int stagDoABC2 = 82;   // revised ABC version with a name
@@ -146,13 +157,20 @@ class Swf {
   };
 
 
-  Swf(final ByteBuffer _data, final FlexByteCodeInformationProcessor _processor) {
-    data = _data;
+  /**
+   * @param _in       the file contents after the header and the file length
+   * @param _position the number of bytes of the file before {@code _in}, used for statistics only
+   * @param _size     the size of the file
+   */
+  Swf(final @NotNull InputStream _in, int _position, int _size, final FlexByteCodeInformationProcessor _processor) throws IOException {
+    in = _in;
+    position = _position;
+    size = _size;
     processor = _processor;
 
     final Rect rect = decodeRect();
-    final int rate = data.readUnsignedByte() << 8 | data.readUnsignedByte();
-    final int count = data.readUnsignedShort();
+    final int rate = readUnsignedByte() << 8 | readUnsignedByte();
+    final int count = readUnsignedShort();
 
     processor.dumpStat("size " + rect + "\n");
     processor.dumpStat("frame rate " + rate + "\n");
@@ -161,56 +179,83 @@ class Swf {
     decodeTags();
   }
 
-  private void decodeTags() {
+  private void decodeTags() throws IOException {
     int type, h, length;
 
-    while (data.getPosition() < data.bytesSize()) {
-      type = (h = data.readUnsignedShort()) >> 6;
+    while (position < size) {
+      type = (h = readUnsignedShort()) >> 6;
 
-      if (((length = h & 0x3F) == 0x3F)) length = data.readInt();
+      if (((length = h & 0x3F) == 0x3F)) length = readInt();
 
       processor.dumpStat(
-        (type < tagNames.length ? tagNames[type] : "undefined") + " " + length + "b " + ((int)100f * length / data.bytesSize()) + "%\n");
+        (type < tagNames.length ? tagNames[type] : "undefined") + " " + length + "b " + ((int)100f * length / size) + "%\n");
 
       switch (type) {
         case 0:
           return;
         case stagDoABC2:
-          int pos1 = data.getPosition();
-          data.readInt();
+          int pos1 = position;
+          readInt();
           final String abcName = readString();
           processor.dumpStat("\nabc name " + abcName + "\n");
-          length -= (data.getPosition() - pos1);
+          length -= (position - pos1);
           // fall through
         case stagDoABC:
           ByteBuffer data2 = new ByteBuffer();
           data2.setLittleEndian();
-          data.readBytes(data2, length);
+          data2.wrap(readBytes(length), 0, length);
           new Abc(data2, processor).dump(processor.getAbcInSwfIndent());
           processor.append("\n");
           break;
         default:
-          data.incPosition(length);
+          skipBytes(length);
       }
     }
   }
 
-  private String readString() {
+  private String readString() throws IOException {
     String s = "";
     int c;
 
-    while ((c = data.readUnsignedByte()) != 0) s += (char)c;
+    while ((c = readUnsignedByte()) != 0) s += (char)c;
 
     return s;
   }
 
+  private int readUnsignedByte() throws IOException {
+    final int b = in.read();
+    if (b < 0) throw new EOFException("Unexpected end of SWF at " + position);
+    position++;
+    return b;
+  }
+
+  private int readUnsignedShort() throws IOException {
+    return readUnsignedByte() | readUnsignedByte() << 8;
+  }
+
+  private int readInt() throws IOException {
+    return readUnsignedShort() | readUnsignedShort() << 16;
+  }
+
+  private byte @NotNull [] readBytes(int length) throws IOException {
+    if (length < 0) throw new IOException("Invalid tag length " + length + " at " + position);
+    final byte[] bytes = in.readNBytes(length);
+    if (bytes.length < length) throw new EOFException("Unexpected end of SWF at " + (position + bytes.length));
+    position += length;
+    return bytes;
+  }
+
+  private void skipBytes(int length) throws IOException {
+    if (length < 0) throw new IOException("Invalid tag length " + length + " at " + position);
+    in.skipNBytes(length);
+    position += length;
+  }
+
   private void syncBits() {
     bitPos = 0;
   }
 
-  private Rect decodeRect()
-
-  {
+  private Rect decodeRect() throws IOException {
     syncBits();
 
     Rect rect = new Rect();
@@ -224,7 +269,7 @@ class Swf {
     return rect;
   }
 
-  int readSBits(int numBits) {
+  int readSBits(int numBits) throws IOException {
     if (numBits > 32) throw new Error("Number of bits > 32");
 
     int num = readUBits(numBits);
@@ -234,7 +279,7 @@ class Swf {
     return num;
   }
 
-  int readUBits(int numBits) {
+  int readUBits(int numBits) throws IOException {
     if (numBits == 0) return 0;
 
     int bitsLeft = numBits;
@@ -242,7 +287,7 @@ class Swf {
 
     if (bitPos == 0) //no value in the buffer - read a byte
     {
-      bitBuf = data.readUnsignedByte();
+      bitBuf = readUnsignedByte();
       bitPos = 8;
     }
 
@@ -254,7 +299,7 @@ class Swf {
         bitsLeft -= bitPos;
 
         // Get the next byte from the input stream
-        bitBuf = data.readUnsignedByte();
+        bitBuf = readUnsignedByte();
         bitPos = 8;
       }
       else {
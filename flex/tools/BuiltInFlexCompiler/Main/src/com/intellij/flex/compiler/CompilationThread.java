@@ -3,7 +3,10 @@ package com.intellij.flex.compiler;
 import flex2.compiler.ILocalizableMessage;
 import flex2.compiler.common.Configuration;
 
-public class CompilationThread extends Thread {
+/**
+ * A single mxmlc or compc run, executed by the bounded thread pool of {@link FlexCompiler}.
+ */
+public class CompilationThread implements Runnable {
 
   private static int omitTraceCompilationsCount = 0;
   private static int traceCompilationsCount = 0;
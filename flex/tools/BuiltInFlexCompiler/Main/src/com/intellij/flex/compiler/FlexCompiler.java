@@ -8,6 +8,10 @@ import flex2.tools.VersionInfo;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FlexCompiler implements MessageSender {
 
@@ -24,6 +28,23 @@ public class FlexCompiler implements MessageSender {
   private DataInputStream myDataInputStream;
   private DataOutputStream myDataOutputStream;
 
+  private final ExecutorService myExecutor;
+
+  /**
+   * @param maxParallelCompilations compilations requested while this number of compilations is running wait for one of them to finish
+   */
+  private FlexCompiler(final int maxParallelCompilations) {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    myExecutor = Executors.newFixedThreadPool(maxParallelCompilations, new ThreadFactory() {
+      public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "Flex compilation " + threadNumber.incrementAndGet());
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
   private void openSocket(int port) throws IOException {
     final int maxAttempts = 10;
     Socket socket;
@@ -49,7 +70,7 @@ public class FlexCompiler implements MessageSender {
   }
 
   public static void main(String[] args) {
-    if (args.length != 1) {
+    if (args.length < 1) {
       System.out.println("Missing port parameter");
     }
     final int port;
@@ -60,8 +81,18 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
+    int maxParallelCompilations = Runtime.getRuntime().availableProcessors();
+    if (args.length > 1) {
+      try {
+        maxParallelCompilations = Integer.parseInt(args[1]);
+      } catch (NumberFormatException e) {
+        System.out.println("Incorrect parallel compilations parameter");
+        return;
+      }
+    }
+
     try {
-      final FlexCompiler flexCompiler = new FlexCompiler();
+      final FlexCompiler flexCompiler = new FlexCompiler(Math.max(1, maxParallelCompilations));
       flexCompiler.openSocket(port);
       flexCompiler.processInput();
     } catch (IOException e) {
@@ -149,11 +180,7 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
-    final CompilationThread compilationThread =
-      new CompilationThread(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger);
-    compilationThread.setPriority(Thread.MAX_PRIORITY);
-    compilationThread.setDaemon(true);
-    compilationThread.start();
+    myExecutor.execute(new CompilationThread(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger));
   }
 
   private SdkSpecificHandler getSdkSpecificHandler() {
@@ -182,6 +209,7 @@ public class FlexCompiler implements MessageSender {
 
   private void exit() {
     cancelAllCompilations();
+    myExecutor.shutdownNow();
     try {
       myDataInputStream.close();
     } catch (IOException ignored) {
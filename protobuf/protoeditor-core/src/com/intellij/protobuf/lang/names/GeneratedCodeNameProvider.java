@@ -0,0 +1,39 @@
+package com.intellij.protobuf.lang.names;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.protobuf.lang.psi.PbFile;
+import com.intellij.protobuf.lang.stub.index.GeneratedCodeNameIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Extension point for things that know the names of the code generated from a protobuf file, e.g.
+ * the Java outer class or the Go package. The names are stored in the file stub and indexed by
+ * {@link GeneratedCodeNameIndex}, so they must depend on the file name and content only.
+ */
+public interface GeneratedCodeNameProvider {
+  ExtensionPointName<GeneratedCodeNameProvider> EP_NAME =
+    ExtensionPointName.create("com.intellij.protobuf.generatedCodeNameProvider");
+
+  /** Returns the id of the generated code language, used to separate the names of the languages in the index. */
+  @NotNull
+  String getLanguageId();
+
+  /**
+   * Returns the version of the names computation. Increment it when the names change, so that the
+   * stubs are rebuilt.
+   */
+  default int getVersion() {
+    return 0;
+  }
+
+  /**
+   * Returns the names of the code generated from the given file.
+   *
+   * @param file the protobuf file being indexed
+   * @return the generated names, in the form used to look them up in {@link GeneratedCodeNameIndex}
+   */
+  @NotNull
+  Collection<String> getGeneratedCodeNames(@NotNull PbFile file);
+}
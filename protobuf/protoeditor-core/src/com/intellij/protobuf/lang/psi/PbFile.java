@@ -111,6 +111,20 @@ public interface PbFile
   @NotNull
   Map<QualifiedName, Collection<PbSymbol>> getFullQualifiedSymbolMap();
 
+  /**
+   * Returns this file followed by the transitive set of its public imports. Together, their local
+   * symbols make up the {@link #getExportedQualifiedSymbolMap()}.
+   */
+  @NotNull
+  List<PbFile> getExportedFiles();
+
+  /**
+   * Returns this file followed by all imported files and the transitive set of their public
+   * imports. Together, their local symbols make up the {@link #getFullQualifiedSymbolMap()}.
+   */
+  @NotNull
+  List<PbFile> getVisibleFiles();
+
   /**
    * Returns the {@link PbSymbolOwner} that owns the elements defined in this file. This is either
    * the most-qualified {@link PbPackageName}, or the file itself if no package is defined.
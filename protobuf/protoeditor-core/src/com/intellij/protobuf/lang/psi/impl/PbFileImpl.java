@@ -268,10 +268,8 @@ public class PbFileImpl extends PsiFileBase implements PbFile {
     // Return all local symbols from this file and all files in the transitive set of public
     // imports.
     ImmutableMultimap.Builder<QualifiedName, PbSymbol> builder = ImmutableListMultimap.builder();
-
-    getLocalQualifiedSymbolMap().forEach(builder::putAll);
-    for (PbFile importedFile : getImportedFileList(/* includePrivate= */ false)) {
-      importedFile.getLocalQualifiedSymbolMap().forEach(builder::putAll);
+    for (PbFile file : getExportedFiles()) {
+      file.getLocalQualifiedSymbolMap().forEach(builder::putAll);
     }
     return builder.build();
   }
@@ -279,13 +277,39 @@ public class PbFileImpl extends PsiFileBase implements PbFile {
   private ImmutableSetMultimap<QualifiedName, PbSymbol> computeFullQualifiedSymbolMap() {
     // Return all local symbols from this file and exported symbols from all imported files.
     ImmutableSetMultimap.Builder<QualifiedName, PbSymbol> builder = ImmutableSetMultimap.builder();
-    getLocalQualifiedSymbolMap().forEach(builder::putAll);
-    for (PbFile importedFile : getImportedFileList(/* includePrivate= */ true)) {
-      importedFile.getLocalQualifiedSymbolMap().forEach(builder::putAll);
+    for (PbFile file : getVisibleFiles()) {
+      file.getLocalQualifiedSymbolMap().forEach(builder::putAll);
     }
     return builder.build();
   }
 
+  @NotNull
+  @Override
+  public List<PbFile> getExportedFiles() {
+    return CachedValuesManager.getCachedValue(
+        this,
+        () ->
+            Result.create(
+                computeFileList(/* includePrivate= */ false), PbCompositeModificationTracker.byElement(this)));
+  }
+
+  @NotNull
+  @Override
+  public List<PbFile> getVisibleFiles() {
+    return CachedValuesManager.getCachedValue(
+        this,
+        () ->
+            Result.create(
+                computeFileList(/* includePrivate= */ true), PbCompositeModificationTracker.byElement(this)));
+  }
+
+  private List<PbFile> computeFileList(boolean includePrivate) {
+    Set<PbFile> files = new LinkedHashSet<>();
+    files.add(this);
+    findImportsRecursively(this, files, includePrivate);
+    return List.copyOf(files);
+  }
+
   private PbPackageName findPackageChildForName(QualifiedName name) {
     PbPackageName currentPackage;
     PbPackageName lastChild = null;
@@ -314,12 +338,6 @@ public class PbFileImpl extends PsiFileBase implements PbFile {
     return name.getComponentCount() == 0 ? lastChild : null;
   }
 
-  private List<PbFile> getImportedFileList(boolean includePrivate) {
-    Set<PbFile> importedFiles = new LinkedHashSet<>();
-    findImportsRecursively(this, importedFiles, includePrivate);
-    return new ArrayList<>(importedFiles);
-  }
-
   private static void findImportsRecursively(
       PbFile file, Collection<PbFile> imports, boolean includePrivate) {
     for (PbImportStatement pbImport : file.getImportStatements()) {
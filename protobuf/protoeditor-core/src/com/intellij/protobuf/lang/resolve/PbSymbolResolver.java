@@ -15,55 +15,87 @@
  */
 package com.intellij.protobuf.lang.resolve;
 
-import com.google.common.collect.*;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMultimap;
 import com.intellij.openapi.util.Condition;
+import com.intellij.protobuf.ide.PbCompositeModificationTracker;
 import com.intellij.protobuf.lang.psi.PbFile;
 import com.intellij.protobuf.lang.psi.PbSymbol;
 import com.intellij.protobuf.lang.psi.PbSymbolOwner;
+import com.intellij.psi.util.CachedValueProvider.Result;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.QualifiedName;
-import com.intellij.util.SmartList;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
-/** Utilities for finding PbSymbol elements using protobuf's scoping and resolution rules. */
+/**
+ * Utilities for finding PbSymbol elements using protobuf's scoping and resolution rules.
+ *
+ * <p>A resolver doesn't copy symbols: it looks names up in the cached {@link
+ * PbFile#getLocalQualifiedSymbolMap() local symbol maps} of the files it covers, so the tables of
+ * a file imported from many places are shared by all of them. Resolvers for single files are cached
+ * until the next protobuf PSI modification.
+ */
 public class PbSymbolResolver {
 
-  private final Multimap<QualifiedName, PbSymbol> symbols;
+  private static final PbSymbolResolver EMPTY = new PbSymbolResolver(Collections.emptyList());
 
-  private PbSymbolResolver(Multimap<QualifiedName, PbSymbol> symbols) {
-    this.symbols = symbols;
+  private final List<PbFile> files;
+  private volatile List<Map<QualifiedName, Collection<PbSymbol>>> symbolMaps;
+  private volatile ImmutableMultimap<String, PbSymbol> topLevelSymbols;
+
+  private PbSymbolResolver(List<PbFile> files) {
+    this.files = files;
   }
 
   /** Returns a PbSymbolResolver that can resolve symbols in the given file and its imports. */
   public static PbSymbolResolver forFile(PbFile file) {
-    return new PbSymbolResolver(convertJdkMapToGuava(file.getFullQualifiedSymbolMap()));
+    return CachedValuesManager.getCachedValue(
+      file,
+      () ->
+        Result.create(
+          new PbSymbolResolver(file.getVisibleFiles()), PbCompositeModificationTracker.byElement(file)));
   }
 
   /** Returns a PbSymbolResolver that can resolve symbols exported by the given file. */
   public static PbSymbolResolver forFileExports(PbFile file) {
-    return new PbSymbolResolver(convertJdkMapToGuava(file.getExportedQualifiedSymbolMap()));
+    return CachedValuesManager.getCachedValue(
+      file,
+      () ->
+        Result.create(
+          new PbSymbolResolver(file.getExportedFiles()), PbCompositeModificationTracker.byElement(file)));
   }
 
   /** Returns a PbSymbolResolver that can resolve symbols exported by the given files. */
   public static PbSymbolResolver forFileExports(List<PbFile> files) {
-    ImmutableSetMultimap.Builder<QualifiedName, PbSymbol> builder = ImmutableSetMultimap.builder();
+    if (files.size() == 1) {
+      return forFileExports(files.get(0));
+    }
+    Set<PbFile> exportedFiles = new LinkedHashSet<>();
     for (PbFile file : files) {
-      Multimap<QualifiedName, PbSymbol> multimap = convertJdkMapToGuava(file.getExportedQualifiedSymbolMap());
-      builder.putAll(multimap);
+      exportedFiles.addAll(file.getExportedFiles());
     }
-    return new PbSymbolResolver(builder.build());
-  }
-
-  private static Multimap<QualifiedName, PbSymbol> convertJdkMapToGuava(Map<QualifiedName, Collection<PbSymbol>> jdkMap) {
-    Multimap<QualifiedName, PbSymbol> multimap = Multimaps.newListMultimap(new HashMap<>(), SmartList::new);
-    jdkMap.forEach((key, value) -> multimap.putAll(key, value));
-    return multimap;
+    return new PbSymbolResolver(new ArrayList<>(exportedFiles));
   }
 
   /** Returns an empty PbSymbolResolver. */
   public static PbSymbolResolver empty() {
-    return new PbSymbolResolver(ImmutableMultimap.of());
+    return EMPTY;
+  }
+
+  private List<Map<QualifiedName, Collection<PbSymbol>>> getSymbolMaps() {
+    List<Map<QualifiedName, Collection<PbSymbol>>> maps = symbolMaps;
+    if (maps == null) {
+      maps = new ArrayList<>(files.size());
+      for (PbFile file : files) {
+        Map<QualifiedName, Collection<PbSymbol>> map = file.getLocalQualifiedSymbolMap();
+        if (!map.isEmpty()) {
+          maps.add(map);
+        }
+      }
+      symbolMaps = maps;
+    }
+    return maps;
   }
 
   public List<PbResolveResult> resolveRelativeName(
@@ -117,12 +149,21 @@ public class PbSymbolResolver {
   }
 
   public List<PbResolveResult> resolveName(QualifiedName name, Condition<PbSymbol> condition) {
-    return symbols
-      .get(name)
-      .stream()
-      .filter(condition::value)
-      .map(PbResolveResult::create)
-      .collect(Collectors.toList());
+    List<PbResolveResult> results = new ArrayList<>();
+    // Files are distinct and every symbol is defined in exactly one of them, so there is nothing to
+    // deduplicate.
+    for (Map<QualifiedName, Collection<PbSymbol>> map : getSymbolMaps()) {
+      Collection<PbSymbol> symbols = map.get(name);
+      if (symbols == null) {
+        continue;
+      }
+      for (PbSymbol symbol : symbols) {
+        if (condition.value(symbol)) {
+          results.add(PbResolveResult.create(symbol));
+        }
+      }
+    }
+    return results;
   }
 
   public ImmutableMultimap<String, PbSymbol> findChildren(
@@ -151,27 +192,32 @@ public class PbSymbolResolver {
   }
 
   private ImmutableMultimap<String, PbSymbol> findTopLevelSymbols(Condition<PbSymbol> condition) {
-    // First, filter the symbols map to the collection of top-level symbols matching the given
-    // predicate.
-    Multimap<QualifiedName, PbSymbol> filtered =
-      Multimaps.filterEntries(
-        symbols,
-        e -> e != null && e.getKey().getComponentCount() == 1 && condition.value(e.getValue()));
-
-    // Next, convert the map into a Multimap<String, PbSymbol>
     ImmutableMultimap.Builder<String, PbSymbol> builder = ImmutableMultimap.builder();
-    for (Map.Entry<QualifiedName, Collection<PbSymbol>> entry : filtered.asMap().entrySet()) {
-      QualifiedName name = entry.getKey();
-      if (name == null) {
-        continue;
-      }
-      String first = name.getFirstComponent();
-      if (first == null) {
-        continue;
+    getTopLevelSymbols()
+      .forEach(
+        (name, symbol) -> {
+          if (condition.value(symbol)) {
+            builder.put(name, symbol);
+          }
+        });
+    return builder.build();
+  }
+
+  private ImmutableMultimap<String, PbSymbol> getTopLevelSymbols() {
+    ImmutableMultimap<String, PbSymbol> result = topLevelSymbols;
+    if (result == null) {
+      ImmutableListMultimap.Builder<String, PbSymbol> builder = ImmutableListMultimap.builder();
+      for (Map<QualifiedName, Collection<PbSymbol>> map : getSymbolMaps()) {
+        for (Map.Entry<QualifiedName, Collection<PbSymbol>> entry : map.entrySet()) {
+          QualifiedName name = entry.getKey();
+          if (name.getComponentCount() == 1) {
+            builder.putAll(name.getFirstComponent(), entry.getValue());
+          }
+        }
       }
-      builder.putAll(first, entry.getValue());
+      result = topLevelSymbols = builder.build();
     }
-    return builder.build();
+    return result;
   }
 
   private boolean symbolOwnerExists(QualifiedName symbol) {
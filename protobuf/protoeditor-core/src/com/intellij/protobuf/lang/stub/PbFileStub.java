@@ -17,15 +17,36 @@ package com.intellij.protobuf.lang.stub;
 
 import com.intellij.psi.stubs.PsiFileStubImpl;
 import com.intellij.psi.util.QualifiedName;
+import com.intellij.protobuf.lang.names.GeneratedCodeNameProvider;
 import com.intellij.protobuf.lang.psi.PbFile;
 import com.intellij.protobuf.lang.stub.type.PbStubElementTypes;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.List;
+
 /** Protobuf file stub. */
 public class PbFileStub extends PsiFileStubImpl<PbFile> implements PbStatementOwnerStub<PbFile> {
 
+  private final List<String> generatedCodeNames;
+
   public PbFileStub(PbFile file) {
+    this(file, Collections.emptyList());
+  }
+
+  public PbFileStub(PbFile file, @NotNull List<String> generatedCodeNames) {
     super(file);
+    this.generatedCodeNames = generatedCodeNames;
+  }
+
+  /**
+   * Returns the index keys of the code generated from this file, see {@link
+   * GeneratedCodeNameProvider}.
+   */
+  @NotNull
+  public List<String> getGeneratedCodeNames() {
+    return generatedCodeNames;
   }
 
   @Nullable
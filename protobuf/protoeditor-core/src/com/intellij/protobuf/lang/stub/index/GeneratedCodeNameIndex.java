@@ -0,0 +1,45 @@
+package com.intellij.protobuf.lang.stub.index;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.protobuf.lang.names.GeneratedCodeNameProvider;
+import com.intellij.protobuf.lang.psi.PbFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Index from the names of generated code to the protobuf files they are generated from. The names
+ * are contributed by {@link GeneratedCodeNameProvider}s and are prefixed with the provider's
+ * language id.
+ */
+public class GeneratedCodeNameIndex extends StringStubIndexExtension<PbFile> {
+  public static final StubIndexKey<String, PbFile> KEY =
+      StubIndexKey.createIndexKey("protobuf.byGeneratedCodeName");
+
+  private static final GeneratedCodeNameIndex INSTANCE = new GeneratedCodeNameIndex();
+
+  public static GeneratedCodeNameIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /** Returns the files that generate code with the given name in the given language. */
+  public static Collection<PbFile> findFiles(
+      String languageId, String generatedCodeName, Project project, GlobalSearchScope scope) {
+    return StubIndex.getElements(
+        KEY, getKey(languageId, generatedCodeName), project, scope, PbFile.class);
+  }
+
+  public static String getKey(String languageId, String generatedCodeName) {
+    return languageId + ':' + generatedCodeName;
+  }
+
+  @NotNull
+  @Override
+  public StubIndexKey<String, PbFile> getKey() {
+    return KEY;
+  }
+}
@@ -20,11 +20,19 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.StubBuilder;
 import com.intellij.psi.stubs.*;
 import com.intellij.psi.tree.IStubFileElementType;
+import com.intellij.protobuf.lang.names.GeneratedCodeNameProvider;
 import com.intellij.protobuf.lang.psi.PbFile;
 import com.intellij.protobuf.lang.stub.PbFileStub;
+import com.intellij.protobuf.lang.stub.index.GeneratedCodeNameIndex;
+import com.intellij.util.io.StringRef;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 public class PbFileElementType extends IStubFileElementType<PbFileStub> {
   public PbFileElementType(final Language language) {
     super(language);
@@ -36,7 +44,15 @@ public class PbFileElementType extends IStubFileElementType<PbFileStub> {
 
   @Override
   public int getStubVersion() {
-    return 0;
+    // The file stub stores the generated code names, so the stubs depend on the name providers too.
+    // A sum of the provider versions wouldn't change when one provider is replaced by another or
+    // when one version goes up and another one down, so each provider contributes a hash. The sum
+    // doesn't depend on the order of the extensions.
+    int version = 1;
+    for (GeneratedCodeNameProvider provider : GeneratedCodeNameProvider.EP_NAME.getExtensionList()) {
+      version += Objects.hash(provider.getLanguageId(), provider.getVersion());
+    }
+    return version & Integer.MAX_VALUE;
   }
 
   @NotNull
@@ -52,21 +68,51 @@ public class PbFileElementType extends IStubFileElementType<PbFileStub> {
   }
 
   @Override
-  public void serialize(@NotNull final PbFileStub stub, @NotNull final StubOutputStream dataStream) {}
+  public void serialize(@NotNull final PbFileStub stub, @NotNull final StubOutputStream dataStream)
+      throws IOException {
+    List<String> generatedCodeNames = stub.getGeneratedCodeNames();
+    dataStream.writeVarInt(generatedCodeNames.size());
+    for (String name : generatedCodeNames) {
+      dataStream.writeName(name);
+    }
+  }
 
   @NotNull
   @Override
   public PbFileStub deserialize(
       @NotNull final StubInputStream dataStream,
-      final StubElement parentStub) {
-    return new PbFileStub(null);
+      final StubElement parentStub) throws IOException {
+    int size = dataStream.readVarInt();
+    List<String> generatedCodeNames = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      generatedCodeNames.add(StringRef.toString(dataStream.readName()));
+    }
+    return new PbFileStub(null, generatedCodeNames);
+  }
+
+  @Override
+  public void indexStub(@NotNull PbFileStub stub, @NotNull IndexSink sink) {
+    for (String name : stub.getGeneratedCodeNames()) {
+      sink.occurrence(GeneratedCodeNameIndex.KEY, name);
+    }
   }
 
   private static class PbStubBuilder extends DefaultStubBuilder {
     @NotNull
     @Override
     protected @SuppressWarnings("rawtypes") StubElement createStubForFile(@NotNull PsiFile file) {
-      return new PbFileStub((PbFile) file);
+      PbFile pbFile = (PbFile) file;
+      return new PbFileStub(pbFile, computeGeneratedCodeNames(pbFile));
+    }
+
+    private static List<String> computeGeneratedCodeNames(PbFile file) {
+      List<String> result = new ArrayList<>();
+      for (GeneratedCodeNameProvider provider : GeneratedCodeNameProvider.EP_NAME.getExtensionList()) {
+        for (String name : provider.getGeneratedCodeNames(file)) {
+          result.add(GeneratedCodeNameIndex.getKey(provider.getLanguageId(), name));
+        }
+      }
+      return result;
     }
   }
 }
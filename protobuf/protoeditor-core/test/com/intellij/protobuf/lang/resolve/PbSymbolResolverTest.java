@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.protobuf.lang.resolve;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.protobuf.fixtures.PbCodeInsightFixtureTestCase;
+import com.intellij.protobuf.lang.psi.PbFile;
+import com.intellij.protobuf.lang.psi.PbSymbol;
+import com.intellij.protobuf.lang.psi.PbTypeName;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.QualifiedName;
+import com.intellij.testFramework.PlatformTestUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/** Tests for {@link PbSymbolResolver}. */
+public class PbSymbolResolverTest extends PbCodeInsightFixtureTestCase {
+
+  private static final int CHAIN_LENGTH = 20;
+  private static final int MESSAGES_PER_FILE = 100;
+
+  public void testResolverMatchesFullSymbolMap() {
+    PbFile file = createPublicImportChain();
+    assertResolvesAll(PbSymbolResolver.forFile(file), file.getFullQualifiedSymbolMap());
+    assertResolvesAll(PbSymbolResolver.forFileExports(file), file.getExportedQualifiedSymbolMap());
+  }
+
+  public void testExportsOfSeveralFiles() {
+    PbFile first = addChainFile(0, null);
+    PbFile second = addChainFile(1, null);
+    PbSymbolResolver resolver = PbSymbolResolver.forFileExports(List.of(first, second, first));
+
+    assertSize(1, resolveMessage(resolver, 0, 0));
+    assertSize(1, resolveMessage(resolver, 1, 0));
+    assertSize(2, resolver.findChildren(QualifiedName.fromComponents(), ResolveFilters.anySymbol()).get("chain"));
+  }
+
+  public void testResolverCachedUntilModification() {
+    PbFile file = createPublicImportChain();
+    PbSymbolResolver resolver = PbSymbolResolver.forFile(file);
+    assertSame(resolver, PbSymbolResolver.forFile(file));
+    assertEmpty(resolver.resolveName(QualifiedName.fromDottedString("chain.p0.Added"), ResolveFilters.anySymbol()));
+
+    PbFile first = (PbFile)getPsiManager().findFile(myFixture.findFileInTempDir(chainFilePath(0)));
+    assertNotNull(first);
+    Document document = PsiDocumentManager.getInstance(getProject()).getDocument(first);
+    assertNotNull(document);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+      document.insertString(document.getTextLength(), "\nmessage Added {}\n");
+      PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+    });
+
+    PbSymbolResolver updated = PbSymbolResolver.forFile(file);
+    assertNotSame(resolver, updated);
+    assertSize(1, updated.resolveName(QualifiedName.fromDottedString("chain.p0.Added"), ResolveFilters.anySymbol()));
+  }
+
+  public void testResolvePerformance() {
+    PbFile file = createPublicImportChain();
+    List<PbTypeName> typeNames = new ArrayList<>(PsiTreeUtil.findChildrenOfType(file, PbTypeName.class));
+    assertSize(CHAIN_LENGTH * MESSAGES_PER_FILE, typeNames);
+
+    PlatformTestUtil.newPerformanceTest("Resolve type names through public import chain", () -> {
+        for (PbTypeName typeName : typeNames) {
+          PsiElement target = typeName.getEffectiveReference().resolve();
+          assertInstanceOf(target, PbSymbol.class);
+        }
+      })
+      .setup(() -> getPsiManager().dropPsiCaches())
+      .start();
+  }
+
+  /**
+   * Creates files chain/file0.proto to chain/file{CHAIN_LENGTH - 1}.proto, each publicly importing
+   * the previous one, and returns a file that imports the last one and refers to every message of
+   * the chain.
+   */
+  private PbFile createPublicImportChain() {
+    for (int i = 0; i < CHAIN_LENGTH; i++) {
+      addChainFile(i, i == 0 ? null : chainFilePath(i - 1));
+    }
+
+    StringBuilder text = new StringBuilder("syntax = \"proto2\";\npackage chain.main;\n");
+    text.append("import \"").append(chainFilePath(CHAIN_LENGTH - 1)).append("\";\n");
+    text.append("message Main {\n");
+    int fieldNumber = 1;
+    for (int i = 0; i < CHAIN_LENGTH; i++) {
+      for (int j = 0; j < MESSAGES_PER_FILE; j++) {
+        text.append("  optional p").append(i).append(".M").append(j).append(" f").append(fieldNumber)
+          .append(" = ").append(fieldNumber).append(";\n");
+        fieldNumber++;
+      }
+    }
+    text.append("}\n");
+    return (PbFile)myFixture.addFileToProject("chain/main.proto", text.toString());
+  }
+
+  private PbFile addChainFile(int index, String publicImport) {
+    StringBuilder text = new StringBuilder("syntax = \"proto2\";\npackage chain.p").append(index).append(";\n");
+    if (publicImport != null) {
+      text.append("import public \"").append(publicImport).append("\";\n");
+    }
+    for (int j = 0; j < MESSAGES_PER_FILE; j++) {
+      text.append("message M").append(j).append(" { message Nested {} }\n");
+    }
+    return (PbFile)myFixture.addFileToProject(chainFilePath(index), text.toString());
+  }
+
+  private static String chainFilePath(int index) {
+    return "chain/file" + index + ".proto";
+  }
+
+  private static List<PbResolveResult> resolveMessage(PbSymbolResolver resolver, int fileIndex, int messageIndex) {
+    return resolver.resolveName(
+      QualifiedName.fromDottedString("chain.p" + fileIndex + ".M" + messageIndex), ResolveFilters.anySymbol());
+  }
+
+  private static void assertResolvesAll(PbSymbolResolver resolver, Map<QualifiedName, Collection<PbSymbol>> expected) {
+    assertFalse(expected.isEmpty());
+    for (Map.Entry<QualifiedName, Collection<PbSymbol>> entry : expected.entrySet()) {
+      List<PsiElement> resolved =
+        resolver.resolveName(entry.getKey(), ResolveFilters.anySymbol()).stream()
+          .map(PbResolveResult::getElement)
+          .collect(Collectors.toList());
+      assertEquals(entry.getKey().toString(), new ArrayList<>(entry.getValue()), resolved);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.intellij.protobuf.go
+
+import com.intellij.openapi.project.Project
+import com.intellij.protobuf.lang.names.GeneratedCodeNameProvider
+import com.intellij.protobuf.lang.psi.PbFile
+import com.intellij.protobuf.lang.stub.index.GeneratedCodeNameIndex
+import com.intellij.psi.search.GlobalSearchScope
+
+/**
+ * Indexes proto files by the import path of the Go package declared in their `go_package` option, e.g.
+ * `google.golang.org/grpc/examples/helloworld/helloworld` for `option go_package = "google.golang.org/grpc/examples/helloworld/helloworld";`
+ * or `example.com/foo` for `option go_package = "example.com/foo;bar";`. Package names alone are not unique, many projects have
+ * an `api` or a `v1` package.
+ */
+internal class PbGoPackageNameProvider : GeneratedCodeNameProvider {
+  override fun getLanguageId(): String = LANGUAGE_ID
+
+  override fun getVersion(): Int = 1
+
+  override fun getGeneratedCodeNames(file: PbFile): Collection<String> {
+    return listOfNotNull(findGoImportPath(file))
+  }
+
+  companion object {
+    private const val LANGUAGE_ID = "go"
+    private const val GO_PACKAGE_OPTION = "go_package"
+
+    @JvmStatic
+    fun findFilesWithGoImportPath(importPath: String, project: Project): Collection<PbFile> {
+      return GeneratedCodeNameIndex.findFiles(LANGUAGE_ID, importPath, project, GlobalSearchScope.allScope(project))
+    }
+
+    private fun findGoImportPath(file: PbFile): String? {
+      val goPackage = file.options
+        .firstOrNull { it.optionName.text == GO_PACKAGE_OPTION }
+        ?.stringValue
+        ?.asString
+        ?: return null
+      return goPackage.substringBefore(';').takeIf { it.isNotBlank() }
+    }
+  }
+}
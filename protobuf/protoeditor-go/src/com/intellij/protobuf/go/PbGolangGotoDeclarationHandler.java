@@ -35,6 +35,7 @@ import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.QualifiedName;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -62,8 +63,8 @@ public class PbGolangGotoDeclarationHandler implements GotoDeclarationHandler {
 
   /** Reference: https://developers.google.com/protocol-buffers/docs/reference/go-generated */
   private static Collection<PbSymbol> convertToProtoSymbols(PsiElement element) {
-    PbFile pbFile = getPbFile(element);
-    if (pbFile == null) {
+    List<PbFile> pbFiles = getPbFiles(element);
+    if (pbFiles.isEmpty()) {
       return ImmutableList.of();
     }
     QualifiedName convertedName = null;
@@ -83,8 +84,16 @@ public class PbGolangGotoDeclarationHandler implements GotoDeclarationHandler {
     if (convertedName == null) {
       return ImmutableList.of();
     }
-    QualifiedName protoPackage = pbFile.getPackageQualifiedName();
-    return pbFile.getLocalQualifiedSymbolMap().get(protoPackage.append(convertedName));
+    List<PbSymbol> symbols = new ArrayList<>();
+    for (PbFile pbFile : pbFiles) {
+      QualifiedName protoPackage = pbFile.getPackageQualifiedName();
+      Collection<PbSymbol> fileSymbols =
+          pbFile.getLocalQualifiedSymbolMap().get(protoPackage.append(convertedName));
+      if (fileSymbols != null) {
+        symbols.addAll(fileSymbols);
+      }
+    }
+    return symbols;
   }
 
   /**
@@ -269,14 +278,29 @@ public class PbGolangGotoDeclarationHandler implements GotoDeclarationHandler {
     return null;
   }
 
-  @Nullable
-  private static PbFile getPbFile(PsiElement element) {
-    return Optional.of(element)
-        .map(PsiElement::getContainingFile)
-        .filter(GoFile.class::isInstance)
-        .map(GoFile.class::cast)
-        .map(PbGolangGotoDeclarationHandler::getPbFile)
-        .orElse(null);
+  /**
+   * Returns the .proto file named in the source comment of the generated file, or, if there is no
+   * such comment, the .proto files whose go_package is the import path of the generated file.
+   */
+  private static List<PbFile> getPbFiles(PsiElement element) {
+    PsiFile file = element.getContainingFile();
+    if (!(file instanceof GoFile goFile)) {
+      return ImmutableList.of();
+    }
+    PbFile pbFile = getPbFile(goFile);
+    if (pbFile != null) {
+      return ImmutableList.of(pbFile);
+    }
+    VirtualFile virtualFile = goFile.getVirtualFile();
+    if (virtualFile == null || !virtualFile.getName().endsWith(".pb.go")) {
+      return ImmutableList.of();
+    }
+    String importPath = goFile.getImportPath(false);
+    if (importPath == null || importPath.isEmpty()) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.copyOf(
+        PbGoPackageNameProvider.findFilesWithGoImportPath(importPath, goFile.getProject()));
   }
 
   @Nullable
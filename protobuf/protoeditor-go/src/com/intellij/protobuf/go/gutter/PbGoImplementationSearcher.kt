@@ -10,6 +10,7 @@ import com.goide.stubs.index.GoTypesIndex
 import com.intellij.openapi.components.service
 import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.Project
+import com.intellij.protobuf.go.PbGoPackageNameProvider
 import com.intellij.protobuf.ide.gutter.PbCodeImplementationSearcher
 import com.intellij.protobuf.ide.gutter.PbGeneratedCodeConverter
 import com.intellij.protobuf.lang.psi.*
@@ -19,7 +20,6 @@ import com.intellij.psi.search.GlobalSearchScope
 import com.intellij.psi.util.parentOfType
 import com.intellij.util.CommonProcessors
 import com.intellij.util.Processor
-import com.intellij.util.containers.sequenceOfNotNull
 
 internal class PbGoImplementationSearcher : PbCodeImplementationSearcher {
   override fun findImplementationsForProtoElement(pbElement: PbElement,
@@ -154,7 +154,18 @@ internal class PbGoImplementationSearcher : PbCodeImplementationSearcher {
     val goPackage = typeSpec.containingFile.packageName
     val pbMessageFqn = if (goPackage.isNullOrBlank()) specName else "$goPackage.$specName"
     val messageDefinition = typeSpec.project.service<ProtoFileAccessor>().findMessageByFqn(pbMessageFqn)
-    return sequenceOfNotNull(messageDefinition)
+    if (messageDefinition != null) return sequenceOf(messageDefinition)
+
+    // the proto package differs from the Go one, look for the files generating code into the Go package of the spec
+    val importPath = typeSpec.containingFile.getImportPath(false)
+    if (importPath.isNullOrBlank()) return emptySequence()
+    return findMessagesDeclaredInGoPackage(specName, importPath, typeSpec.project).asSequence()
+  }
+
+  private fun findMessagesDeclaredInGoPackage(messageName: String, importPath: String, project: Project): List<PbMessageDefinition> {
+    return PbGoPackageNameProvider.findFilesWithGoImportPath(importPath, project)
+      .flatMap { pbFile -> pbFile.localQualifiedSymbolMap[pbFile.packageQualifiedName.append(messageName)].orEmpty() }
+      .filterIsInstance<PbMessageDefinition>()
   }
 
   private fun findServiceDeclarations(typeSpec: GoTypeSpec,
@@ -58,6 +58,54 @@ class PbGoNavigationGutterTest : GoCodeInsightFixtureTestCase() {
     Assert.assertEquals("HelloRequest", actualImplementation.name)
   }
 
+  fun `test navigation from go to pb message prefers exact name over go package`() {
+    myFixture.addFileToProject("api.proto", """
+      syntax = "proto3";
+
+      package api;
+
+      message Request {}
+    """.trimIndent())
+    addProtoFileWithGoPackage()
+    val psiElement = configureGoFileInPackage()
+
+    val actualDefinition = findProtoDefinitions(psiElement).single()
+    Assert.assertEquals("api.Request", (actualDefinition as PbMessageDefinition).qualifiedName.toString())
+  }
+
+  fun `test navigation from go to pb message by go package import path`() {
+    addProtoFileWithGoPackage()
+    val psiElement = configureGoFileInPackage()
+
+    val actualDefinition = findProtoDefinitions(psiElement).single()
+    Assert.assertEquals("company.api.v1.Request", (actualDefinition as PbMessageDefinition).qualifiedName.toString())
+  }
+
+  private fun addProtoFileWithGoPackage() {
+    myFixture.addFileToProject("company/api.proto", """
+      syntax = "proto3";
+
+      option go_package = "example.com/company/api;api";
+
+      package company.api.v1;
+
+      message Request {}
+    """.trimIndent())
+  }
+
+  private fun configureGoFileInPackage(): PsiNameIdentifierOwner {
+    val goFile = myFixture.addFileToProject("example.com/company/api/api.pb.go", """
+      package api
+
+      type Request struct {
+      	Name string `protobuf:"bytes,1,opt,name=name,proto3" json:"name,omitempty"`
+      }
+    """.trimIndent())
+    myFixture.configureFromExistingVirtualFile(goFile.virtualFile)
+    myFixture.editor.caretModel.moveToOffset(goFile.text.indexOf("Request"))
+    return myFixture.elementAtCaret.parentOfType<PsiNameIdentifierOwner>(true)!!
+  }
+
   private fun addProtoFile() {
     myFixture.configureByText("helloworld.proto", """
       syntax = "proto3";
@@ -26,8 +26,10 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.protobuf.TestUtils;
 import com.intellij.protobuf.gencodeutils.GotoExpectationMarker;
 import com.intellij.protobuf.gencodeutils.ReferenceGotoExpectation;
+import com.intellij.protobuf.lang.psi.PbMessageDefinition;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.util.containers.ContainerUtil;
 
 import java.io.File;
 import java.nio.file.Paths;
@@ -108,6 +110,52 @@ public class PbGolangGotoDeclarationHandlerTest extends GoCodeInsightFixtureTest
             .isEqualTo(62);
   }
 
+  public void testGeneratedCodeWithoutSourceCommentUsesGoPackageImportPath() {
+    myFixture.addFileToProject(
+        "first/api.proto",
+        "syntax = \"proto3\";\n"
+            + "option go_package = \"example.com/first/api\";\n"
+            + "package first.v1;\n"
+            + "message Request {}\n");
+    // Same Go package name, but a different import path.
+    myFixture.addFileToProject(
+        "second/api.proto",
+        "syntax = \"proto3\";\n"
+            + "option go_package = \"example.com/second/api;api\";\n"
+            + "package second.v1;\n"
+            + "message Request {}\n");
+    // No "// source:" comment, so only the go_package index can find the .proto file.
+    myFixture.addFileToProject(
+        "example.com/first/api/api.pb.go", "package api\n\ntype Request struct {\n}\n");
+    myFixture.configureByText(
+        "api_user.go",
+        "package main\n\n"
+            + "import \"example.com/first/api\"\n\n"
+            + "func main() {\n"
+            + "\t_ = &api.<caret>Request{}\n"
+            + "}\n");
+
+    List<PbMessageDefinition> targets = findProtoMessageTargets();
+    assertThat(targets).hasSize(1);
+    assertThat(targets.get(0).getQualifiedName().toString()).isEqualTo("first.v1.Request");
+  }
+
+  public void testGeneratedCodeWithoutSourceCommentOrMatchingGoPackage() {
+    myFixture.addFileToProject(
+        "api.proto", "syntax = \"proto3\";\npackage api;\nmessage Request {}\n");
+    myFixture.addFileToProject(
+        "example.com/first/api/api.pb.go", "package api\n\ntype Request struct {\n}\n");
+    myFixture.configureByText(
+        "api_user.go",
+        "package main\n\n"
+            + "import \"example.com/first/api\"\n\n"
+            + "func main() {\n"
+            + "\t_ = &api.<caret>Request{}\n"
+            + "}\n");
+
+    assertThat(findProtoMessageTargets()).isEmpty();
+  }
+
   private void copyProtoAndGenCode(String protoFile, String generatedGoFile, String goPackageName) {
     // Proto file has to go to the regular place so the proto declaration resolving works.
     myFixture.copyFileToProject(protoFile, new File(protoFile).getPath());
@@ -124,6 +172,14 @@ public class PbGolangGotoDeclarationHandlerTest extends GoCodeInsightFixtureTest
     return (GoFile) psiFile;
   }
 
+  private List<PbMessageDefinition> findProtoMessageTargets() {
+    Editor editor = myFixture.getEditor();
+    PsiElement[] targets =
+        GotoDeclarationAction.findAllTargetElements(
+            getProject(), editor, editor.getCaretModel().getOffset());
+    return ContainerUtil.filterIsInstance(targets, PbMessageDefinition.class);
+  }
+
   /**
    * Parses the userFile for {@link GotoExpectationMarker} annotations, and {@link #CARET_MARKER}.
    * Performs a "goto" action on the element highlighted by a caret marker, and checks that the
@@ -0,0 +1,71 @@
+package com.intellij.protobuf;
+
+import com.intellij.protobuf.jvm.PbJavaOuterClassIndex;
+import com.intellij.protobuf.lang.psi.PbFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.Collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link PbJavaOuterClassIndex}. */
+public class PbJavaOuterClassIndexTest extends LightJavaCodeInsightFixtureTestCase {
+
+  public void testDefaultOuterClassName() {
+    PsiFile file = myFixture.addFileToProject(
+      "foo_bar.proto",
+      """
+        syntax = "proto2";
+        package foo;
+        option java_package = "com.example";
+        message Baz {}
+        """);
+
+    assertThat(findFiles("com.example.FooBar")).containsExactly(file);
+    assertThat(findFiles("com.example.Baz")).isEmpty();
+  }
+
+  public void testExplicitOuterClassNameAndMultipleFiles() {
+    PsiFile file = myFixture.addFileToProject(
+      "foo_bar.proto",
+      """
+        syntax = "proto2";
+        package foo;
+        option java_package = "com.example";
+        option java_outer_classname = "FooProtos";
+        option java_multiple_files = true;
+        message Baz {}
+        """);
+
+    assertThat(findFiles("com.example.FooProtos")).containsExactly(file);
+    assertThat(findFiles("com.example.Baz")).containsExactly(file);
+    assertThat(findFiles("com.example.FooBar")).isEmpty();
+  }
+
+  public void testIndexUpdatedOnChange() {
+    PsiFile file = myFixture.addFileToProject(
+      "foo_bar.proto",
+      """
+        syntax = "proto2";
+        package foo;
+        option java_package = "com.example";
+        """);
+    assertThat(findFiles("com.example.FooBar")).containsExactly(file);
+
+    myFixture.saveText(file.getVirtualFile(), """
+      syntax = "proto2";
+      package foo;
+      option java_package = "com.example.renamed";
+      """);
+
+    assertThat(findFiles("com.example.FooBar")).isEmpty();
+    assertThat(findFiles("com.example.renamed.FooBar")).hasSize(1);
+  }
+
+  private Collection<PbFile> findFiles(String outerClassName) {
+    return PbJavaOuterClassIndex.getFilesWithOuterClass(
+      getProject(), outerClassName, GlobalSearchScope.allScope(getProject()));
+  }
+}
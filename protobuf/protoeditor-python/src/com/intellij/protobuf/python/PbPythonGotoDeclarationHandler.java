@@ -19,6 +19,8 @@ import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.intellij.codeInsight.navigation.actions.GotoDeclarationHandler;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.protobuf.lang.psi.PbElement;
 import com.intellij.protobuf.lang.psi.PbFile;
 import com.intellij.protobuf.lang.psi.PbSymbol;
@@ -73,6 +75,9 @@ public final class PbPythonGotoDeclarationHandler implements GotoDeclarationHand
       apiVersion = 1;
     }
     if (protoSource == null) {
+      if (fileName.endsWith("_pb2.py")) {
+        return locateSymbolInFilesOfModule(file, referenceContext.getFileLocalSymbol());
+      }
       return ImmutableList.of();
     }
     ImmutableCollection<? extends PbElement> results =
@@ -88,6 +93,60 @@ public final class PbPythonGotoDeclarationHandler implements GotoDeclarationHand
     return ProtoFromSourceComments.findProtoOfGeneratedCode("#", file);
   }
 
+  /**
+   * Looks for the symbol in the .proto file that generates a module with the name of the given
+   * file, for generated code without source comments.
+   */
+  private static ImmutableCollection<? extends PbElement> locateSymbolInFilesOfModule(
+      PyFile file, QualifiedName fileLocalSymbol) {
+    PbFile pbFile = findProtoOfModule(file);
+    return pbFile == null ? ImmutableList.of() : locateSymbolInProtoFile(pbFile, fileLocalSymbol);
+  }
+
+  /**
+   * The module name index only knows the short module name, so many .proto files may match.
+   * protoc places the generated module at the path of the .proto file relative to its import
+   * root, so pick the .proto file whose directories match the most trailing directories of the
+   * module. Returns null if there is no such file or the best match is ambiguous.
+   */
+  @Nullable
+  private static PbFile findProtoOfModule(PyFile file) {
+    VirtualFile moduleFile = file.getVirtualFile();
+    if (moduleFile == null) {
+      return null;
+    }
+    String moduleName = FileUtil.getNameWithoutExtension(file.getName());
+    PbFile bestMatch = null;
+    int bestMatchLength = -1;
+    boolean ambiguous = false;
+    for (PbFile pbFile : PbPythonModuleNameProvider.findFilesWithModule(moduleName, file.getProject())) {
+      VirtualFile protoFile = pbFile.getVirtualFile();
+      if (protoFile == null) {
+        continue;
+      }
+      int matchLength = countCommonTrailingDirectories(moduleFile.getParent(), protoFile.getParent());
+      if (matchLength > bestMatchLength) {
+        bestMatch = pbFile;
+        bestMatchLength = matchLength;
+        ambiguous = false;
+      } else if (matchLength == bestMatchLength) {
+        ambiguous = true;
+      }
+    }
+    return ambiguous ? null : bestMatch;
+  }
+
+  private static int countCommonTrailingDirectories(
+      @Nullable VirtualFile first, @Nullable VirtualFile second) {
+    int count = 0;
+    while (first != null && second != null && first.getName().equals(second.getName())) {
+      count++;
+      first = first.getParent();
+      second = second.getParent();
+    }
+    return count;
+  }
+
   private static ImmutableCollection<? extends PbElement> locateSymbolInProtoFile(
       PbFile pbFile, QualifiedName fileLocalSymbol) {
     if (fileLocalSymbol.getComponents().isEmpty()) {
@@ -0,0 +1,39 @@
+package com.intellij.protobuf.python;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.protobuf.lang.names.GeneratedCodeNameProvider;
+import com.intellij.protobuf.lang.psi.PbFile;
+import com.intellij.protobuf.lang.stub.index.GeneratedCodeNameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Indexes proto files by the short name of the generated python module, e.g. {@code foo_pb2} for
+ * {@code foo.proto}. The package of the module depends on the import roots of the project, so it
+ * isn't part of the name.
+ */
+public final class PbPythonModuleNameProvider implements GeneratedCodeNameProvider {
+  private static final String LANGUAGE_ID = "python";
+  private static final String MODULE_SUFFIX = "_pb2";
+
+  public static Collection<PbFile> findFilesWithModule(String moduleName, Project project) {
+    return GeneratedCodeNameIndex.findFiles(
+        LANGUAGE_ID, moduleName, project, GlobalSearchScope.allScope(project));
+  }
+
+  @NotNull
+  @Override
+  public String getLanguageId() {
+    return LANGUAGE_ID;
+  }
+
+  @NotNull
+  @Override
+  public Collection<String> getGeneratedCodeNames(@NotNull PbFile file) {
+    return List.of(FileUtil.getNameWithoutExtension(file.getName()) + MODULE_SUFFIX);
+  }
+}
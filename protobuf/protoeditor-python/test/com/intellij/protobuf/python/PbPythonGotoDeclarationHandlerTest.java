@@ -28,6 +28,7 @@ import com.intellij.protobuf.TestUtils;
 import com.intellij.protobuf.fixtures.PbCodeInsightFixtureTestCase;
 import com.intellij.protobuf.gencodeutils.GotoExpectationMarker;
 import com.intellij.protobuf.gencodeutils.ReferenceGotoExpectation;
+import com.intellij.protobuf.lang.psi.PbMessageType;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -64,6 +65,12 @@ public class PbPythonGotoDeclarationHandlerTest extends PbCodeInsightFixtureTest
   // TEST_PYTHON_PATH should match the import statements in the resources/users/*.py.test files.
   private static final String TEST_PYTHON_PATH = "python";
 
+  // Without the "# source:" comment, only the module name index can find the .proto file.
+  private static final String GENERATED_WITHOUT_SOURCE_COMMENT =
+      "# Generated by the protocol buffer compiler.  DO NOT EDIT!\n"
+          + "from google.protobuf import reflection as _reflection\n"
+          + "Common = _reflection.GeneratedProtocolMessageType('Common', (), {})\n";
+
   @Override
   protected void setUp() throws Exception {
     super.setUp();
@@ -95,6 +102,43 @@ public class PbPythonGotoDeclarationHandlerTest extends PbCodeInsightFixtureTest
         .isEqualTo(4);
   }
 
+  public void testModuleWithoutSourceCommentUsesMatchingDirectory() {
+    setupGenCodePackage();
+    addCommonProtos();
+    myFixture.addFileToProject(TEST_PYTHON_PATH + "/a/__init__.py", "");
+    myFixture.addFileToProject(TEST_PYTHON_PATH + "/a/common_pb2.py", GENERATED_WITHOUT_SOURCE_COMMENT);
+    myFixture.configureByText("common_user.py", "from python.a import common_pb2\ncommon_pb2.<caret>Common()\n");
+
+    List<PbMessageType> targets = findProtoTargets();
+    assertThat(targets).hasSize(1);
+    assertThat(targets.get(0).getQualifiedName().toString()).isEqualTo("com.proto.a.Common");
+    assertThat(targets.get(0).getContainingFile().getVirtualFile().getPath()).endsWith("/a/common.proto");
+  }
+
+  public void testModuleWithoutSourceCommentAmbiguousDirectory() {
+    setupGenCodePackage();
+    addCommonProtos();
+    // neither a/common.proto nor b/common.proto is closer to python/common_pb2.py
+    myFixture.addFileToProject(TEST_PYTHON_PATH + "/common_pb2.py", GENERATED_WITHOUT_SOURCE_COMMENT);
+    myFixture.configureByText("common_user.py", "from python import common_pb2\ncommon_pb2.<caret>Common()\n");
+
+    assertThat(findProtoTargets()).isEmpty();
+  }
+
+  private void addCommonProtos() {
+    myFixture.addFileToProject(
+        "a/common.proto", "syntax = \"proto2\";\npackage com.proto.a;\nmessage Common {}\n");
+    myFixture.addFileToProject(
+        "b/common.proto", "syntax = \"proto2\";\npackage com.proto.b;\nmessage Common {}\n");
+  }
+
+  private List<PbMessageType> findProtoTargets() {
+    PsiElement[] targets =
+        GotoDeclarationAction.findAllTargetElements(
+            getProject(), getEditor(), getEditor().getCaretModel().getOffset());
+    return ContainerUtil.filterIsInstance(targets, PbMessageType.class);
+  }
+
   // Place __init__.py files in the TEST_PYTHON_PATH so that it is considered a python package
   // by the default python import resolver.
   private void setupGenCodePackage() {
@@ -272,13 +272,11 @@ class TerraformConfigCompletionContributor : HCLCompletionContributor() {
       val cache = HashMap<String, Boolean>()
       return when (type) {
         HCL_RESOURCE_IDENTIFIER ->
-          getTypeModel().resources.toPlow()
-            .filter { invocationCount >= 3 || isProviderUsed(parent, it.provider.type, cache) }
+          getTypeModel().getResourceTypes { invocationCount >= 3 || isProviderUsed(parent, it, cache) }.toPlow()
             .map { buildLookupElement(it, it.type, position) }
             .processWith(consumer)
         HCL_DATASOURCE_IDENTIFIER ->
-          getTypeModel().dataSources.toPlow()
-            .filter { invocationCount >= 3 || isProviderUsed(parent, it.provider.type, cache) }
+          getTypeModel().getDataSourceTypes { invocationCount >= 3 || isProviderUsed(parent, it, cache) }.toPlow()
             .map { buildLookupElement(it, it.type, position) }
             .processWith(consumer)
         HCL_PROVIDER_IDENTIFIER ->
@@ -316,7 +314,7 @@ class TerraformConfigCompletionContributor : HCLCompletionContributor() {
       if (!cache.containsKey(providerName)) {
         val providers = module.getDefinedProviders()
         cache[providerName] = providers.isEmpty() || providers.any { it.first.name == providerName }
-                              || module.model.getProviderType(providerName)?.properties == TypeModel.AbstractProvider.properties
+                              || module.model.isProviderWithoutProperties(providerName)
       }
       return cache[providerName]!!
     }
@@ -0,0 +1,53 @@
+// Copyright 2000-2023 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package org.intellij.terraform.config.model
+
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils
+import java.util.concurrent.Callable
+import java.util.concurrent.Future
+
+/**
+ * Schema of a provider which is parsed on first access. The names of its resources and data sources are known in advance,
+ * so that [TypeModel] can tell which provider to load for a resource or data source type.
+ *
+ * The first access usually comes from completion or highlighting in a read action, while the parse of a large provider takes
+ * long and can't be cancelled. So the schema is parsed on a pooled thread, and callers wait for it cancellably. A cancelled
+ * caller doesn't stop the parse, the next caller waits for the same one.
+ */
+class LazyProviderSchema(val type: String,
+                         val resourceTypes: Collection<String>,
+                         val dataSourceTypes: Collection<String>,
+                         val hasProperties: Boolean,
+                         loader: () -> Schema) {
+
+  class Schema(val provider: ProviderType, val resources: List<ResourceType>, val dataSources: List<DataSourceType>)
+
+  private val lazyLoading: Lazy<Future<Schema>> = lazy {
+    ApplicationManager.getApplication().executeOnPooledThread(Callable(loader))
+  }
+  private val resourcesByType: Map<String, ResourceType> by lazy { schema.resources.associateBy { it.type } }
+  private val dataSourcesByType: Map<String, DataSourceType> by lazy { schema.dataSources.associateBy { it.type } }
+
+  private val schema: Schema
+    get() = ProgressIndicatorUtils.awaitWithCheckCanceled(lazyLoading.value)
+
+  val isLoaded: Boolean
+    get() = lazyLoading.isInitialized() && lazyLoading.value.isDone
+
+  val provider: ProviderType
+    get() = schema.provider
+
+  val resources: List<ResourceType>
+    get() = schema.resources
+
+  val dataSources: List<DataSourceType>
+    get() = schema.dataSources
+
+  fun getResourceType(name: String): ResourceType? = resourcesByType[name]
+
+  fun getDataSourceType(name: String): DataSourceType? = dataSourcesByType[name]
+
+  override fun toString(): String {
+    return "LazyProviderSchema (type='$type', loaded=$isLoaded)"
+  }
+}
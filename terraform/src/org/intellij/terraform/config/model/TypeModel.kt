@@ -1,22 +1,42 @@
 // Copyright 2000-2023 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
 package org.intellij.terraform.config.model
 
+/**
+ * Model of Terraform blocks. Providers may be given as [LazyProviderSchema]s, which are loaded on first lookup of the provider
+ * or of one of its resources or data sources. Listing all [resources], [dataSources] or [providers] loads all of them.
+ */
 class TypeModel(
   resources: List<ResourceType> = emptyList(),
   dataSources: List<DataSourceType> = emptyList(),
   providers: List<ProviderType> = emptyList(),
   provisioners: List<ProvisionerType> = emptyList(),
   backends: List<BackendType> = emptyList(),
-  functions: List<Function> = emptyList()
+  functions: List<Function> = emptyList(),
+  lazyProviders: List<LazyProviderSchema> = emptyList()
 ) {
 
-  val resources: List<ResourceType> = resources.sortedBy { it.type }
-  val dataSources: List<DataSourceType> = dataSources.sortedBy { it.type }
-  val providers: List<ProviderType> = providers.sortedBy { it.type }
+  internal val loadedResources: List<ResourceType> = resources.sortedBy { it.type }
+  internal val loadedDataSources: List<DataSourceType> = dataSources.sortedBy { it.type }
+  internal val loadedProviders: List<ProviderType> = providers.sortedBy { it.type }
   val provisioners: List<ProvisionerType> = provisioners.sortedBy { it.type }
   val backends: List<BackendType> = backends.sortedBy { it.type }
   val functions: List<Function> = functions.sortedBy { it.name }
 
+  internal val lazyProviders: List<LazyProviderSchema> = lazyProviders.toList()
+  private val lazyProvidersByType: Map<String, LazyProviderSchema> = lazyProviders.associateByFirst { listOf(it.type) }
+  private val lazyProvidersByResource: Map<String, LazyProviderSchema> = lazyProviders.associateByFirst { it.resourceTypes }
+  private val lazyProvidersByDataSource: Map<String, LazyProviderSchema> = lazyProviders.associateByFirst { it.dataSourceTypes }
+
+  val resources: List<ResourceType> by lazy {
+    withLazy(loadedResources, lazyProviders.flatMap { it.resources }) { it.type }
+  }
+  val dataSources: List<DataSourceType> by lazy {
+    withLazy(loadedDataSources, lazyProviders.flatMap { it.dataSources }) { it.type }
+  }
+  val providers: List<ProviderType> by lazy {
+    withLazy(loadedProviders, lazyProviders.map { it.provider }) { it.type }
+  }
+
   @Suppress("MemberVisibilityCanBePrivate")
   companion object {
     private val VersionProperty = PropertyType("version", Types.String, hint = SimpleHint("VersionRange"), injectionAllowed = false)
@@ -214,15 +234,73 @@ class TypeModel(
   }
 
   fun getResourceType(name: String): ResourceType? {
-    return resources.findBinary(name) { it.type }
+    return loadedResources.findBinary(name) { it.type } ?: lazyProvidersByResource[name]?.getResourceType(name)
   }
 
   fun getDataSourceType(name: String): DataSourceType? {
-    return dataSources.findBinary(name) { it.type }
+    return loadedDataSources.findBinary(name) { it.type } ?: lazyProvidersByDataSource[name]?.getDataSourceType(name)
   }
 
   fun getProviderType(name: String): ProviderType? {
-    return providers.findBinary(name) { it.type }
+    return loadedProviders.findBinary(name) { it.type } ?: lazyProvidersByType[name]?.provider
+  }
+
+  // Same as `get*Type(name) != null`, but don't load provider schemas
+
+  internal fun hasResourceType(name: String): Boolean {
+    return loadedResources.findBinary(name) { it.type } != null || lazyProvidersByResource.containsKey(name)
+  }
+
+  internal fun hasDataSourceType(name: String): Boolean {
+    return loadedDataSources.findBinary(name) { it.type } != null || lazyProvidersByDataSource.containsKey(name)
+  }
+
+  internal fun hasProviderType(name: String): Boolean {
+    return loadedProviders.findBinary(name) { it.type } != null || lazyProvidersByType.containsKey(name)
+  }
+
+  /**
+   * Same as `getProviderType(name)?.properties == AbstractProvider.properties`, but doesn't load the provider schema.
+   */
+  fun isProviderWithoutProperties(name: String): Boolean {
+    val provider = loadedProviders.findBinary(name) { it.type }
+    if (provider != null) return provider.properties == AbstractProvider.properties
+    return lazyProvidersByType[name]?.hasProperties == false
+  }
+
+  /**
+   * Resources of the providers accepted by [providerFilter]. Lazy provider schemas are loaded only if they are accepted.
+   */
+  fun getResourceTypes(providerFilter: (String) -> Boolean): List<ResourceType> {
+    if (lazyProviders.isEmpty()) return loadedResources.filter { providerFilter(it.provider.type) }
+    return withLazy(loadedResources.filter { providerFilter(it.provider.type) },
+                    lazyProviders.filter { providerFilter(it.type) }.flatMap { it.resources }) { it.type }
+  }
+
+  /**
+   * Data sources of the providers accepted by [providerFilter]. Lazy provider schemas are loaded only if they are accepted.
+   */
+  fun getDataSourceTypes(providerFilter: (String) -> Boolean): List<DataSourceType> {
+    if (lazyProviders.isEmpty()) return loadedDataSources.filter { providerFilter(it.provider.type) }
+    return withLazy(loadedDataSources.filter { providerFilter(it.provider.type) },
+                    lazyProviders.filter { providerFilter(it.type) }.flatMap { it.dataSources }) { it.type }
+  }
+
+  // Loaded types take precedence over the lazy ones with the same name
+  private fun <T> withLazy(loaded: List<T>, lazy: List<T>, k: (T) -> String): List<T> {
+    if (lazy.isEmpty()) return loaded
+    val names = loaded.mapTo(HashSet(), k)
+    return (loaded + lazy.filter { names.add(k(it)) }).sortedBy(k)
+  }
+
+  private fun List<LazyProviderSchema>.associateByFirst(keys: (LazyProviderSchema) -> Collection<String>): Map<String, LazyProviderSchema> {
+    val result = HashMap<String, LazyProviderSchema>()
+    for (provider in this) {
+      for (key in keys(provider)) {
+        result.putIfAbsent(key, provider)
+      }
+    }
+    return result
   }
 
   fun getProvisionerType(name: String): ProvisionerType? {
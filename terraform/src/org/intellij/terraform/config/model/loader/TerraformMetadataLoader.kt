@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.node.ObjectNode
 import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.diagnostic.debug
 import com.intellij.openapi.progress.ProcessCanceledException
 import com.intellij.openapi.util.SystemInfo
 import com.intellij.openapi.util.io.FileUtil
@@ -18,6 +19,7 @@ class TerraformMetadataLoader {
   private val pool = ReusePool()
   private val model = LoadingModel()
   private val context: LoadContext = LoadContext(pool, model)
+  private val lazyProviders: MutableList<LazyProviderSchema> = arrayListOf()
 
   private val loaders: List<VersionedMetadataLoader> = listOf(
     TerraformProvidersSchema(),
@@ -35,10 +37,13 @@ class TerraformMetadataLoader {
 
   fun loadDefaults(): TypeModel? {
     try {
+      val start = System.currentTimeMillis()
       model.external.putAll(loadExternalInformation())
       loadExternal()
       loadBundled()
 
+      LOG.info("Terraform model loaded in ${System.currentTimeMillis() - start} ms: ${model.providers.size} providers parsed, " +
+               "${lazyProviders.size} bundled providers deferred until first use")
       return buildModel()
     }
     catch (e: Exception) {
@@ -49,9 +54,13 @@ class TerraformMetadataLoader {
 
   fun loadFrom(another: TypeModel) {
     val tmp = buildModel()
-    model.resources.addAll(another.resources.filter { tmp.getResourceType(it.type) == null })
-    model.dataSources.addAll(another.dataSources.filter { tmp.getDataSourceType(it.type) == null })
-    model.providers.addAll(another.providers.filter { tmp.getProviderType(it.type) == null })
+    // Names are checked without loading the lazy providers of either model
+    model.resources.addAll(another.loadedResources.filter { !tmp.hasResourceType(it.type) })
+    model.dataSources.addAll(another.loadedDataSources.filter { !tmp.hasDataSourceType(it.type) })
+    model.providers.addAll(another.loadedProviders.filter { !tmp.hasProviderType(it.type) })
+    // Lazy providers stay lazy and are kept even if there is a provider of the same type already: TypeModel looks names up
+    // in the loaded provider, resource and data source types first, so only the names missing from them come from the lazy ones
+    lazyProviders.addAll(another.lazyProviders.filter { it !in lazyProviders })
     model.provisioners.addAll(another.provisioners.filter { tmp.getProvisionerType(it.type) == null })
     model.backends.addAll(another.backends.filter { tmp.getBackendType(it.type) == null })
     model.functions.addAll(another.functions.filter { tmp.getFunction(it.name) == null })
@@ -64,7 +73,8 @@ class TerraformMetadataLoader {
       model.providers,
       model.provisioners,
       model.backends,
-      model.functions
+      model.functions,
+      lazyProviders
     )
   }
 
@@ -109,8 +119,70 @@ class TerraformMetadataLoader {
         continue
       }
 
-      loadOne(file, stream)
+      if (file.startsWith("$ModelResourcesPrefix/providers/")) {
+        loadLazily(file, stream)
+      }
+      else {
+        loadOne(file, stream)
+      }
+    }
+  }
+
+  /**
+   * Registers providers of a bundled file, which are parsed on first use. Falls back to [loadOne] for files of other formats
+   * and for files that can't be scanned, which then report their errors.
+   */
+  private fun loadLazily(file: String, stream: InputStream) {
+    val headers: List<ProviderSchemaHeader>? = try {
+      stream.use { scanProviderSchemas(it) }
+    }
+    catch (e: ProcessCanceledException) {
+      throw e
+    }
+    catch (e: Exception) {
+      LOG.warn("Failed to scan provider schemas in file '$file', loading it at once", e)
+      null
+    }
+    if (headers == null) {
+      getResource(file)?.let { loadOne(file, it) }
+      return
+    }
+    for (header in headers) {
+      val (name, namespace) = TerraformProvidersSchema.parseProviderName(header.fullName)
+      if (model.loaded.containsKey("provider.$name")) {
+        LOG.warn("Provider '$name' is already loaded from '${model.loaded["provider.$name"]}'")
+        continue
+      }
+      model.loaded["provider.$name"] = file
+      val fullName = header.fullName
+      lazyProviders.add(LazyProviderSchema(name, header.resourceTypes, header.dataSourceTypes, header.hasProperties) {
+        loadProvider(file, fullName, name, namespace)
+      })
+    }
+  }
+
+  private fun loadProvider(file: String, fullName: String, name: String, namespace: String): LazyProviderSchema.Schema {
+    val start = System.currentTimeMillis()
+    try {
+      val json = getResource(file)?.use { ObjectMapper().readTree(it) as ObjectNode? }
+      val providers = json?.get("schemas")?.get("provider_schemas") ?: json?.obj("provider_schemas")
+      val provider = (providers as? ObjectNode)?.obj(fullName)
+      if (provider == null) {
+        logErrorAndFailInInternalMode("Provider '$fullName' not found in file '$file'")
+      }
+      else {
+        // The pool isn't thread-safe, and providers may be requested from several threads at once
+        val schema = synchronized(pool) {
+          TerraformProvidersSchema().loadProvider(context, name, namespace, provider, file)
+        }
+        LOG.debug { "Provider '$name' loaded from '$file' in ${System.currentTimeMillis() - start} ms" }
+        return schema
+      }
+    }
+    catch (e: Exception) {
+      logErrorAndFailInInternalMode("Failed to load provider '$fullName' from file '$file'", e)
     }
+    return LazyProviderSchema.Schema(ProviderType(name, emptyList(), namespace), emptyList(), emptyList())
   }
 
   private fun loadExternal() {
@@ -0,0 +1,100 @@
+// Copyright 2000-2023 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package org.intellij.terraform.config.model.loader
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import java.io.InputStream
+
+/**
+ * What is known about a provider of a `terraform providers schema -json` file without parsing its schema.
+ */
+internal class ProviderSchemaHeader(val fullName: String,
+                                    val resourceTypes: List<String>,
+                                    val dataSourceTypes: List<String>,
+                                    val hasProperties: Boolean)
+
+/**
+ * Reads the provider names and the names of their resources and data sources, skipping the schemas themselves.
+ * Returns `null` if the stream isn't in a format supported by [TerraformProvidersSchema].
+ */
+internal fun scanProviderSchemas(stream: InputStream): List<ProviderSchemaHeader>? {
+  ObjectMapper().factory.createParser(stream).use { parser ->
+    if (parser.nextToken() != JsonToken.START_OBJECT) return null
+    val result = ArrayList<ProviderSchemaHeader>()
+    var version: String? = null
+    parser.forEachField { name ->
+      when (name) {
+        "format_version" -> version = parser.valueAsString
+        "provider_schemas" -> scanProviders(parser, result)
+        "schemas" -> if (parser.currentToken() == JsonToken.START_OBJECT) {
+          parser.forEachField { schemasField ->
+            when (schemasField) {
+              "format_version" -> version = parser.valueAsString
+              "provider_schemas" -> scanProviders(parser, result)
+              else -> parser.skipChildren()
+            }
+          }
+        }
+        else -> parser.skipChildren()
+      }
+    }
+    val format = version ?: return null
+    if (!TerraformProvidersSchema().isSupportedVersion(format)) return null
+    return result
+  }
+}
+
+private fun scanProviders(parser: JsonParser, result: MutableList<ProviderSchemaHeader>) {
+  if (parser.currentToken() != JsonToken.START_OBJECT) {
+    parser.skipChildren()
+    return
+  }
+  parser.forEachField { fullName ->
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren()
+      return@forEachField
+    }
+    var resources: List<String> = emptyList()
+    var dataSources: List<String> = emptyList()
+    var hasProperties = false
+    parser.forEachField { name ->
+      when (name) {
+        "resource_schemas" -> resources = scanNames(parser)
+        "data_source_schemas" -> dataSources = scanNames(parser)
+        // Provider configuration schemas are small, so it's fine to read them completely
+        "provider" -> hasProperties = parser.readValueAsTree<JsonNode>()?.get("block")?.let { block ->
+          (block.get("attributes")?.size() ?: 0) > 0 || (block.get("block_types")?.size() ?: 0) > 0
+        } ?: false
+        else -> parser.skipChildren()
+      }
+    }
+    result.add(ProviderSchemaHeader(fullName, resources, dataSources, hasProperties))
+  }
+}
+
+private fun scanNames(parser: JsonParser): List<String> {
+  if (parser.currentToken() != JsonToken.START_OBJECT) {
+    parser.skipChildren()
+    return emptyList()
+  }
+  val names = ArrayList<String>()
+  parser.forEachField { name ->
+    names.add(name)
+    parser.skipChildren()
+  }
+  return names
+}
+
+/**
+ * Calls [action] for each field of the current object with the parser positioned at the field value.
+ * The action has to consume the value completely, e.g. with [JsonParser.skipChildren].
+ */
+private inline fun JsonParser.forEachField(action: (String) -> Unit) {
+  while (nextToken() == JsonToken.FIELD_NAME) {
+    val name = currentName()
+    nextToken()
+    action(name)
+  }
+}
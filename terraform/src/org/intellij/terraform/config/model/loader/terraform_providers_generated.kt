@@ -282,24 +282,32 @@ class TerraformProvidersSchema : VersionedMetadataLoader {
 
     val providers = json.get("schemas")?.get("provider_schemas") ?: json.obj("provider_schemas")
     for ((n, provider) in providers!!.fields().asSequence()) {
-      val stringList = n.split("/")
-      val (name, namespace) = stringList.takeIf { it.size == 3 && it[0] == "registry.terraform.io" || it[0] == "terraform.io" }?.let { Pair(it[2], it[1]) } ?: Pair(n, n)
+      val (name, namespace) = parseProviderName(n)
       provider as ObjectNode
       if (model.loaded.containsKey("provider.$name")) {
         TerraformMetadataLoader.LOG.warn("Provider '$name' is already loaded from '${model.loaded["provider.$name"]}'")
         continue
       }
       model.loaded["provider.$name"] = file
-      val info = provider.obj("provider")?.let { parseProviderInfo(context, name, namespace, it) } ?: ProviderType(name, emptyList(), namespace)
-      model.providers.add(info)
-      val resources = provider.obj("resource_schemas")
-      val dataSources = provider.obj("data_source_schemas")
-      if (resources == null && dataSources == null) {
-        TerraformMetadataLoader.LOG.warn("No resources nor data-sources defined for provider '$name' in file '$file'")
-      }
-      resources?.let { it.fields().asSequence().mapTo(model.resources) { parseResourceInfo(context, it, info) } }
-      dataSources?.let { it.fields().asSequence().mapTo(model.dataSources) { parseDataSourceInfo(context, it, info) } }
+      val schema = loadProvider(context, name, namespace, provider, file)
+      model.providers.add(schema.provider)
+      model.resources.addAll(schema.resources)
+      model.dataSources.addAll(schema.dataSources)
+    }
+  }
+
+  internal fun loadProvider(context: LoadContext, name: String, namespace: String, provider: ObjectNode, file: String): LazyProviderSchema.Schema {
+    val info = provider.obj("provider")?.let { parseProviderInfo(context, name, namespace, it) } ?: ProviderType(name, emptyList(), namespace)
+    val resources = provider.obj("resource_schemas")
+    val dataSources = provider.obj("data_source_schemas")
+    if (resources == null && dataSources == null) {
+      TerraformMetadataLoader.LOG.warn("No resources nor data-sources defined for provider '$name' in file '$file'")
     }
+    return LazyProviderSchema.Schema(
+      info,
+      resources?.fields()?.asSequence()?.map { parseResourceInfo(context, it, info) }?.toList().orEmpty(),
+      dataSources?.fields()?.asSequence()?.map { parseDataSourceInfo(context, it, info) }?.toList().orEmpty()
+    )
   }
 
   private fun parseProviderInfo(context: LoadContext, name: String, namespace: String, obj: ObjectNode): ProviderType? {
@@ -326,5 +334,15 @@ class TerraformProvidersSchema : VersionedMetadataLoader {
     // TODO: Support description
     return DataSourceType(name, info, parsed.properties.values.toList())
   }
+
+  companion object {
+    /**
+     * Splits the full provider name, like `registry.terraform.io/hashicorp/aws`, into its name and namespace
+     */
+    internal fun parseProviderName(fullName: String): Pair<String, String> {
+      val stringList = fullName.split("/")
+      return stringList.takeIf { it.size == 3 && it[0] == "registry.terraform.io" || it[0] == "terraform.io" }?.let { Pair(it[2], it[1]) } ?: Pair(fullName, fullName)
+    }
+  }
 }
 
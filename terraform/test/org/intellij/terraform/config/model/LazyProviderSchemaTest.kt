@@ -0,0 +1,157 @@
+// Copyright 2000-2023 JetBrains s.r.o. and contributors. Use of this source code is governed by the Apache 2.0 license.
+package org.intellij.terraform.config.model
+
+import com.intellij.testFramework.LightPlatformTestCase
+import org.intellij.terraform.config.model.loader.TerraformMetadataLoader
+import org.intellij.terraform.config.model.loader.scanProviderSchemas
+import java.util.concurrent.atomic.AtomicInteger
+
+class LazyProviderSchemaTest : LightPlatformTestCase() {
+
+  fun testBundledProvidersLoadedOnFirstUse() {
+    val model = loadModel()
+    assertNotEmpty(model.lazyProviders)
+    assertTrue(model.lazyProviders.none { it.isLoaded })
+
+    val provider = model.lazyProviders.first { it.resourceTypes.isNotEmpty() }
+    val resource = model.getResourceType(provider.resourceTypes.first())
+    assertNotNull(resource)
+    assertEquals(provider.type, resource!!.provider.type)
+    assertTrue(provider.isLoaded)
+    assertEquals(listOf(provider), model.lazyProviders.filter { it.isLoaded })
+  }
+
+  fun testFilteredResourcesLoadOnlyAcceptedProviders() {
+    val model = loadModel()
+    val provider = model.lazyProviders.first { it.resourceTypes.isNotEmpty() }
+
+    val resources = model.getResourceTypes { it == provider.type }
+    assertSameElements(resources.map { it.type }, provider.resourceTypes)
+    assertEquals(listOf(provider), model.lazyProviders.filter { it.isLoaded })
+  }
+
+  fun testAllResourcesContainLazyOnes() {
+    val model = loadModel()
+    val names = model.resources.mapTo(HashSet()) { it.type }
+    for (provider in model.lazyProviders) {
+      assertTrue(provider.isLoaded)
+      assertContainsElements(names, provider.resourceTypes)
+    }
+  }
+
+  fun testProviderWithoutPropertiesDoesNotLoadSchema() {
+    val model = loadModel()
+    for (provider in model.lazyProviders) {
+      assertEquals(provider.type, !provider.hasProperties, model.isProviderWithoutProperties(provider.type))
+    }
+    assertTrue(model.lazyProviders.none { it.isLoaded })
+
+    for (provider in model.lazyProviders) {
+      assertEquals(provider.type, model.getProviderType(provider.type)!!.properties == TypeModel.AbstractProvider.properties,
+                   model.isProviderWithoutProperties(provider.type))
+    }
+  }
+
+  fun testLoadFromKeepsProvidersLazy() {
+    val global = loadModel()
+    val loader = TerraformMetadataLoader()
+    loader.loadFrom(global)
+    val model = loader.buildModel()
+
+    assertSameElements(model.lazyProviders, global.lazyProviders)
+    assertTrue(model.lazyProviders.none { it.isLoaded })
+  }
+
+  fun testLoadFromDoesNotLoadOwnLazyProviders() {
+    val global = loadModel()
+    val loader = TerraformMetadataLoader()
+    loader.loadFrom(global)
+    // the names of the second model are checked against the lazy providers taken from the first one
+    loader.loadFrom(global)
+    val model = loader.buildModel()
+
+    assertSameElements(model.lazyProviders, global.lazyProviders)
+    assertTrue(model.lazyProviders.none { it.isLoaded })
+  }
+
+  fun testLocalProviderShadowsBundledOneByName() {
+    val global = loadModel()
+    val provider = global.lazyProviders.first { it.resourceTypes.size >= 2 }
+    val (localResource, bundledResource) = provider.resourceTypes.take(2)
+    val loader = TerraformMetadataLoader()
+    loader.loadOne("local.json", """
+      {
+        "format_version": "1.0",
+        "provider_schemas": {
+          "registry.terraform.io/localtest/${provider.type}": {
+            "provider": {"version": 0, "block": {}},
+            "resource_schemas": {"$localResource": {"version": 0, "block": {"attributes": {"local_only": {"type": "string", "optional": true}}}}}
+          }
+        }
+      }
+    """.trimIndent().byteInputStream())
+    loader.loadFrom(global)
+    val model = loader.buildModel()
+
+    assertEquals("localtest", model.getProviderType(provider.type)!!.namespace)
+    assertTrue(model.getResourceType(localResource)!!.properties.containsKey("local_only"))
+    assertFalse(provider.isLoaded)
+
+    // resources missing from the local version of the provider come from the bundled one
+    assertEquals(provider.type, model.getResourceType(bundledResource)!!.provider.type)
+    assertTrue(provider.isLoaded)
+  }
+
+  fun testSchemaParsedOnce() {
+    val loads = AtomicInteger()
+    val provider = LazyProviderSchema("first", listOf("first_a"), emptyList(), false) {
+      loads.incrementAndGet()
+      val providerType = ProviderType("first", emptyList())
+      LazyProviderSchema.Schema(providerType, listOf(ResourceType("first_a", providerType, emptyList())), emptyList())
+    }
+    assertFalse(provider.isLoaded)
+    assertEquals("first_a", provider.getResourceType("first_a")!!.type)
+    assertEquals("first", provider.provider.type)
+    assertTrue(provider.isLoaded)
+    assertEquals(1, loads.get())
+  }
+
+  fun testScanProviderSchemas() {
+    val headers = scanProviderSchemas("""
+      {
+        "format_version": "1.0",
+        "provider_schemas": {
+          "registry.terraform.io/example/first": {
+            "provider": {"version": 0, "block": {"attributes": {"token": {"type": "string", "optional": true}}}},
+            "resource_schemas": {"first_a": {"version": 0, "block": {}}, "first_b": {"version": 0, "block": {}}},
+            "data_source_schemas": {"first_c": {"version": 0, "block": {"attributes": {"id": {"type": "string"}}}}}
+          },
+          "registry.terraform.io/example/second": {
+            "provider": {"version": 0, "block": {}},
+            "resource_schemas": {"second_a": {"version": 0, "block": {}}}
+          }
+        }
+      }
+    """.trimIndent().byteInputStream())
+
+    assertNotNull(headers)
+    assertEquals(listOf("registry.terraform.io/example/first", "registry.terraform.io/example/second"), headers!!.map { it.fullName })
+    assertEquals(listOf("first_a", "first_b"), headers[0].resourceTypes)
+    assertEquals(listOf("first_c"), headers[0].dataSourceTypes)
+    assertTrue(headers[0].hasProperties)
+    assertEquals(listOf("second_a"), headers[1].resourceTypes)
+    assertEmpty(headers[1].dataSourceTypes)
+    assertFalse(headers[1].hasProperties)
+  }
+
+  fun testScanUnsupportedFormat() {
+    assertNull(scanProviderSchemas("""{"type": "provider", "name": "first"}""".byteInputStream()))
+    assertNull(scanProviderSchemas("""{"format_version": "42.0", "provider_schemas": {}}""".byteInputStream()))
+  }
+
+  private fun loadModel(): TypeModel {
+    val model = TerraformMetadataLoader().loadDefaults()
+    assertNotNull(model)
+    return model!!
+  }
+}